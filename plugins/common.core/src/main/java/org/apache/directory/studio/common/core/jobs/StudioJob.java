@@ -21,10 +21,17 @@
 package org.apache.directory.studio.common.core.jobs;
 
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.IJobChangeEvent;
 import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.core.runtime.jobs.JobChangeAdapter;
 
 
 /**
@@ -37,6 +44,9 @@ public class StudioJob<T extends StudioRunnableWithProgress> extends Job
     /** The runnables. */
     protected T[] runnables;
 
+    /** The flag indicating whether this job is queued on conflicts */
+    private boolean queueOnConflict;
+
 
     /**
      * Creates a new instance of StudioJob.
@@ -47,6 +57,18 @@ public class StudioJob<T extends StudioRunnableWithProgress> extends Job
     {
         super( runnables[0].getName() );
         this.runnables = runnables;
+
+        addJobChangeListener( new JobChangeAdapter()
+        {
+            public void done( IJobChangeEvent event )
+            {
+                // release the locks and schedule the queued jobs waiting for them
+                for ( StudioJob<?> job : StudioJobLockRegistry.release( StudioJob.this ) )
+                {
+                    job.schedule();
+                }
+            }
+        } );
     }
 
 
@@ -140,6 +162,30 @@ public class StudioJob<T extends StudioRunnableWithProgress> extends Job
     }
 
 
+    /**
+     * Sets whether this job is queued if it conflicts with an already scheduled job.
+     * A queued job is scheduled again as soon as a conflicting job is done. By default
+     * a conflicting job is not scheduled at all.
+     *
+     * @param queueOnConflict true to queue this job on conflicts
+     */
+    public void setQueueOnConflict( boolean queueOnConflict )
+    {
+        this.queueOnConflict = queueOnConflict;
+    }
+
+
+    /**
+     * Checks whether this job is queued if it conflicts with an already scheduled job.
+     *
+     * @return true if this job is queued on conflicts
+     */
+    public boolean isQueueOnConflict()
+    {
+        return queueOnConflict;
+    }
+
+
     /**
      * {@inheritDoc}
      */
@@ -147,45 +193,29 @@ public class StudioJob<T extends StudioRunnableWithProgress> extends Job
     {
         // We don't schedule a job if the same type of runnable should run
         // that works on the same entry as the current runnable.
+        // The locks of all scheduled jobs are kept in the lock registry.
 
-        for ( T runnable : runnables )
+        if ( !super.shouldSchedule() )
         {
-            Object[] myLockedObjects = runnable.getLockedObjects();
-            String[] myLockedObjectsIdentifiers = getLockIdentifiers( myLockedObjects );
+            return false;
+        }
+
+        Map<Class<?>, List<String>> locks = StudioJobLockRegistry.newLocks();
 
-            Job[] jobs = getJobManager().find( null );
+        for ( T runnable : runnables )
+        {
+            List<String> identifiers = locks.get( runnable.getClass() );
             
-            for ( Job job : jobs )
+            if ( identifiers == null )
             {
-                if ( job instanceof StudioJob )
-                {
-                    @SuppressWarnings("unchecked")
-                    StudioJob<StudioRunnableWithProgress> otherJob = ( StudioJob<StudioRunnableWithProgress> ) job;
-                    
-                    for ( StudioRunnableWithProgress otherRunnable : otherJob.runnables )
-                    {
-                        if ( ( runnable.getClass() == otherRunnable.getClass() ) && ( runnable != otherRunnable ) )
-                        {
-                            Object[] otherLockedObjects = otherRunnable.getLockedObjects();
-                            String[] otherLockedObjectIdentifiers = getLockIdentifiers( otherLockedObjects );
-
-                            for ( String other : otherLockedObjectIdentifiers )
-                            {
-                                for ( String myLockedObjectIdentifier : myLockedObjectsIdentifiers )
-                                {
-                                    if ( other.startsWith( myLockedObjectIdentifier ) || myLockedObjectIdentifier.startsWith( other ) )
-                                    {
-                                        return false;
-                                    }
-                                }
-                            }
-                        }
-                    }
-                }
+                identifiers = new ArrayList<String>();
+                locks.put( runnable.getClass(), identifiers );
             }
+            
+            identifiers.addAll( Arrays.asList( getLockIdentifiers( runnable.getLockedObjects() ) ) );
         }
-        
-        return super.shouldSchedule();
+
+        return StudioJobLockRegistry.acquire( this, locks, queueOnConflict );
     }
 
 
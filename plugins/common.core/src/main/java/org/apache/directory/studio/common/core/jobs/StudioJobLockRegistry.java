@@ -0,0 +1,274 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *  
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License. 
+ *  
+ */
+
+package org.apache.directory.studio.common.core.jobs;
+
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+
+/**
+ * The registry of lock identifiers held by scheduled {@link StudioJob}s.
+ * <p>
+ * Two runnables of the same class conflict if one of the lock identifiers of one runnable
+ * is a prefix of a lock identifier of the other one. The held identifiers are kept in one
+ * prefix trie per runnable class, so a conflict check only walks the characters of the
+ * identifier to check, independent of the number of scheduled jobs.
+ * <p>
+ * Jobs acquire their locks when they are scheduled and release them when they are done.
+ * A job that conflicts may be queued, it is then scheduled again when a job holding locks
+ * for the same runnable class releases them.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+final class StudioJobLockRegistry
+{
+    /** The lock */
+    private static final Object lock = new Object();
+
+    /** The prefix tries of held lock identifiers, per runnable class */
+    private static final Map<Class<?>, Node> tries = new HashMap<Class<?>, Node>();
+
+    /** The lock identifiers held by each job, per runnable class */
+    private static final Map<StudioJob<?>, Map<Class<?>, List<String>>> holders = new IdentityHashMap<StudioJob<?>, Map<Class<?>, List<String>>>();
+
+    /** The queued jobs waiting for a release of locks, per runnable class */
+    private static final Map<Class<?>, Set<StudioJob<?>>> waiters = new HashMap<Class<?>, Set<StudioJob<?>>>();
+
+
+    private StudioJobLockRegistry()
+    {
+    }
+
+
+    /**
+     * Acquires the given locks for the given job. Nothing is acquired if any of the
+     * lock identifiers conflicts with a lock identifier held by another job. A job
+     * that already holds its locks, e.g. because it is scheduled again while waiting
+     * or running, keeps them.
+     *
+     * @param job the job
+     * @param locks the lock identifiers, per runnable class
+     * @param queue true to queue the job if there is a conflict
+     * @return true if the locks were acquired, false if there is a conflict
+     */
+    static boolean acquire( StudioJob<?> job, Map<Class<?>, List<String>> locks, boolean queue )
+    {
+        synchronized ( lock )
+        {
+            if ( holders.containsKey( job ) )
+            {
+                return true;
+            }
+
+            for ( Map.Entry<Class<?>, List<String>> entry : locks.entrySet() )
+            {
+                Node root = tries.get( entry.getKey() );
+                if ( root == null )
+                {
+                    continue;
+                }
+
+                for ( String identifier : entry.getValue() )
+                {
+                    if ( root.conflicts( identifier ) )
+                    {
+                        if ( queue )
+                        {
+                            Set<StudioJob<?>> jobs = waiters.get( entry.getKey() );
+                            if ( jobs == null )
+                            {
+                                jobs = new LinkedHashSet<StudioJob<?>>();
+                                waiters.put( entry.getKey(), jobs );
+                            }
+                            jobs.add( job );
+                        }
+                        return false;
+                    }
+                }
+            }
+
+            for ( Map.Entry<Class<?>, List<String>> entry : locks.entrySet() )
+            {
+                Node root = tries.get( entry.getKey() );
+                if ( root == null )
+                {
+                    root = new Node();
+                    tries.put( entry.getKey(), root );
+                }
+
+                for ( String identifier : entry.getValue() )
+                {
+                    root.add( identifier );
+                }
+            }
+            holders.put( job, locks );
+
+            return true;
+        }
+    }
+
+
+    /**
+     * Releases all locks held by the given job.
+     *
+     * @param job the job
+     * @return the queued jobs that wait for a release of the job's locks, to be scheduled again
+     */
+    static List<StudioJob<?>> release( StudioJob<?> job )
+    {
+        synchronized ( lock )
+        {
+            Map<Class<?>, List<String>> locks = holders.remove( job );
+            if ( locks == null )
+            {
+                return new ArrayList<StudioJob<?>>();
+            }
+
+            List<StudioJob<?>> released = new ArrayList<StudioJob<?>>();
+            for ( Map.Entry<Class<?>, List<String>> entry : locks.entrySet() )
+            {
+                Node root = tries.get( entry.getKey() );
+                for ( String identifier : entry.getValue() )
+                {
+                    root.remove( identifier );
+                }
+                if ( root.below == 0 )
+                {
+                    tries.remove( entry.getKey() );
+                }
+
+                Set<StudioJob<?>> jobs = waiters.remove( entry.getKey() );
+                if ( jobs != null )
+                {
+                    released.addAll( jobs );
+                }
+            }
+
+            return released;
+        }
+    }
+
+
+    /**
+     * Creates an empty lock map that keeps the order of the runnable classes.
+     *
+     * @return the lock map
+     */
+    static Map<Class<?>, List<String>> newLocks()
+    {
+        return new LinkedHashMap<Class<?>, List<String>>();
+    }
+
+
+    /**
+     * A node of a prefix trie of lock identifiers.
+     */
+    private static final class Node
+    {
+        /** The child nodes, created on demand */
+        private Map<Character, Node> children;
+
+        /** The number of identifiers ending at this node */
+        private int held;
+
+        /** The number of identifiers ending at this node or below */
+        private int below;
+
+
+        /**
+         * Checks if a held identifier is a prefix of the given identifier, or if
+         * the given identifier is a prefix of a held identifier.
+         */
+        private boolean conflicts( String identifier )
+        {
+            Node node = this;
+            for ( int i = 0; i < identifier.length(); i++ )
+            {
+                if ( node.held > 0 )
+                {
+                    return true;
+                }
+
+                node = node.children != null ? node.children.get( identifier.charAt( i ) ) : null;
+                if ( node == null )
+                {
+                    return false;
+                }
+            }
+            return node.below > 0;
+        }
+
+
+        private void add( String identifier )
+        {
+            Node node = this;
+            node.below++;
+            for ( int i = 0; i < identifier.length(); i++ )
+            {
+                if ( node.children == null )
+                {
+                    node.children = new HashMap<Character, Node>( 2 );
+                }
+
+                Node child = node.children.get( identifier.charAt( i ) );
+                if ( child == null )
+                {
+                    child = new Node();
+                    node.children.put( identifier.charAt( i ), child );
+                }
+                node = child;
+                node.below++;
+            }
+            node.held++;
+        }
+
+
+        private void remove( String identifier )
+        {
+            Node node = this;
+            node.below--;
+            for ( int i = 0; i < identifier.length(); i++ )
+            {
+                Node child = node.children.get( identifier.charAt( i ) );
+                child.below--;
+                if ( child.below == 0 )
+                {
+                    // the whole sub trie is unused now
+                    node.children.remove( identifier.charAt( i ) );
+                    if ( node.children.isEmpty() )
+                    {
+                        node.children = null;
+                    }
+                    return;
+                }
+                node = child;
+            }
+            node.held--;
+        }
+    }
+}
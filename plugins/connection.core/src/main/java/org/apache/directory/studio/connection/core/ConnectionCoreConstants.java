@@ -76,6 +76,21 @@ public final class ConnectionCoreConstants
     /** The constant used to identify the "search log file size" preference  */
     public static final String PREFERENCE_SEARCHLOGS_FILE_SIZE = "searchLogsFileSize"; //$NON-NLS-1$
 
+    /** The constant used to identify the "modification log queue policy" preference  */
+    public static final String PREFERENCE_MODIFICATIONLOGS_QUEUE_POLICY = "modificationLogsQueuePolicy"; //$NON-NLS-1$
+
+    /** The constant used to identify the "search log queue policy" preference  */
+    public static final String PREFERENCE_SEARCHLOGS_QUEUE_POLICY = "searchLogsQueuePolicy"; //$NON-NLS-1$
+
+    /** The constant used to identify the 'block' value of the log queue policy, the logging thread waits for free space */
+    public static final int PREFERENCE_LOGS_QUEUE_POLICY_BLOCK = 0;
+
+    /** The constant used to identify the 'drop' value of the log queue policy, events are dropped if the queue is full */
+    public static final int PREFERENCE_LOGS_QUEUE_POLICY_DROP = 1;
+
+    /** The constant used to identify the 'sample' value of the log queue policy, events are sampled if the queue fills up */
+    public static final int PREFERENCE_LOGS_QUEUE_POLICY_SAMPLE = 2;
+
     /** The constant used to identify the "masked attributes" preference  */
     public static final String PREFERENCE_MODIFICATIONLOGS_MASKED_ATTRIBUTES = "modificationLogsMaskedAttributes"; //$NON-NLS-1$
 
@@ -85,6 +100,18 @@ public final class ConnectionCoreConstants
     /** The constant used to identify the KRB5 login module class name */
     public static final String PREFERENCE_KRB5_LOGIN_MODULE = "krb5LoginModule"; //$NON-NLS-1$
 
+    /** The constant used to identify the maximum number of pooled LDAP connections per connection */
+    public static final String PREFERENCE_CONNECTION_POOL_MAX_CONNECTIONS = "connectionPoolMaxConnections"; //$NON-NLS-1$
+
+    /** The constant used to identify the minimum number of pooled LDAP connections kept open per connection */
+    public static final String PREFERENCE_CONNECTION_POOL_MIN_CONNECTIONS = "connectionPoolMinConnections"; //$NON-NLS-1$
+
+    /** The constant used to identify the idle timeout (in seconds) of pooled LDAP connections */
+    public static final String PREFERENCE_CONNECTION_POOL_IDLE_TIMEOUT = "connectionPoolIdleTimeout"; //$NON-NLS-1$
+
+    /** The constant used to identify the maximum number of outstanding requests of bulk operations */
+    public static final String PREFERENCE_OUTSTANDING_REQUESTS_WINDOW = "outstandingRequestsWindow"; //$NON-NLS-1$
+
     /** The constant used to identify if connections passwords should be stored in a keystore */
     public static final String PREFERENCE_CONNECTIONS_PASSWORDS_KEYSTORE = "connectionsPasswordsKeystore"; //$NON-NLS-1$
 
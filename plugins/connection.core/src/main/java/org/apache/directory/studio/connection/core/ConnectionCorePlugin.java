@@ -626,6 +626,14 @@ public class ConnectionCorePlugin extends Plugin
     }
 
 
+    public int getModificationLogsQueuePolicy()
+    {
+        return Platform.getPreferencesService().getInt( ConnectionCoreConstants.PLUGIN_ID,
+            ConnectionCoreConstants.PREFERENCE_MODIFICATIONLOGS_QUEUE_POLICY,
+            ConnectionCoreConstants.PREFERENCE_LOGS_QUEUE_POLICY_BLOCK, null );
+    }
+
+
     public boolean isModificationLogsEnabled()
     {
         return Platform.getPreferencesService().getBoolean( ConnectionCoreConstants.PLUGIN_ID,
@@ -654,6 +662,14 @@ public class ConnectionCorePlugin extends Plugin
     }
 
 
+    public int getSearchLogsQueuePolicy()
+    {
+        return Platform.getPreferencesService().getInt( ConnectionCoreConstants.PLUGIN_ID,
+            ConnectionCoreConstants.PREFERENCE_SEARCHLOGS_QUEUE_POLICY,
+            ConnectionCoreConstants.PREFERENCE_LOGS_QUEUE_POLICY_BLOCK, null );
+    }
+
+
     public boolean isSearchRequestLogsEnabled()
     {
         return Platform.getPreferencesService().getBoolean( ConnectionCoreConstants.PLUGIN_ID,
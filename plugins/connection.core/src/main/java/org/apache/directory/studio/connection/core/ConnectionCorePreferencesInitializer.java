@@ -47,17 +47,27 @@ public class ConnectionCorePreferencesInitializer extends AbstractPreferenceInit
         preferences.setDefault( ConnectionCoreConstants.PREFERENCE_KRB5_LOGIN_MODULE, defaultKrb5LoginModule );
         preferences.setDefault( ConnectionCoreConstants.PREFERENCE_USE_KRB5_SYSTEM_PROPERTIES, false );
 
+        // Connection pool
+        preferences.setDefault( ConnectionCoreConstants.PREFERENCE_CONNECTION_POOL_MAX_CONNECTIONS, 4 );
+        preferences.setDefault( ConnectionCoreConstants.PREFERENCE_CONNECTION_POOL_MIN_CONNECTIONS, 1 );
+        preferences.setDefault( ConnectionCoreConstants.PREFERENCE_CONNECTION_POOL_IDLE_TIMEOUT, 60 );
+        preferences.setDefault( ConnectionCoreConstants.PREFERENCE_OUTSTANDING_REQUESTS_WINDOW, 32 );
+
         // Modification Logs
         defaultPreferences.putBoolean( ConnectionCoreConstants.PREFERENCE_MODIFICATIONLOGS_ENABLE, true );
         defaultPreferences.put( ConnectionCoreConstants.PREFERENCE_MODIFICATIONLOGS_MASKED_ATTRIBUTES, "" );
         defaultPreferences.putInt( ConnectionCoreConstants.PREFERENCE_MODIFICATIONLOGS_FILE_COUNT, 10 );
         defaultPreferences.putInt( ConnectionCoreConstants.PREFERENCE_MODIFICATIONLOGS_FILE_SIZE, 100 );
+        defaultPreferences.putInt( ConnectionCoreConstants.PREFERENCE_MODIFICATIONLOGS_QUEUE_POLICY,
+            ConnectionCoreConstants.PREFERENCE_LOGS_QUEUE_POLICY_BLOCK );
 
         // Search Logs
         defaultPreferences.putBoolean( ConnectionCoreConstants.PREFERENCE_SEARCHREQUESTLOGS_ENABLE, true );
         defaultPreferences.putBoolean( ConnectionCoreConstants.PREFERENCE_SEARCHRESULTENTRYLOGS_ENABLE, false );
         defaultPreferences.putInt( ConnectionCoreConstants.PREFERENCE_SEARCHLOGS_FILE_COUNT, 10 );
         defaultPreferences.putInt( ConnectionCoreConstants.PREFERENCE_SEARCHLOGS_FILE_SIZE, 100 );
+        defaultPreferences.putInt( ConnectionCoreConstants.PREFERENCE_SEARCHLOGS_QUEUE_POLICY,
+            ConnectionCoreConstants.PREFERENCE_LOGS_QUEUE_POLICY_BLOCK );
 
         // Connections Passwords Keystore
         preferences.setDefault( ConnectionCoreConstants.PREFERENCE_CONNECTIONS_PASSWORDS_KEYSTORE,
@@ -0,0 +1,152 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *  
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License. 
+ *  
+ */
+package org.apache.directory.studio.connection.core.event;
+
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+
+/**
+ * Base class for {@link EventCoalescer}s that drop repeated events: of all events
+ * with the same coalescing key only the last one is kept.
+ *
+ * @param <L> the listener type
+ * @param <E> the event type
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public abstract class AbstractEventCoalescer<L, E> implements EventCoalescer<L, E>
+{
+
+    /**
+     * {@inheritDoc}
+     */
+    public List<E> coalesce( List<E> events )
+    {
+        if ( events.size() < 2 )
+        {
+            return events;
+        }
+
+        // walk backwards, so the last event of each key is kept
+        Set<Object> seenKeys = new HashSet<Object>();
+        List<E> result = new ArrayList<E>( events.size() );
+        for ( int i = events.size() - 1; i >= 0; i-- )
+        {
+            E event = events.get( i );
+            Object key = getCoalescingKey( event );
+            if ( key == null || seenKeys.add( key ) )
+            {
+                result.add( event );
+            }
+        }
+
+        if ( result.size() == events.size() )
+        {
+            return events;
+        }
+
+        List<E> ordered = new ArrayList<E>( result.size() );
+        for ( int i = result.size() - 1; i >= 0; i-- )
+        {
+            ordered.add( result.get( i ) );
+        }
+        return ordered;
+    }
+
+
+    /**
+     * Gets the coalescing key of the given event. Events with equal keys
+     * are repeated events, only the last of them is delivered.
+     *
+     * @param event the event
+     * @return the coalescing key, null if the event must always be delivered
+     */
+    protected abstract Object getCoalescingKey( E event );
+
+
+    /**
+     * Creates a coalescing key from the given objects, they are compared by identity.
+     *
+     * @param parts the objects, may contain null
+     * @return the key
+     */
+    protected static Object key( Object... parts )
+    {
+        return new IdentityKey( parts );
+    }
+
+    /**
+     * A key that compares its parts by identity.
+     */
+    private static final class IdentityKey
+    {
+        private final Object[] parts;
+
+
+        IdentityKey( Object[] parts )
+        {
+            this.parts = parts;
+        }
+
+
+        public boolean equals( Object obj )
+        {
+            if ( !( obj instanceof IdentityKey ) )
+            {
+                return false;
+            }
+
+            Object[] other = ( ( IdentityKey ) obj ).parts;
+            if ( other.length != parts.length )
+            {
+                return false;
+            }
+            for ( int i = 0; i < parts.length; i++ )
+            {
+                if ( other[i] != parts[i] )
+                {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+
+        public int hashCode()
+        {
+            int hash = 17;
+            for ( Object part : parts )
+            {
+                hash = 31 * hash + System.identityHashCode( part );
+            }
+            return hash;
+        }
+
+
+        public String toString()
+        {
+            return Arrays.toString( parts );
+        }
+    }
+}
@@ -0,0 +1,253 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *  
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License. 
+ *  
+ */
+package org.apache.directory.studio.connection.core.event;
+
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.directory.studio.connection.core.ConnectionCoreConstants;
+import org.apache.directory.studio.connection.core.ConnectionCorePlugin;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+
+
+/**
+ * An event manager that batches the events for listeners with an asynchronous
+ * {@link EventRunner}, for example UI listeners.
+ * <p>
+ * The first event for such a listener opens a short window, all events fired within
+ * the window are collected. When the window ends the collected events are coalesced
+ * by the {@link EventCoalescer} and delivered with a single {@link EventRunnable}.
+ * Listeners with a synchronous runner still receive each event immediately.
+ *
+ * @param <L> the listener type
+ * @param <E> the event type
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public class CoalescingEventManager<L, E> extends ConnectionEventRegistry.EventManager<L, EventRunner>
+{
+    /** The default window in milliseconds */
+    public static final long DEFAULT_WINDOW = 50L;
+
+    /** The thread that ends the windows, shared by all managers */
+    private static final ScheduledExecutorService DISPATCHER = Executors
+        .newSingleThreadScheduledExecutor( new ThreadFactory()
+        {
+            public Thread newThread( Runnable runnable )
+            {
+                Thread thread = new Thread( runnable, "Event Dispatcher" ); //$NON-NLS-1$
+                thread.setDaemon( true );
+                return thread;
+            }
+        } );
+
+    /** The coalescer */
+    private final EventCoalescer<L, E> coalescer;
+
+    /** The window in milliseconds */
+    private final long window;
+
+    /** The pending events per listener */
+    private final Map<L, Batch<E>> pending = new HashMap<L, Batch<E>>();
+
+
+    /**
+     * Creates a new instance of CoalescingEventManager with the default window.
+     *
+     * @param coalescer the coalescer
+     */
+    public CoalescingEventManager( EventCoalescer<L, E> coalescer )
+    {
+        this( coalescer, DEFAULT_WINDOW );
+    }
+
+
+    /**
+     * Creates a new instance of CoalescingEventManager.
+     *
+     * @param coalescer the coalescer
+     * @param window the window in milliseconds, 0 to deliver each event immediately
+     */
+    public CoalescingEventManager( EventCoalescer<L, E> coalescer, long window )
+    {
+        this.coalescer = coalescer;
+        this.window = window;
+    }
+
+
+    /**
+     * Fires the given event to all listeners.
+     *
+     * @param event the event
+     */
+    public void fire( final E event )
+    {
+        if ( ConnectionEventRegistry.isEventFiringSuspendedInCurrentThread() )
+        {
+            return;
+        }
+
+        for ( Map.Entry<L, EventRunner> entry : getListeners().entrySet() )
+        {
+            final L listener = entry.getKey();
+            EventRunner runner = entry.getValue();
+
+            if ( window > 0 && runner.isAsynchronous() )
+            {
+                enqueue( listener, runner, event );
+            }
+            else
+            {
+                synchronized ( ConnectionEventRegistry.lock )
+                {
+                    runner.execute( new EventRunnable()
+                    {
+                        public void run()
+                        {
+                            coalescer.deliver( listener, event );
+                        }
+                    } );
+                }
+            }
+        }
+    }
+
+
+    /**
+     * Delivers all pending events now, without waiting for the end of their windows.
+     */
+    public void flush()
+    {
+        List<L> listeners;
+        synchronized ( pending )
+        {
+            listeners = new ArrayList<L>( pending.keySet() );
+        }
+
+        for ( L listener : listeners )
+        {
+            flush( listener );
+        }
+    }
+
+
+    /**
+     * Gets the number of listeners with pending events.
+     *
+     * @return the number of listeners with pending events
+     */
+    public int getPendingCount()
+    {
+        synchronized ( pending )
+        {
+            return pending.size();
+        }
+    }
+
+
+    private void enqueue( final L listener, EventRunner runner, E event )
+    {
+        synchronized ( pending )
+        {
+            Batch<E> batch = pending.get( listener );
+            if ( batch == null )
+            {
+                batch = new Batch<E>( runner );
+                pending.put( listener, batch );
+                DISPATCHER.schedule( new Runnable()
+                {
+                    public void run()
+                    {
+                        flush( listener );
+                    }
+                }, window, TimeUnit.MILLISECONDS );
+            }
+            batch.events.add( event );
+        }
+    }
+
+
+    private void flush( final L listener )
+    {
+        Batch<E> batch;
+        synchronized ( pending )
+        {
+            batch = pending.remove( listener );
+        }
+        if ( batch == null )
+        {
+            return;
+        }
+
+        final List<E> events = coalescer.coalesce( batch.events );
+        ConnectionEventRegistry.addCoalescedCount( batch.events.size() - events.size() );
+
+        synchronized ( ConnectionEventRegistry.lock )
+        {
+            batch.runner.execute( new EventRunnable()
+            {
+                public void run()
+                {
+                    // skip listeners that were removed in the meantime, e.g. disposed widgets
+                    if ( !isRegistered( listener ) )
+                    {
+                        return;
+                    }
+
+                    for ( E event : events )
+                    {
+                        try
+                        {
+                            coalescer.deliver( listener, event );
+                        }
+                        catch ( RuntimeException e )
+                        {
+                            // don't lose the remaining events of the batch
+                            ConnectionCorePlugin.getDefault().getLog().log(
+                                new Status( IStatus.ERROR, ConnectionCoreConstants.PLUGIN_ID, e.getMessage(), e ) );
+                        }
+                    }
+                }
+            } );
+        }
+    }
+
+    /**
+     * The pending events of one listener.
+     */
+    private static class Batch<E>
+    {
+        private final EventRunner runner;
+        private final List<E> events = new ArrayList<E>();
+
+
+        Batch( EventRunner runner )
+        {
+            this.runner = runner;
+        }
+    }
+}
@@ -21,18 +21,12 @@
 package org.apache.directory.studio.connection.core.event;
 
 
-import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.Iterator;
-import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.directory.studio.connection.core.Connection;
-import org.apache.directory.studio.connection.core.ConnectionCoreConstants;
-import org.apache.directory.studio.connection.core.ConnectionCorePlugin;
 import org.apache.directory.studio.connection.core.ConnectionFolder;
-import org.eclipse.core.runtime.IStatus;
-import org.eclipse.core.runtime.Status;
 
 
 /**
@@ -44,62 +38,38 @@ import org.eclipse.core.runtime.Status;
 public class ConnectionEventRegistry
 {
 
-    /** The list of threads with suspended event firing. */
-    private static List<Long> suspendedEventFiringThreads = new ArrayList<Long>();
+    /** The number of nested suspensions of event firing, per thread. */
+    private static final ThreadLocal<int[]> suspendedEventFiring = new ThreadLocal<int[]>()
+    {
+        protected int[] initialValue()
+        {
+            return new int[1];
+        }
+    };
 
     /** The lock used to synchronize event firings */
     protected static Object lock = new Object();
 
-    /** The list with time stamps of recent event firings */
-    private static List<Long> fireTimeStamps = new ArrayList<Long>();
-
     /** A counter for fired events */
-    private static long fireCount = 0L;
+    private static final AtomicLong fireCount = new AtomicLong();
+
+    /** A counter for events that were merged into other events and not delivered */
+    private static final AtomicLong coalescedCount = new AtomicLong();
 
 
     /**
      * Checks if event firing is suspended in the current thread.
+     * Counts the fired event if firing is not suspended.
      *
      * @return true, if event firing is suspended in the current thread
      */
     protected static boolean isEventFiringSuspendedInCurrentThread()
     {
-        boolean suspended = suspendedEventFiringThreads.contains( Thread.currentThread().getId() );
+        boolean suspended = suspendedEventFiring.get()[0] > 0;
 
-        // count the number of fired event in the last second
-        // if more then five per second: print a warning
         if ( !suspended )
         {
-            fireCount++;
-
-            synchronized ( fireTimeStamps )
-            {
-                long now = System.currentTimeMillis();
-
-                // remove all time stamps older than one second
-                for ( Iterator<Long> it = fireTimeStamps.iterator(); it.hasNext(); )
-                {
-                    Long ts = it.next();
-                    if ( ts + 1000 < now )
-                    {
-                        it.remove();
-                    }
-                    else
-                    {
-                        break;
-                    }
-                }
-
-                fireTimeStamps.add( now );
-
-                if ( fireTimeStamps.size() > 10 )
-                {
-                    String message = "Warning: More then " + fireTimeStamps.size() + " events were fired per second!"; //$NON-NLS-1$ //$NON-NLS-2$
-                    ConnectionCorePlugin.getDefault().getLog().log(
-                        new Status( IStatus.WARNING, ConnectionCoreConstants.PLUGIN_ID, message,
-                            new Exception( message ) ) );
-                }
-            }
+            fireCount.incrementAndGet();
         }
 
         return suspended;
@@ -113,7 +83,30 @@ public class ConnectionEventRegistry
      */
     public static long getFireCount()
     {
-        return fireCount;
+        return fireCount.get();
+    }
+
+
+    /**
+     * Gets the number of events that were coalesced with other events
+     * of the same kind and therefore not delivered.
+     *
+     * @return the number of coalesced events
+     */
+    public static long getCoalescedCount()
+    {
+        return coalescedCount.get();
+    }
+
+
+    /**
+     * Adds to the number of coalesced events.
+     *
+     * @param count the number of events that were coalesced
+     */
+    protected static void addCoalescedCount( long count )
+    {
+        coalescedCount.addAndGet( count );
     }
 
 
@@ -122,21 +115,44 @@ public class ConnectionEventRegistry
      */
     public static void resumeEventFiringInCurrentThread()
     {
-        synchronized ( suspendedEventFiringThreads )
+        int[] suspensions = suspendedEventFiring.get();
+        if ( suspensions[0] > 0 )
         {
-            suspendedEventFiringThreads.remove( Thread.currentThread().getId() );
+            suspensions[0]--;
         }
     }
 
 
     /**
-     * Suspends event firing in the current thread.
+     * Suspends event firing in the current thread. Suspensions nest, event firing
+     * is resumed after {@link #resumeEventFiringInCurrentThread()} was called as
+     * often as this method.
      */
     public static void suspendEventFiringInCurrentThread()
     {
-        synchronized ( suspendedEventFiringThreads )
+        suspendedEventFiring.get()[0]++;
+    }
+
+
+    /**
+     * Runs the given runnable with event firing enabled in the current thread, even if
+     * event firing is currently suspended. Used by bulk runnables to notify listeners
+     * about intermediate results.
+     *
+     * @param runnable the runnable that fires events
+     */
+    public static void runWithEventFiringInCurrentThread( Runnable runnable )
+    {
+        int[] suspensions = suspendedEventFiring.get();
+        int suspended = suspensions[0];
+        suspensions[0] = 0;
+        try
         {
-            suspendedEventFiringThreads.add( Thread.currentThread().getId() );
+            runnable.run();
+        }
+        finally
+        {
+            suspensions[0] = suspended;
         }
     }
 
@@ -416,6 +432,35 @@ public class ConnectionEventRegistry
         }
 
 
+        /**
+         * Gets a copy of the registered listeners and their runners.
+         *
+         * @return a copy of the registered listeners and their runners
+         */
+        protected Map<L, EventRunner> getListeners()
+        {
+            synchronized ( listeners )
+            {
+                return new HashMap<L, EventRunner>( listeners );
+            }
+        }
+
+
+        /**
+         * Checks if the given listener is registered.
+         *
+         * @param listener the listener
+         * @return true, if the listener is registered
+         */
+        protected boolean isRegistered( L listener )
+        {
+            synchronized ( listeners )
+            {
+                return listeners.containsKey( listener );
+            }
+        }
+
+
         /**
          * Notifies each {@link ConnectionUpdateListener} about the removed connection.
          * Uses the {@link EventRunner}s.
@@ -430,7 +475,7 @@ public class ConnectionEventRegistry
                 return;
             }
 
-            Map<L, EventRunner> clone = new HashMap<L, EventRunner>( listeners );
+            Map<L, EventRunner> clone = getListeners();
             for ( final L listener : clone.keySet() )
             {
                 EventRunner runner = clone.get( listener );
@@ -0,0 +1,54 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *  
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License. 
+ *  
+ */
+package org.apache.directory.studio.connection.core.event;
+
+
+import java.util.List;
+
+
+/**
+ * An EventCoalescer merges the pending events of one listener and delivers
+ * the remaining events to the listener.
+ *
+ * @param <L> the listener type
+ * @param <E> the event type
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public interface EventCoalescer<L, E>
+{
+
+    /**
+     * Merges the given events. Events that are superseded by other events of the
+     * list are removed, the order of the remaining events must be kept.
+     *
+     * @param events the pending events, in firing order
+     * @return the events to deliver, in firing order
+     */
+    List<E> coalesce( List<E> events );
+
+
+    /**
+     * Delivers the given event to the given listener.
+     *
+     * @param listener the listener
+     * @param event the event
+     */
+    void deliver( L listener, E event );
+}
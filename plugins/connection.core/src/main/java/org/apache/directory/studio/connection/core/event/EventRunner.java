@@ -33,4 +33,17 @@ public interface EventRunner
      * @param runnable the event runnable to run
      */
     void execute( EventRunnable runnable );
+
+
+    /**
+     * Checks if this runner executes the {@link EventRunnable}s asynchronously,
+     * later and in another thread. Events for listeners with an asynchronous
+     * runner may be batched and coalesced before they are delivered.
+     *
+     * @return true, if this runner is asynchronous
+     */
+    default boolean isAsynchronous()
+    {
+        return false;
+    }
 }
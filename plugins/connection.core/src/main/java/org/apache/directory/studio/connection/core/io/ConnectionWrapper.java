@@ -178,4 +178,59 @@ public interface ConnectionWrapper
 
     ExtendedResponse extended( ExtendedRequest request, final StudioProgressMonitor monitor );
 
+
+    /**
+     * Sends a request to modify attributes of an entry, without waiting for the response.
+     * 
+     * @param dn the Dn
+     * @param modifications the modification items
+     * @param controls the controls
+     * @param monitor the progress monitor errors are reported to
+     * @param referralsInfo the referrals info
+     * @return the pending result, never null
+     */
+    StudioLdapFuture modifyEntryAsync( final Dn dn, final Collection<Modification> modifications,
+        final Control[] controls, final StudioProgressMonitor monitor, final ReferralsInfo referralsInfo );
+
+
+    /**
+     * Sends a request to rename an entry, without waiting for the response.
+     * 
+     * @param oldDn the old Dn
+     * @param newDn the new Dn
+     * @param deleteOldRdn true to delete the old Rdn
+     * @param controls the controls
+     * @param monitor the progress monitor errors are reported to
+     * @param referralsInfo the referrals info
+     * @return the pending result, never null
+     */
+    StudioLdapFuture renameEntryAsync( final Dn oldDn, final Dn newDn, final boolean deleteOldRdn,
+        final Control[] controls, final StudioProgressMonitor monitor, final ReferralsInfo referralsInfo );
+
+
+    /**
+     * Sends a request to create an entry, without waiting for the response.
+     * 
+     * @param entry the entry
+     * @param controls the controls
+     * @param monitor the progress monitor errors are reported to
+     * @param referralsInfo the referrals info
+     * @return the pending result, never null
+     */
+    StudioLdapFuture createEntryAsync( final Entry entry, final Control[] controls,
+        final StudioProgressMonitor monitor, final ReferralsInfo referralsInfo );
+
+
+    /**
+     * Sends a request to delete an entry, without waiting for the response.
+     * 
+     * @param dn the Dn of the entry to delete
+     * @param controls the controls
+     * @param monitor the progress monitor errors are reported to
+     * @param referralsInfo the referrals info
+     * @return the pending result, never null
+     */
+    StudioLdapFuture deleteEntryAsync( final Dn dn, final Control[] controls, final StudioProgressMonitor monitor,
+        final ReferralsInfo referralsInfo );
+
 }
@@ -0,0 +1,181 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *  
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License. 
+ *  
+ */
+package org.apache.directory.studio.connection.core.io;
+
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.function.Consumer;
+
+import org.apache.directory.studio.connection.core.ConnectionCoreConstants;
+import org.apache.directory.studio.connection.core.ConnectionCorePlugin;
+
+
+/**
+ * A window of outstanding asynchronous LDAP operations. Operations are sent
+ * without waiting for the previous responses until the window is full, then the
+ * oldest operation is awaited before the next one is sent. This hides the network
+ * round trip time for bulk operations.
+ * <p>
+ * Completion handlers are called in submission order, in the thread that submits
+ * the operations. Only independent operations should be submitted to the same window,
+ * the server may process outstanding operations in any order.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public class OperationWindow
+{
+    /** The window size */
+    private final int size;
+
+    /** The outstanding operations, oldest first */
+    private final Deque<PendingOperation> outstanding = new ArrayDeque<>();
+
+
+    /**
+     * Creates a new instance of OperationWindow, using the configured window size.
+     */
+    public OperationWindow()
+    {
+        this( ConnectionCorePlugin.getDefault().getPluginPreferences()
+            .getInt( ConnectionCoreConstants.PREFERENCE_OUTSTANDING_REQUESTS_WINDOW ) );
+    }
+
+
+    /**
+     * Creates a new instance of OperationWindow.
+     *
+     * @param size the maximum number of outstanding operations, 1 to disable pipelining
+     */
+    public OperationWindow( int size )
+    {
+        this.size = Math.max( 1, size );
+    }
+
+
+    /**
+     * Adds an operation to the window. Blocks until the oldest outstanding operation
+     * completed if the window is full.
+     *
+     * @param future the operation
+     * @param completionHandler called once the operation completed, may be null
+     */
+    public void submit( StudioLdapFuture future, Consumer<StudioLdapFuture> completionHandler )
+    {
+        outstanding.addLast( new PendingOperation( future, completionHandler ) );
+
+        while ( outstanding.size() >= size )
+        {
+            completeOldest();
+        }
+    }
+
+
+    /**
+     * Waits for all outstanding operations.
+     */
+    public void awaitAll()
+    {
+        while ( !outstanding.isEmpty() )
+        {
+            completeOldest();
+        }
+    }
+
+
+    /**
+     * Waits for the oldest outstanding operation, if any.
+     *
+     * @return true if an operation was awaited, false if there was no outstanding operation
+     */
+    public boolean awaitOldest()
+    {
+        if ( outstanding.isEmpty() )
+        {
+            return false;
+        }
+
+        completeOldest();
+
+        return true;
+    }
+
+
+    /**
+     * Abandons all outstanding operations, their completion handlers are not called.
+     */
+    public void abandonAll()
+    {
+        while ( !outstanding.isEmpty() )
+        {
+            outstanding.removeFirst().future.abandon();
+        }
+    }
+
+
+    /**
+     * Gets the number of outstanding operations.
+     *
+     * @return the number of outstanding operations
+     */
+    public int getOutstandingCount()
+    {
+        return outstanding.size();
+    }
+
+
+    /**
+     * Gets the window size.
+     *
+     * @return the window size
+     */
+    public int getSize()
+    {
+        return size;
+    }
+
+
+    private void completeOldest()
+    {
+        PendingOperation operation = outstanding.removeFirst();
+        operation.future.await();
+
+        if ( operation.completionHandler != null )
+        {
+            operation.completionHandler.accept( operation.future );
+        }
+    }
+
+    /**
+     * An outstanding operation and its completion handler.
+     */
+    private static class PendingOperation
+    {
+        private final StudioLdapFuture future;
+        private final Consumer<StudioLdapFuture> completionHandler;
+
+
+        PendingOperation( StudioLdapFuture future, Consumer<StudioLdapFuture> completionHandler )
+        {
+            this.future = future;
+            this.completionHandler = completionHandler;
+        }
+    }
+}
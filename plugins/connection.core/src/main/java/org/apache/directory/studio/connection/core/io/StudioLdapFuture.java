@@ -0,0 +1,63 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *  
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License. 
+ *  
+ */
+package org.apache.directory.studio.connection.core.io;
+
+
+/**
+ * The pending result of an asynchronous LDAP operation, as returned by the
+ * asynchronous methods of {@link ConnectionWrapper}.
+ * <p>
+ * The response is processed (referral handling, logging, error reporting to the
+ * progress monitor given when the operation was sent) by the thread that waits for it.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public interface StudioLdapFuture
+{
+    /**
+     * Checks if the response was received or the operation failed.
+     *
+     * @return true, if done
+     */
+    boolean isDone();
+
+
+    /**
+     * Waits for the response and processes it. Calling this method again
+     * returns immediately.
+     *
+     * @return true, if the operation was successful
+     */
+    boolean await();
+
+
+    /**
+     * Gets the exception of a failed operation.
+     *
+     * @return the exception, null if the operation was successful or is not done yet
+     */
+    StudioLdapException getException();
+
+
+    /**
+     * Abandons the operation if it is not done yet.
+     */
+    void abandon();
+}
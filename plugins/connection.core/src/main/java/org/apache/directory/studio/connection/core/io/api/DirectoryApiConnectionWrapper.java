@@ -23,9 +23,16 @@ package org.apache.directory.studio.connection.core.io.api;
 import java.security.KeyStore;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
 import java.util.List;
-import java.util.concurrent.atomic.AtomicReference;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
 
 import javax.naming.directory.SearchControls;
 import javax.net.ssl.SSLSession;
@@ -64,11 +71,13 @@ import org.apache.directory.api.ldap.model.message.ModifyRequest;
 import org.apache.directory.api.ldap.model.message.ModifyRequestImpl;
 import org.apache.directory.api.ldap.model.message.ModifyResponse;
 import org.apache.directory.api.ldap.model.message.Referral;
+import org.apache.directory.api.ldap.model.message.Request;
 import org.apache.directory.api.ldap.model.message.ResultCodeEnum;
 import org.apache.directory.api.ldap.model.message.ResultResponse;
 import org.apache.directory.api.ldap.model.message.SearchRequest;
 import org.apache.directory.api.ldap.model.message.SearchRequestImpl;
 import org.apache.directory.api.ldap.model.message.SearchScope;
+import org.apache.directory.api.ldap.model.message.controls.PagedResults;
 import org.apache.directory.api.ldap.model.name.Dn;
 import org.apache.directory.api.ldap.model.url.LdapUrl;
 import org.apache.directory.ldap.client.api.LdapConnectionConfig;
@@ -77,6 +86,7 @@ import org.apache.directory.ldap.client.api.SaslCramMd5Request;
 import org.apache.directory.ldap.client.api.SaslDigestMd5Request;
 import org.apache.directory.ldap.client.api.SaslGssApiRequest;
 import org.apache.directory.ldap.client.api.exception.InvalidConnectionException;
+import org.apache.directory.ldap.client.api.future.ResponseFuture;
 import org.apache.directory.studio.common.core.jobs.StudioProgressMonitor;
 import org.apache.directory.studio.connection.core.Connection;
 import org.apache.directory.studio.connection.core.Connection.AliasDereferencingMethod;
@@ -93,6 +103,7 @@ import org.apache.directory.studio.connection.core.ReferralsInfo;
 import org.apache.directory.studio.connection.core.io.ConnectionWrapper;
 import org.apache.directory.studio.connection.core.io.ConnectionWrapperUtils;
 import org.apache.directory.studio.connection.core.io.StudioLdapException;
+import org.apache.directory.studio.connection.core.io.StudioLdapFuture;
 import org.apache.directory.studio.connection.core.io.StudioTrustManager;
 import org.eclipse.core.runtime.Preferences;
 import org.eclipse.osgi.util.NLS;
@@ -106,19 +117,34 @@ import org.eclipse.osgi.util.NLS;
 public class DirectoryApiConnectionWrapper implements ConnectionWrapper
 {
     /** The search request number */
-    private static int searchRequestNum = 0;
+    private static final AtomicLong searchRequestNum = new AtomicLong();
+
+    /** The time after which a connection kept for the next page of a paged search is given back to the pool */
+    private static final long PAGED_SEARCH_TIMEOUT_MILLIS = 10L * 60L * 1000L;
 
     /** The Studio connection  */
     private Connection connection;
 
-    /** The LDAP connection */
-    private LdapNetworkConnection ldapConnection;
+    /** The primary LDAP connection, used to connect and bind */
+    private volatile LdapNetworkConnection ldapConnection;
+
+    /** The pool of bound LDAP connections, including the primary one */
+    private volatile StudioLdapConnectionPool connectionPool;
+
+    /** The credentials of the last successful bind, reused to bind pooled connections */
+    private volatile ICredentials bindCredentials;
 
     /** The binary attribute detector */
     private DefaultConfigurableBinaryAttributeDetector binaryAttributeDetector;
 
-    /** The current job thread */
-    private Thread jobThread;
+    /** The threads currently running an operation */
+    private final Set<Thread> jobThreads = ConcurrentHashMap.newKeySet();
+
+    /**
+     * The connections kept leased for the next page of a paged search, by the cookie the server returned.
+     * The callers pass the cookie array of the response control to the next request control.
+     */
+    private final Map<byte[], PagedSearchLease> pagedSearchLeases = new IdentityHashMap<>();
 
     /**
      * Creates a new instance of DirectoryApiConnectionWrapper.
@@ -137,7 +163,6 @@ public class DirectoryApiConnectionWrapper implements ConnectionWrapper
     public void connect( StudioProgressMonitor monitor )
     {
         ldapConnection = null;
-        jobThread = null;
 
         try
         {
@@ -155,6 +180,47 @@ public class DirectoryApiConnectionWrapper implements ConnectionWrapper
     {
         ldapConnection = null;
 
+        if ( connectionPool == null || connectionPool.isClosed() )
+        {
+            connectionPool = createConnectionPool();
+        }
+
+        binaryAttributeDetector = new DefaultConfigurableBinaryAttributeDetector();
+        LdapConnectionConfig ldapConnectionConfig = createLdapConnectionConfig();
+
+        InnerRunnable runnable = new InnerRunnable()
+        {
+            public void run()
+            {
+                try
+                {
+                    ldapConnection = openLdapConnection( ldapConnectionConfig );
+                }
+                catch ( Exception e )
+                {
+                    exception = toStudioLdapException( e );
+                    ldapConnection = null;
+                    binaryAttributeDetector = null;
+                }
+            }
+        };
+
+        runAndMonitor( runnable, monitor );
+
+        if ( runnable.getException() != null )
+        {
+            throw runnable.getException();
+        }
+    }
+
+
+    /**
+     * Creates the LDAP connection configuration for the Studio connection.
+     *
+     * @return the LDAP connection configuration
+     */
+    private LdapConnectionConfig createLdapConnectionConfig()
+    {
         LdapConnectionConfig ldapConnectionConfig = new LdapConnectionConfig();
         ldapConnectionConfig.setLdapHost( connection.getHost() );
         ldapConnectionConfig.setLdapPort( connection.getPort() );
@@ -167,12 +233,8 @@ public class DirectoryApiConnectionWrapper implements ConnectionWrapper
         }
 
         ldapConnectionConfig.setTimeout( timeoutMillis );
-
-        binaryAttributeDetector = new DefaultConfigurableBinaryAttributeDetector();
         ldapConnectionConfig.setBinaryAttributeDetector( binaryAttributeDetector );
 
-        AtomicReference<StudioTrustManager> studioTrustmanager = new AtomicReference<>();
-
         if ( ( connection.getEncryptionMethod() == EncryptionMethod.LDAPS )
             || ( connection.getEncryptionMethod() == EncryptionMethod.START_TLS ) )
         {
@@ -195,7 +257,6 @@ public class DirectoryApiConnectionWrapper implements ConnectionWrapper
                     trustManagers[i] = new StudioTrustManager( ( X509TrustManager ) defaultTrustManagers[i] );
                     trustManagers[i].setHost( connection.getHost() );
                 }
-                studioTrustmanager.set( trustManagers[0] );
 
                 ldapConnectionConfig.setTrustManagers( trustManagers );
             }
@@ -206,97 +267,115 @@ public class DirectoryApiConnectionWrapper implements ConnectionWrapper
             }
         }
 
-        InnerRunnable runnable = new InnerRunnable()
-        {
-            public void run()
-            {
-                /*
-                 * Use local temp variable while the connection is being established and secured.
-                 * This process can take a while and the user might be asked to inspect the server
-                 * certificate. During that process the connection must not be used.
-                 */
-                LdapNetworkConnection ldapConnectionUnderConstruction = null;
-                try
-                {
-                    // Set lower timeout for connecting
-                    long oldTimeout = ldapConnectionConfig.getTimeout();
-                    ldapConnectionConfig.setTimeout( Math.min( oldTimeout, 5000L ) );
+        return ldapConnectionConfig;
+    }
 
-                    // Connecting
-                    ldapConnectionUnderConstruction = new LdapNetworkConnection( ldapConnectionConfig );
-                    ldapConnectionUnderConstruction.connect();
 
-                    // DIRSTUDIO-1219: Establish TLS layer if TLS is enabled and SSL is not
-                    if ( ldapConnectionConfig.isUseTls() && !ldapConnectionConfig.isUseSsl() )
-                    {
-                        ldapConnectionUnderConstruction.startTls();
-                    }
+    /**
+     * Opens a new LDAP connection and establishes the (optional) security layer.
+     *
+     * @param ldapConnectionConfig the LDAP connection configuration
+     * @return the connected LDAP connection
+     * @throws Exception if the connection can't be established
+     */
+    private LdapNetworkConnection openLdapConnection( LdapConnectionConfig ldapConnectionConfig ) throws Exception
+    {
+        /*
+         * Use local temp variable while the connection is being established and secured.
+         * This process can take a while and the user might be asked to inspect the server
+         * certificate. During that process the connection must not be used.
+         */
+        LdapNetworkConnection ldapConnectionUnderConstruction = null;
+        try
+        {
+            // Set lower timeout for connecting
+            long oldTimeout = ldapConnectionConfig.getTimeout();
+            ldapConnectionConfig.setTimeout( Math.min( oldTimeout, 5000L ) );
 
-                    // Set original timeout again
-                    ldapConnectionConfig.setTimeout( oldTimeout );
-                    ldapConnectionUnderConstruction.setTimeOut( oldTimeout );
+            // Connecting
+            ldapConnectionUnderConstruction = new LdapNetworkConnection( ldapConnectionConfig );
+            ldapConnectionUnderConstruction.connect();
 
-                    // Now set the LDAP connection once the (optional) security layer is in place
-                    ldapConnection = ldapConnectionUnderConstruction;
+            // DIRSTUDIO-1219: Establish TLS layer if TLS is enabled and SSL is not
+            if ( ldapConnectionConfig.isUseTls() && !ldapConnectionConfig.isUseSsl() )
+            {
+                ldapConnectionUnderConstruction.startTls();
+            }
 
-                    if ( !isConnected() )
-                    {
-                        throw new Exception( Messages.DirectoryApiConnectionWrapper_UnableToConnect );
-                    }
+            // Set original timeout again
+            ldapConnectionConfig.setTimeout( oldTimeout );
+            ldapConnectionUnderConstruction.setTimeOut( oldTimeout );
 
-                    // DIRSTUDIO-1219: Verify secure connection if ldaps:// or StartTLS is configured
-                    if ( ldapConnectionConfig.isUseTls() || ldapConnectionConfig.isUseSsl() )
-                    {
-                        if ( !isSecured() )
-                        {
-                            throw new Exception( Messages.DirectoryApiConnectionWrapper_UnsecuredConnection );
-                        }
-                    }
-                }
-                catch ( Exception e )
-                {
-                    exception = toStudioLdapException( e );
+            if ( !ldapConnectionUnderConstruction.isConnected() )
+            {
+                throw new Exception( Messages.DirectoryApiConnectionWrapper_UnableToConnect );
+            }
 
-                    try
-                    {
-                        if ( ldapConnectionUnderConstruction != null )
-                        {
-                            ldapConnectionUnderConstruction.close();
-                        }
-                    }
-                    catch ( Exception exception )
-                    {
-                        // Nothing to do
-                    }
-                    finally
-                    {
-                        ldapConnection = null;
-                        binaryAttributeDetector = null;
-                    }
+            // DIRSTUDIO-1219: Verify secure connection if ldaps:// or StartTLS is configured
+            if ( ldapConnectionConfig.isUseTls() || ldapConnectionConfig.isUseSsl() )
+            {
+                if ( !ldapConnectionUnderConstruction.isSecured() )
+                {
+                    throw new Exception( Messages.DirectoryApiConnectionWrapper_UnsecuredConnection );
                 }
             }
-        };
-
-        runAndMonitor( runnable, monitor );
 
-        if ( runnable.getException() != null )
+            return ldapConnectionUnderConstruction;
+        }
+        catch ( Exception e )
         {
-            throw runnable.getException();
+            closeQuietly( ldapConnectionUnderConstruction );
+            throw e;
         }
     }
 
 
     /**
-     * {@inheritDoc}
+     * Creates the connection pool, configured from the preferences.
+     *
+     * @return the connection pool
      */
-    public void disconnect()
+    private StudioLdapConnectionPool createConnectionPool()
     {
-        if ( jobThread != null )
+        Preferences preferences = ConnectionCorePlugin.getDefault().getPluginPreferences();
+        int maxConnections = preferences.getInt( ConnectionCoreConstants.PREFERENCE_CONNECTION_POOL_MAX_CONNECTIONS );
+        int minConnections = preferences.getInt( ConnectionCoreConstants.PREFERENCE_CONNECTION_POOL_MIN_CONNECTIONS );
+        long idleTimeoutMillis = preferences
+            .getInt( ConnectionCoreConstants.PREFERENCE_CONNECTION_POOL_IDLE_TIMEOUT ) * 1000L;
+
+        return new StudioLdapConnectionPool( this::openPooledConnection, maxConnections, minConnections,
+            idleTimeoutMillis );
+    }
+
+
+    /**
+     * Opens and binds an additional connection for the pool, using the credentials
+     * of the primary connection.
+     *
+     * @param monitor the progress monitor
+     * @return the bound LDAP connection
+     * @throws Exception if the connection can't be opened or bound
+     */
+    private LdapNetworkConnection openPooledConnection( StudioProgressMonitor monitor ) throws Exception
+    {
+        LdapNetworkConnection pooledConnection = openLdapConnection( createLdapConnectionConfig() );
+
+        try
         {
-            Thread t = jobThread;
-            jobThread = null;
-            t.interrupt();
+            checkResponse( bind( pooledConnection, bindCredentials ) );
         }
+        catch ( Exception e )
+        {
+            closeQuietly( pooledConnection );
+            throw e;
+        }
+
+        return pooledConnection;
+    }
+
+
+    private static void closeQuietly( LdapNetworkConnection ldapConnection )
+    {
         if ( ldapConnection != null )
         {
             try
@@ -307,9 +386,38 @@ public class DirectoryApiConnectionWrapper implements ConnectionWrapper
             {
                 // ignore
             }
+        }
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    public void disconnect()
+    {
+        for ( Thread t : jobThreads )
+        {
+            t.interrupt();
+        }
+        jobThreads.clear();
+
+        synchronized ( pagedSearchLeases )
+        {
+            pagedSearchLeases.clear();
+        }
+
+        if ( connectionPool != null )
+        {
+            connectionPool.close();
+            connectionPool = null;
+        }
+        if ( ldapConnection != null )
+        {
+            closeQuietly( ldapConnection );
             ldapConnection = null;
             binaryAttributeDetector = null;
         }
+        bindCredentials = null;
     }
 
 
@@ -330,16 +438,6 @@ public class DirectoryApiConnectionWrapper implements ConnectionWrapper
     }
 
 
-    private BindResponse bindSimple( String bindPrincipal, String bindPassword ) throws LdapException
-    {
-        BindRequest bindRequest = new BindRequestImpl();
-        bindRequest.setName( bindPrincipal );
-        bindRequest.setCredentials( bindPassword );
-
-        return ldapConnection.bind( bindRequest );
-    }
-
-
     private void doBind( final StudioProgressMonitor monitor ) throws Exception
     {
         if ( isConnected() )
@@ -350,16 +448,10 @@ public class DirectoryApiConnectionWrapper implements ConnectionWrapper
                 {
                     try
                     {
-                        BindResponse bindResponse = null;
+                        ICredentials credentials = null;
 
-                        // No Authentication
                         if ( connection.getConnectionParameter()
-                            .getAuthMethod() == ConnectionParameter.AuthenticationMethod.NONE )
-                        {
-                            BindRequest bindRequest = new BindRequestImpl();
-                            bindResponse = ldapConnection.bind( bindRequest );
-                        }
-                        else
+                            .getAuthMethod() != ConnectionParameter.AuthenticationMethod.NONE )
                         {
                             // Setup credentials
                             IAuthHandler authHandler = ConnectionCorePlugin.getDefault().getAuthHandler();
@@ -370,8 +462,7 @@ public class DirectoryApiConnectionWrapper implements ConnectionWrapper
                                 monitor.reportError( Messages.model__no_auth_handler, exception );
                                 throw exception;
                             }
-                            ICredentials credentials = authHandler
-                                .getCredentials( connection.getConnectionParameter() );
+                            credentials = authHandler.getCredentials( connection.getConnectionParameter() );
                             if ( credentials == null )
                             {
                                 Exception exception = new Exception();
@@ -385,98 +476,14 @@ public class DirectoryApiConnectionWrapper implements ConnectionWrapper
                                 monitor.reportError( Messages.model__no_credentials, exception );
                                 throw exception;
                             }
-                            String bindPrincipal = credentials.getBindPrincipal();
-                            String bindPassword = credentials.getBindPassword();
-
-                            switch ( connection.getConnectionParameter().getAuthMethod() )
-                            {
-                                case SIMPLE:
-                                    // Simple Authentication
-                                    bindResponse = bindSimple( bindPrincipal, bindPassword );
-                                    break;
-
-                                case SASL_CRAM_MD5:
-                                    // CRAM-MD5 Authentication
-                                    SaslCramMd5Request cramMd5Request = new SaslCramMd5Request();
-                                    cramMd5Request.setUsername( bindPrincipal );
-                                    cramMd5Request.setCredentials( bindPassword );
-                                    cramMd5Request
-                                        .setQualityOfProtection( connection.getConnectionParameter().getSaslQop() );
-                                    cramMd5Request.setSecurityStrength( connection.getConnectionParameter()
-                                        .getSaslSecurityStrength() );
-                                    cramMd5Request.setMutualAuthentication( connection.getConnectionParameter()
-                                        .isSaslMutualAuthentication() );
-
-                                    bindResponse = ldapConnection.bind( cramMd5Request );
-                                    break;
-
-                                case SASL_DIGEST_MD5:
-                                    // DIGEST-MD5 Authentication
-                                    SaslDigestMd5Request digestMd5Request = new SaslDigestMd5Request();
-                                    digestMd5Request.setUsername( bindPrincipal );
-                                    digestMd5Request.setCredentials( bindPassword );
-                                    digestMd5Request.setRealmName( connection.getConnectionParameter().getSaslRealm() );
-                                    digestMd5Request.setQualityOfProtection( connection.getConnectionParameter()
-                                        .getSaslQop() );
-                                    digestMd5Request.setSecurityStrength( connection.getConnectionParameter()
-                                        .getSaslSecurityStrength() );
-                                    digestMd5Request.setMutualAuthentication( connection.getConnectionParameter()
-                                        .isSaslMutualAuthentication() );
-
-                                    bindResponse = ldapConnection.bind( digestMd5Request );
-                                    break;
-
-                                case SASL_GSSAPI:
-                                    // GSSAPI Authentication
-                                    SaslGssApiRequest gssApiRequest = new SaslGssApiRequest();
-
-                                    Preferences preferences = ConnectionCorePlugin.getDefault().getPluginPreferences();
-                                    boolean useKrb5SystemProperties = preferences
-                                        .getBoolean( ConnectionCoreConstants.PREFERENCE_USE_KRB5_SYSTEM_PROPERTIES );
-                                    String krb5LoginModule = preferences
-                                        .getString( ConnectionCoreConstants.PREFERENCE_KRB5_LOGIN_MODULE );
-
-                                    if ( !useKrb5SystemProperties )
-                                    {
-                                        gssApiRequest.setUsername( bindPrincipal );
-                                        gssApiRequest.setCredentials( bindPassword );
-                                        gssApiRequest.setQualityOfProtection( connection
-                                            .getConnectionParameter().getSaslQop() );
-                                        gssApiRequest.setSecurityStrength( connection
-                                            .getConnectionParameter()
-                                            .getSaslSecurityStrength() );
-                                        gssApiRequest.setMutualAuthentication( connection
-                                            .getConnectionParameter()
-                                            .isSaslMutualAuthentication() );
-                                        gssApiRequest
-                                            .setLoginModuleConfiguration( new InnerConfiguration(
-                                                krb5LoginModule ) );
-
-                                        switch ( connection.getConnectionParameter().getKrb5Configuration() )
-                                        {
-                                            case FILE:
-                                                gssApiRequest.setKrb5ConfFilePath( connection.getConnectionParameter()
-                                                    .getKrb5ConfigurationFile() );
-                                                break;
-                                            case MANUAL:
-                                                gssApiRequest.setRealmName( connection.getConnectionParameter()
-                                                    .getKrb5Realm() );
-                                                gssApiRequest.setKdcHost( connection.getConnectionParameter()
-                                                    .getKrb5KdcHost() );
-                                                gssApiRequest.setKdcPort( connection.getConnectionParameter()
-                                                    .getKrb5KdcPort() );
-                                                break;
-                                            default:
-                                                break;
-                                        }
-                                    }
-
-                                    bindResponse = ldapConnection.bind( gssApiRequest );
-                                    break;
-                            }
                         }
 
-                        checkResponse( bindResponse );
+                        LdapNetworkConnection primaryConnection = ldapConnection;
+                        checkResponse( bind( primaryConnection, credentials ) );
+
+                        // the pooled connections are bound with the same credentials
+                        bindCredentials = credentials;
+                        connectionPool.add( primaryConnection, true );
                     }
                     catch ( Exception e )
                     {
@@ -499,6 +506,119 @@ public class DirectoryApiConnectionWrapper implements ConnectionWrapper
     }
 
 
+    /**
+     * Binds the given LDAP connection, using the authentication method of the Studio connection.
+     *
+     * @param ldapConnection the LDAP connection to bind
+     * @param credentials the credentials, may be null if no authentication is used
+     * @return the bind response
+     * @throws LdapException if the bind fails
+     */
+    private BindResponse bind( LdapNetworkConnection ldapConnection, ICredentials credentials )
+        throws LdapException
+    {
+        // No Authentication
+        if ( connection.getConnectionParameter().getAuthMethod() == ConnectionParameter.AuthenticationMethod.NONE )
+        {
+            BindRequest bindRequest = new BindRequestImpl();
+            return ldapConnection.bind( bindRequest );
+        }
+
+        String bindPrincipal = credentials.getBindPrincipal();
+        String bindPassword = credentials.getBindPassword();
+
+        switch ( connection.getConnectionParameter().getAuthMethod() )
+        {
+            case SIMPLE:
+                // Simple Authentication
+                BindRequest bindRequest = new BindRequestImpl();
+                bindRequest.setName( bindPrincipal );
+                bindRequest.setCredentials( bindPassword );
+
+                return ldapConnection.bind( bindRequest );
+
+            case SASL_CRAM_MD5:
+                // CRAM-MD5 Authentication
+                SaslCramMd5Request cramMd5Request = new SaslCramMd5Request();
+                cramMd5Request.setUsername( bindPrincipal );
+                cramMd5Request.setCredentials( bindPassword );
+                cramMd5Request
+                    .setQualityOfProtection( connection.getConnectionParameter().getSaslQop() );
+                cramMd5Request.setSecurityStrength( connection.getConnectionParameter()
+                    .getSaslSecurityStrength() );
+                cramMd5Request.setMutualAuthentication( connection.getConnectionParameter()
+                    .isSaslMutualAuthentication() );
+
+                return ldapConnection.bind( cramMd5Request );
+
+            case SASL_DIGEST_MD5:
+                // DIGEST-MD5 Authentication
+                SaslDigestMd5Request digestMd5Request = new SaslDigestMd5Request();
+                digestMd5Request.setUsername( bindPrincipal );
+                digestMd5Request.setCredentials( bindPassword );
+                digestMd5Request.setRealmName( connection.getConnectionParameter().getSaslRealm() );
+                digestMd5Request.setQualityOfProtection( connection.getConnectionParameter()
+                    .getSaslQop() );
+                digestMd5Request.setSecurityStrength( connection.getConnectionParameter()
+                    .getSaslSecurityStrength() );
+                digestMd5Request.setMutualAuthentication( connection.getConnectionParameter()
+                    .isSaslMutualAuthentication() );
+
+                return ldapConnection.bind( digestMd5Request );
+
+            case SASL_GSSAPI:
+                // GSSAPI Authentication
+                SaslGssApiRequest gssApiRequest = new SaslGssApiRequest();
+
+                Preferences preferences = ConnectionCorePlugin.getDefault().getPluginPreferences();
+                boolean useKrb5SystemProperties = preferences
+                    .getBoolean( ConnectionCoreConstants.PREFERENCE_USE_KRB5_SYSTEM_PROPERTIES );
+                String krb5LoginModule = preferences
+                    .getString( ConnectionCoreConstants.PREFERENCE_KRB5_LOGIN_MODULE );
+
+                if ( !useKrb5SystemProperties )
+                {
+                    gssApiRequest.setUsername( bindPrincipal );
+                    gssApiRequest.setCredentials( bindPassword );
+                    gssApiRequest.setQualityOfProtection( connection
+                        .getConnectionParameter().getSaslQop() );
+                    gssApiRequest.setSecurityStrength( connection
+                        .getConnectionParameter()
+                        .getSaslSecurityStrength() );
+                    gssApiRequest.setMutualAuthentication( connection
+                        .getConnectionParameter()
+                        .isSaslMutualAuthentication() );
+                    gssApiRequest
+                        .setLoginModuleConfiguration( new InnerConfiguration(
+                            krb5LoginModule ) );
+
+                    switch ( connection.getConnectionParameter().getKrb5Configuration() )
+                    {
+                        case FILE:
+                            gssApiRequest.setKrb5ConfFilePath( connection.getConnectionParameter()
+                                .getKrb5ConfigurationFile() );
+                            break;
+                        case MANUAL:
+                            gssApiRequest.setRealmName( connection.getConnectionParameter()
+                                .getKrb5Realm() );
+                            gssApiRequest.setKdcHost( connection.getConnectionParameter()
+                                .getKrb5KdcHost() );
+                            gssApiRequest.setKdcPort( connection.getConnectionParameter()
+                                .getKrb5KdcPort() );
+                            break;
+                        default:
+                            break;
+                    }
+                }
+
+                return ldapConnection.bind( gssApiRequest );
+
+            default:
+                return null;
+        }
+    }
+
+
     /***
      * {@inheritDoc}
      */
@@ -560,10 +680,21 @@ public class DirectoryApiConnectionWrapper implements ConnectionWrapper
         final ReferralHandlingMethod referralsHandlingMethod, final Control[] controls,
         final StudioProgressMonitor monitor, final ReferralsInfo referralsInfo )
     {
-        final long requestNum = searchRequestNum++;
+        final long requestNum = searchRequestNum.getAndIncrement();
+        final byte[] pagedResultsCookie = getPagedResultsCookie( controls != null ? Arrays.asList( controls ) : null );
 
         InnerRunnable runnable = new InnerRunnable()
         {
+            protected LdapNetworkConnection lease( StudioLdapConnectionPool pool, StudioProgressMonitor monitor )
+                throws Exception
+            {
+                // the next page of a paged search must be requested on the connection that returned the cookie
+                LdapNetworkConnection pagedSearchConnection = takePagedSearchConnection( pool, pagedResultsCookie );
+
+                return pagedSearchConnection != null ? pagedSearchConnection : pool.lease( monitor );
+            }
+
+
             public void run()
             {
                 try
@@ -587,12 +718,15 @@ public class DirectoryApiConnectionWrapper implements ConnectionWrapper
                     request.setDerefAliases( convertAliasDerefMode( aliasesDereferencingMethod ) );
 
                     // Performing the search operation
-                    SearchCursor cursor = ldapConnection.search( request );
-
-                    // Returning the result of the search
-                    searchResultEnumeration = new StudioSearchResultEnumeration( connection, cursor, searchBase, filter,
-                        searchControls, aliasesDereferencingMethod, referralsHandlingMethod, controls, requestNum,
-                        monitor, referralsInfo );
+                    sentRequest = request;
+                    SearchCursor cursor = leasedConnection.search( request );
+
+                    // Returning the result of the search, the connection is released once the cursor is consumed
+                    StudioSearchResultEnumeration enumeration = new StudioSearchResultEnumeration( connection, cursor,
+                        searchBase, filter, searchControls, aliasesDereferencingMethod, referralsHandlingMethod,
+                        controls, requestNum, monitor, referralsInfo );
+                    enumeration.setConnectionReleaser( pagedSearchReleaser( leasedConnection, enumeration ) );
+                    searchResultEnumeration = enumeration;
                 }
                 catch ( Exception e )
                 {
@@ -734,7 +868,8 @@ public class DirectoryApiConnectionWrapper implements ConnectionWrapper
                     }
 
                     // Performing the modify operation
-                    ModifyResponse modifyResponse = ldapConnection.modify( request );
+                    sentRequest = request;
+                    ModifyResponse modifyResponse = leasedConnection.modify( request );
 
                     // Handle referral
                     ReferralHandlingDataConsumer consumer = referralHandlingData -> referralHandlingData.connectionWrapper
@@ -813,7 +948,8 @@ public class DirectoryApiConnectionWrapper implements ConnectionWrapper
                     }
 
                     // Performing the rename operation
-                    ModifyDnResponse modifyDnResponse = ldapConnection.modifyDn( request );
+                    sentRequest = request;
+                    ModifyDnResponse modifyDnResponse = leasedConnection.modifyDn( request );
 
                     // Handle referral
                     ReferralHandlingDataConsumer consumer = referralHandlingData -> referralHandlingData.connectionWrapper
@@ -889,7 +1025,8 @@ public class DirectoryApiConnectionWrapper implements ConnectionWrapper
                     }
 
                     // Performing the add operation
-                    AddResponse addResponse = ldapConnection.add( request );
+                    sentRequest = request;
+                    AddResponse addResponse = leasedConnection.add( request );
 
                     // Handle referral
                     ReferralHandlingDataConsumer consumer = referralHandlingData -> {
@@ -968,7 +1105,8 @@ public class DirectoryApiConnectionWrapper implements ConnectionWrapper
                     }
 
                     // Performing the delete operation
-                    DeleteResponse deleteResponse = ldapConnection.delete( request );
+                    sentRequest = request;
+                    DeleteResponse deleteResponse = leasedConnection.delete( request );
 
                     // Handle referral
                     ReferralHandlingDataConsumer consumer = referralHandlingData -> referralHandlingData.connectionWrapper
@@ -1033,7 +1171,8 @@ public class DirectoryApiConnectionWrapper implements ConnectionWrapper
             {
                 try
                 {
-                    ExtendedResponse response = ldapConnection.extended( request );
+                    sentRequest = request;
+                    ExtendedResponse response = leasedConnection.extended( request );
                     outerResponse[0] = response;
 
                     // TODO: handle referrals?
@@ -1073,6 +1212,228 @@ public class DirectoryApiConnectionWrapper implements ConnectionWrapper
         return outerResponse[0];
     }
 
+
+    /**
+     * {@inheritDoc}
+     */
+    public StudioLdapFuture modifyEntryAsync( final Dn dn, final Collection<Modification> modifications,
+        final Control[] controls, final StudioProgressMonitor monitor, final ReferralsInfo referralsInfo )
+    {
+        // Preparing the modify request
+        ModifyRequest request = new ModifyRequestImpl();
+        request.setName( dn );
+        if ( modifications != null )
+        {
+            for ( Modification modification : modifications )
+            {
+                request.addModification( modification );
+            }
+        }
+        if ( controls != null )
+        {
+            request.addAllControls( controls );
+        }
+
+        ReferralHandlingDataConsumer consumer = referralHandlingData -> referralHandlingData.connectionWrapper
+            .modifyEntry( new Dn( referralHandlingData.referralDn ), modifications, controls, monitor,
+                referralHandlingData.newReferralsInfo );
+
+        return sendAsync( monitor, leased -> leased.modifyAsync( request ), referralsInfo, consumer,
+            exception -> {
+                for ( ILdapLogger logger : getLdapLoggers() )
+                {
+                    logger.logChangetypeModify( connection, dn, modifications, controls, exception );
+                }
+            } );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    public StudioLdapFuture renameEntryAsync( final Dn oldDn, final Dn newDn, final boolean deleteOldRdn,
+        final Control[] controls, final StudioProgressMonitor monitor, final ReferralsInfo referralsInfo )
+    {
+        // Preparing the rename request
+        ModifyDnRequest request = new ModifyDnRequestImpl();
+        request.setName( oldDn );
+        request.setDeleteOldRdn( deleteOldRdn );
+        request.setNewRdn( newDn.getRdn() );
+        request.setNewSuperior( newDn.getParent() );
+        if ( controls != null )
+        {
+            request.addAllControls( controls );
+        }
+
+        ReferralHandlingDataConsumer consumer = referralHandlingData -> referralHandlingData.connectionWrapper
+            .renameEntry( oldDn, newDn, deleteOldRdn, controls, monitor, referralHandlingData.newReferralsInfo );
+
+        return sendAsync( monitor, leased -> leased.modifyDnAsync( request ), referralsInfo, consumer,
+            exception -> {
+                for ( ILdapLogger logger : getLdapLoggers() )
+                {
+                    logger.logChangetypeModDn( connection, oldDn, newDn, deleteOldRdn, controls, exception );
+                }
+            } );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    public StudioLdapFuture createEntryAsync( final Entry entry, final Control[] controls,
+        final StudioProgressMonitor monitor, final ReferralsInfo referralsInfo )
+    {
+        // Preparing the add request
+        AddRequest request = new AddRequestImpl();
+        request.setEntry( entry );
+        if ( controls != null )
+        {
+            request.addAllControls( controls );
+        }
+
+        ReferralHandlingDataConsumer consumer = referralHandlingData -> {
+            Entry entryWithReferralDn = entry.clone();
+            entryWithReferralDn.setDn( referralHandlingData.referralDn );
+            referralHandlingData.connectionWrapper.createEntry( entryWithReferralDn,
+                controls, monitor, referralHandlingData.newReferralsInfo );
+        };
+
+        return sendAsync( monitor, leased -> leased.addAsync( request ), referralsInfo, consumer,
+            exception -> {
+                for ( ILdapLogger logger : getLdapLoggers() )
+                {
+                    logger.logChangetypeAdd( connection, entry, controls, exception );
+                }
+            } );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    public StudioLdapFuture deleteEntryAsync( final Dn dn, final Control[] controls,
+        final StudioProgressMonitor monitor, final ReferralsInfo referralsInfo )
+    {
+        // Preparing the delete request
+        DeleteRequest request = new DeleteRequestImpl();
+        request.setName( dn );
+        if ( controls != null )
+        {
+            request.addAllControls( controls );
+        }
+
+        ReferralHandlingDataConsumer consumer = referralHandlingData -> referralHandlingData.connectionWrapper
+            .deleteEntry( new Dn( referralHandlingData.referralDn ), controls, monitor,
+                referralHandlingData.newReferralsInfo );
+
+        return sendAsync( monitor, leased -> leased.deleteAsync( request ), referralsInfo, consumer,
+            exception -> {
+                for ( ILdapLogger logger : getLdapLoggers() )
+                {
+                    logger.logChangetypeDelete( connection, dn, controls, exception );
+                }
+            } );
+    }
+
+
+    @FunctionalInterface
+    private interface AsyncSender
+    {
+
+        ResponseFuture<? extends ResultResponse> send( LdapNetworkConnection leasedConnection ) throws LdapException;
+
+    }
+
+
+    /**
+     * Sends a request on a leased connection without waiting for the response. The connection
+     * is given back to the pool once the response was processed.
+     *
+     * @param monitor the progress monitor errors are reported to
+     * @param sender sends the request
+     * @param referralsInfo the referrals info
+     * @param consumer follows a referral
+     * @param operationLogger logs the operation
+     * @return the pending result
+     */
+    private StudioLdapFuture sendAsync( final StudioProgressMonitor monitor, final AsyncSender sender,
+        final ReferralsInfo referralsInfo, final ReferralHandlingDataConsumer consumer,
+        final Consumer<StudioLdapException> operationLogger )
+    {
+        if ( connection.isReadOnly() )
+        {
+            return StudioResponseFuture.failed(
+                new Exception( NLS.bind( Messages.error__connection_is_readonly, connection.getName() ) ), monitor,
+                null );
+        }
+
+        long timeoutMillis = connection.getTimeoutMillis();
+        if ( timeoutMillis < 0 )
+        {
+            timeoutMillis = 30000L;
+        }
+
+        StudioResponseFuture.ResponseHandler responseHandler = response -> {
+            if ( !checkAndHandleReferral( response, monitor, referralsInfo, consumer ) )
+            {
+                checkResponse( response );
+            }
+        };
+
+        try
+        {
+            // check connection
+            if ( !isConnected() )
+            {
+                doConnect( monitor );
+                doBind( monitor );
+            }
+            if ( ldapConnection == null || connectionPool == null )
+            {
+                throw new InvalidConnectionException( Messages.DirectoryApiConnectionWrapper_NoConnection );
+            }
+
+            // loop for reconnection
+            for ( int i = 0;; i++ )
+            {
+                StudioLdapConnectionPool pool = connectionPool;
+                LdapNetworkConnection leasedConnection = pool.lease( monitor );
+
+                try
+                {
+                    ResponseFuture<? extends ResultResponse> responseFuture = sender.send( leasedConnection );
+
+                    return new StudioResponseFuture( responseFuture, timeoutMillis, monitor, responseHandler,
+                        operationLogger, releaser( leasedConnection ) );
+                }
+                catch ( InvalidConnectionException e )
+                {
+                    pool.invalidate( leasedConnection );
+
+                    if ( i > 0 )
+                    {
+                        throw e;
+                    }
+                    if ( leasedConnection == ldapConnection || !isConnected() )
+                    {
+                        doConnect( monitor );
+                        doBind( monitor );
+                    }
+                }
+                catch ( Exception e )
+                {
+                    pool.release( leasedConnection );
+                    throw e;
+                }
+            }
+        }
+        catch ( Exception e )
+        {
+            return StudioResponseFuture.failed( toStudioLdapException( e ), monitor, operationLogger );
+        }
+    }
+
     /**
      * Inner runnable used in connection wrapper operations.
      *
@@ -1084,6 +1445,28 @@ public class DirectoryApiConnectionWrapper implements ConnectionWrapper
         protected StudioLdapException exception = null;
         protected boolean canceled = false;
 
+        /** The LDAP connection leased from the pool for this operation, null for connect and bind */
+        protected LdapNetworkConnection leasedConnection = null;
+
+        /** The request sent by this operation, used to abandon it when the operation is canceled */
+        protected volatile Request sentRequest = null;
+
+
+        /**
+         * Leases the LDAP connection used by this operation.
+         *
+         * @param pool the connection pool
+         * @param monitor the progress monitor
+         * @return the leased connection
+         * @throws Exception if a new connection can't be opened
+         */
+        protected LdapNetworkConnection lease( StudioLdapConnectionPool pool, StudioProgressMonitor monitor )
+            throws Exception
+        {
+            return pool.lease( monitor );
+        }
+
+
         /**
          * Gets the exception.
          * 
@@ -1125,6 +1508,7 @@ public class DirectoryApiConnectionWrapper implements ConnectionWrapper
             searchResultEnumeration = null;
             exception = null;
             canceled = false;
+            sentRequest = null;
         }
     }
 
@@ -1198,7 +1582,7 @@ public class DirectoryApiConnectionWrapper implements ConnectionWrapper
             doConnect( monitor );
             doBind( monitor );
         }
-        if ( ldapConnection == null )
+        if ( ldapConnection == null || connectionPool == null )
         {
             throw new InvalidConnectionException( Messages.DirectoryApiConnectionWrapper_NoConnection );
         }
@@ -1206,13 +1590,34 @@ public class DirectoryApiConnectionWrapper implements ConnectionWrapper
         // loop for reconnection
         for ( int i = 0; i <= 1; i++ )
         {
-            runAndMonitor( runnable, monitor );
+            StudioLdapConnectionPool pool = connectionPool;
+            LdapNetworkConnection leasedConnection = runnable.lease( pool, monitor );
+            runnable.leasedConnection = leasedConnection;
+
+            try
+            {
+                runAndMonitor( runnable, monitor );
+            }
+            finally
+            {
+                // a search result enumeration releases the connection itself once consumed
+                if ( runnable.getResult() == null )
+                {
+                    pool.release( leasedConnection );
+                }
+            }
 
             // check reconnection
             if ( ( i == 0 ) && ( runnable.getException() instanceof InvalidConnectionException ) )
             {
-                doConnect( monitor );
-                doBind( monitor );
+                pool.invalidate( leasedConnection );
+
+                if ( leasedConnection == ldapConnection || !isConnected() )
+                {
+                    doConnect( monitor );
+                    doBind( monitor );
+                }
+
                 runnable.reset();
             }
             else
@@ -1223,37 +1628,224 @@ public class DirectoryApiConnectionWrapper implements ConnectionWrapper
     }
 
 
+    /**
+     * Creates a callback that gives the leased connection back to the pool it was leased from.
+     *
+     * @param leasedConnection the leased connection
+     * @return the callback
+     */
+    private Runnable releaser( final LdapNetworkConnection leasedConnection )
+    {
+        final StudioLdapConnectionPool pool = connectionPool;
+
+        return () -> pool.release( leasedConnection );
+    }
+
+
+    /**
+     * Creates a callback that gives the connection of a search back to the pool. If the search
+     * result contains a paged results cookie the connection stays leased, it is used to request
+     * the next page.
+     *
+     * @param leasedConnection the leased connection
+     * @param enumeration the search result enumeration
+     * @return the callback
+     */
+    private Runnable pagedSearchReleaser( final LdapNetworkConnection leasedConnection,
+        final StudioSearchResultEnumeration enumeration )
+    {
+        final StudioLdapConnectionPool pool = connectionPool;
+
+        return () -> {
+            byte[] cookie = getPagedResultsCookie( enumeration.getResponseControls() );
+
+            if ( cookie != null && leasedConnection.isConnected() && !pool.isClosed() )
+            {
+                long now = System.currentTimeMillis();
+
+                synchronized ( pagedSearchLeases )
+                {
+                    // paged searches that were not continued
+                    for ( Iterator<PagedSearchLease> it = pagedSearchLeases.values().iterator(); it.hasNext(); )
+                    {
+                        PagedSearchLease lease = it.next();
+
+                        if ( now - lease.time > PAGED_SEARCH_TIMEOUT_MILLIS )
+                        {
+                            it.remove();
+                            lease.pool.release( lease.ldapConnection );
+                        }
+                    }
+
+                    pagedSearchLeases.put( cookie, new PagedSearchLease( pool, leasedConnection, now ) );
+                }
+            }
+            else
+            {
+                pool.release( leasedConnection );
+            }
+        };
+    }
+
+
+    /**
+     * Takes the connection kept leased for the next page of a paged search.
+     *
+     * @param pool the current connection pool
+     * @param cookie the paged results cookie of the request, may be null
+     * @return the leased connection that returned the cookie, null if there is none
+     */
+    private LdapNetworkConnection takePagedSearchConnection( StudioLdapConnectionPool pool, byte[] cookie )
+    {
+        if ( cookie == null )
+        {
+            return null;
+        }
+
+        PagedSearchLease lease;
+
+        synchronized ( pagedSearchLeases )
+        {
+            lease = pagedSearchLeases.remove( cookie );
+
+            if ( lease == null )
+            {
+                // the cookie was copied, accept an unambiguous match of its value
+                byte[] match = null;
+
+                for ( byte[] parkedCookie : pagedSearchLeases.keySet() )
+                {
+                    if ( Arrays.equals( parkedCookie, cookie ) )
+                    {
+                        if ( match != null )
+                        {
+                            return null;
+                        }
+
+                        match = parkedCookie;
+                    }
+                }
+
+                lease = match != null ? pagedSearchLeases.remove( match ) : null;
+            }
+        }
+
+        if ( lease == null )
+        {
+            return null;
+        }
+
+        if ( lease.pool != pool || !lease.ldapConnection.isConnected() )
+        {
+            lease.pool.release( lease.ldapConnection );
+
+            return null;
+        }
+
+        return lease.ldapConnection;
+    }
+
+
+    /**
+     * Gets the cookie of the paged results control in the given controls.
+     *
+     * @param controls the controls, may be null
+     * @return the cookie, null if there is no paged results control or its cookie is empty
+     */
+    private static byte[] getPagedResultsCookie( Collection<Control> controls )
+    {
+        if ( controls != null )
+        {
+            for ( Control control : controls )
+            {
+                if ( control instanceof PagedResults )
+                {
+                    byte[] cookie = ( ( PagedResults ) control ).getCookie();
+
+                    if ( cookie != null && cookie.length > 0 )
+                    {
+                        return cookie;
+                    }
+                }
+            }
+        }
+
+        return null;
+    }
+
+
+    /**
+     * Abandons the given request, if it was sent.
+     *
+     * @param ldapConnection the connection the request was sent on
+     * @param request the request, may be null
+     */
+    private static void abandon( LdapNetworkConnection ldapConnection, Request request )
+    {
+        if ( request != null && request.getMessageId() > 0 )
+        {
+            try
+            {
+                ldapConnection.abandon( request.getMessageId() );
+            }
+            catch ( Exception e )
+            {
+                // nothing to do, the operation is canceled anyway
+            }
+        }
+    }
+
+
     private void runAndMonitor( final InnerRunnable runnable, final StudioProgressMonitor monitor )
         throws CancelException
     {
         if ( !monitor.isCanceled() )
         {
+            final Thread jobThread = Thread.currentThread();
+
             // monitor
             StudioProgressMonitor.CancelListener listener = event -> {
                 if ( monitor.isCanceled() )
                 {
-                    if ( jobThread != null && jobThread.isAlive() )
+                    if ( jobThread.isAlive() )
                     {
                         jobThread.interrupt();
                     }
 
-                    if ( ldapConnection != null )
+                    // only close the connection used by this operation, a connection shared with
+                    // other operations is kept open and only the request of this operation is abandoned
+                    LdapNetworkConnection connectionToClose = runnable.leasedConnection != null
+                        ? runnable.leasedConnection
+                        : ldapConnection;
+
+                    if ( connectionToClose != null )
                     {
-                        try
+                        StudioLdapConnectionPool pool = connectionPool;
+                        boolean closed = true;
+
+                        if ( pool != null )
                         {
-                            ldapConnection.close();
+                            closed = pool.invalidateIfExclusive( connectionToClose );
                         }
-                        catch ( Exception e )
+                        else
                         {
+                            closeQuietly( connectionToClose );
                         }
 
-                        ldapConnection = null;
+                        if ( !closed )
+                        {
+                            abandon( connectionToClose, runnable.sentRequest );
+                        }
+                        else if ( connectionToClose == ldapConnection )
+                        {
+                            ldapConnection = null;
+                        }
                     }
                 }
             };
 
             monitor.addCancelListener( listener );
-            jobThread = Thread.currentThread();
+            jobThreads.add( jobThread );
 
             // run
             try
@@ -1263,7 +1855,7 @@ public class DirectoryApiConnectionWrapper implements ConnectionWrapper
             finally
             {
                 monitor.removeCancelListener( listener );
-                jobThread = null;
+                jobThreads.remove( jobThread );
             }
 
             if ( monitor.isCanceled() )
@@ -1273,6 +1865,29 @@ public class DirectoryApiConnectionWrapper implements ConnectionWrapper
         }
     }
 
+    /**
+     * A connection kept leased for the next page of a paged search.
+     */
+    private static final class PagedSearchLease
+    {
+        /** The pool the connection was leased from */
+        private final StudioLdapConnectionPool pool;
+
+        /** The leased connection */
+        private final LdapNetworkConnection ldapConnection;
+
+        /** The time the connection was kept */
+        private final long time;
+
+
+        private PagedSearchLease( StudioLdapConnectionPool pool, LdapNetworkConnection ldapConnection, long time )
+        {
+            this.pool = pool;
+            this.ldapConnection = ldapConnection;
+            this.time = time;
+        }
+    }
+
     private final class InnerConfiguration extends Configuration
     {
         private String krb5LoginModule;
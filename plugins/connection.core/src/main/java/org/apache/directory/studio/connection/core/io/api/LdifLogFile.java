@@ -0,0 +1,603 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *  
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License. 
+ *  
+ */
+
+package org.apache.directory.studio.connection.core.io.api;
+
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+
+
+/**
+ * A read-only view of a log file written by the {@link LdifSearchLogger} or the
+ * {@link LdifModificationLogger}, used by the log views to page through large
+ * log files without loading them completely.
+ * <p>
+ * The file is read in windows through a reusable heap buffer, no file handle stays
+ * open between calls, so the logger can rename or delete the file at any time. An
+ * index of the record offsets is built on the first {@link #update()} and extended
+ * with the records appended later. A record starts with a "#!" comment line at the
+ * beginning of the file or after an empty line. The request number, e.g.
+ * "#!SEARCH REQUEST (42) OK", is indexed too.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public class LdifLogFile
+{
+    /** The default size of the windows read when scanning the file */
+    private static final int WINDOW_SIZE = 1024 * 1024;
+
+    /** The maximum length of the header lines of a record, including a "#!DROPPED" line */
+    private static final int HEADER_SIZE = 1024;
+
+    /** The number of bytes before the indexed length compared to detect a replaced file */
+    private static final int TAIL_SIZE = 64;
+
+    /** The comment line written by the {@link LdifLogWriter} before a record if events were dropped */
+    private static final byte[] DROPPED = "#!DROPPED ".getBytes(); //$NON-NLS-1$
+
+    /** The log file */
+    private final File file;
+
+    /** The size of the windows read when scanning the file */
+    private final int windowSize;
+
+    /** The buffer the windows are read into */
+    private ByteBuffer window;
+
+    /** The start offsets of the records */
+    private long[] offsets = new long[64];
+
+    /** The request numbers of the records, -1 if the record has none */
+    private long[] requestNumbers = new long[64];
+
+    /** The number of records */
+    private int count;
+
+    /** The indexed length of the file */
+    private long length;
+
+    /** The file key of the indexed file, used to detect a rotation */
+    private Object fileKey;
+
+    /** The creation time of the indexed file, used to detect a rotation if there is no file key */
+    private FileTime creationTime;
+
+    /** The last bytes before the indexed length, used to detect a replaced file */
+    private byte[] tail = new byte[0];
+
+    /** The last byte before the indexed length, carriage returns are ignored */
+    private int previous1 = '\n';
+
+    /** The byte before the last byte */
+    private int previous2 = '\n';
+
+
+    /**
+     * Creates a new instance of LdifLogFile. The file is indexed with the first {@link #update()}.
+     *
+     * @param file the log file
+     */
+    public LdifLogFile( File file )
+    {
+        this( file, WINDOW_SIZE );
+    }
+
+
+    /**
+     * Creates a new instance of LdifLogFile reading the file in windows of the given size.
+     *
+     * @param file the log file
+     * @param windowSize the size of the windows, at least {@link #HEADER_SIZE}
+     */
+    LdifLogFile( File file, int windowSize )
+    {
+        this.file = file;
+        this.windowSize = Math.max( HEADER_SIZE, windowSize );
+    }
+
+
+    /**
+     * Gets the log file.
+     *
+     * @return the log file
+     */
+    public File getFile()
+    {
+        return file;
+    }
+
+
+    /**
+     * Indexes the records appended since the last update. The index is rebuilt
+     * if the file was replaced or truncated.
+     *
+     * @return true if the index changed
+     * @throws IOException if the file can't be read
+     */
+    public synchronized boolean update() throws IOException
+    {
+        if ( !file.exists() )
+        {
+            boolean changed = count > 0;
+            reset( null, null );
+            return changed;
+        }
+
+        BasicFileAttributes attributes = Files.readAttributes( file.toPath(), BasicFileAttributes.class );
+        Object key = attributes.fileKey();
+        // without a file key, e.g. on Windows, the creation time identifies the file
+        FileTime created = key == null ? attributes.creationTime() : null;
+
+        try ( FileChannel channel = FileChannel.open( file.toPath(), StandardOpenOption.READ ) )
+        {
+            long size = channel.size();
+            boolean changed = false;
+            if ( size < length || !equals( key, fileKey ) || !equals( created, creationTime )
+                || !Arrays.equals( tail, read( channel, length - tail.length, tail.length ) ) )
+            {
+                reset( key, created );
+                changed = true;
+            }
+            if ( size == length )
+            {
+                return changed;
+            }
+
+            ByteBuffer buffer = getWindow();
+            for ( long position = length; position < size; position += windowSize )
+            {
+                int limit = ( int ) Math.min( windowSize, size - position );
+                read( channel, buffer, position, limit );
+                scan( channel, buffer, position, size );
+            }
+            length = size;
+            tail = read( channel, Math.max( 0, size - TAIL_SIZE ), ( int ) Math.min( TAIL_SIZE, size ) );
+            return true;
+        }
+    }
+
+
+    private void reset( Object key, FileTime created )
+    {
+        count = 0;
+        length = 0;
+        fileKey = key;
+        creationTime = created;
+        tail = new byte[0];
+        previous1 = '\n';
+        previous2 = '\n';
+    }
+
+
+    private static boolean equals( Object o1, Object o2 )
+    {
+        return o1 == null ? o2 == null : o1.equals( o2 );
+    }
+
+
+    /**
+     * Scans a window for record starts, i.e. a "#!" line after an empty line.
+     */
+    private void scan( FileChannel channel, ByteBuffer buffer, long position, long size ) throws IOException
+    {
+        int limit = buffer.limit();
+        for ( int i = 0; i < limit; i++ )
+        {
+            int b = buffer.get( i );
+            if ( b == '#' && previous1 == '\n' && previous2 == '\n' )
+            {
+                long offset = position + i;
+                if ( i + HEADER_SIZE <= limit || position + limit == size )
+                {
+                    if ( i + 1 < limit && buffer.get( i + 1 ) == '!' )
+                    {
+                        addRecord( offset, parseRequestNumber( buffer, i, limit ) );
+                    }
+                }
+                else
+                {
+                    // the header crosses the end of the window
+                    byte[] header = read( channel, offset, ( int ) Math.min( HEADER_SIZE, size - offset ) );
+                    if ( header.length > 1 && header[1] == '!' )
+                    {
+                        addRecord( offset, parseRequestNumber( ByteBuffer.wrap( header ), 0, header.length ) );
+                    }
+                }
+            }
+            if ( b != '\r' )
+            {
+                previous2 = previous1;
+                previous1 = b;
+            }
+        }
+    }
+
+
+    private void addRecord( long offset, long requestNumber )
+    {
+        if ( count == offsets.length )
+        {
+            offsets = Arrays.copyOf( offsets, count * 2 );
+            requestNumbers = Arrays.copyOf( requestNumbers, count * 2 );
+        }
+        offsets[count] = offset;
+        requestNumbers[count] = requestNumber;
+        count++;
+    }
+
+
+    /**
+     * Parses the request number in parentheses of the header line starting at the given index.
+     * A leading "#!DROPPED" line is skipped.
+     */
+    private static long parseRequestNumber( ByteBuffer buffer, int i, int limit )
+    {
+        long number = -1;
+        boolean dropped = startsWith( buffer, i, limit, DROPPED );
+        for ( int j = i; j < limit; j++ )
+        {
+            int b = buffer.get( j );
+            if ( b == '\n' )
+            {
+                if ( !dropped )
+                {
+                    break;
+                }
+                dropped = false;
+            }
+            else if ( b == '(' )
+            {
+                number = 0;
+            }
+            else if ( number >= 0 && b >= '0' && b <= '9' )
+            {
+                number = number * 10 + ( b - '0' );
+            }
+            else if ( number >= 0 && b == ')' )
+            {
+                return number;
+            }
+            else
+            {
+                number = -1;
+            }
+        }
+        return -1;
+    }
+
+
+    private static boolean startsWith( ByteBuffer buffer, int i, int limit, byte[] prefix )
+    {
+        if ( i + prefix.length > limit )
+        {
+            return false;
+        }
+        for ( int j = 0; j < prefix.length; j++ )
+        {
+            if ( buffer.get( i + j ) != prefix[j] )
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+
+    /**
+     * Gets the reusable window buffer.
+     */
+    private ByteBuffer getWindow()
+    {
+        if ( window == null )
+        {
+            window = ByteBuffer.allocate( windowSize );
+        }
+        return window;
+    }
+
+
+    /**
+     * Reads the given number of bytes at the given position into the buffer, and flips it.
+     * Fewer bytes are read if the end of the file is reached.
+     */
+    private static void read( FileChannel channel, ByteBuffer buffer, long position, int size ) throws IOException
+    {
+        buffer.clear();
+        buffer.limit( size );
+        while ( buffer.hasRemaining() )
+        {
+            if ( channel.read( buffer, position + buffer.position() ) < 0 )
+            {
+                break;
+            }
+        }
+        buffer.flip();
+    }
+
+
+    private static byte[] read( FileChannel channel, long position, int size ) throws IOException
+    {
+        if ( position < 0 )
+        {
+            return null;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate( size );
+        read( channel, buffer, position, size );
+        return Arrays.copyOf( buffer.array(), buffer.limit() );
+    }
+
+
+    /**
+     * Gets the number of indexed records.
+     *
+     * @return the number of records
+     */
+    public synchronized int getRecordCount()
+    {
+        return count;
+    }
+
+
+    /**
+     * Gets the start offset of a record.
+     *
+     * @param record the record index, the record count for the indexed length
+     * @return the byte offset
+     */
+    public synchronized long getRecordOffset( int record )
+    {
+        return record < count ? offsets[record] : length;
+    }
+
+
+    /**
+     * Gets the record containing the given byte offset.
+     *
+     * @param offset the byte offset
+     * @return the record index, -1 if the offset is before the first record
+     */
+    public synchronized int getRecord( long offset )
+    {
+        int index = Arrays.binarySearch( offsets, 0, count, offset );
+        return index >= 0 ? index : -index - 2;
+    }
+
+
+    /**
+     * Gets the first record with the given request number.
+     *
+     * @param requestNumber the request number
+     * @return the record index, -1 if there is no such record
+     */
+    public synchronized int findRequest( long requestNumber )
+    {
+        for ( int i = 0; i < count; i++ )
+        {
+            if ( requestNumbers[i] == requestNumber )
+            {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+
+    /**
+     * Gets the text of a range of records.
+     *
+     * @param fromRecord the first record, inclusive
+     * @param toRecord the last record, exclusive
+     * @return the text
+     * @throws IOException if the file can't be read
+     */
+    public String getText( int fromRecord, int toRecord ) throws IOException
+    {
+        return getText( getRecordOffset( fromRecord ), getRecordOffset( toRecord ) );
+    }
+
+
+    /**
+     * Gets the text between two byte offsets. The file is written in the platform encoding.
+     *
+     * @param from the start offset, inclusive
+     * @param to the end offset, exclusive
+     * @return the text
+     * @throws IOException if the file can't be read
+     */
+    public String getText( long from, long to ) throws IOException
+    {
+        if ( to <= from )
+        {
+            return ""; //$NON-NLS-1$
+        }
+
+        try ( FileChannel channel = FileChannel.open( file.toPath(), StandardOpenOption.READ ) )
+        {
+            ByteBuffer buffer = ByteBuffer.allocate( ( int ) ( to - from ) );
+            read( channel, buffer, from, buffer.capacity() );
+            return Charset.defaultCharset().decode( buffer ).toString();
+        }
+    }
+
+
+    /**
+     * Searches the indexed part of the file for the given text, ignoring the case of
+     * ASCII letters.
+     *
+     * @param text the text to search
+     * @param from the byte offset to start from
+     * @return the byte offset of the first match, -1 if the text was not found
+     * @throws IOException if the file can't be read
+     */
+    public synchronized long find( String text, long from ) throws IOException
+    {
+        byte[] pattern = text.getBytes();
+        long end = length;
+        if ( pattern.length == 0 || from < 0 || from + pattern.length > end )
+        {
+            return -1;
+        }
+        for ( int i = 0; i < pattern.length; i++ )
+        {
+            pattern[i] = toLowerCase( pattern[i] );
+        }
+
+        // the windows overlap by the pattern length, so matches on a window boundary are found
+        ByteBuffer buffer = pattern.length < windowSize ? getWindow() : ByteBuffer.allocate( pattern.length * 2 );
+        int step = buffer.capacity() - pattern.length + 1;
+        try ( FileChannel channel = FileChannel.open( file.toPath(), StandardOpenOption.READ ) )
+        {
+            for ( long position = from; position + pattern.length <= end; position += step )
+            {
+                int size = ( int ) Math.min( buffer.capacity(), end - position );
+                read( channel, buffer, position, size );
+                int last = buffer.limit() - pattern.length;
+                for ( int i = 0; i <= last; i++ )
+                {
+                    int j = 0;
+                    while ( j < pattern.length && toLowerCase( buffer.get( i + j ) ) == pattern[j] )
+                    {
+                        j++;
+                    }
+                    if ( j == pattern.length )
+                    {
+                        return position + i;
+                    }
+                }
+                if ( last < 0 )
+                {
+                    break;
+                }
+            }
+        }
+        return -1;
+    }
+
+
+    private static byte toLowerCase( byte b )
+    {
+        return b >= 'A' && b <= 'Z' ? ( byte ) ( b + 'a' - 'A' ) : b;
+    }
+
+
+    /**
+     * Searches the given text in a sequence of log files, starting at the given offset of
+     * the first file and continuing with the following files from their beginning.
+     *
+     * @param files the log files, the current one first
+     * @param fromIndex the index of the first file to search
+     * @param current the already indexed view of the first file, may be null
+     * @param from the byte offset to start from in the first file
+     * @param text the text to search, the case of ASCII letters is ignored
+     * @return the match, null if the text was not found
+     * @throws IOException if a log file can't be read
+     */
+    public static Match find( File[] files, int fromIndex, LdifLogFile current, long from, String text )
+        throws IOException
+    {
+        for ( int i = fromIndex; i < files.length; i++ )
+        {
+            LdifLogFile logFile = i == fromIndex && current != null ? current : new LdifLogFile( files[i] );
+            logFile.update();
+            long offset = logFile.find( text, i == fromIndex ? from : 0 );
+            if ( offset >= 0 )
+            {
+                return new Match( i, logFile, offset );
+            }
+        }
+        return null;
+    }
+
+    /**
+     * A match of a text in a sequence of log files.
+     */
+    public static class Match
+    {
+        /** The index of the log file */
+        private final int fileIndex;
+
+        /** The log file */
+        private final LdifLogFile logFile;
+
+        /** The byte offset of the match */
+        private final long offset;
+
+
+        private Match( int fileIndex, LdifLogFile logFile, long offset )
+        {
+            this.fileIndex = fileIndex;
+            this.logFile = logFile;
+            this.offset = offset;
+        }
+
+
+        /**
+         * Gets the index of the log file containing the match.
+         *
+         * @return the index of the log file
+         */
+        public int getFileIndex()
+        {
+            return fileIndex;
+        }
+
+
+        /**
+         * Gets the log file containing the match.
+         *
+         * @return the log file
+         */
+        public LdifLogFile getLogFile()
+        {
+            return logFile;
+        }
+
+
+        /**
+         * Gets the byte offset of the match.
+         *
+         * @return the byte offset
+         */
+        public long getOffset()
+        {
+            return offset;
+        }
+
+
+        /**
+         * Gets the record containing the match.
+         *
+         * @return the record index, -1 if the match is before the first record
+         */
+        public int getRecord()
+        {
+            return logFile.getRecord( offset );
+        }
+    }
+}
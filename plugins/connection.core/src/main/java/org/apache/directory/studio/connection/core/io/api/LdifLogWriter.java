@@ -0,0 +1,508 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *  
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License. 
+ *  
+ */
+
+package org.apache.directory.studio.connection.core.io.api;
+
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+import org.apache.directory.studio.connection.core.ConnectionCoreConstants;
+import org.apache.directory.studio.ldifparser.LdifFormatParameters;
+import org.apache.directory.studio.ldifparser.model.lines.LdifCommentLine;
+
+
+/**
+ * Asynchronous, batching writer of the LDIF logs.
+ * <p>
+ * Logging threads only enqueue events into a bounded lock-free ring buffer. A single
+ * daemon thread formats the events and appends them to the log files in batches,
+ * flushing once per batch. The files are rotated like a {@link java.util.logging.FileHandler}
+ * would do: the %u placeholder of the file name pattern is 0, the %g placeholder is the
+ * generation, generation 0 is the current file.
+ * <p>
+ * When the queue is full the configured policy applies: the logging thread waits for free
+ * space, or the event is dropped. With the sample policy only every
+ * {@value #SAMPLE_RATE}th event is enqueued once the queue is more than half full. The
+ * number of dropped events is written as a comment into the log file.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+class LdifLogWriter
+{
+    /** The capacity of the queue, a power of two */
+    static final int CAPACITY = 8192;
+
+    /** The maximum number of events written before the files are flushed */
+    private static final int BATCH_SIZE = 1024;
+
+    /** Every n-th event is kept when sampling */
+    private static final int SAMPLE_RATE = 10;
+
+    /** The time the writer thread sleeps when there is nothing to write */
+    private static final long IDLE_NANOS = TimeUnit.MILLISECONDS.toNanos( 100 );
+
+    /** The time a waiting logging thread sleeps before it checks the queue again */
+    private static final long WAIT_NANOS = TimeUnit.MICROSECONDS.toNanos( 100 );
+
+    /** The queue slots */
+    private final AtomicReferenceArray<Event> slots = new AtomicReferenceArray<Event>( CAPACITY );
+
+    /** The sequence of the next event to enqueue, claimed by the logging threads */
+    private final AtomicLong tail = new AtomicLong();
+
+    /** The sequence of the next event to dequeue, only written by the writer thread */
+    private volatile long head;
+
+    /** All events with a smaller sequence are written and flushed */
+    private volatile long flushed;
+
+    /** True while the writer thread is sleeping */
+    private volatile boolean sleeping;
+
+    /** The policy to apply when the queue is full */
+    private volatile int queuePolicy = ConnectionCoreConstants.PREFERENCE_LOGS_QUEUE_POLICY_BLOCK;
+
+    /** The name of the writer thread */
+    private final String name;
+
+    /** The writer thread, started with the first event */
+    private volatile Thread thread;
+
+
+    /**
+     * Creates a new instance of LdifLogWriter.
+     *
+     * @param name the name of the writer thread
+     */
+    LdifLogWriter( String name )
+    {
+        this.name = name;
+    }
+
+
+    /**
+     * Sets the policy to apply when the queue is full.
+     *
+     * @param queuePolicy one of the PREFERENCE_LOGS_QUEUE_POLICY_* constants
+     */
+    void setQueuePolicy( int queuePolicy )
+    {
+        this.queuePolicy = queuePolicy;
+    }
+
+
+    /**
+     * Creates a new target to log into. The files are opened with the first event.
+     *
+     * @param fileNamePattern the file name pattern, with %u and %g placeholders
+     * @param limit the maximum size of a file in bytes, 0 for no limit
+     * @param count the number of files to use
+     * @return the target
+     */
+    LogTarget open( String fileNamePattern, int limit, int count )
+    {
+        return new LogTarget( fileNamePattern, Math.max( limit, 0 ), Math.max( count, 1 ) );
+    }
+
+
+    /**
+     * Enqueues an event. The text is created and written by the writer thread, so it
+     * must not depend on state that the calling thread modifies afterwards.
+     *
+     * @param target the target
+     * @param text the supplier of the formatted event
+     */
+    void log( LogTarget target, Supplier<String> text )
+    {
+        if ( target.closed )
+        {
+            return;
+        }
+
+        int policy = queuePolicy;
+        if ( policy == ConnectionCoreConstants.PREFERENCE_LOGS_QUEUE_POLICY_SAMPLE
+            && tail.get() - head > CAPACITY / 2
+            && target.sampleCounter.getAndIncrement() % SAMPLE_RATE != 0 )
+        {
+            target.dropped.incrementAndGet();
+            return;
+        }
+
+        Event event = new Event( target, text );
+        if ( !offer( event, policy == ConnectionCoreConstants.PREFERENCE_LOGS_QUEUE_POLICY_BLOCK ) )
+        {
+            target.dropped.incrementAndGet();
+        }
+    }
+
+
+    /**
+     * Waits until all events enqueued so far are written to the files.
+     */
+    void flush()
+    {
+        long sequence = tail.get();
+        while ( flushed < sequence && isRunning() )
+        {
+            wakeUp();
+            LockSupport.parkNanos( this, WAIT_NANOS );
+        }
+    }
+
+
+    /**
+     * Writes all pending events of the target and closes its files.
+     * Further events to the target are ignored.
+     *
+     * @param target the target
+     */
+    void close( LogTarget target )
+    {
+        if ( target.closed )
+        {
+            return;
+        }
+
+        target.closed = true;
+        if ( offer( new Event( target, null ), true ) )
+        {
+            flush();
+        }
+    }
+
+
+    /**
+     * Enqueues an event.
+     *
+     * @param event the event
+     * @param block true to wait while the queue is full
+     * @return false if the queue was full and the event was not enqueued
+     */
+    private boolean offer( Event event, boolean block )
+    {
+        start();
+
+        while ( true )
+        {
+            long sequence = tail.get();
+            if ( sequence - head >= CAPACITY )
+            {
+                if ( !block || !isRunning() )
+                {
+                    return false;
+                }
+                wakeUp();
+                LockSupport.parkNanos( this, WAIT_NANOS );
+            }
+            else if ( tail.compareAndSet( sequence, sequence + 1 ) )
+            {
+                slots.set( ( int ) ( sequence & ( CAPACITY - 1 ) ), event );
+                if ( sleeping )
+                {
+                    wakeUp();
+                }
+                return true;
+            }
+        }
+    }
+
+
+    private synchronized void start()
+    {
+        if ( thread == null )
+        {
+            thread = new Thread( this::run, name );
+            thread.setDaemon( true );
+            thread.start();
+        }
+    }
+
+
+    private boolean isRunning()
+    {
+        Thread writerThread = thread;
+        return writerThread != null && writerThread.isAlive();
+    }
+
+
+    private void wakeUp()
+    {
+        LockSupport.unpark( thread );
+    }
+
+
+    /**
+     * The loop of the writer thread.
+     */
+    private void run()
+    {
+        List<LogTarget> written = new ArrayList<LogTarget>();
+        while ( true )
+        {
+            int count = 0;
+            Event event;
+            while ( count < BATCH_SIZE && ( event = poll() ) != null )
+            {
+                count++;
+                LogTarget target = event.target;
+                if ( target.closedByWriter )
+                {
+                    // enqueued by a logging thread that saw the target open before it was closed
+                    continue;
+                }
+                if ( event.text == null )
+                {
+                    target.close();
+                    written.remove( target );
+                    continue;
+                }
+
+                target.write( event.text );
+                if ( !written.contains( target ) )
+                {
+                    written.add( target );
+                }
+            }
+
+            for ( LogTarget target : written )
+            {
+                target.flush();
+            }
+            written.clear();
+            flushed = head;
+
+            if ( count == 0 )
+            {
+                sleeping = true;
+                if ( tail.get() == head )
+                {
+                    LockSupport.parkNanos( this, IDLE_NANOS );
+                }
+                sleeping = false;
+            }
+        }
+    }
+
+
+    /**
+     * Dequeues the next event, called by the writer thread only.
+     *
+     * @return the event, null if no event is available
+     */
+    private Event poll()
+    {
+        long sequence = head;
+        if ( sequence == tail.get() )
+        {
+            return null;
+        }
+
+        // the slot is claimed but the event may not be published yet
+        int index = ( int ) ( sequence & ( CAPACITY - 1 ) );
+        Event event = slots.get( index );
+        while ( event == null )
+        {
+            Thread.yield();
+            event = slots.get( index );
+        }
+
+        slots.lazySet( index, null );
+        head = sequence + 1;
+        return event;
+    }
+
+    /**
+     * An enqueued event, an event without text closes the target.
+     */
+    private static final class Event
+    {
+        private final LogTarget target;
+        private final Supplier<String> text;
+
+
+        private Event( LogTarget target, Supplier<String> text )
+        {
+            this.target = target;
+            this.text = text;
+        }
+    }
+
+    /**
+     * A set of rotated log files. The files are only accessed by the writer thread.
+     */
+    static final class LogTarget
+    {
+        /** The file name pattern */
+        private final String fileNamePattern;
+
+        /** The maximum size of a file in bytes, 0 for no limit */
+        private final int limit;
+
+        /** The number of files */
+        private final int count;
+
+        /** The number of dropped events not yet reported in the log file */
+        private final AtomicLong dropped = new AtomicLong();
+
+        /** The counter of events seen while sampling */
+        private final AtomicLong sampleCounter = new AtomicLong();
+
+        /** True if the target was closed, further events are not enqueued */
+        private volatile boolean closed;
+
+        /** True if the writer thread closed the files, events still in the queue are ignored */
+        private boolean closedByWriter;
+
+        /** The stream of the current file */
+        private OutputStream out;
+
+        /** The number of bytes in the current file */
+        private long size;
+
+
+        private LogTarget( String fileNamePattern, int limit, int count )
+        {
+            this.fileNamePattern = fileNamePattern;
+            this.limit = limit;
+            this.count = count;
+        }
+
+
+        private File getFile( int generation )
+        {
+            return new File( fileNamePattern.replace( "%u", "0" ).replace( "%g", Integer.toString( generation ) ) ); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+        }
+
+
+        private void write( Supplier<String> text )
+        {
+            try
+            {
+                String formatted = getDroppedComment() + text.get();
+                if ( out == null )
+                {
+                    File file = getFile( 0 );
+                    size = file.length();
+                    out = new BufferedOutputStream( new FileOutputStream( file, true ) );
+                }
+
+                byte[] bytes = formatted.getBytes();
+                out.write( bytes );
+                size += bytes.length;
+
+                if ( limit > 0 && size >= limit )
+                {
+                    rotate();
+                }
+            }
+            catch ( Exception e )
+            {
+                e.printStackTrace();
+            }
+        }
+
+
+        private String getDroppedComment()
+        {
+            long droppedEvents = dropped.getAndSet( 0 );
+            if ( droppedEvents == 0 )
+            {
+                return ""; //$NON-NLS-1$
+            }
+            return LdifCommentLine.create( "#!DROPPED " + droppedEvents ) //$NON-NLS-1$
+                .toFormattedString( LdifFormatParameters.DEFAULT );
+        }
+
+
+        private void rotate() throws IOException
+        {
+            out.close();
+            boolean rotated = true;
+            for ( int generation = count - 2; generation >= 0; generation-- )
+            {
+                File file = getFile( generation );
+                if ( file.exists() )
+                {
+                    File older = getFile( generation + 1 );
+                    if ( older.exists() )
+                    {
+                        older.delete();
+                    }
+                    rotated = file.renameTo( older );
+                }
+            }
+
+            // if the current file couldn't be renamed, e.g. because a reader holds it open on Windows,
+            // keep appending to it and retry after the next limit bytes instead of truncating it
+            out = new BufferedOutputStream( new FileOutputStream( getFile( 0 ), count > 1 && !rotated ) );
+            size = 0;
+        }
+
+
+        private void flush()
+        {
+            try
+            {
+                if ( out != null )
+                {
+                    out.flush();
+                }
+            }
+            catch ( IOException e )
+            {
+                e.printStackTrace();
+            }
+        }
+
+
+        private void close()
+        {
+            if ( dropped.get() > 0 )
+            {
+                write( () -> "" ); //$NON-NLS-1$
+            }
+
+            try
+            {
+                if ( out != null )
+                {
+                    out.close();
+                }
+            }
+            catch ( IOException e )
+            {
+                e.printStackTrace();
+            }
+            out = null;
+            closedByWriter = true;
+        }
+    }
+}
@@ -22,22 +22,17 @@ package org.apache.directory.studio.connection.core.io.api;
 
 
 import java.io.File;
-import java.io.IOException;
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Date;
-import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
 import java.util.StringJoiner;
-import java.util.logging.FileHandler;
-import java.util.logging.Formatter;
-import java.util.logging.Handler;
-import java.util.logging.Level;
-import java.util.logging.LogRecord;
-import java.util.logging.Logger;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
 
 import org.apache.directory.api.ldap.model.entry.Attribute;
 import org.apache.directory.api.ldap.model.entry.Entry;
@@ -54,6 +49,7 @@ import org.apache.directory.studio.connection.core.ConnectionManager;
 import org.apache.directory.studio.connection.core.Controls;
 import org.apache.directory.studio.connection.core.ILdapLogger;
 import org.apache.directory.studio.connection.core.io.StudioLdapException;
+import org.apache.directory.studio.connection.core.io.api.LdifLogWriter.LogTarget;
 import org.apache.directory.studio.ldifparser.LdifFormatParameters;
 import org.apache.directory.studio.ldifparser.model.container.LdifChangeAddRecord;
 import org.apache.directory.studio.ldifparser.model.container.LdifChangeDeleteRecord;
@@ -93,29 +89,32 @@ public class LdifModificationLogger implements ILdapLogger
     /** The description. */
     private String description;
 
-    /** The file handlers. */
-    private Map<String, FileHandler> fileHandlers = new HashMap<String, FileHandler>();
+    /** The writer, shared by the log targets of all connections. */
+    private LdifLogWriter writer = new LdifLogWriter( "LDIF Modification Log Writer" ); //$NON-NLS-1$
 
-    /** The loggers. */
-    private Map<String, Logger> loggers = new HashMap<String, Logger>();
+    /** The log targets, keyed by connection ID. */
+    private Map<String, LogTarget> targets = new ConcurrentHashMap<String, LogTarget>();
 
     /**
      * Creates a new instance of LdifModificationLogger.
      */
     public LdifModificationLogger()
     {
+        writer.setQueuePolicy( getQueuePolicy() );
+
         IEclipsePreferences prefs = InstanceScope.INSTANCE.getNode( ConnectionCoreConstants.PLUGIN_ID );
         prefs.addPreferenceChangeListener( event -> {
-            if ( ConnectionCoreConstants.PREFERENCE_MODIFICATIONLOGS_FILE_COUNT.equals( event.getKey() )
+            if ( ConnectionCoreConstants.PREFERENCE_MODIFICATIONLOGS_QUEUE_POLICY.equals( event.getKey() ) )
+            {
+                writer.setQueuePolicy( getQueuePolicy() );
+            }
+            else if ( ConnectionCoreConstants.PREFERENCE_MODIFICATIONLOGS_FILE_COUNT.equals( event.getKey() )
                 || ConnectionCoreConstants.PREFERENCE_MODIFICATIONLOGS_FILE_SIZE.equals( event.getKey() ) )
             {
-                // dispose all loggers/handlers
-                for ( Logger logger : loggers.values() )
+                // write pending events and close all targets
+                for ( LogTarget target : targets.values() )
                 {
-                    for ( Handler handler : logger.getHandlers() )
-                    {
-                        handler.close();
-                    }
+                    writer.close( target );
                 }
 
                 // delete files with index greater than new file count
@@ -138,43 +137,28 @@ public class LdifModificationLogger implements ILdapLogger
                     }
                 }
 
-                loggers.clear();
+                targets.clear();
             }
         } );
     }
 
 
     /**
-     * Inits the modification logger.
+     * Gets the log target of the given connection, creates it if necessary.
+     *
+     * @param connection the connection
+     * @return the log target, null if the connection has no name yet
      */
-    private void initModificationLogger( Connection connection )
+    private LogTarget getTarget( Connection connection )
     {
-        Logger logger = Logger.getAnonymousLogger();
-        loggers.put( connection.getId(), logger );
-        logger.setLevel( Level.ALL );
-
-        String logfileName = ConnectionManager.getModificationLogFileName( connection );
-        try
+        LogTarget target = targets.get( connection.getId() );
+        if ( target == null && connection.getName() != null )
         {
-            FileHandler fileHandler = new FileHandler( logfileName, getFileSizeInKb() * 1000, getFileCount(), true );
-            fileHandlers.put( connection.getId(), fileHandler );
-            fileHandler.setFormatter( new Formatter()
-            {
-                public String format( LogRecord record )
-                {
-                    return record.getMessage();
-                }
-            } );
-            logger.addHandler( fileHandler );
-        }
-        catch ( SecurityException e )
-        {
-            e.printStackTrace();
-        }
-        catch ( IOException e )
-        {
-            e.printStackTrace();
+            target = targets.computeIfAbsent( connection.getId(), id -> writer.open(
+                ConnectionManager.getModificationLogFileName( connection ), getFileSizeInKb() * 1000,
+                getFileCount() ) );
         }
+        return target;
     }
 
 
@@ -185,39 +169,34 @@ public class LdifModificationLogger implements ILdapLogger
      */
     public void dispose( Connection connection )
     {
-        String id = connection.getId();
-        if ( loggers.containsKey( id ) )
+        LogTarget target = targets.remove( connection.getId() );
+        if ( target != null )
         {
-            Handler[] handlers = loggers.get( id ).getHandlers();
-            for ( Handler handler : handlers )
-            {
-                handler.close();
-            }
+            writer.close( target );
 
             File[] files = getLogFiles( connection );
             for ( File file : files )
             {
                 deleteFileWithRetry( file );
             }
-
-            loggers.remove( id );
         }
     }
 
 
-    private void log( String text, StudioLdapException ex, Connection connection )
+    /**
+     * Enqueues a log event. The date is taken now, the lines are formatted
+     * by the writer thread.
+     */
+    private void log( Supplier<String> text, StudioLdapException ex, Connection connection )
     {
-        String id = connection.getId();
-        if ( !loggers.containsKey( id ) )
+        LogTarget target = getTarget( connection );
+        if ( target == null )
         {
-            if ( connection.getName() != null )
-            {
-                initModificationLogger( connection );
-            }
+            return;
         }
 
-        if ( loggers.containsKey( id ) )
-        {
+        Date date = new Date();
+        writer.log( target, () -> {
             StringJoiner lines = new StringJoiner( "" );
             DateFormat df = new SimpleDateFormat( ConnectionCoreConstants.DATEFORMAT );
             df.setTimeZone( ConnectionCoreConstants.UTC_TIME_ZONE );
@@ -238,7 +217,7 @@ public class LdifModificationLogger implements ILdapLogger
                     .create( "#!CONNECTION ldap://" + connection.getHost() + ":" + connection.getPort() ) //$NON-NLS-1$//$NON-NLS-2$
                     .toFormattedString( LdifFormatParameters.DEFAULT ) );
             lines.add( LdifCommentLine
-                .create( "#!DATE " + df.format( new Date() ) ).toFormattedString( LdifFormatParameters.DEFAULT ) ); //$NON-NLS-1$
+                .create( "#!DATE " + df.format( date ) ).toFormattedString( LdifFormatParameters.DEFAULT ) ); //$NON-NLS-1$
 
             if ( ex != null )
             {
@@ -249,10 +228,9 @@ public class LdifModificationLogger implements ILdapLogger
                 lines.add( errorCommentLine.toFormattedString( LdifFormatParameters.DEFAULT ) );
             }
 
-            lines.add( text );
-            Logger logger = loggers.get( id );
-            logger.log( Level.ALL, lines.toString() );
-        }
+            lines.add( text.get() );
+            return lines.toString();
+        } );
     }
 
 
@@ -267,36 +245,42 @@ public class LdifModificationLogger implements ILdapLogger
             return;
         }
 
-        Set<String> maskedAttributes = getMaskedAttributes();
-        LdifChangeAddRecord record = new LdifChangeAddRecord( LdifDnLine.create( entry.getDn().getName() ) );
-        addControlLines( record, controls );
-        record.setChangeType( LdifChangeTypeLine.createAdd() );
-        for ( Attribute attribute : entry )
-        {
-            String attributeName = attribute.getUpId();
-            for ( Value value : attribute )
+        // the caller may reuse the entry and the controls, the record is formatted later
+        Entry entrySnapshot = entry.clone();
+        Control[] controlsSnapshot = snapshot( controls );
+        Supplier<String> text = () -> {
+            Set<String> maskedAttributes = getMaskedAttributes();
+            LdifChangeAddRecord record = new LdifChangeAddRecord( LdifDnLine.create( entrySnapshot.getDn().getName() ) );
+            addControlLines( record, controlsSnapshot );
+            record.setChangeType( LdifChangeTypeLine.createAdd() );
+            for ( Attribute attribute : entrySnapshot )
             {
-                if ( maskedAttributes.contains( Strings.toLowerCaseAscii( attributeName ) ) )
-                {
-                    record.addAttrVal( LdifAttrValLine.create( attributeName, "**********" ) ); //$NON-NLS-1$
-                }
-                else
+                String attributeName = attribute.getUpId();
+                for ( Value value : attribute )
                 {
-                    if ( value.isHumanReadable() )
+                    if ( maskedAttributes.contains( Strings.toLowerCaseAscii( attributeName ) ) )
                     {
-                        record.addAttrVal( LdifAttrValLine.create( attributeName, value.getString() ) );
+                        record.addAttrVal( LdifAttrValLine.create( attributeName, "**********" ) ); //$NON-NLS-1$
                     }
                     else
                     {
-                        record.addAttrVal( LdifAttrValLine.create( attributeName, value.getBytes() ) );
+                        if ( value.isHumanReadable() )
+                        {
+                            record.addAttrVal( LdifAttrValLine.create( attributeName, value.getString() ) );
+                        }
+                        else
+                        {
+                            record.addAttrVal( LdifAttrValLine.create( attributeName, value.getBytes() ) );
+                        }
                     }
                 }
             }
-        }
-        record.finish( LdifSepLine.create() );
+            record.finish( LdifSepLine.create() );
 
-        String formattedString = record.toFormattedString( LdifFormatParameters.DEFAULT );
-        log( formattedString, ex, connection );
+            return record.toFormattedString( LdifFormatParameters.DEFAULT );
+        };
+
+        log( text, ex, connection );
     }
 
 
@@ -311,13 +295,18 @@ public class LdifModificationLogger implements ILdapLogger
             return;
         }
 
-        LdifChangeDeleteRecord record = new LdifChangeDeleteRecord( LdifDnLine.create( dn.getName() ) );
-        addControlLines( record, controls );
-        record.setChangeType( LdifChangeTypeLine.createDelete() );
-        record.finish( LdifSepLine.create() );
+        // the caller may reuse the controls, the record is formatted later
+        Control[] controlsSnapshot = snapshot( controls );
+        Supplier<String> text = () -> {
+            LdifChangeDeleteRecord record = new LdifChangeDeleteRecord( LdifDnLine.create( dn.getName() ) );
+            addControlLines( record, controlsSnapshot );
+            record.setChangeType( LdifChangeTypeLine.createDelete() );
+            record.finish( LdifSepLine.create() );
+
+            return record.toFormattedString( LdifFormatParameters.DEFAULT );
+        };
 
-        String formattedString = record.toFormattedString( LdifFormatParameters.DEFAULT );
-        log( formattedString, ex, connection );
+        log( text, ex, connection );
     }
 
 
@@ -332,54 +321,64 @@ public class LdifModificationLogger implements ILdapLogger
             return;
         }
 
-        Set<String> maskedAttributes = getMaskedAttributes();
-        LdifChangeModifyRecord record = new LdifChangeModifyRecord( LdifDnLine.create( dn.getName() ) );
-        addControlLines( record, controls );
-        record.setChangeType( LdifChangeTypeLine.createModify() );
-        for ( Modification item : modifications )
+        // the caller may reuse the modifications and the controls, the record is formatted later
+        Collection<Modification> items = new ArrayList<Modification>( modifications.size() );
+        for ( Modification modification : modifications )
         {
-            String attributeName = item.getAttribute().getUpId();
-            LdifModSpec modSpec;
-            switch ( item.getOperation() )
-            {
-                case ADD_ATTRIBUTE:
-                    modSpec = LdifModSpec.createAdd( attributeName );
-                    break;
-                case REMOVE_ATTRIBUTE:
-                    modSpec = LdifModSpec.createDelete( attributeName );
-                    break;
-                case REPLACE_ATTRIBUTE:
-                    modSpec = LdifModSpec.createReplace( attributeName );
-                    break;
-                default:
-                    continue;
-            }
-            for ( Value value : item.getAttribute() )
+            items.add( modification.clone() );
+        }
+        Control[] controlsSnapshot = snapshot( controls );
+        Supplier<String> text = () -> {
+            Set<String> maskedAttributes = getMaskedAttributes();
+            LdifChangeModifyRecord record = new LdifChangeModifyRecord( LdifDnLine.create( dn.getName() ) );
+            addControlLines( record, controlsSnapshot );
+            record.setChangeType( LdifChangeTypeLine.createModify() );
+            for ( Modification item : items )
             {
-                if ( maskedAttributes.contains( Strings.toLowerCaseAscii( attributeName ) ) )
+                String attributeName = item.getAttribute().getUpId();
+                LdifModSpec modSpec;
+                switch ( item.getOperation() )
                 {
-                    modSpec.addAttrVal( LdifAttrValLine.create( attributeName, "**********" ) ); //$NON-NLS-1$
+                    case ADD_ATTRIBUTE:
+                        modSpec = LdifModSpec.createAdd( attributeName );
+                        break;
+                    case REMOVE_ATTRIBUTE:
+                        modSpec = LdifModSpec.createDelete( attributeName );
+                        break;
+                    case REPLACE_ATTRIBUTE:
+                        modSpec = LdifModSpec.createReplace( attributeName );
+                        break;
+                    default:
+                        continue;
                 }
-                else
+                for ( Value value : item.getAttribute() )
                 {
-                    if ( value.isHumanReadable() )
+                    if ( maskedAttributes.contains( Strings.toLowerCaseAscii( attributeName ) ) )
                     {
-                        modSpec.addAttrVal( LdifAttrValLine.create( attributeName, value.getString() ) );
+                        modSpec.addAttrVal( LdifAttrValLine.create( attributeName, "**********" ) ); //$NON-NLS-1$
                     }
                     else
                     {
-                        modSpec.addAttrVal( LdifAttrValLine.create( attributeName, value.getBytes() ) );
+                        if ( value.isHumanReadable() )
+                        {
+                            modSpec.addAttrVal( LdifAttrValLine.create( attributeName, value.getString() ) );
+                        }
+                        else
+                        {
+                            modSpec.addAttrVal( LdifAttrValLine.create( attributeName, value.getBytes() ) );
+                        }
                     }
                 }
+                modSpec.finish( LdifModSpecSepLine.create() );
+
+                record.addModSpec( modSpec );
             }
-            modSpec.finish( LdifModSpecSepLine.create() );
+            record.finish( LdifSepLine.create() );
 
-            record.addModSpec( modSpec );
-        }
-        record.finish( LdifSepLine.create() );
+            return record.toFormattedString( LdifFormatParameters.DEFAULT );
+        };
 
-        String formattedString = record.toFormattedString( LdifFormatParameters.DEFAULT );
-        log( formattedString, ex, connection );
+        log( text, ex, connection );
     }
 
 
@@ -394,19 +393,36 @@ public class LdifModificationLogger implements ILdapLogger
             return;
         }
 
-        Rdn newrdn = newDn.getRdn();
-        Dn newsuperior = newDn.getParent();
+        // the caller may reuse the controls, the record is formatted later
+        Control[] controlsSnapshot = snapshot( controls );
+        Supplier<String> text = () -> {
+            Rdn newrdn = newDn.getRdn();
+            Dn newsuperior = newDn.getParent();
+
+            LdifChangeModDnRecord record = new LdifChangeModDnRecord( LdifDnLine.create( oldDn.getName() ) );
+            addControlLines( record, controlsSnapshot );
+            record.setChangeType( LdifChangeTypeLine.createModDn() );
+            record.setNewrdn( LdifNewrdnLine.create( newrdn.getName() ) );
+            record.setDeloldrdn( deleteOldRdn ? LdifDeloldrdnLine.create1() : LdifDeloldrdnLine.create0() );
+            record.setNewsuperior( LdifNewsuperiorLine.create( newsuperior.getName() ) );
+            record.finish( LdifSepLine.create() );
+
+            return record.toFormattedString( LdifFormatParameters.DEFAULT );
+        };
+
+        log( text, ex, connection );
+    }
 
-        LdifChangeModDnRecord record = new LdifChangeModDnRecord( LdifDnLine.create( oldDn.getName() ) );
-        addControlLines( record, controls );
-        record.setChangeType( LdifChangeTypeLine.createModDn() );
-        record.setNewrdn( LdifNewrdnLine.create( newrdn.getName() ) );
-        record.setDeloldrdn( deleteOldRdn ? LdifDeloldrdnLine.create1() : LdifDeloldrdnLine.create0() );
-        record.setNewsuperior( LdifNewsuperiorLine.create( newsuperior.getName() ) );
-        record.finish( LdifSepLine.create() );
 
-        String formattedString = record.toFormattedString( LdifFormatParameters.DEFAULT );
-        log( formattedString, ex, connection );
+    /**
+     * Copies the controls array.
+     *
+     * @param controls the controls, may be null
+     * @return the copy, null if there are no controls
+     */
+    private static Control[] snapshot( Control[] controls )
+    {
+        return controls == null ? null : controls.clone();
     }
 
 
@@ -441,14 +457,9 @@ public class LdifModificationLogger implements ILdapLogger
      */
     public File[] getFiles( Connection connection )
     {
-        String id = connection.getId();
-        if ( !loggers.containsKey( id ) )
-        {
-            if ( connection.getName() != null )
-            {
-                initModificationLogger( connection );
-            }
-        }
+        // make sure the files contain all events logged so far
+        getTarget( connection );
+        writer.flush();
 
         try
         {
@@ -518,6 +529,17 @@ public class LdifModificationLogger implements ILdapLogger
     }
 
 
+    /**
+     * Gets the policy to apply when the log queue is full.
+     * 
+     * @return the queue policy
+     */
+    private int getQueuePolicy()
+    {
+        return ConnectionCorePlugin.getDefault().getModificationLogsQueuePolicy();
+    }
+
+
     public String getId()
     {
         return id;
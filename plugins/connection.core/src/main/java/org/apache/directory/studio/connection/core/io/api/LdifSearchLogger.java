@@ -22,23 +22,17 @@ package org.apache.directory.studio.connection.core.io.api;
 
 
 import java.io.File;
-import java.io.IOException;
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Date;
-import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
 import java.util.StringJoiner;
-import java.util.logging.FileHandler;
-import java.util.logging.Formatter;
-import java.util.logging.Handler;
-import java.util.logging.Level;
-import java.util.logging.LogRecord;
-import java.util.logging.Logger;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
 
 import javax.naming.directory.SearchControls;
 
@@ -59,6 +53,7 @@ import org.apache.directory.studio.connection.core.ILdapLogger;
 import org.apache.directory.studio.connection.core.ReferralsInfo;
 import org.apache.directory.studio.connection.core.Utils;
 import org.apache.directory.studio.connection.core.io.StudioLdapException;
+import org.apache.directory.studio.connection.core.io.api.LdifLogWriter.LogTarget;
 import org.apache.directory.studio.ldifparser.LdifFormatParameters;
 import org.apache.directory.studio.ldifparser.model.container.LdifContentRecord;
 import org.apache.directory.studio.ldifparser.model.lines.LdifAttrValLine;
@@ -87,29 +82,32 @@ public class LdifSearchLogger implements ILdapLogger
     /** The description. */
     private String description;
 
-    /** The file handlers. */
-    private Map<String, FileHandler> fileHandlers = new HashMap<String, FileHandler>();
+    /** The writer, shared by the log targets of all connections. */
+    private LdifLogWriter writer = new LdifLogWriter( "LDIF Search Log Writer" ); //$NON-NLS-1$
 
-    /** The loggers. */
-    private Map<String, Logger> loggers = new HashMap<String, Logger>();
+    /** The log targets, keyed by connection ID. */
+    private Map<String, LogTarget> targets = new ConcurrentHashMap<String, LogTarget>();
 
     /**
      * Creates a new instance of LdifSearchLogger.
      */
     public LdifSearchLogger()
     {
+        writer.setQueuePolicy( getQueuePolicy() );
+
         IEclipsePreferences prefs = InstanceScope.INSTANCE.getNode( ConnectionCoreConstants.PLUGIN_ID );
         prefs.addPreferenceChangeListener( event -> {
-            if ( ConnectionCoreConstants.PREFERENCE_SEARCHLOGS_FILE_COUNT.equals( event.getKey() )
+            if ( ConnectionCoreConstants.PREFERENCE_SEARCHLOGS_QUEUE_POLICY.equals( event.getKey() ) )
+            {
+                writer.setQueuePolicy( getQueuePolicy() );
+            }
+            else if ( ConnectionCoreConstants.PREFERENCE_SEARCHLOGS_FILE_COUNT.equals( event.getKey() )
                 || ConnectionCoreConstants.PREFERENCE_SEARCHLOGS_FILE_SIZE.equals( event.getKey() ) )
             {
-                // dispose all loggers/handlers
-                for ( Logger logger : loggers.values() )
+                // write pending events and close all targets
+                for ( LogTarget target : targets.values() )
                 {
-                    for ( Handler handler : logger.getHandlers() )
-                    {
-                        handler.close();
-                    }
+                    writer.close( target );
                 }
 
                 // delete files with index greater than new file count
@@ -132,43 +130,27 @@ public class LdifSearchLogger implements ILdapLogger
                     }
                 }
 
-                loggers.clear();
+                targets.clear();
             }
         } );
     }
 
 
     /**
-     * Inits the search logger.
+     * Gets the log target of the given connection, creates it if necessary.
+     *
+     * @param connection the connection
+     * @return the log target, null if the connection has no name yet
      */
-    private void initSearchLogger( Connection connection )
+    private LogTarget getTarget( Connection connection )
     {
-        Logger logger = Logger.getAnonymousLogger();
-        loggers.put( connection.getId(), logger );
-        logger.setLevel( Level.ALL );
-
-        String logfileName = ConnectionManager.getSearchLogFileName( connection );
-        try
-        {
-            FileHandler fileHandler = new FileHandler( logfileName, getFileSizeInKb() * 1000, getFileCount(), true );
-            fileHandlers.put( connection.getId(), fileHandler );
-            fileHandler.setFormatter( new Formatter()
-            {
-                public String format( LogRecord record )
-                {
-                    return record.getMessage();
-                }
-            } );
-            logger.addHandler( fileHandler );
-        }
-        catch ( SecurityException e )
+        LogTarget target = targets.get( connection.getId() );
+        if ( target == null && connection.getName() != null )
         {
-            e.printStackTrace();
-        }
-        catch ( IOException e )
-        {
-            e.printStackTrace();
+            target = targets.computeIfAbsent( connection.getId(), id -> writer.open(
+                ConnectionManager.getSearchLogFileName( connection ), getFileSizeInKb() * 1000, getFileCount() ) );
         }
+        return target;
     }
 
 
@@ -179,39 +161,34 @@ public class LdifSearchLogger implements ILdapLogger
      */
     public void dispose( Connection connection )
     {
-        String id = connection.getId();
-        if ( loggers.containsKey( id ) )
+        LogTarget target = targets.remove( connection.getId() );
+        if ( target != null )
         {
-            Handler[] handlers = loggers.get( id ).getHandlers();
-            for ( Handler handler : handlers )
-            {
-                handler.close();
-            }
+            writer.close( target );
 
             File[] files = getLogFiles( connection );
             for ( File file : files )
             {
                 deleteFileWithRetry( file );
             }
-
-            loggers.remove( id );
         }
     }
 
 
-    private void log( String text, String type, StudioLdapException ex, Connection connection )
+    /**
+     * Enqueues a log event. The date is taken now, the lines are formatted
+     * by the writer thread.
+     */
+    private void log( Supplier<String> text, String type, StudioLdapException ex, Connection connection )
     {
-        String id = connection.getId();
-        if ( !loggers.containsKey( id ) )
+        LogTarget target = getTarget( connection );
+        if ( target == null )
         {
-            if ( connection.getName() != null )
-            {
-                initSearchLogger( connection );
-            }
+            return;
         }
 
-        if ( loggers.containsKey( id ) )
-        {
+        Date date = new Date();
+        writer.log( target, () -> {
             StringJoiner lines = new StringJoiner( "" );
             DateFormat df = new SimpleDateFormat( ConnectionCoreConstants.DATEFORMAT );
             df.setTimeZone( ConnectionCoreConstants.UTC_TIME_ZONE );
@@ -231,7 +208,7 @@ public class LdifSearchLogger implements ILdapLogger
                 LdifCommentLine
                     .create( "#!CONNECTION ldap://" + connection.getHost() + ":" + connection.getPort() ) //$NON-NLS-1$//$NON-NLS-2$
                     .toFormattedString( LdifFormatParameters.DEFAULT ) );
-            lines.add( LdifCommentLine.create( "#!DATE " + df.format( new Date() ) ) //$NON-NLS-1$
+            lines.add( LdifCommentLine.create( "#!DATE " + df.format( date ) ) //$NON-NLS-1$
                 .toFormattedString( LdifFormatParameters.DEFAULT ) );
 
             if ( ex != null )
@@ -243,10 +220,9 @@ public class LdifSearchLogger implements ILdapLogger
                 lines.add( errorCommentLine.toFormattedString( LdifFormatParameters.DEFAULT ) );
             }
 
-            lines.add( text );
-            Logger logger = loggers.get( id );
-            logger.log( Level.ALL, lines.toString() );
-        }
+            lines.add( text.get() );
+            return lines.toString();
+        } );
     }
 
 
@@ -262,55 +238,62 @@ public class LdifSearchLogger implements ILdapLogger
             return;
         }
 
-        String scopeAsString = searchControls.getSearchScope() == SearchControls.SUBTREE_SCOPE ? "wholeSubtree (2)" //$NON-NLS-1$
-            : searchControls.getSearchScope() == SearchControls.ONELEVEL_SCOPE ? "singleLevel (1)" : "baseObject (0)"; //$NON-NLS-1$ //$NON-NLS-2$
-        String attributesAsString = searchControls.getReturningAttributes() == null ? "*" //$NON-NLS-1$
-            : searchControls
-                .getReturningAttributes().length == 0 ? "1.1" //$NON-NLS-1$
-                    : StringUtils.join( searchControls.getReturningAttributes(),
-                        " " );
+        // the search controls may be reused by the caller, the lines are formatted later
+        int scope = searchControls.getSearchScope();
+        long countLimit = searchControls.getCountLimit();
+        int timeLimit = searchControls.getTimeLimit();
+        String[] returningAttributes = searchControls.getReturningAttributes() == null ? null
+            : searchControls.getReturningAttributes().clone();
+        Control[] controlsSnapshot = controls == null ? null : controls.clone();
+
+        String scopeAsString = scope == SearchControls.SUBTREE_SCOPE ? "wholeSubtree (2)" //$NON-NLS-1$
+            : scope == SearchControls.ONELEVEL_SCOPE ? "singleLevel (1)" : "baseObject (0)"; //$NON-NLS-1$ //$NON-NLS-2$
+        String attributesAsString = returningAttributes == null ? "*" //$NON-NLS-1$
+            : returningAttributes.length == 0 ? "1.1" //$NON-NLS-1$
+                : StringUtils.join( returningAttributes, " " );
         String aliasAsString = aliasesDereferencingMethod == AliasDereferencingMethod.ALWAYS ? "derefAlways (3)" //$NON-NLS-1$
             : aliasesDereferencingMethod == AliasDereferencingMethod.FINDING ? "derefFindingBaseObj (2)" //$NON-NLS-1$
                 : aliasesDereferencingMethod == AliasDereferencingMethod.SEARCH ? "derefInSearching (1)" //$NON-NLS-1$
                     : "neverDerefAliases (0)"; //$NON-NLS-1$
 
-        // build LDAP URL
-        LdapUrl url = Utils.getLdapURL( connection, searchBase, searchControls.getSearchScope(), filter, searchControls
-            .getReturningAttributes() );
-
-        // build command line
-        String cmdLine = Utils.getLdapSearchCommandLine( connection, searchBase, searchControls.getSearchScope(),
-            aliasesDereferencingMethod, searchControls.getCountLimit(), searchControls.getTimeLimit(), filter,
-            searchControls.getReturningAttributes() );
-
-        // build 
-        Collection<LdifLineBase> lines = new ArrayList<LdifLineBase>();
-        lines.add( LdifCommentLine.create( "# LDAP URL     : " + url.toString() ) ); //$NON-NLS-1$
-        lines.add( LdifCommentLine.create( "# command line : " + cmdLine.toString() ) ); //$NON-NLS-1$
-        lines.add( LdifCommentLine.create( "# baseObject   : " + searchBase ) ); //$NON-NLS-1$
-        lines.add( LdifCommentLine.create( "# scope        : " + scopeAsString ) ); //$NON-NLS-1$
-        lines.add( LdifCommentLine.create( "# derefAliases : " + aliasAsString ) ); //$NON-NLS-1$
-        lines.add( LdifCommentLine.create( "# sizeLimit    : " + searchControls.getCountLimit() ) ); //$NON-NLS-1$
-        lines.add( LdifCommentLine.create( "# timeLimit    : " + searchControls.getTimeLimit() ) ); //$NON-NLS-1$
-        lines.add( LdifCommentLine.create( "# typesOnly    : " + "False" ) ); //$NON-NLS-1$ //$NON-NLS-2$
-        lines.add( LdifCommentLine.create( "# filter       : " + filter ) ); //$NON-NLS-1$
-        lines.add( LdifCommentLine.create( "# attributes   : " + attributesAsString ) ); //$NON-NLS-1$
-        if ( controls != null )
-        {
-            for ( Control control : controls )
+        Supplier<String> text = () -> {
+            // build LDAP URL
+            LdapUrl url = Utils.getLdapURL( connection, searchBase, scope, filter, returningAttributes );
+
+            // build command line
+            String cmdLine = Utils.getLdapSearchCommandLine( connection, searchBase, scope,
+                aliasesDereferencingMethod, countLimit, timeLimit, filter, returningAttributes );
+
+            // build 
+            Collection<LdifLineBase> lines = new ArrayList<LdifLineBase>();
+            lines.add( LdifCommentLine.create( "# LDAP URL     : " + url.toString() ) ); //$NON-NLS-1$
+            lines.add( LdifCommentLine.create( "# command line : " + cmdLine.toString() ) ); //$NON-NLS-1$
+            lines.add( LdifCommentLine.create( "# baseObject   : " + searchBase ) ); //$NON-NLS-1$
+            lines.add( LdifCommentLine.create( "# scope        : " + scopeAsString ) ); //$NON-NLS-1$
+            lines.add( LdifCommentLine.create( "# derefAliases : " + aliasAsString ) ); //$NON-NLS-1$
+            lines.add( LdifCommentLine.create( "# sizeLimit    : " + countLimit ) ); //$NON-NLS-1$
+            lines.add( LdifCommentLine.create( "# timeLimit    : " + timeLimit ) ); //$NON-NLS-1$
+            lines.add( LdifCommentLine.create( "# typesOnly    : " + "False" ) ); //$NON-NLS-1$ //$NON-NLS-2$
+            lines.add( LdifCommentLine.create( "# filter       : " + filter ) ); //$NON-NLS-1$
+            lines.add( LdifCommentLine.create( "# attributes   : " + attributesAsString ) ); //$NON-NLS-1$
+            if ( controlsSnapshot != null )
             {
-                lines.add( LdifCommentLine.create( "# control      : " + control.getOid() ) ); //$NON-NLS-1$
+                for ( Control control : controlsSnapshot )
+                {
+                    lines.add( LdifCommentLine.create( "# control      : " + control.getOid() ) ); //$NON-NLS-1$
+                }
             }
-        }
-        lines.add( LdifSepLine.create() );
+            lines.add( LdifSepLine.create() );
 
-        String formattedString = ""; //$NON-NLS-1$
-        for ( LdifLineBase line : lines )
-        {
-            formattedString += line.toFormattedString( LdifFormatParameters.DEFAULT );
-        }
+            String formattedString = ""; //$NON-NLS-1$
+            for ( LdifLineBase line : lines )
+            {
+                formattedString += line.toFormattedString( LdifFormatParameters.DEFAULT );
+            }
+            return formattedString;
+        };
 
-        log( formattedString, "SEARCH REQUEST (" + requestNum + ")", ex, connection ); //$NON-NLS-1$ //$NON-NLS-2$
+        log( text, "SEARCH REQUEST (" + requestNum + ")", ex, connection ); //$NON-NLS-1$ //$NON-NLS-2$
     }
 
 
@@ -325,44 +308,48 @@ public class LdifSearchLogger implements ILdapLogger
             return;
         }
 
-        String formattedString;
-        if ( studioSearchResult != null )
-        {
-            Set<String> maskedAttributes = getMaskedAttributes();
-            Entry entry = studioSearchResult.getEntry();
-
-            LdifContentRecord record = new LdifContentRecord( LdifDnLine.create( entry.getDn().getName() ) );
-            for ( Attribute attribute : entry )
+        // the caller may reuse the entry, the record is formatted later
+        Entry entry = studioSearchResult != null ? studioSearchResult.getEntry().clone() : null;
+        Supplier<String> text = () -> {
+            String formattedString;
+            if ( entry != null )
             {
-                String attributeName = attribute.getUpId();
-                for ( Value value : attribute )
+                Set<String> maskedAttributes = getMaskedAttributes();
+
+                LdifContentRecord record = new LdifContentRecord( LdifDnLine.create( entry.getDn().getName() ) );
+                for ( Attribute attribute : entry )
                 {
-                    if ( maskedAttributes.contains( Strings.toLowerCaseAscii( attributeName ) ) )
+                    String attributeName = attribute.getUpId();
+                    for ( Value value : attribute )
                     {
-                        record.addAttrVal( LdifAttrValLine.create( attributeName, "**********" ) ); //$NON-NLS-1$
-                    }
-                    else
-                    {
-                        if ( value.isHumanReadable() )
+                        if ( maskedAttributes.contains( Strings.toLowerCaseAscii( attributeName ) ) )
                         {
-                            record.addAttrVal( LdifAttrValLine.create( attributeName, value.getString() ) );
+                            record.addAttrVal( LdifAttrValLine.create( attributeName, "**********" ) ); //$NON-NLS-1$
                         }
                         else
                         {
-                            record.addAttrVal( LdifAttrValLine.create( attributeName, value.getBytes() ) );
+                            if ( value.isHumanReadable() )
+                            {
+                                record.addAttrVal( LdifAttrValLine.create( attributeName, value.getString() ) );
+                            }
+                            else
+                            {
+                                record.addAttrVal( LdifAttrValLine.create( attributeName, value.getBytes() ) );
+                            }
                         }
                     }
                 }
+                record.finish( LdifSepLine.create() );
+                formattedString = record.toFormattedString( LdifFormatParameters.DEFAULT );
             }
-            record.finish( LdifSepLine.create() );
-            formattedString = record.toFormattedString( LdifFormatParameters.DEFAULT );
-        }
-        else
-        {
-            formattedString = LdifFormatParameters.DEFAULT.getLineSeparator();
-        }
+            else
+            {
+                formattedString = LdifFormatParameters.DEFAULT.getLineSeparator();
+            }
+            return formattedString;
+        };
 
-        log( formattedString, "SEARCH RESULT ENTRY (" + requestNum + ")", ex, connection ); //$NON-NLS-1$ //$NON-NLS-2$
+        log( text, "SEARCH RESULT ENTRY (" + requestNum + ")", ex, connection ); //$NON-NLS-1$ //$NON-NLS-2$
     }
 
 
@@ -377,17 +364,21 @@ public class LdifSearchLogger implements ILdapLogger
             return;
         }
 
-        Collection<LdifLineBase> lines = new ArrayList<LdifLineBase>();
-        lines
-            .add( LdifCommentLine.create( "# reference : " + ( referral != null ? referral.getLdapUrls() : "null" ) ) ); //$NON-NLS-1$ //$NON-NLS-2$
-        lines.add( LdifSepLine.create() );
+        Supplier<String> text = () -> {
+            Collection<LdifLineBase> lines = new ArrayList<LdifLineBase>();
+            lines.add( LdifCommentLine
+                .create( "# reference : " + ( referral != null ? referral.getLdapUrls() : "null" ) ) ); //$NON-NLS-1$ //$NON-NLS-2$
+            lines.add( LdifSepLine.create() );
 
-        String formattedString = ""; //$NON-NLS-1$
-        for ( LdifLineBase line : lines )
-        {
-            formattedString += line.toFormattedString( LdifFormatParameters.DEFAULT );
-        }
-        log( formattedString, "SEARCH RESULT REFERENCE (" + requestNum + ")", ex, connection ); //$NON-NLS-1$ //$NON-NLS-2$
+            String formattedString = ""; //$NON-NLS-1$
+            for ( LdifLineBase line : lines )
+            {
+                formattedString += line.toFormattedString( LdifFormatParameters.DEFAULT );
+            }
+            return formattedString;
+        };
+
+        log( text, "SEARCH RESULT REFERENCE (" + requestNum + ")", ex, connection ); //$NON-NLS-1$ //$NON-NLS-2$
     }
 
 
@@ -401,16 +392,20 @@ public class LdifSearchLogger implements ILdapLogger
             return;
         }
 
-        Collection<LdifLineBase> lines = new ArrayList<LdifLineBase>();
-        lines.add( LdifCommentLine.create( "# numEntries : " + count ) ); //$NON-NLS-1$
-        lines.add( LdifSepLine.create() );
+        Supplier<String> text = () -> {
+            Collection<LdifLineBase> lines = new ArrayList<LdifLineBase>();
+            lines.add( LdifCommentLine.create( "# numEntries : " + count ) ); //$NON-NLS-1$
+            lines.add( LdifSepLine.create() );
 
-        String formattedString = ""; //$NON-NLS-1$
-        for ( LdifLineBase line : lines )
-        {
-            formattedString += line.toFormattedString( LdifFormatParameters.DEFAULT );
-        }
-        log( formattedString, "SEARCH RESULT DONE (" + requestNum + ")", ex, connection ); //$NON-NLS-1$ //$NON-NLS-2$
+            String formattedString = ""; //$NON-NLS-1$
+            for ( LdifLineBase line : lines )
+            {
+                formattedString += line.toFormattedString( LdifFormatParameters.DEFAULT );
+            }
+            return formattedString;
+        };
+
+        log( text, "SEARCH RESULT DONE (" + requestNum + ")", ex, connection ); //$NON-NLS-1$ //$NON-NLS-2$
     }
 
 
@@ -423,14 +418,9 @@ public class LdifSearchLogger implements ILdapLogger
      */
     public File[] getFiles( Connection connection )
     {
-        String id = connection.getId();
-        if ( !loggers.containsKey( id ) )
-        {
-            if ( connection.getName() != null )
-            {
-                initSearchLogger( connection );
-            }
-        }
+        // make sure the files contain all events logged so far
+        getTarget( connection );
+        writer.flush();
 
         try
         {
@@ -508,6 +498,17 @@ public class LdifSearchLogger implements ILdapLogger
     }
 
 
+    /**
+     * Gets the policy to apply when the log queue is full.
+     * 
+     * @return the queue policy
+     */
+    private int getQueuePolicy()
+    {
+        return ConnectionCorePlugin.getDefault().getSearchLogsQueuePolicy();
+    }
+
+
     public String getId()
     {
         return id;
@@ -0,0 +1,458 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.apache.directory.studio.connection.core.io.api;
+
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+
+import org.apache.directory.ldap.client.api.LdapNetworkConnection;
+import org.apache.directory.studio.common.core.jobs.StudioProgressMonitor;
+
+
+/**
+ * A bounded pool of bound LDAP connections to a single directory server.
+ * <p>
+ * The pool hands out idle connections in LIFO order, so sequential operations keep
+ * using the same connection and additional connections are only opened when operations
+ * really run in parallel. Idle connections that have not been used for the configured
+ * idle timeout are closed, as long as at least the configured minimum number of
+ * connections remains open. Pinned connections are never evicted.
+ * <p>
+ * When the maximum number of connections is reached the least used connection is
+ * shared: the Directory API allows several outstanding requests on one connection.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public class StudioLdapConnectionPool
+{
+    /**
+     * Factory used to open and bind additional connections.
+     */
+    @FunctionalInterface
+    public interface PooledConnectionFactory
+    {
+        /**
+         * Opens and binds a new LDAP connection.
+         *
+         * @param monitor the progress monitor
+         * @return the new connection, never null
+         * @throws Exception if the connection can't be opened or bound
+         */
+        LdapNetworkConnection create( StudioProgressMonitor monitor ) throws Exception;
+    }
+
+    /** The factory */
+    private final PooledConnectionFactory factory;
+
+    /** The maximum number of connections */
+    private final int maxConnections;
+
+    /** The minimum number of connections kept open */
+    private final int minConnections;
+
+    /** The idle timeout in milliseconds, 0 or less to never evict idle connections */
+    private final long idleTimeoutMillis;
+
+    /** The pooled connections, the most recently released one is last */
+    private final LinkedList<PooledConnection> connections = new LinkedList<>();
+
+    /** The number of connections currently being opened */
+    private int pendingConnections;
+
+    /** The closed flag */
+    private boolean closed;
+
+
+    /**
+     * Creates a new instance of StudioLdapConnectionPool.
+     *
+     * @param factory the factory used to open additional connections
+     * @param maxConnections the maximum number of connections
+     * @param minConnections the minimum number of connections kept open
+     * @param idleTimeoutMillis the idle timeout in milliseconds, 0 or less to never evict
+     */
+    public StudioLdapConnectionPool( PooledConnectionFactory factory, int maxConnections, int minConnections,
+        long idleTimeoutMillis )
+    {
+        this.factory = factory;
+        this.maxConnections = Math.max( 1, maxConnections );
+        this.minConnections = Math.max( 0, minConnections );
+        this.idleTimeoutMillis = idleTimeoutMillis;
+    }
+
+
+    /**
+     * Adds an already bound connection to the pool, as an idle connection.
+     *
+     * @param ldapConnection the connection
+     * @param pinned true if the connection must never be evicted
+     */
+    public synchronized void add( LdapNetworkConnection ldapConnection, boolean pinned )
+    {
+        if ( closed )
+        {
+            closeQuietly( ldapConnection );
+            return;
+        }
+
+        PooledConnection pooledConnection = new PooledConnection( ldapConnection, pinned );
+        connections.addLast( pooledConnection );
+        notifyAll();
+    }
+
+
+    /**
+     * Leases a connection. The connection must be given back by calling {@link #release(LdapNetworkConnection)}
+     * or {@link #invalidate(LdapNetworkConnection)}.
+     *
+     * @param monitor the progress monitor
+     * @return the leased connection
+     * @throws Exception if a new connection can't be opened
+     */
+    public LdapNetworkConnection lease( StudioProgressMonitor monitor ) throws Exception
+    {
+        synchronized ( this )
+        {
+            while ( true )
+            {
+                if ( closed )
+                {
+                    throw new IllegalStateException( "Connection pool closed" ); //$NON-NLS-1$
+                }
+
+                evictIdleConnections();
+
+                // the most recently released healthy idle connection
+                for ( Iterator<PooledConnection> it = connections.descendingIterator(); it.hasNext(); )
+                {
+                    PooledConnection pooledConnection = it.next();
+
+                    if ( pooledConnection.leases == 0 )
+                    {
+                        if ( isHealthy( pooledConnection.ldapConnection ) )
+                        {
+                            pooledConnection.leases++;
+
+                            return pooledConnection.ldapConnection;
+                        }
+
+                        it.remove();
+                        closeQuietly( pooledConnection.ldapConnection );
+                    }
+                }
+
+                // room for a new connection?
+                if ( connections.size() + pendingConnections < maxConnections )
+                {
+                    pendingConnections++;
+                    break;
+                }
+
+                // share the least used connection
+                PooledConnection leastUsed = null;
+
+                for ( PooledConnection pooledConnection : connections )
+                {
+                    if ( isHealthy( pooledConnection.ldapConnection )
+                        && ( leastUsed == null || pooledConnection.leases < leastUsed.leases ) )
+                    {
+                        leastUsed = pooledConnection;
+                    }
+                }
+
+                if ( leastUsed != null )
+                {
+                    leastUsed.leases++;
+
+                    return leastUsed.ldapConnection;
+                }
+
+                // all connections are still being opened
+                wait( 100L );
+            }
+        }
+
+        LdapNetworkConnection ldapConnection = null;
+
+        try
+        {
+            ldapConnection = factory.create( monitor );
+        }
+        finally
+        {
+            synchronized ( this )
+            {
+                pendingConnections--;
+
+                if ( ldapConnection != null && !closed )
+                {
+                    PooledConnection pooledConnection = new PooledConnection( ldapConnection, false );
+                    pooledConnection.leases++;
+                    connections.addLast( pooledConnection );
+                }
+
+                notifyAll();
+            }
+        }
+
+        if ( isClosed() )
+        {
+            closeQuietly( ldapConnection );
+            throw new IllegalStateException( "Connection pool closed" ); //$NON-NLS-1$
+        }
+
+        return ldapConnection;
+    }
+
+
+    /**
+     * Gives back a leased connection.
+     *
+     * @param ldapConnection the connection
+     */
+    public synchronized void release( LdapNetworkConnection ldapConnection )
+    {
+        PooledConnection pooledConnection = find( ldapConnection );
+
+        if ( pooledConnection != null && pooledConnection.leases > 0 )
+        {
+            pooledConnection.leases--;
+
+            if ( pooledConnection.leases == 0 )
+            {
+                pooledConnection.lastReleased = System.currentTimeMillis();
+
+                // move to the end, it is the next one to lease
+                connections.remove( pooledConnection );
+                connections.addLast( pooledConnection );
+            }
+        }
+
+        notifyAll();
+    }
+
+
+    /**
+     * Removes a connection from the pool and closes it. Only the given connection
+     * is affected, operations running on other pooled connections continue.
+     *
+     * @param ldapConnection the connection
+     */
+    public void invalidate( LdapNetworkConnection ldapConnection )
+    {
+        synchronized ( this )
+        {
+            PooledConnection pooledConnection = find( ldapConnection );
+
+            if ( pooledConnection != null )
+            {
+                connections.remove( pooledConnection );
+            }
+
+            notifyAll();
+        }
+
+        closeQuietly( ldapConnection );
+    }
+
+
+    /**
+     * Removes a connection from the pool and closes it, unless it is leased by more
+     * than one operation.
+     *
+     * @param ldapConnection the connection
+     * @return true if the connection was closed, false if it is shared and was kept open
+     */
+    public boolean invalidateIfExclusive( LdapNetworkConnection ldapConnection )
+    {
+        synchronized ( this )
+        {
+            PooledConnection pooledConnection = find( ldapConnection );
+
+            if ( pooledConnection != null )
+            {
+                if ( pooledConnection.leases > 1 )
+                {
+                    return false;
+                }
+
+                connections.remove( pooledConnection );
+            }
+
+            notifyAll();
+        }
+
+        closeQuietly( ldapConnection );
+
+        return true;
+    }
+
+
+    /**
+     * Closes all pooled connections, leased or not.
+     */
+    public void close()
+    {
+        List<PooledConnection> toClose;
+
+        synchronized ( this )
+        {
+            closed = true;
+            toClose = new ArrayList<>( connections );
+            connections.clear();
+            notifyAll();
+        }
+
+        for ( PooledConnection pooledConnection : toClose )
+        {
+            closeQuietly( pooledConnection.ldapConnection );
+        }
+    }
+
+
+    /**
+     * Checks if this pool is closed.
+     *
+     * @return true, if closed
+     */
+    public synchronized boolean isClosed()
+    {
+        return closed;
+    }
+
+
+    /**
+     * Gets the number of open connections.
+     *
+     * @return the number of open connections
+     */
+    public synchronized int getConnectionCount()
+    {
+        return connections.size();
+    }
+
+
+    /**
+     * Gets the number of leased connections.
+     *
+     * @return the number of leased connections
+     */
+    public synchronized int getLeasedCount()
+    {
+        int count = 0;
+
+        for ( PooledConnection pooledConnection : connections )
+        {
+            if ( pooledConnection.leases > 0 )
+            {
+                count++;
+            }
+        }
+
+        return count;
+    }
+
+
+    /**
+     * Closes idle connections that exceeded the idle timeout, keeping at
+     * least the minimum number of connections. Must be called with the lock held.
+     */
+    private void evictIdleConnections()
+    {
+        if ( idleTimeoutMillis <= 0 )
+        {
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+
+        // oldest first
+        for ( Iterator<PooledConnection> it = connections.iterator(); it.hasNext()
+            && connections.size() > minConnections; )
+        {
+            PooledConnection pooledConnection = it.next();
+
+            if ( !pooledConnection.pinned && pooledConnection.leases == 0
+                && now - pooledConnection.lastReleased > idleTimeoutMillis )
+            {
+                it.remove();
+                closeQuietly( pooledConnection.ldapConnection );
+            }
+        }
+    }
+
+
+    private PooledConnection find( LdapNetworkConnection ldapConnection )
+    {
+        for ( PooledConnection pooledConnection : connections )
+        {
+            if ( pooledConnection.ldapConnection == ldapConnection )
+            {
+                return pooledConnection;
+            }
+        }
+
+        return null;
+    }
+
+
+    private static boolean isHealthy( LdapNetworkConnection ldapConnection )
+    {
+        return ldapConnection.isConnected();
+    }
+
+
+    private static void closeQuietly( LdapNetworkConnection ldapConnection )
+    {
+        if ( ldapConnection != null )
+        {
+            try
+            {
+                ldapConnection.close();
+            }
+            catch ( Exception e )
+            {
+                // ignore
+            }
+        }
+    }
+
+    /**
+     * A pooled connection with its lease bookkeeping.
+     */
+    private static class PooledConnection
+    {
+        private final LdapNetworkConnection ldapConnection;
+        private final boolean pinned;
+        private int leases;
+        private long lastReleased;
+
+
+        PooledConnection( LdapNetworkConnection ldapConnection, boolean pinned )
+        {
+            this.ldapConnection = ldapConnection;
+            this.pinned = pinned;
+            this.lastReleased = System.currentTimeMillis();
+        }
+    }
+}
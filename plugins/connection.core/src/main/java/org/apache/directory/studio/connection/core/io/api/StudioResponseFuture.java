@@ -0,0 +1,245 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *  
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License. 
+ *  
+ */
+package org.apache.directory.studio.connection.core.io.api;
+
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import org.apache.directory.api.ldap.model.exception.LdapException;
+import org.apache.directory.api.ldap.model.message.ResultResponse;
+import org.apache.directory.ldap.client.api.exception.InvalidConnectionException;
+import org.apache.directory.ldap.client.api.future.ResponseFuture;
+import org.apache.directory.studio.common.core.jobs.StudioProgressMonitor;
+import org.apache.directory.studio.connection.core.io.StudioLdapException;
+import org.apache.directory.studio.connection.core.io.StudioLdapFuture;
+
+
+/**
+ * A {@link StudioLdapFuture} built on a Directory API {@link ResponseFuture}.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+class StudioResponseFuture implements StudioLdapFuture
+{
+    /** The interval used to check the progress monitor while waiting */
+    private static final long POLL_INTERVAL_MILLIS = 100L;
+
+    /**
+     * Processes the response, throws an exception if the operation failed.
+     */
+    @FunctionalInterface
+    interface ResponseHandler
+    {
+        void handle( ResultResponse response ) throws Exception;
+    }
+
+    /** The Directory API future, null if the request could not be sent */
+    private final ResponseFuture<? extends ResultResponse> responseFuture;
+
+    /** The timeout in milliseconds */
+    private final long timeoutMillis;
+
+    /** The progress monitor */
+    private final StudioProgressMonitor monitor;
+
+    /** The response handler */
+    private final ResponseHandler responseHandler;
+
+    /** Logs the operation once done */
+    private final Consumer<StudioLdapException> operationLogger;
+
+    /** Gives the leased connection back */
+    private final Runnable connectionReleaser;
+
+    private boolean done;
+    private StudioLdapException exception;
+
+
+    /**
+     * Creates a new instance of StudioResponseFuture.
+     *
+     * @param responseFuture the Directory API future
+     * @param timeoutMillis the timeout in milliseconds
+     * @param monitor the progress monitor errors are reported to
+     * @param responseHandler the response handler
+     * @param operationLogger logs the operation once done
+     * @param connectionReleaser gives the leased connection back once done
+     */
+    StudioResponseFuture( ResponseFuture<? extends ResultResponse> responseFuture, long timeoutMillis,
+        StudioProgressMonitor monitor, ResponseHandler responseHandler, Consumer<StudioLdapException> operationLogger,
+        Runnable connectionReleaser )
+    {
+        this.responseFuture = responseFuture;
+        this.timeoutMillis = timeoutMillis;
+        this.monitor = monitor;
+        this.responseHandler = responseHandler;
+        this.operationLogger = operationLogger;
+        this.connectionReleaser = connectionReleaser;
+    }
+
+
+    /**
+     * Creates a future for an operation that could not be sent.
+     *
+     * @param exception the exception
+     * @param monitor the progress monitor the exception is reported to
+     * @param operationLogger logs the operation, may be null
+     * @return the failed future
+     */
+    static StudioResponseFuture failed( Exception exception, StudioProgressMonitor monitor,
+        Consumer<StudioLdapException> operationLogger )
+    {
+        StudioResponseFuture future = new StudioResponseFuture( null, 0L, monitor, null, operationLogger, null );
+        future.exception = exception instanceof StudioLdapException ? ( StudioLdapException ) exception
+            : new StudioLdapException( exception );
+
+        return future;
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    public synchronized boolean isDone()
+    {
+        return done || responseFuture == null || responseFuture.isDone();
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    public synchronized boolean await()
+    {
+        if ( done )
+        {
+            return exception == null;
+        }
+
+        boolean canceled = false;
+
+        if ( responseFuture != null )
+        {
+            try
+            {
+                ResultResponse response = waitForResponse();
+
+                if ( response == null )
+                {
+                    canceled = true;
+                }
+                else
+                {
+                    responseHandler.handle( response );
+                }
+            }
+            catch ( Exception e )
+            {
+                exception = e instanceof StudioLdapException ? ( StudioLdapException ) e : new StudioLdapException( e );
+            }
+            finally
+            {
+                connectionReleaser.run();
+            }
+        }
+
+        done = true;
+
+        if ( !canceled )
+        {
+            if ( operationLogger != null )
+            {
+                operationLogger.accept( exception );
+            }
+
+            if ( exception != null )
+            {
+                monitor.reportError( exception );
+            }
+        }
+
+        return !canceled && exception == null;
+    }
+
+
+    /**
+     * Waits for the response, checking the progress monitor for cancellation.
+     *
+     * @return the response, null if the monitor was canceled
+     * @throws Exception if the response is not received in time or the connection was closed
+     */
+    private ResultResponse waitForResponse() throws Exception
+    {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+
+        while ( true )
+        {
+            if ( monitor.isCanceled() )
+            {
+                responseFuture.cancel( true );
+                return null;
+            }
+
+            ResultResponse response = responseFuture.get( POLL_INTERVAL_MILLIS, TimeUnit.MILLISECONDS );
+
+            if ( response != null )
+            {
+                return response;
+            }
+            if ( responseFuture.getCause() instanceof Exception )
+            {
+                throw ( Exception ) responseFuture.getCause();
+            }
+            if ( responseFuture.isCancelled() )
+            {
+                throw new InvalidConnectionException( "Operation canceled, the connection was closed" ); //$NON-NLS-1$
+            }
+            if ( System.currentTimeMillis() > deadline )
+            {
+                responseFuture.cancel( true );
+                throw new LdapException( "TimeOut occurred" ); //$NON-NLS-1$
+            }
+        }
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    public synchronized StudioLdapException getException()
+    {
+        return done ? exception : null;
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    public synchronized void abandon()
+    {
+        if ( !done && responseFuture != null )
+        {
+            responseFuture.cancel( true );
+            connectionReleaser.run();
+            done = true;
+        }
+    }
+}
@@ -76,6 +76,9 @@ public class StudioSearchResultEnumeration
     private StudioSearchResultEnumeration referralEnumeration;
     private SearchResultDone searchResultDone;
 
+    /** Gives the underlying LDAP connection back once the cursor is consumed or closed, may be null */
+    private Runnable connectionReleaser;
+
 
     /**
      * Creates a new instance of StudioSearchResultEnumeration.
@@ -120,6 +123,18 @@ public class StudioSearchResultEnumeration
     }
 
 
+    /**
+     * Sets the callback used to give the underlying LDAP connection back to the
+     * connection pool. It is called once, when the cursor is consumed or closed.
+     *
+     * @param connectionReleaser the callback
+     */
+    void setConnectionReleaser( Runnable connectionReleaser )
+    {
+        this.connectionReleaser = connectionReleaser;
+    }
+
+
     public void close() throws LdapException
     {
         try
@@ -130,6 +145,22 @@ public class StudioSearchResultEnumeration
         {
             throw new LdapException( e.getMessage() );
         }
+        finally
+        {
+            releaseConnection();
+        }
+    }
+
+
+    private void releaseConnection()
+    {
+        Runnable releaser = connectionReleaser;
+        connectionReleaser = null;
+
+        if ( releaser != null )
+        {
+            releaser.run();
+        }
     }
 
 
@@ -169,6 +200,10 @@ public class StudioSearchResultEnumeration
             if ( searchResultDone == null )
             {
                 searchResultDone = ( ( SearchCursor ) cursor ).getSearchResultDone();
+
+                // the connection is not needed anymore by this cursor
+                releaseConnection();
+
                 Referral referral = searchResultDone.getLdapResult().getReferral();
                 if ( referralsHandlingMethod != ReferralHandlingMethod.IGNORE && referral != null )
                 {
@@ -253,6 +288,7 @@ public class StudioSearchResultEnumeration
         }
         catch ( CursorException e )
         {
+            releaseConnection();
             throw new LdapException( e.getMessage(), e );
         }
     }
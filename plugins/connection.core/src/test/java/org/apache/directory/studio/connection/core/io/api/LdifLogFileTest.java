@@ -0,0 +1,232 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *  
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License. 
+ *  
+ */
+package org.apache.directory.studio.connection.core.io.api;
+
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+
+public class LdifLogFileTest
+{
+    /** The smallest window size */
+    private static final int WINDOW = 1024;
+
+    @TempDir
+    public File tempDir;
+
+
+    @Test
+    public void testRecords() throws Exception
+    {
+        File file = write( "log.ldif", record( 1, "dn: cn=a" ) + record( 2, "dn: cn=b" ) + record( 3, "dn: cn=c" ) ); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+        LdifLogFile logFile = new LdifLogFile( file );
+        assertTrue( logFile.update() );
+        assertFalse( logFile.update() );
+
+        assertEquals( 3, logFile.getRecordCount() );
+        assertEquals( 0, logFile.getRecordOffset( 0 ) );
+        assertEquals( file.length(), logFile.getRecordOffset( 3 ) );
+        assertEquals( 1, logFile.findRequest( 2 ) );
+        assertEquals( -1, logFile.findRequest( 4 ) );
+        assertEquals( record( 2, "dn: cn=b" ), logFile.getText( 1, 2 ) ); //$NON-NLS-1$
+        assertEquals( 1, logFile.getRecord( logFile.getRecordOffset( 1 ) + 5 ) );
+    }
+
+
+    @Test
+    public void testRecordStartSplitAcrossWindows() throws Exception
+    {
+        // the first record ends so that the "#" of the second one is the last byte of the first window
+        String first = record( 1, pad( WINDOW - 1 - record( 1, "" ).length() ) ); //$NON-NLS-1$
+        assertEquals( WINDOW - 1, first.length() );
+        File file = write( "log.ldif", first + record( 42, "dn: cn=b" ) ); //$NON-NLS-1$ //$NON-NLS-2$
+        LdifLogFile logFile = new LdifLogFile( file, WINDOW );
+        logFile.update();
+
+        assertEquals( 2, logFile.getRecordCount() );
+        assertEquals( WINDOW - 1, logFile.getRecordOffset( 1 ) );
+        assertEquals( 1, logFile.findRequest( 42 ) );
+
+        // the request number of a header crossing the window end is parsed too
+        first = record( 1, pad( WINDOW - 10 - record( 1, "" ).length() ) ); //$NON-NLS-1$
+        file = write( "log2.ldif", first + record( 1234567, "dn: cn=b" ) ); //$NON-NLS-1$ //$NON-NLS-2$
+        logFile = new LdifLogFile( file, WINDOW );
+        logFile.update();
+        assertEquals( 2, logFile.getRecordCount() );
+        assertEquals( 1, logFile.findRequest( 1234567 ) );
+    }
+
+
+    @Test
+    public void testDroppedPrefix() throws Exception
+    {
+        File file = write( "log.ldif", record( 1, "dn: cn=a" ) + "#!DROPPED 3\n" + record( 5, "dn: cn=b" ) ); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+        LdifLogFile logFile = new LdifLogFile( file );
+        logFile.update();
+
+        assertEquals( 2, logFile.getRecordCount() );
+        assertEquals( 1, logFile.findRequest( 5 ) );
+        assertEquals( -1, logFile.findRequest( 3 ) );
+        assertTrue( logFile.getText( 1, 2 ).startsWith( "#!DROPPED 3\n" ) ); //$NON-NLS-1$
+    }
+
+
+    @Test
+    public void testIncrementalUpdate() throws Exception
+    {
+        File file = write( "log.ldif", record( 1, "dn: cn=a" ) ); //$NON-NLS-1$ //$NON-NLS-2$
+        LdifLogFile logFile = new LdifLogFile( file, WINDOW );
+        logFile.update();
+        assertEquals( 1, logFile.getRecordCount() );
+
+        // an append ending right after the empty line, the next record start follows in another append
+        append( file, "#!SEARCH REQUEST (2) OK\n#!" ); //$NON-NLS-1$
+        assertTrue( logFile.update() );
+        assertEquals( 2, logFile.getRecordCount() );
+
+        append( file, "dn: cn=b\n\n" ); //$NON-NLS-1$
+        assertTrue( logFile.update() );
+        assertEquals( 2, logFile.getRecordCount() );
+
+        append( file, record( 3, pad( 3 * WINDOW ) ) + record( 4, "dn: cn=d" ) ); //$NON-NLS-1$
+        assertTrue( logFile.update() );
+        assertEquals( 4, logFile.getRecordCount() );
+        assertEquals( 2, logFile.findRequest( 3 ) );
+        assertEquals( 3, logFile.findRequest( 4 ) );
+        assertEquals( record( 4, "dn: cn=d" ), logFile.getText( 3, 4 ) ); //$NON-NLS-1$
+    }
+
+
+    @Test
+    public void testTruncation() throws Exception
+    {
+        File file = write( "log.ldif", record( 1, "dn: cn=a" ) + record( 2, "dn: cn=b" ) ); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+        LdifLogFile logFile = new LdifLogFile( file );
+        logFile.update();
+        assertEquals( 2, logFile.getRecordCount() );
+
+        write( "log.ldif", record( 3, "dn: cn=c" ) ); //$NON-NLS-1$ //$NON-NLS-2$
+        assertTrue( logFile.update() );
+        assertEquals( 1, logFile.getRecordCount() );
+        assertEquals( 0, logFile.findRequest( 3 ) );
+
+        assertTrue( file.delete() );
+        assertTrue( logFile.update() );
+        assertEquals( 0, logFile.getRecordCount() );
+    }
+
+
+    @Test
+    public void testReplacedWithLongerFile() throws Exception
+    {
+        File file = write( "log.ldif", record( 1, "dn: cn=a" ) ); //$NON-NLS-1$ //$NON-NLS-2$
+        LdifLogFile logFile = new LdifLogFile( file );
+        logFile.update();
+
+        // a rotated file that grew beyond the indexed length, the stored bytes don't match anymore
+        write( "log.ldif", record( 7, "dn: cn=x" ) + record( 8, "dn: cn=y" ) ); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+        assertTrue( logFile.update() );
+        assertEquals( 2, logFile.getRecordCount() );
+        assertEquals( 0, logFile.findRequest( 7 ) );
+        assertEquals( -1, logFile.findRequest( 1 ) );
+    }
+
+
+    @Test
+    public void testFindAcrossWindows() throws Exception
+    {
+        String first = record( 1, pad( WINDOW - 4 - record( 1, "" ).length() ) ); //$NON-NLS-1$
+        File file = write( "log.ldif", first + record( 2, "dn: cn=Needle" ) ); //$NON-NLS-1$ //$NON-NLS-2$
+        LdifLogFile logFile = new LdifLogFile( file, WINDOW );
+        logFile.update();
+
+        // the match starts in the first window and ends in the second one
+        long offset = logFile.find( "SEARCH REQUEST (2)", 0 ); //$NON-NLS-1$
+        assertEquals( WINDOW - 2, offset );
+        assertEquals( 1, logFile.getRecord( offset ) );
+
+        assertEquals( file.length() - "needle\n\n".length(), logFile.find( "needle", 0 ) ); //$NON-NLS-1$ //$NON-NLS-2$
+        assertEquals( -1, logFile.find( "needle", logFile.find( "needle", 0 ) + 1 ) ); //$NON-NLS-1$ //$NON-NLS-2$
+        assertEquals( -1, logFile.find( "haystack", 0 ) ); //$NON-NLS-1$
+    }
+
+
+    @Test
+    public void testFindInFiles() throws Exception
+    {
+        File newest = write( "log.ldif", record( 3, "dn: cn=c" ) ); //$NON-NLS-1$ //$NON-NLS-2$
+        File older = write( "log.ldif.1", record( 1, "dn: cn=a" ) + record( 2, "dn: cn=b" ) ); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+        File[] files = new File[]
+            { newest, older };
+
+        LdifLogFile.Match match = LdifLogFile.find( files, 0, null, 0, "cn=b" ); //$NON-NLS-1$
+        assertEquals( 1, match.getFileIndex() );
+        assertEquals( 1, match.getRecord() );
+        assertEquals( older, match.getLogFile().getFile() );
+
+        match = LdifLogFile.find( files, 0, null, 0, "cn=c" ); //$NON-NLS-1$
+        assertEquals( 0, match.getFileIndex() );
+
+        // the start offset only applies to the first file
+        assertNull( LdifLogFile.find( files, 0, null, newest.length() - 1, "cn=c" ) ); //$NON-NLS-1$
+        assertEquals( 1, LdifLogFile.find( files, 0, null, newest.length() - 1, "cn=a" ).getFileIndex() ); //$NON-NLS-1$
+    }
+
+
+    private static String record( long requestNumber, String body )
+    {
+        return "#!SEARCH REQUEST (" + requestNumber + ") OK\n" + body + "\n\n"; //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+    }
+
+
+    private static String pad( int length )
+    {
+        char[] chars = new char[length];
+        Arrays.fill( chars, 'x' );
+        return new String( chars );
+    }
+
+
+    private File write( String name, String text ) throws IOException
+    {
+        File file = new File( tempDir, name );
+        Files.write( file.toPath(), text.getBytes( StandardCharsets.UTF_8 ) );
+        return file;
+    }
+
+
+    private static void append( File file, String text ) throws IOException
+    {
+        Files.write( file.toPath(), text.getBytes( StandardCharsets.UTF_8 ), StandardOpenOption.APPEND );
+    }
+}
@@ -0,0 +1,215 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *  
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License. 
+ *  
+ */
+package org.apache.directory.studio.connection.core.io.api;
+
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.directory.studio.connection.core.ConnectionCoreConstants;
+import org.apache.directory.studio.connection.core.io.api.LdifLogWriter.LogTarget;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+
+public class LdifLogWriterTest
+{
+    @TempDir
+    public File tempDir;
+
+
+    @Test
+    public void testOrderingWithConcurrentProducers() throws Exception
+    {
+        LdifLogWriter writer = new LdifLogWriter( "test" ); //$NON-NLS-1$
+        LogTarget target = writer.open( new File( tempDir, "log-%u-%g.ldif" ).getPath(), 0, 1 ); //$NON-NLS-1$
+
+        int producers = 4;
+        int events = 5000;
+        List<Thread> threads = new ArrayList<Thread>();
+        for ( int p = 0; p < producers; p++ )
+        {
+            int producer = p;
+            Thread thread = new Thread( () -> {
+                for ( int i = 0; i < events; i++ )
+                {
+                    String line = producer + " " + i + "\n"; //$NON-NLS-1$ //$NON-NLS-2$
+                    writer.log( target, () -> line );
+                }
+            } );
+            threads.add( thread );
+            thread.start();
+        }
+        for ( Thread thread : threads )
+        {
+            thread.join();
+        }
+        writer.close( target );
+
+        // all events are written, and the events of each producer in order
+        List<String> lines = read( "log-0-0.ldif" ); //$NON-NLS-1$
+        assertEquals( producers * events, lines.size() );
+        int[] next = new int[producers];
+        for ( String line : lines )
+        {
+            String[] parts = line.split( " " ); //$NON-NLS-1$
+            int producer = Integer.parseInt( parts[0] );
+            assertEquals( next[producer]++, Integer.parseInt( parts[1] ) );
+        }
+    }
+
+
+    @Test
+    public void testDroppedEvents() throws Exception
+    {
+        LdifLogWriter writer = new LdifLogWriter( "test" ); //$NON-NLS-1$
+        writer.setQueuePolicy( ConnectionCoreConstants.PREFERENCE_LOGS_QUEUE_POLICY_DROP );
+        LogTarget target = writer.open( new File( tempDir, "log-%u-%g.ldif" ).getPath(), 0, 1 ); //$NON-NLS-1$
+
+        // block the writer thread in the first event, so the queue fills up
+        CountDownLatch writing = new CountDownLatch( 1 );
+        CountDownLatch release = new CountDownLatch( 1 );
+        writer.log( target, () -> {
+            writing.countDown();
+            await( release );
+            return "first\n"; //$NON-NLS-1$
+        } );
+        assertTrue( writing.await( 10, TimeUnit.SECONDS ) );
+
+        for ( int i = 0; i < LdifLogWriter.CAPACITY + 5; i++ )
+        {
+            String line = "event " + i + "\n"; //$NON-NLS-1$ //$NON-NLS-2$
+            writer.log( target, () -> line );
+        }
+        release.countDown();
+        writer.close( target );
+
+        // the dropped events are reported once, before the next written event
+        List<String> lines = read( "log-0-0.ldif" ); //$NON-NLS-1$
+        assertEquals( LdifLogWriter.CAPACITY + 2, lines.size() );
+        assertEquals( "first", lines.get( 0 ) ); //$NON-NLS-1$
+        assertEquals( "#!DROPPED 5", lines.get( 1 ) ); //$NON-NLS-1$
+        assertEquals( "event 0", lines.get( 2 ) ); //$NON-NLS-1$
+        assertEquals( "event " + ( LdifLogWriter.CAPACITY - 1 ), lines.get( lines.size() - 1 ) ); //$NON-NLS-1$
+    }
+
+
+    @Test
+    public void testRotation() throws Exception
+    {
+        LdifLogWriter writer = new LdifLogWriter( "test" ); //$NON-NLS-1$
+        LogTarget target = writer.open( new File( tempDir, "log-%u-%g.ldif" ).getPath(), 10, 3 ); //$NON-NLS-1$
+
+        // each event exceeds the limit and rotates the files
+        for ( int i = 1; i <= 4; i++ )
+        {
+            String line = "event " + i + " ...\n"; //$NON-NLS-1$ //$NON-NLS-2$
+            writer.log( target, () -> line );
+        }
+        writer.flush();
+
+        assertEquals( 0, read( "log-0-0.ldif" ).size() ); //$NON-NLS-1$
+        assertEquals( "event 4 ...", read( "log-0-1.ldif" ).get( 0 ) ); //$NON-NLS-1$ //$NON-NLS-2$
+        assertEquals( "event 3 ...", read( "log-0-2.ldif" ).get( 0 ) ); //$NON-NLS-1$ //$NON-NLS-2$
+        assertFalse( new File( tempDir, "log-0-3.ldif" ).exists() ); //$NON-NLS-1$
+
+        // the current file is appended to until it reaches the limit
+        writer.log( target, () -> "event 5\n" ); //$NON-NLS-1$
+        writer.flush();
+        assertEquals( "event 5", read( "log-0-0.ldif" ).get( 0 ) ); //$NON-NLS-1$ //$NON-NLS-2$
+        writer.log( target, () -> "6\n" ); //$NON-NLS-1$
+        writer.close( target );
+        assertEquals( 0, read( "log-0-0.ldif" ).size() ); //$NON-NLS-1$
+        assertEquals( Arrays.asList( "event 5", "6" ), read( "log-0-1.ldif" ) ); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+        assertEquals( "event 4 ...", read( "log-0-2.ldif" ).get( 0 ) ); //$NON-NLS-1$ //$NON-NLS-2$
+    }
+
+
+    @Test
+    public void testFlush() throws Exception
+    {
+        LdifLogWriter writer = new LdifLogWriter( "test" ); //$NON-NLS-1$
+        LogTarget target = writer.open( new File( tempDir, "log-%u-%g.ldif" ).getPath(), 0, 1 ); //$NON-NLS-1$
+
+        for ( int i = 0; i < 100; i++ )
+        {
+            String line = "event " + i + "\n"; //$NON-NLS-1$ //$NON-NLS-2$
+            writer.log( target, () -> {
+                // a slow formatter, the writer thread is still busy when flush() is called
+                sleep( 2 );
+                return line;
+            } );
+        }
+        writer.flush();
+
+        List<String> lines = read( "log-0-0.ldif" ); //$NON-NLS-1$
+        assertEquals( 100, lines.size() );
+        assertEquals( "event 99", lines.get( 99 ) ); //$NON-NLS-1$
+
+        // events logged after close are ignored
+        writer.close( target );
+        writer.log( target, () -> "late\n" ); //$NON-NLS-1$
+        writer.flush();
+        assertEquals( 100, read( "log-0-0.ldif" ).size() ); //$NON-NLS-1$
+    }
+
+
+    private List<String> read( String name ) throws IOException
+    {
+        return Files.readAllLines( new File( tempDir, name ).toPath(), StandardCharsets.UTF_8 );
+    }
+
+
+    private static void await( CountDownLatch latch )
+    {
+        try
+        {
+            latch.await( 10, TimeUnit.SECONDS );
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+
+    private static void sleep( long millis )
+    {
+        try
+        {
+            Thread.sleep( millis );
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -43,4 +43,15 @@ public class UiThreadEventRunner implements EventRunner
     {
         Display.getDefault().asyncExec( runnable );
     }
+
+
+    /**
+     * {@inheritDoc}
+     *
+     * This implementation is asynchronous.
+     */
+    public boolean isAsynchronous()
+    {
+        return true;
+    }
 }
@@ -53,6 +53,10 @@ public class ConnectionsPreferencePage extends PreferencePage implements IWorkbe
     private Label krb5LoginModuleNoteLabel;
     private Text krb5LoginModuleText;
     private Label krb5LoginModuleLabel;
+    private Text poolMaxConnectionsText;
+    private Text poolMinConnectionsText;
+    private Text poolIdleTimeoutText;
+    private Text outstandingRequestsWindowText;
 
 
     /**
@@ -109,6 +113,34 @@ public class ConnectionsPreferencePage extends PreferencePage implements IWorkbe
         krb5LoginModuleText = BaseWidgetUtils.createText( krb5SettingsGroup, krb5LoginModule, 1 );
         krb5LoginModuleNoteLabel = BaseWidgetUtils.createWrappedLabel( krb5SettingsGroup, krb5LoginModuleNote, 1 );
 
+        Group poolSettingsGroup = BaseWidgetUtils.createGroup(
+            BaseWidgetUtils.createColumnContainer( composite, 1, 1 ), Messages
+                .getString( "ConnectionsPreferencePage.ConnectionPoolSettings" ), 1 ); //$NON-NLS-1$
+        Composite poolComposite = BaseWidgetUtils.createColumnContainer( poolSettingsGroup, 2, 1 );
+
+        BaseWidgetUtils.createLabel( poolComposite, Messages
+            .getString( "ConnectionsPreferencePage.ConnectionPoolMaxConnections" ), 1 ); //$NON-NLS-1$
+        poolMaxConnectionsText = createNumberText( poolComposite, preferences
+            .getInt( ConnectionCoreConstants.PREFERENCE_CONNECTION_POOL_MAX_CONNECTIONS ) );
+
+        BaseWidgetUtils.createLabel( poolComposite, Messages
+            .getString( "ConnectionsPreferencePage.ConnectionPoolMinConnections" ), 1 ); //$NON-NLS-1$
+        poolMinConnectionsText = createNumberText( poolComposite, preferences
+            .getInt( ConnectionCoreConstants.PREFERENCE_CONNECTION_POOL_MIN_CONNECTIONS ) );
+
+        BaseWidgetUtils.createLabel( poolComposite, Messages
+            .getString( "ConnectionsPreferencePage.ConnectionPoolIdleTimeout" ), 1 ); //$NON-NLS-1$
+        poolIdleTimeoutText = createNumberText( poolComposite, preferences
+            .getInt( ConnectionCoreConstants.PREFERENCE_CONNECTION_POOL_IDLE_TIMEOUT ) );
+
+        BaseWidgetUtils.createLabel( poolComposite, Messages
+            .getString( "ConnectionsPreferencePage.OutstandingRequestsWindow" ), 1 ); //$NON-NLS-1$
+        outstandingRequestsWindowText = createNumberText( poolComposite, preferences
+            .getInt( ConnectionCoreConstants.PREFERENCE_OUTSTANDING_REQUESTS_WINDOW ) );
+
+        BaseWidgetUtils.createWrappedLabel( poolSettingsGroup, Messages
+            .getString( "ConnectionsPreferencePage.ConnectionPoolNote" ), 1 ); //$NON-NLS-1$
+
         useKrb5SystemPropertiesButton.addSelectionListener( new SelectionAdapter()
         {
             @Override
@@ -124,11 +156,35 @@ public class ConnectionsPreferencePage extends PreferencePage implements IWorkbe
     }
 
 
+    private Text createNumberText( Composite parent, int value )
+    {
+        Text text = BaseWidgetUtils.createText( parent, "" + value, 5, 1 ); //$NON-NLS-1$
+        text.addVerifyListener( e -> {
+            if ( !e.text.matches( "[0-9]*" ) ) //$NON-NLS-1$
+            {
+                e.doit = false;
+            }
+        } );
+        text.addModifyListener( e -> validate() );
+
+        return text;
+    }
+
+
     private void validate()
     {
         krb5LoginModuleLabel.setEnabled( !useKrb5SystemPropertiesButton.getSelection() );
         krb5LoginModuleText.setEnabled( !useKrb5SystemPropertiesButton.getSelection() );
         krb5LoginModuleNoteLabel.setEnabled( !useKrb5SystemPropertiesButton.getSelection() );
+
+        if ( poolMaxConnectionsText != null && poolMinConnectionsText != null && poolIdleTimeoutText != null
+            && outstandingRequestsWindowText != null )
+        {
+            setValid( poolMaxConnectionsText.getText().matches( "[1-9][0-9]*" ) //$NON-NLS-1$
+                && poolMinConnectionsText.getText().matches( "[0-9]+" ) //$NON-NLS-1$
+                && poolIdleTimeoutText.getText().matches( "[0-9]+" ) //$NON-NLS-1$
+                && outstandingRequestsWindowText.getText().matches( "[1-9][0-9]*" ) ); //$NON-NLS-1$
+        }
     }
 
 
@@ -142,6 +198,14 @@ public class ConnectionsPreferencePage extends PreferencePage implements IWorkbe
             ConnectionCoreConstants.PREFERENCE_KRB5_LOGIN_MODULE ) );
         useKrb5SystemPropertiesButton.setSelection( ConnectionCorePlugin.getDefault().getPluginPreferences()
             .getDefaultBoolean( ConnectionCoreConstants.PREFERENCE_USE_KRB5_SYSTEM_PROPERTIES ) );
+        poolMaxConnectionsText.setText( "" + ConnectionCorePlugin.getDefault().getPluginPreferences().getDefaultInt( //$NON-NLS-1$
+            ConnectionCoreConstants.PREFERENCE_CONNECTION_POOL_MAX_CONNECTIONS ) );
+        poolMinConnectionsText.setText( "" + ConnectionCorePlugin.getDefault().getPluginPreferences().getDefaultInt( //$NON-NLS-1$
+            ConnectionCoreConstants.PREFERENCE_CONNECTION_POOL_MIN_CONNECTIONS ) );
+        poolIdleTimeoutText.setText( "" + ConnectionCorePlugin.getDefault().getPluginPreferences().getDefaultInt( //$NON-NLS-1$
+            ConnectionCoreConstants.PREFERENCE_CONNECTION_POOL_IDLE_TIMEOUT ) );
+        outstandingRequestsWindowText.setText( "" + ConnectionCorePlugin.getDefault().getPluginPreferences().getDefaultInt( //$NON-NLS-1$
+            ConnectionCoreConstants.PREFERENCE_OUTSTANDING_REQUESTS_WINDOW ) );
 
         super.performDefaults();
     }
@@ -157,6 +221,18 @@ public class ConnectionsPreferencePage extends PreferencePage implements IWorkbe
         ConnectionCorePlugin.getDefault().getPluginPreferences()
             .setValue( ConnectionCoreConstants.PREFERENCE_USE_KRB5_SYSTEM_PROPERTIES,
                 useKrb5SystemPropertiesButton.getSelection() );
+        ConnectionCorePlugin.getDefault().getPluginPreferences().setValue(
+            ConnectionCoreConstants.PREFERENCE_CONNECTION_POOL_MAX_CONNECTIONS,
+            Integer.parseInt( poolMaxConnectionsText.getText() ) );
+        ConnectionCorePlugin.getDefault().getPluginPreferences().setValue(
+            ConnectionCoreConstants.PREFERENCE_CONNECTION_POOL_MIN_CONNECTIONS,
+            Integer.parseInt( poolMinConnectionsText.getText() ) );
+        ConnectionCorePlugin.getDefault().getPluginPreferences().setValue(
+            ConnectionCoreConstants.PREFERENCE_CONNECTION_POOL_IDLE_TIMEOUT,
+            Integer.parseInt( poolIdleTimeoutText.getText() ) );
+        ConnectionCorePlugin.getDefault().getPluginPreferences().setValue(
+            ConnectionCoreConstants.PREFERENCE_OUTSTANDING_REQUESTS_WINDOW,
+            Integer.parseInt( outstandingRequestsWindowText.getText() ) );
 
         ConnectionCorePlugin.getDefault().savePluginPreferences();
 
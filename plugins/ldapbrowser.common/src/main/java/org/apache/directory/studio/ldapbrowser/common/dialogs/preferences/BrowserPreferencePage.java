@@ -80,6 +80,18 @@ public class BrowserPreferencePage extends PreferencePage implements IWorkbenchP
 
     private Button checkForChildrenButton;
 
+    private Text entryCacheMaxEntriesText;
+
+    private Text entryCacheMaxMemoryText;
+
+    private Button compactAttributeStorageButton;
+
+    private Button browseCacheButton;
+
+    private Label browseCacheMaxAgeLabel;
+
+    private Text browseCacheMaxAgeText;
+
 
     /**
      * Creates a new instance of BrowserPreferencePage.
@@ -228,6 +240,8 @@ public class BrowserPreferencePage extends PreferencePage implements IWorkbenchP
         foldingSizeLabel = BaseWidgetUtils.createLabel( pagingGroupComposite, Messages
             .getString( "BrowserPreferencePage.FoldingSize" ), 1 ); //$NON-NLS-1$
         foldingSizeLabel.setEnabled( enableFoldingButton.getSelection() );
+        browseCacheMaxAgeLabel.setEnabled( browseCacheButton.getSelection() );
+        browseCacheMaxAgeText.setEnabled( browseCacheButton.getSelection() );
         foldingSizeText = BaseWidgetUtils.createText( pagingGroupComposite, getPreferenceStore().getString(
             BrowserCommonConstants.PREFERENCE_BROWSER_FOLDING_SIZE ), 4, 1 );
         foldingSizeText.setEnabled( enableFoldingButton.getSelection() );
@@ -258,6 +272,41 @@ public class BrowserPreferencePage extends PreferencePage implements IWorkbenchP
         checkForChildrenButton
             .setSelection( coreStore.getBoolean( BrowserCoreConstants.PREFERENCE_CHECK_FOR_CHILDREN ) );
 
+        BaseWidgetUtils.createSpacer( composite, 1 );
+        BaseWidgetUtils.createSpacer( composite, 1 );
+        Group entryCacheGroup = BaseWidgetUtils.createGroup( BaseWidgetUtils.createColumnContainer( composite, 1, 1 ),
+            Messages.getString( "BrowserPreferencePage.EntryCache" ), 1 ); //$NON-NLS-1$
+        Composite entryCacheComposite = BaseWidgetUtils.createColumnContainer( entryCacheGroup, 2, 1 );
+        BaseWidgetUtils.createLabel( entryCacheComposite, Messages
+            .getString( "BrowserPreferencePage.EntryCacheMaxEntries" ), 1 ); //$NON-NLS-1$
+        entryCacheMaxEntriesText = BaseWidgetUtils.createText( entryCacheComposite, coreStore
+            .getString( BrowserCoreConstants.PREFERENCE_ENTRY_CACHE_MAX_ENTRIES ), 7, 1 );
+        entryCacheMaxEntriesText.addVerifyListener( new NumberVerifyListener( entryCacheMaxEntriesText ) );
+        BaseWidgetUtils.createLabel( entryCacheComposite, Messages
+            .getString( "BrowserPreferencePage.EntryCacheMaxMemory" ), 1 ); //$NON-NLS-1$
+        entryCacheMaxMemoryText = BaseWidgetUtils.createText( entryCacheComposite, coreStore
+            .getString( BrowserCoreConstants.PREFERENCE_ENTRY_CACHE_MAX_MEMORY ), 7, 1 );
+        entryCacheMaxMemoryText.addVerifyListener( new NumberVerifyListener( entryCacheMaxMemoryText ) );
+        compactAttributeStorageButton = BaseWidgetUtils.createCheckbox( entryCacheComposite, Messages
+            .getString( "BrowserPreferencePage.CompactAttributeStorage" ), 2 ); //$NON-NLS-1$
+        compactAttributeStorageButton.setSelection( coreStore
+            .getBoolean( BrowserCoreConstants.PREFERENCE_COMPACT_ATTRIBUTE_STORAGE ) );
+        browseCacheButton = BaseWidgetUtils.createCheckbox( entryCacheComposite, Messages
+            .getString( "BrowserPreferencePage.BrowseCache" ), 2 ); //$NON-NLS-1$
+        browseCacheButton.setSelection( coreStore.getBoolean( BrowserCoreConstants.PREFERENCE_BROWSE_CACHE ) );
+        browseCacheButton.addSelectionListener( new SelectionAdapter()
+        {
+            public void widgetSelected( SelectionEvent e )
+            {
+                updateEnabled();
+            }
+        } );
+        browseCacheMaxAgeLabel = BaseWidgetUtils.createLabel( entryCacheComposite, Messages
+            .getString( "BrowserPreferencePage.BrowseCacheMaxAge" ), 1 ); //$NON-NLS-1$
+        browseCacheMaxAgeText = BaseWidgetUtils.createText( entryCacheComposite, coreStore
+            .getString( BrowserCoreConstants.PREFERENCE_BROWSE_CACHE_MAX_AGE ), 7, 1 );
+        browseCacheMaxAgeText.addVerifyListener( new NumberVerifyListener( browseCacheMaxAgeText ) );
+
         updateEnabled();
 
         applyDialogFont( composite );
@@ -282,6 +331,24 @@ public class BrowserPreferencePage extends PreferencePage implements IWorkbenchP
     {
         Preferences coreStore = BrowserCorePlugin.getDefault().getPluginPreferences();
         coreStore.setValue( BrowserCoreConstants.PREFERENCE_CHECK_FOR_CHILDREN, checkForChildrenButton.getSelection() );
+        if ( !"".equals( entryCacheMaxEntriesText.getText().trim() ) ) //$NON-NLS-1$
+        {
+            coreStore.setValue( BrowserCoreConstants.PREFERENCE_ENTRY_CACHE_MAX_ENTRIES,
+                entryCacheMaxEntriesText.getText().trim() );
+        }
+        if ( !"".equals( entryCacheMaxMemoryText.getText().trim() ) ) //$NON-NLS-1$
+        {
+            coreStore.setValue( BrowserCoreConstants.PREFERENCE_ENTRY_CACHE_MAX_MEMORY,
+                entryCacheMaxMemoryText.getText().trim() );
+        }
+        coreStore.setValue( BrowserCoreConstants.PREFERENCE_COMPACT_ATTRIBUTE_STORAGE,
+            compactAttributeStorageButton.getSelection() );
+        coreStore.setValue( BrowserCoreConstants.PREFERENCE_BROWSE_CACHE, browseCacheButton.getSelection() );
+        if ( !"".equals( browseCacheMaxAgeText.getText().trim() ) ) //$NON-NLS-1$
+        {
+            coreStore.setValue( BrowserCoreConstants.PREFERENCE_BROWSE_CACHE_MAX_AGE,
+                browseCacheMaxAgeText.getText().trim() );
+        }
         BrowserCorePlugin.getDefault().savePluginPreferences();
 
         getPreferenceStore().setValue( BrowserCommonConstants.PREFERENCE_BROWSER_EXPAND_BASE_ENTRIES,
@@ -348,10 +415,45 @@ public class BrowserPreferencePage extends PreferencePage implements IWorkbenchP
         Preferences coreStore = BrowserCorePlugin.getDefault().getPluginPreferences();
         checkForChildrenButton.setSelection( coreStore
             .getDefaultBoolean( BrowserCoreConstants.PREFERENCE_CHECK_FOR_CHILDREN ) );
+        entryCacheMaxEntriesText.setText( coreStore
+            .getDefaultString( BrowserCoreConstants.PREFERENCE_ENTRY_CACHE_MAX_ENTRIES ) );
+        entryCacheMaxMemoryText.setText( coreStore
+            .getDefaultString( BrowserCoreConstants.PREFERENCE_ENTRY_CACHE_MAX_MEMORY ) );
+        compactAttributeStorageButton.setSelection( coreStore
+            .getDefaultBoolean( BrowserCoreConstants.PREFERENCE_COMPACT_ATTRIBUTE_STORAGE ) );
+        browseCacheButton.setSelection( coreStore.getDefaultBoolean( BrowserCoreConstants.PREFERENCE_BROWSE_CACHE ) );
+        browseCacheMaxAgeText.setText( coreStore
+            .getDefaultString( BrowserCoreConstants.PREFERENCE_BROWSE_CACHE_MAX_AGE ) );
 
         updateEnabled();
 
         super.performDefaults();
     }
 
+    /**
+     * Only allows positive numbers.
+     */
+    private static class NumberVerifyListener implements VerifyListener
+    {
+        private final Text text;
+
+
+        NumberVerifyListener( Text text )
+        {
+            this.text = text;
+        }
+
+
+        public void verifyText( VerifyEvent e )
+        {
+            if ( !e.text.matches( "[0-9]*" ) ) //$NON-NLS-1$
+            {
+                e.doit = false;
+            }
+            if ( "".equals( text.getText() ) && e.text.matches( "[0]" ) ) //$NON-NLS-1$ //$NON-NLS-2$
+            {
+                e.doit = false;
+            }
+        }
+    }
 }
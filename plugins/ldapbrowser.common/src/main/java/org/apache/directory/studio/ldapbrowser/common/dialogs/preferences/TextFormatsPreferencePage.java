@@ -96,6 +96,8 @@ public class TextFormatsPreferencePage extends PreferencePage implements IWorkbe
 
     private Button includeVersionLineButton;
 
+    private Button sortAttributesButton;
+
     private LineSeparatorInput ldifLineSeparator;
 
     private OptionsInput tableAttributeDelimiterWidget;
@@ -436,6 +438,11 @@ public class TextFormatsPreferencePage extends PreferencePage implements IWorkbe
         includeVersionLineButton.setSelection( coreStore
             .getBoolean( BrowserCoreConstants.PREFERENCE_LDIF_INCLUDE_VERSION_LINE ) );
 
+        sortAttributesButton = BaseWidgetUtils.createCheckbox( ldifInnerComposite, Messages
+            .getString( "TextFormatsPreferencePage.SortAttributes" ), 1 ); //$NON-NLS-1$
+        sortAttributesButton.setSelection( coreStore
+            .getBoolean( BrowserCoreConstants.PREFERENCE_LDIF_SORT_ATTRIBUTES ) );
+
         ldifTab.setControl( ldifComposite );
     }
 
@@ -451,6 +458,8 @@ public class TextFormatsPreferencePage extends PreferencePage implements IWorkbe
             .getSelection() );
         coreStore.setValue( BrowserCoreConstants.PREFERENCE_LDIF_INCLUDE_VERSION_LINE, includeVersionLineButton
             .getSelection() );
+        coreStore.setValue( BrowserCoreConstants.PREFERENCE_LDIF_SORT_ATTRIBUTES, sortAttributesButton
+            .getSelection() );
 
         coreStore.setValue( BrowserCoreConstants.PREFERENCE_FORMAT_CSV_ATTRIBUTEDELIMITER, csvAttributeDelimiterWidget
             .getRawValue() );
@@ -498,6 +507,8 @@ public class TextFormatsPreferencePage extends PreferencePage implements IWorkbe
             .getDefaultBoolean( BrowserCoreConstants.PREFERENCE_LDIF_SPACE_AFTER_COLON ) );
         includeVersionLineButton.setSelection( coreStore
             .getDefaultBoolean( BrowserCoreConstants.PREFERENCE_LDIF_INCLUDE_VERSION_LINE ) );
+        sortAttributesButton.setSelection( coreStore
+            .getDefaultBoolean( BrowserCoreConstants.PREFERENCE_LDIF_SORT_ATTRIBUTES ) );
 
         csvAttributeDelimiterWidget.setRawValue( coreStore
             .getDefaultString( BrowserCoreConstants.PREFERENCE_FORMAT_CSV_ATTRIBUTEDELIMITER ) );
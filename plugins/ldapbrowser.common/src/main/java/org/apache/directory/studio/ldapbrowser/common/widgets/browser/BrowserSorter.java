@@ -21,7 +21,13 @@
 package org.apache.directory.studio.ldapbrowser.common.widgets.browser;
 
 
+import java.lang.ref.SoftReference;
 import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
 
 import org.apache.directory.api.ldap.model.name.Rdn;
 import org.apache.directory.studio.connection.core.jobs.StudioConnectionRunnableWithProgress;
@@ -40,6 +46,10 @@ import org.eclipse.jface.viewers.ViewerSorter;
 
 /**
  * The BrowserSorter implements the sorter for the browser widget. 
+ * <p>
+ * Entries are sorted by precomputed sort keys, holding the category, the Rdn and the
+ * numeric Rdn value of an entry. The sorted children of an entry are kept, when the
+ * children change only the added entries are sorted and merged into the kept order.
  *
  * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
  */
@@ -48,6 +58,19 @@ public class BrowserSorter extends ViewerSorter
     /** The browser preferences, used to get the sort settings */
     private BrowserPreferences preferences;
 
+    /** The sorted children of parent entries, softly referenced as the children refer to their parent */
+    private final Map<IEntry, SoftReference<SortedChildren>> sortedChildrenMap = new WeakHashMap<IEntry, SoftReference<SortedChildren>>();
+
+    /** The comparator of sort keys, using the current sort settings */
+    private final Comparator<SortKey> sortKeyComparator = new Comparator<SortKey>()
+    {
+        public int compare( SortKey k1, SortKey k2 )
+        {
+            int result = compareSortKeys( k1, k2 );
+            return result != 0 ? result : Integer.compare( k1.index, k2.index );
+        }
+    };
+
 
     /**
      * Creates a new instance of BrowserSorter.
@@ -81,11 +104,171 @@ public class BrowserSorter extends ViewerSorter
     {
         if ( elements != null && ( preferences.getSortLimit() <= 0 || elements.length < preferences.getSortLimit() ) )
         {
-            BrowserSorter.super.sort( viewer, elements );
+            IEntry parent = getCommonParent( elements );
+            if ( parent != null )
+            {
+                sortChildren( parent, elements );
+            }
+            else
+            {
+                BrowserSorter.super.sort( viewer, elements );
+            }
+        }
+    }
+
+
+    /**
+     * Gets the common parent entry of the given elements.
+     *
+     * @param elements the elements
+     * @return the common parent entry, null if not all elements are entries with the same parent
+     */
+    private IEntry getCommonParent( Object[] elements )
+    {
+        IEntry parent = null;
+        for ( Object element : elements )
+        {
+            if ( !( element instanceof IEntry ) || ( ( IEntry ) element ).getParententry() == null )
+            {
+                return null;
+            }
+            else if ( parent == null )
+            {
+                parent = ( ( IEntry ) element ).getParententry();
+            }
+            else if ( parent != ( ( IEntry ) element ).getParententry() )
+            {
+                return null;
+            }
+        }
+        return parent;
+    }
+
+
+    /**
+     * Sorts the given children of the given parent entry. The sorted children of the parent
+     * are kept. If they are still valid for the current sort settings, only the children
+     * that were added since, or whose category changed, are sorted and merged in.
+     *
+     * @param parent the parent entry
+     * @param children the children to sort
+     */
+    private void sortChildren( IEntry parent, Object[] children )
+    {
+        String settings = getSortSettings();
+
+        Map<Object, Integer> indexes = new IdentityHashMap<Object, Integer>( children.length );
+        for ( int i = 0; i < children.length; i++ )
+        {
+            indexes.put( children[i], i );
+        }
+
+        SoftReference<SortedChildren> reference = sortedChildrenMap.get( parent );
+        SortedChildren sortedChildren = reference != null ? reference.get() : null;
+        SortKey[] keys = null;
+
+        if ( sortedChildren != null && settings.equals( sortedChildren.settings ) )
+        {
+            // keep the sort keys of entries that are still children and still in the same category
+            SortKey[] kept = new SortKey[children.length];
+            int keptCount = 0;
+            Map<Object, Object> keptEntries = new IdentityHashMap<Object, Object>( children.length );
+            boolean sorted = true;
+            for ( SortKey key : sortedChildren.keys )
+            {
+                Integer index = indexes.get( key.entry );
+                if ( index != null && key.category == category( key.entry ) )
+                {
+                    key.index = index;
+                    if ( keptCount > 0 && sortKeyComparator.compare( kept[keptCount - 1], key ) > 0 )
+                    {
+                        // the order of the children has changed
+                        sorted = false;
+                        break;
+                    }
+                    kept[keptCount++] = key;
+                    keptEntries.put( key.entry, key.entry );
+                }
+            }
+
+            if ( sorted )
+            {
+                SortKey[] added = new SortKey[children.length - keptCount];
+                int addedCount = 0;
+                for ( int i = 0; i < children.length && addedCount < added.length; i++ )
+                {
+                    if ( !keptEntries.containsKey( children[i] ) )
+                    {
+                        added[addedCount++] = new SortKey( ( IEntry ) children[i], i );
+                    }
+                }
+                Arrays.sort( added, sortKeyComparator );
+
+                keys = merge( kept, keptCount, added );
+            }
+        }
+
+        if ( keys == null )
+        {
+            keys = new SortKey[children.length];
+            for ( int i = 0; i < children.length; i++ )
+            {
+                keys[i] = new SortKey( ( IEntry ) children[i], i );
+            }
+            Arrays.sort( keys, sortKeyComparator );
+        }
+
+        sortedChildrenMap.put( parent, new SoftReference<SortedChildren>( new SortedChildren( settings, keys ) ) );
+        for ( int i = 0; i < keys.length; i++ )
+        {
+            children[i] = keys[i].entry;
         }
     }
 
 
+    /**
+     * Merges the given sorted sort keys.
+     *
+     * @param kept the first sorted sort keys
+     * @param keptCount the number of used elements in kept
+     * @param added the second sorted sort keys
+     * @return the merged sort keys
+     */
+    private SortKey[] merge( SortKey[] kept, int keptCount, SortKey[] added )
+    {
+        SortKey[] merged = new SortKey[keptCount + added.length];
+        int i = 0;
+        int j = 0;
+        int k = 0;
+        while ( i < keptCount && j < added.length )
+        {
+            merged[k++] = sortKeyComparator.compare( kept[i], added[j] ) <= 0 ? kept[i++] : added[j++];
+        }
+        while ( i < keptCount )
+        {
+            merged[k++] = kept[i++];
+        }
+        while ( j < added.length )
+        {
+            merged[k++] = added[j++];
+        }
+        return merged;
+    }
+
+
+    /**
+     * Gets the current settings that affect the order of entries.
+     *
+     * @return the sort settings
+     */
+    private String getSortSettings()
+    {
+        return preferences.getSortEntriesBy() + "," + preferences.getSortEntriesOrder() + "," //$NON-NLS-1$ //$NON-NLS-2$
+            + preferences.isLeafEntriesFirst() + "," + preferences.isContainerEntriesFirst() + "," //$NON-NLS-1$ //$NON-NLS-2$
+            + preferences.isMetaEntriesLast();
+    }
+
+
     /**
      * {@inheritDoc}
      * 
@@ -406,6 +589,71 @@ public class BrowserSorter extends ViewerSorter
     }
 
 
+    /**
+     * Compares two sort keys, like {@link #compare(Viewer, Object, Object)} compares the entries.
+     *
+     * @param k1 the first sort key
+     * @param k2 the second sort key
+     * @return a negative integer, zero, or a positive integer
+     */
+    private int compareSortKeys( SortKey k1, SortKey k2 )
+    {
+        if ( k1.category != k2.category )
+        {
+            return k1.category - k2.category;
+        }
+        else if ( preferences.getSortEntriesBy() == BrowserCoreConstants.SORT_BY_RDN )
+        {
+            if ( k1.rdn == null && k2.rdn == null )
+            {
+                return equal();
+            }
+            else if ( k1.rdn == null )
+            {
+                return greaterThanEntries();
+            }
+            else if ( k2.rdn == null )
+            {
+                return lessThanEntries();
+            }
+            else
+            {
+                return compareEntries( k1.rdn, k2.rdn );
+            }
+        }
+        else if ( preferences.getSortEntriesBy() == BrowserCoreConstants.SORT_BY_RDN_VALUE )
+        {
+            boolean empty1 = k1.rdn == null || "".equals( k1.rdn ); //$NON-NLS-1$
+            boolean empty2 = k2.rdn == null || "".equals( k2.rdn ); //$NON-NLS-1$
+
+            if ( empty1 && empty2 )
+            {
+                return equal();
+            }
+            else if ( empty1 )
+            {
+                return greaterThanEntries();
+            }
+            else if ( empty2 )
+            {
+                return lessThanEntries();
+            }
+            else if ( k1.number != null && k2.number != null )
+            {
+                return compare( k1.number, k2.number );
+            }
+            else
+            {
+                return compareEntries( k1.rdn, k2.rdn );
+            }
+        }
+        else
+        {
+            return equal();
+        }
+    }
+
+
     /**
      * Compares the string representation of the RDNs of two IEntry objects.
      *  
@@ -648,4 +896,58 @@ public class BrowserSorter extends ViewerSorter
         return preferences.getSortEntriesOrder() == BrowserCoreConstants.SORT_ORDER_ASCENDING ? bi1.compareTo( bi2 )
             : bi2.compareTo( bi1 );
     }
+
+
+    /**
+     * The sort key of an entry, computed once per sort.
+     */
+    private final class SortKey
+    {
+        /** The entry */
+        private final IEntry entry;
+
+        /** The category of the entry */
+        private final int category;
+
+        /** The Rdn of the entry, null if the entry has no Rdn */
+        private final String rdn;
+
+        /** The Rdn as number, null if it isn't numeric */
+        private final BigInteger number;
+
+        /** The index of the entry in the elements to sort, to keep the order of equal entries */
+        private int index;
+
+
+        private SortKey( IEntry entry, int index )
+        {
+            this.entry = entry;
+            this.index = index;
+            this.category = category( entry );
+
+            Rdn r = entry.getRdn();
+            this.rdn = r != null ? r.getName() : null;
+            this.number = rdn != null && !"".equals( rdn ) && rdn.matches( "\\d*" ) ? new BigInteger( rdn ) : null; //$NON-NLS-1$ //$NON-NLS-2$
+        }
+    }
+
+
+    /**
+     * The sorted children of an entry.
+     */
+    private static final class SortedChildren
+    {
+        /** The sort settings used to sort the children */
+        private final String settings;
+
+        /** The sort keys of the children, in sort order */
+        private final SortKey[] keys;
+
+
+        private SortedChildren( String settings, SortKey[] keys )
+        {
+            this.settings = settings;
+            this.keys = keys;
+        }
+    }
 }
@@ -275,6 +275,13 @@ public class BrowserUniversalListener implements ConnectionUpdateListener, Entry
     {
         ISearch search = searchUpdateEvent.getSearch();
 
+        if ( searchUpdateEvent.getDetail() == EventDetail.SEARCH_RESULTS_RETRIEVED )
+        {
+            // the search is still running, don't change the selection
+            viewer.refresh( search );
+            return;
+        }
+
         if ( ( search instanceof IQuickSearch ) && ( searchUpdateEvent.getDetail() == EventDetail.SEARCH_REMOVED ) )
         {
             if ( search.getBrowserConnection().getQuickSearch() == search )
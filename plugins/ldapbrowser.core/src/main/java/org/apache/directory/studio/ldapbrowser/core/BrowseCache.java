@@ -0,0 +1,587 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *  
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License. 
+ *  
+ */
+package org.apache.directory.studio.ldapbrowser.core;
+
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.apache.directory.api.ldap.model.constants.SchemaConstants;
+import org.apache.directory.api.ldap.model.entry.Attribute;
+import org.apache.directory.api.ldap.model.exception.LdapInvalidDnException;
+import org.apache.directory.api.ldap.model.message.SearchScope;
+import org.apache.directory.api.ldap.model.name.Dn;
+import org.apache.directory.studio.common.core.jobs.StudioProgressMonitor;
+import org.apache.directory.studio.connection.core.io.api.StudioSearchResultEnumeration;
+import org.apache.directory.studio.ldapbrowser.core.jobs.SearchRunnable;
+import org.apache.directory.studio.ldapbrowser.core.model.IAttribute;
+import org.apache.directory.studio.ldapbrowser.core.model.IBrowserConnection;
+import org.apache.directory.studio.ldapbrowser.core.model.IEntry;
+import org.apache.directory.studio.ldapbrowser.core.model.IValue;
+import org.apache.directory.studio.ldapbrowser.core.model.SearchParameter;
+import org.apache.directory.studio.ldapbrowser.core.model.impl.BaseDNEntry;
+import org.apache.directory.studio.ldapbrowser.core.model.impl.DirectoryMetadataEntry;
+import org.apache.directory.studio.ldapbrowser.core.model.impl.Entry;
+import org.apache.directory.studio.ldapbrowser.core.model.impl.Value;
+import org.apache.directory.studio.ldifparser.LdifUtils;
+
+
+/**
+ * The on-disk browse cache of a browser connection.
+ * <p>
+ * When the connection is closed the children lists, attributes and flags of all
+ * loaded entries below the base DNs are written to a file. When the connection is
+ * opened again the entries are restored, so expanding the tree doesn't need to
+ * search the directory again.
+ * <p>
+ * The cached entries of a naming context are only restored if the naming context
+ * didn't change in the meantime: the <code>contextCSN</code> of the base entry is
+ * stored with the cache and compared when the cache is restored. For directories
+ * that don't provide a <code>contextCSN</code> the cache is only restored if it
+ * isn't older than the configured maximum age.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public class BrowseCache
+{
+    /** The file format identifier and version */
+    private static final int MAGIC = 0x53444243;
+    private static final int VERSION = 1;
+
+    // entry flags
+    private static final int CHILDREN_INITIALIZED = 1;
+    private static final int HAS_MORE_CHILDREN = 1 << 1;
+    private static final int HAS_CHILDREN_HINT = 1 << 2;
+    private static final int ALIAS = 1 << 3;
+    private static final int REFERRAL = 1 << 4;
+    private static final int SUBENTRY = 1 << 5;
+    private static final int ATTRIBUTES_INITIALIZED = 1 << 6;
+    private static final int INIT_OPERATIONAL_ATTRIBUTES = 1 << 7;
+
+    // value kinds
+    private static final byte STRING_VALUE = 0;
+    private static final byte BINARY_VALUE = 1;
+
+    /** The cache file */
+    private File file;
+
+    /** The validators of the base entries, read when the connection was opened */
+    private Map<IEntry, String> validators = Collections.emptyMap();
+
+
+    /**
+     * Creates a new instance of BrowseCache.
+     *
+     * @param file the cache file
+     */
+    public BrowseCache( File file )
+    {
+        this.file = file;
+    }
+
+
+    /**
+     * Restores the cached entries into the browser connection. The Root DSE and
+     * the base entries must already be initialized.
+     *
+     * @param browserConnection the browser connection
+     * @param monitor the progress monitor
+     */
+    public void restore( IBrowserConnection browserConnection, StudioProgressMonitor monitor )
+    {
+        validators = readValidators( browserConnection, monitor );
+
+        if ( !file.exists() )
+        {
+            return;
+        }
+
+        try ( InputStream stream = new FileInputStream( file ) )
+        {
+            read( browserConnection, stream, validators, getMaxAge() );
+        }
+        catch ( Exception e )
+        {
+            // a corrupt or outdated cache is just ignored
+            file.delete();
+        }
+    }
+
+
+    /**
+     * Writes the loaded entries of the browser connection to the cache file.
+     *
+     * @param browserConnection the browser connection
+     */
+    public void save( IBrowserConnection browserConnection )
+    {
+        File tempFile = new File( file.getPath() + "-temp" ); //$NON-NLS-1$
+
+        // to avoid a corrupt file, write to a temp file first
+        try ( OutputStream stream = new FileOutputStream( tempFile ) )
+        {
+            write( browserConnection, stream, validators, System.currentTimeMillis() );
+        }
+        catch ( IOException e )
+        {
+            tempFile.delete();
+            return;
+        }
+
+        file.delete();
+        tempFile.renameTo( file );
+    }
+
+
+    /**
+     * Deletes the cache file.
+     */
+    public void delete()
+    {
+        file.delete();
+    }
+
+
+    /**
+     * Writes the loaded entries below the base entries of the browser connection.
+     *
+     * @param browserConnection the browser connection
+     * @param stream the output stream
+     * @param validators the validators of the base entries
+     * @param timestamp the timestamp of the cache
+     * @throws IOException if writing fails
+     */
+    static void write( IBrowserConnection browserConnection, OutputStream stream, Map<IEntry, String> validators,
+        long timestamp ) throws IOException
+    {
+        List<IEntry> baseEntries = new ArrayList<IEntry>();
+        IEntry[] rootDseChildren = browserConnection.getRootDSE().getChildren();
+        if ( rootDseChildren != null )
+        {
+            for ( IEntry entry : rootDseChildren )
+            {
+                if ( entry instanceof BaseDNEntry && !( entry instanceof DirectoryMetadataEntry ) )
+                {
+                    baseEntries.add( entry );
+                }
+            }
+        }
+
+        DataOutputStream out = new DataOutputStream( new BufferedOutputStream( stream ) );
+        out.writeInt( MAGIC );
+        out.writeInt( VERSION );
+        out.writeLong( timestamp );
+        out.writeInt( baseEntries.size() );
+
+        for ( IEntry baseEntry : baseEntries )
+        {
+            String validator = validators.get( baseEntry );
+            writeString( out, baseEntry.getDn().getName() );
+            writeString( out, validator != null ? validator : "" ); //$NON-NLS-1$
+
+            List<IEntry> entries = new ArrayList<IEntry>();
+            Map<IEntry, IEntry[]> childrenMap = new IdentityHashMap<IEntry, IEntry[]>();
+            collectEntries( baseEntry, entries, childrenMap );
+
+            out.writeInt( entries.size() );
+            for ( IEntry entry : entries )
+            {
+                writeEntry( out, entry, childrenMap.containsKey( entry ) );
+            }
+        }
+
+        out.flush();
+    }
+
+
+    /**
+     * Collects the entry and all its cacheable descendants, parents before children.
+     */
+    private static void collectEntries( IEntry entry, List<IEntry> entries, Map<IEntry, IEntry[]> childrenMap )
+    {
+        entries.add( entry );
+
+        IEntry[] children = getCacheableChildren( entry );
+        if ( children != null )
+        {
+            childrenMap.put( entry, children );
+            for ( IEntry child : children )
+            {
+                collectEntries( child, entries, childrenMap );
+            }
+        }
+    }
+
+
+    /**
+     * Gets the children of the entry, or null if the children list can't be cached because
+     * it isn't initialized, it is paged or it contains search continuations.
+     */
+    private static IEntry[] getCacheableChildren( IEntry entry )
+    {
+        if ( !entry.isChildrenInitialized() || entry.getTopPageChildrenRunnable() != null
+            || entry.getNextPageChildrenRunnable() != null )
+        {
+            return null;
+        }
+
+        IEntry[] children = entry.getChildren();
+        if ( children == null )
+        {
+            return null;
+        }
+
+        for ( IEntry child : children )
+        {
+            if ( !( child instanceof Entry ) )
+            {
+                return null;
+            }
+        }
+
+        return children;
+    }
+
+
+    private static void writeEntry( DataOutputStream out, IEntry entry, boolean withChildren ) throws IOException
+    {
+        int flags = 0;
+        flags |= withChildren ? CHILDREN_INITIALIZED : 0;
+        flags |= withChildren && entry.hasMoreChildren() ? HAS_MORE_CHILDREN : 0;
+        flags |= entry.hasChildren() ? HAS_CHILDREN_HINT : 0;
+        flags |= entry.isAlias() ? ALIAS : 0;
+        flags |= entry.isReferral() ? REFERRAL : 0;
+        flags |= entry.isSubentry() ? SUBENTRY : 0;
+        flags |= entry.isAttributesInitialized() ? ATTRIBUTES_INITIALIZED : 0;
+        flags |= entry.isInitOperationalAttributes() ? INIT_OPERATIONAL_ATTRIBUTES : 0;
+
+        writeString( out, entry.getDn().getName() );
+        out.writeInt( flags );
+
+        if ( entry.isAttributesInitialized() )
+        {
+            IAttribute[] attributes = entry.getAttributes();
+            if ( attributes == null )
+            {
+                attributes = new IAttribute[0];
+            }
+
+            out.writeInt( attributes.length );
+            for ( IAttribute attribute : attributes )
+            {
+                IValue[] values = attribute.getValues();
+                writeString( out, attribute.getDescription() );
+                out.writeInt( values.length );
+                for ( IValue value : values )
+                {
+                    Object rawValue = value.getRawValue();
+                    if ( rawValue instanceof byte[] )
+                    {
+                        out.writeByte( BINARY_VALUE );
+                        writeBytes( out, ( byte[] ) rawValue );
+                    }
+                    else
+                    {
+                        out.writeByte( STRING_VALUE );
+                        writeString( out, value.getStringValue() );
+                    }
+                }
+            }
+        }
+    }
+
+
+    /**
+     * Reads cached entries into the browser connection. The entries of a naming
+     * context are only restored if its base entry exists in the browser connection,
+     * if its validator matches and if the cache isn't older than the maximum age.
+     *
+     * @param browserConnection the browser connection
+     * @param stream the input stream
+     * @param validators the current validators of the base entries
+     * @param maxAge the maximum age of the cache in milliseconds
+     * @return the number of restored entries
+     * @throws IOException if reading fails
+     * @throws LdapInvalidDnException if a cached Dn is invalid
+     */
+    static int read( IBrowserConnection browserConnection, InputStream stream, Map<IEntry, String> validators,
+        long maxAge ) throws IOException, LdapInvalidDnException
+    {
+        DataInputStream in = new DataInputStream( new BufferedInputStream( stream ) );
+        if ( in.readInt() != MAGIC || in.readInt() != VERSION )
+        {
+            throw new IOException( "Unknown browse cache format" ); //$NON-NLS-1$
+        }
+
+        long timestamp = in.readLong();
+        boolean expired = System.currentTimeMillis() - timestamp > maxAge;
+        int restoredCount = 0;
+
+        int contextCount = in.readInt();
+        for ( int c = 0; c < contextCount; c++ )
+        {
+            Dn baseDn = new Dn( readString( in ) );
+            String cachedValidator = readString( in );
+            IEntry baseEntry = browserConnection.getEntryFromCache( baseDn );
+            String currentValidator = baseEntry != null ? validators.get( baseEntry ) : null;
+
+            boolean valid;
+            if ( cachedValidator.length() > 0 && currentValidator != null )
+            {
+                valid = cachedValidator.equals( currentValidator );
+            }
+            else
+            {
+                valid = cachedValidator.length() == 0 && currentValidator == null && !expired;
+            }
+            valid &= baseEntry != null && !baseEntry.isChildrenInitialized();
+
+            Map<IEntry, Integer> restoredEntries = new IdentityHashMap<IEntry, Integer>();
+            int entryCount = in.readInt();
+            for ( int e = 0; e < entryCount; e++ )
+            {
+                Dn dn = new Dn( readString( in ) );
+                int flags = in.readInt();
+                Map<String, List<Object>> attributes = null;
+                if ( ( flags & ATTRIBUTES_INITIALIZED ) != 0 )
+                {
+                    attributes = readAttributes( in );
+                }
+
+                if ( !valid )
+                {
+                    continue;
+                }
+
+                IEntry entry;
+                if ( e == 0 )
+                {
+                    entry = baseEntry;
+                }
+                else
+                {
+                    IEntry parent = browserConnection.getEntryFromCache( dn.getParent() );
+                    if ( parent == null || !restoredEntries.containsKey( parent ) )
+                    {
+                        continue;
+                    }
+
+                    entry = browserConnection.getEntryFromCache( dn );
+                    if ( entry == null )
+                    {
+                        entry = new Entry( parent, dn.getRdn() );
+                        entry.setDirectoryEntry( true );
+                        browserConnection.cacheEntry( entry );
+                    }
+                    parent.addChild( entry );
+                }
+
+                restoreEntry( entry, flags, attributes );
+                restoredEntries.put( entry, flags );
+            }
+
+            // the children are complete now
+            for ( Map.Entry<IEntry, Integer> restoredEntry : restoredEntries.entrySet() )
+            {
+                int flags = restoredEntry.getValue();
+                if ( ( flags & CHILDREN_INITIALIZED ) != 0 )
+                {
+                    restoredEntry.getKey().setChildrenInitialized( true );
+                    restoredEntry.getKey().setHasMoreChildren( ( flags & HAS_MORE_CHILDREN ) != 0 );
+                }
+            }
+            restoredCount += restoredEntries.size();
+        }
+
+        return restoredCount;
+    }
+
+
+    private static Map<String, List<Object>> readAttributes( DataInputStream in ) throws IOException
+    {
+        Map<String, List<Object>> attributes = new HashMap<String, List<Object>>();
+
+        int attributeCount = in.readInt();
+        for ( int a = 0; a < attributeCount; a++ )
+        {
+            String description = readString( in );
+            int valueCount = in.readInt();
+            List<Object> values = new ArrayList<Object>( valueCount );
+            for ( int v = 0; v < valueCount; v++ )
+            {
+                if ( in.readByte() == BINARY_VALUE )
+                {
+                    values.add( readBytes( in ) );
+                }
+                else
+                {
+                    values.add( readString( in ) );
+                }
+            }
+            attributes.put( description, values );
+        }
+
+        return attributes;
+    }
+
+
+    private static void restoreEntry( IEntry entry, int flags, Map<String, List<Object>> attributes )
+    {
+        entry.setHasChildrenHint( ( flags & HAS_CHILDREN_HINT ) != 0 );
+        entry.setAlias( ( flags & ALIAS ) != 0 );
+        entry.setReferral( ( flags & REFERRAL ) != 0 );
+        entry.setSubentry( ( flags & SUBENTRY ) != 0 );
+
+        if ( attributes != null && !entry.isAttributesInitialized() )
+        {
+            for ( Map.Entry<String, List<Object>> attribute : attributes.entrySet() )
+            {
+                IAttribute studioAttribute = entry.getAttribute( attribute.getKey() );
+                if ( studioAttribute == null )
+                {
+                    studioAttribute = new org.apache.directory.studio.ldapbrowser.core.model.impl.Attribute( entry,
+                        attribute.getKey() );
+                    entry.addAttribute( studioAttribute );
+                }
+                for ( Object rawValue : attribute.getValue() )
+                {
+                    studioAttribute.addValue( new Value( studioAttribute, rawValue ) );
+                }
+            }
+            entry.setAttributesInitialized( true );
+            entry.setInitOperationalAttributes( ( flags & INIT_OPERATIONAL_ATTRIBUTES ) != 0 );
+        }
+    }
+
+
+    /**
+     * Reads the contextCSN of each base entry. The contextCSN changes whenever
+     * an entry of the naming context is modified.
+     */
+    private static Map<IEntry, String> readValidators( IBrowserConnection browserConnection,
+        StudioProgressMonitor monitor )
+    {
+        Map<IEntry, String> validators = new HashMap<IEntry, String>();
+
+        IEntry[] rootDseChildren = browserConnection.getRootDSE().getChildren();
+        if ( rootDseChildren == null )
+        {
+            return validators;
+        }
+
+        for ( IEntry entry : rootDseChildren )
+        {
+            if ( !( entry instanceof BaseDNEntry ) || entry instanceof DirectoryMetadataEntry )
+            {
+                continue;
+            }
+
+            try
+            {
+                SearchParameter sp = new SearchParameter();
+                sp.setSearchBase( entry.getDn() );
+                sp.setScope( SearchScope.OBJECT );
+                sp.setReturningAttributes( new String[]
+                    { SchemaConstants.CONTEXT_CSN_AT } );
+                StudioProgressMonitor dummyMonitor = new StudioProgressMonitor( monitor );
+                StudioSearchResultEnumeration enumeration = SearchRunnable.search( browserConnection, sp,
+                    dummyMonitor );
+                while ( enumeration != null && enumeration.hasMore() )
+                {
+                    Attribute contextCsn = enumeration.next().getEntry().get( SchemaConstants.CONTEXT_CSN_AT );
+                    if ( contextCsn != null && contextCsn.size() > 0 )
+                    {
+                        // multi-master servers have one contextCSN per server
+                        Set<String> csns = new TreeSet<String>();
+                        for ( org.apache.directory.api.ldap.model.entry.Value value : contextCsn )
+                        {
+                            csns.add( value.getString() );
+                        }
+                        validators.put( entry, String.join( "|", csns ) ); //$NON-NLS-1$
+                    }
+                }
+            }
+            catch ( Exception e )
+            {
+                // no validator, the maximum age applies
+            }
+        }
+
+        return validators;
+    }
+
+
+    private static long getMaxAge()
+    {
+        int maxAge = BrowserCorePlugin.getDefault() == null ? BrowserCoreConstants.DEFAULT_BROWSE_CACHE_MAX_AGE
+            : BrowserCorePlugin.getDefault().getPluginPreferences()
+                .getInt( BrowserCoreConstants.PREFERENCE_BROWSE_CACHE_MAX_AGE );
+        return maxAge * 60L * 60L * 1000L;
+    }
+
+
+    private static void writeString( DataOutputStream out, String s ) throws IOException
+    {
+        writeBytes( out, LdifUtils.utf8encode( s ) );
+    }
+
+
+    private static void writeBytes( DataOutputStream out, byte[] bytes ) throws IOException
+    {
+        out.writeInt( bytes.length );
+        out.write( bytes );
+    }
+
+
+    private static String readString( DataInputStream in ) throws IOException
+    {
+        return LdifUtils.utf8decode( readBytes( in ) );
+    }
+
+
+    private static byte[] readBytes( DataInputStream in ) throws IOException
+    {
+        int length = in.readInt();
+        if ( length < 0 )
+        {
+            throw new IOException( "Invalid length " + length ); //$NON-NLS-1$
+        }
+        byte[] bytes = new byte[length];
+        in.readFully( bytes );
+        return bytes;
+    }
+
+}
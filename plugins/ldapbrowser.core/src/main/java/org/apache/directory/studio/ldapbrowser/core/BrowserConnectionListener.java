@@ -90,6 +90,11 @@ public class BrowserConnectionListener implements IConnectionListener
             try
             {
                 EventRegistry.suspendEventFiringInCurrentThread();
+                if ( isBrowseCacheEnabled() )
+                {
+                    BrowserCorePlugin.getDefault().getConnectionManager().getBrowseCache( connection )
+                        .save( browserConnection );
+                }
                 browserConnection.clearCaches();
             }
             finally
@@ -115,6 +120,19 @@ public class BrowserConnectionListener implements IConnectionListener
 
         IRootDSE rootDSE = browserConnection.getRootDSE();
         InitializeAttributesRunnable.initializeAttributes( rootDSE, monitor );
+
+        if ( isBrowseCacheEnabled() )
+        {
+            BrowserCorePlugin.getDefault().getConnectionManager()
+                .getBrowseCache( browserConnection.getConnection() ).restore( browserConnection, monitor );
+        }
+    }
+
+
+    private static boolean isBrowseCacheEnabled()
+    {
+        return BrowserCorePlugin.getDefault().getPluginPreferences().getBoolean(
+            BrowserCoreConstants.PREFERENCE_BROWSE_CACHE );
     }
 
 
@@ -62,6 +62,7 @@ import org.apache.directory.studio.ldapbrowser.core.model.impl.Bookmark;
 import org.apache.directory.studio.ldapbrowser.core.model.impl.BrowserConnection;
 import org.apache.directory.studio.ldapbrowser.core.model.impl.Search;
 import org.apache.directory.studio.ldapbrowser.core.model.schema.Schema;
+import org.apache.directory.studio.ldapbrowser.core.model.schema.SchemaSnapshot;
 
 
 /**
@@ -76,6 +77,9 @@ public class BrowserConnectionManager implements ConnectionUpdateListener, Brows
     /** The list of connections. */
     private Map<String, IBrowserConnection> connectionMap;
 
+    /** The browse caches of the connections. */
+    private Map<String, BrowseCache> browseCacheMap;
+
 
     /**
      * Creates a new instance of ConnectionManager.
@@ -83,6 +87,7 @@ public class BrowserConnectionManager implements ConnectionUpdateListener, Brows
     public BrowserConnectionManager()
     {
         this.connectionMap = new HashMap<String, IBrowserConnection>();
+        this.browseCacheMap = new HashMap<String, BrowseCache>();
 
         // no need to fire events while loading connections
         EventRegistry.suspendEventFiringInCurrentThread();
@@ -111,6 +116,37 @@ public class BrowserConnectionManager implements ConnectionUpdateListener, Brows
     }
 
 
+    /**
+     * Gets the Schema Snapshot filename for the corresponding browser connection.
+     * The snapshot is a pre-parsed binary copy of the Schema Cache file.
+     *
+     * @param id
+     *      the connection id
+     * @return
+     *      the Schema Snapshot filename for the corresponding browser connection
+     */
+    public static final String getSchemaSnapshotFileName( String id )
+    {
+        return BrowserCorePlugin.getDefault().getStateLocation().append(
+            "schema-" + Utils.getFilenameString( id ) + ".bin" ).toOSString(); //$NON-NLS-1$ //$NON-NLS-2$
+    }
+
+
+    /**
+     * Gets the Browse Cache filename for the corresponding browser connection.
+     *
+     * @param id
+     *      the connection id
+     * @return
+     *      the Browse Cache filename for the corresponding browser connection
+     */
+    public static final String getBrowseCacheFileName( String id )
+    {
+        return BrowserCorePlugin.getDefault().getStateLocation().append(
+            "browsecache-" + Utils.getFilenameString( id ) + ".bin" ).toOSString(); //$NON-NLS-1$ //$NON-NLS-2$
+    }
+
+
     /**
      * Gets the filename of the Connection Store.
      *
@@ -199,6 +235,48 @@ public class BrowserConnectionManager implements ConnectionUpdateListener, Brows
     }
 
 
+    /**
+     * Gets the browse cache of the given connection.
+     *
+     * @param connection
+     *      the connection
+     * @return
+     *      the browse cache of the connection
+     */
+    public synchronized BrowseCache getBrowseCache( Connection connection )
+    {
+        BrowseCache browseCache = browseCacheMap.get( connection.getId() );
+        if ( browseCache == null )
+        {
+            browseCache = new BrowseCache( new File( getBrowseCacheFileName( connection.getId() ) ) );
+            browseCacheMap.put( connection.getId(), browseCache );
+        }
+        return browseCache;
+    }
+
+
+    /**
+     * Writes the browse caches of all opened connections, if enabled.
+     */
+    public void saveBrowseCaches()
+    {
+        if ( !BrowserCorePlugin.getDefault().getPluginPreferences().getBoolean(
+            BrowserCoreConstants.PREFERENCE_BROWSE_CACHE ) )
+        {
+            return;
+        }
+
+        for ( IBrowserConnection browserConnection : getBrowserConnections() )
+        {
+            Connection connection = browserConnection.getConnection();
+            if ( connection != null && connection.getConnectionWrapper().isConnected() )
+            {
+                getBrowseCache( connection ).save( browserConnection );
+            }
+        }
+    }
+
+
     /**
      * Gets an array containing all the Connections.
      *
@@ -225,6 +303,15 @@ public class BrowserConnectionManager implements ConnectionUpdateListener, Brows
         {
             schemaFile.delete();
         }
+        File schemaSnapshotFile = new File( getSchemaSnapshotFileName( connection.getId() ) );
+        if ( schemaSnapshotFile.exists() )
+        {
+            schemaSnapshotFile.delete();
+        }
+
+        // remove browse cache file
+        getBrowseCache( connection ).delete();
+        browseCacheMap.remove( connection.getId() );
 
         // make persistent
         saveBrowserConnections();
@@ -426,6 +513,61 @@ public class BrowserConnectionManager implements ConnectionUpdateListener, Brows
         {
             e.printStackTrace();
         }
+
+        // the snapshot is written after the LDIF, so an outdated snapshot is never newer than the LDIF
+        String snapshotFilename = getSchemaSnapshotFileName( browserConnection.getConnection().getId() );
+        try ( FileOutputStream out = new FileOutputStream( snapshotFilename ) )
+        {
+            SchemaSnapshot.write( browserConnection.getSchema(), out );
+        }
+        catch ( Exception e )
+        {
+            e.printStackTrace();
+            new File( snapshotFilename ).delete();
+        }
+    }
+
+
+    /**
+     * Loads the Schema of the Connection, from the schema snapshot if it is
+     * up-to-date and from the LDIF file otherwise.
+     *
+     * @param connection
+     *      the Connection
+     * @return
+     *      the Schema, null if there is no cached schema
+     */
+    private Schema loadSchema( Connection connection )
+    {
+        File schemaFile = new File( getSchemaCacheFileName( connection.getId() ) );
+        File snapshotFile = new File( getSchemaSnapshotFileName( connection.getId() ) );
+
+        if ( snapshotFile.exists() && snapshotFile.lastModified() >= schemaFile.lastModified() )
+        {
+            try ( FileInputStream in = new FileInputStream( snapshotFile ) )
+            {
+                return SchemaSnapshot.read( in );
+            }
+            catch ( Exception e )
+            {
+                // unknown or damaged snapshot, fall back to the LDIF
+            }
+        }
+
+        if ( schemaFile.exists() )
+        {
+            try ( FileReader reader = new FileReader( schemaFile ) )
+            {
+                Schema schema = new Schema();
+                schema.loadFromLdif( reader );
+                return schema;
+            }
+            catch ( Exception e )
+            {
+            }
+        }
+
+        return null;
     }
 
 
@@ -441,17 +583,11 @@ public class BrowserConnectionManager implements ConnectionUpdateListener, Brows
             BrowserConnection browserConnection = new BrowserConnection( connection );
             connectionMap.put( connection.getId(), browserConnection );
 
-            try
+            Schema schema = loadSchema( connection );
+            if ( schema != null )
             {
-                String schemaFilename = getSchemaCacheFileName( connection.getId() );
-                FileReader reader = new FileReader( schemaFilename );
-                Schema schema = new Schema();
-                schema.loadFromLdif( reader );
                 browserConnection.setSchema( schema );
             }
-            catch ( Exception e )
-            {
-            }
         }
 
         // java.beans.XMLDecoder
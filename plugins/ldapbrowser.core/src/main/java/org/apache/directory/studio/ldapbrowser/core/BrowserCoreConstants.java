@@ -59,6 +59,30 @@ public final class BrowserCoreConstants
 
     public static final String PREFERENCE_CHECK_FOR_CHILDREN = "checkForChildren"; //$NON-NLS-1$
 
+    /** The maximum number of entries whose attributes or children are kept in the cache of a connection */
+    public static final String PREFERENCE_ENTRY_CACHE_MAX_ENTRIES = "entryCacheMaxEntries"; //$NON-NLS-1$
+
+    public static final int DEFAULT_ENTRY_CACHE_MAX_ENTRIES = 100000;
+
+    /** The maximum memory in MB used by the cached attributes and children of a connection */
+    public static final String PREFERENCE_ENTRY_CACHE_MAX_MEMORY = "entryCacheMaxMemory"; //$NON-NLS-1$
+
+    public static final int DEFAULT_ENTRY_CACHE_MAX_MEMORY = 256;
+
+    /** Whether attribute values of search results are stored in packed arrays instead of one object per value */
+    public static final String PREFERENCE_COMPACT_ATTRIBUTE_STORAGE = "compactAttributeStorage"; //$NON-NLS-1$
+
+    /** Whether the loaded entries of a connection are written to disk and restored when the connection is opened */
+    public static final String PREFERENCE_BROWSE_CACHE = "browseCache"; //$NON-NLS-1$
+
+    /** The maximum age in hours of a browse cache that can't be validated by the contextCSN */
+    public static final String PREFERENCE_BROWSE_CACHE_MAX_AGE = "browseCacheMaxAge"; //$NON-NLS-1$
+
+    public static final int DEFAULT_BROWSE_CACHE_MAX_AGE = 24;
+
+    /** Whether search results are shown in chunks while the search is still running */
+    public static final String PREFERENCE_SEARCH_RESULTS_INCREMENTAL = "searchResultsIncremental"; //$NON-NLS-1$
+
     public static final String PREFERENCE_FORMAT_CSV_ATTRIBUTEDELIMITER = "formatCsvAttributeDelimiter"; //$NON-NLS-1$
 
     public static final String PREFERENCE_FORMAT_CSV_VALUEDELIMITER = "formatCsvValueDelimiter"; //$NON-NLS-1$
@@ -87,6 +111,8 @@ public final class BrowserCoreConstants
 
     public static final String PREFERENCE_LDIF_INCLUDE_VERSION_LINE = "ldifIncludeVersionLine"; //$NON-NLS-1$
 
+    public static final String PREFERENCE_LDIF_SORT_ATTRIBUTES = "ldifSortAttributes"; //$NON-NLS-1$
+
     public static final int BINARYENCODING_IGNORE = 0;
 
     public static final int BINARYENCODING_BASE64 = 1;
@@ -89,6 +89,11 @@ public class BrowserCorePlugin extends Plugin
      */
     public void stop( BundleContext context ) throws Exception
     {
+        if ( connectionManager != null )
+        {
+            connectionManager.saveBrowseCaches();
+        }
+
         super.stop( context );
 
         if ( eventRunner != null )
@@ -42,6 +42,15 @@ public class BrowserCorePreferencesInitializer extends AbstractPreferenceInitial
         Preferences store = BrowserCorePlugin.getDefault().getPluginPreferences();
 
         store.setDefault( BrowserCoreConstants.PREFERENCE_CHECK_FOR_CHILDREN, true );
+        store.setDefault( BrowserCoreConstants.PREFERENCE_ENTRY_CACHE_MAX_ENTRIES,
+            BrowserCoreConstants.DEFAULT_ENTRY_CACHE_MAX_ENTRIES );
+        store.setDefault( BrowserCoreConstants.PREFERENCE_ENTRY_CACHE_MAX_MEMORY,
+            BrowserCoreConstants.DEFAULT_ENTRY_CACHE_MAX_MEMORY );
+        store.setDefault( BrowserCoreConstants.PREFERENCE_COMPACT_ATTRIBUTE_STORAGE, false );
+        store.setDefault( BrowserCoreConstants.PREFERENCE_BROWSE_CACHE, false );
+        store.setDefault( BrowserCoreConstants.PREFERENCE_BROWSE_CACHE_MAX_AGE,
+            BrowserCoreConstants.DEFAULT_BROWSE_CACHE_MAX_AGE );
+        store.setDefault( BrowserCoreConstants.PREFERENCE_SEARCH_RESULTS_INCREMENTAL, true );
 
         store.setDefault( BrowserCoreConstants.PREFERENCE_FORMAT_CSV_ATTRIBUTEDELIMITER, "," ); //$NON-NLS-1$
         store.setDefault( BrowserCoreConstants.PREFERENCE_FORMAT_CSV_VALUEDELIMITER, "|" ); //$NON-NLS-1$
@@ -64,6 +73,7 @@ public class BrowserCorePreferencesInitializer extends AbstractPreferenceInitial
         store.setDefault( BrowserCoreConstants.PREFERENCE_LDIF_LINE_SEPARATOR, BrowserCoreConstants.LINE_SEPARATOR );
         store.setDefault( BrowserCoreConstants.PREFERENCE_LDIF_SPACE_AFTER_COLON, true );
         store.setDefault( BrowserCoreConstants.PREFERENCE_LDIF_INCLUDE_VERSION_LINE, true );
+        store.setDefault( BrowserCoreConstants.PREFERENCE_LDIF_SORT_ATTRIBUTES, true );
 
         // default binary attributes
         BinaryAttribute[] defaultBinaryAttributes = new BinaryAttribute[]
@@ -21,7 +21,10 @@
 package org.apache.directory.studio.ldapbrowser.core.events;
 
 
+import org.apache.directory.studio.connection.core.event.AbstractEventCoalescer;
+import org.apache.directory.studio.connection.core.event.CoalescingEventManager;
 import org.apache.directory.studio.connection.core.event.ConnectionEventRegistry;
+import org.apache.directory.studio.connection.core.event.EventCoalescer;
 import org.apache.directory.studio.connection.core.event.EventRunnable;
 import org.apache.directory.studio.connection.core.event.EventRunnableFactory;
 import org.apache.directory.studio.connection.core.event.EventRunner;
@@ -30,13 +33,36 @@ import org.apache.directory.studio.connection.core.event.EventRunner;
 /**
  * The EventRegistry is a central point to register for Apache Directory Studio specific
  * events and to fire events to registered listeners.
+ * <p>
+ * Search and entry update events for listeners with an asynchronous {@link EventRunner},
+ * i.e. UI listeners, are collected for a short window and delivered in one batch.
+ * Repeated events within a batch are coalesced: of all {@link SearchUpdateEvent}s with the
+ * same search and detail and of all {@link ChildrenInitializedEvent}s,
+ * {@link AttributesInitializedEvent}s, {@link BulkModificationEvent}s and plain
+ * {@link EntryModificationEvent}s with the same entry and source only the last one is
+ * delivered. All other events are always delivered.
  *
  * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
  */
 public class EventRegistry extends ConnectionEventRegistry
 {
 
-    static final EventManager<SearchUpdateListener, EventRunner> searchUpdateEventManager = new EventManager<SearchUpdateListener, EventRunner>();
+    static final EventCoalescer<SearchUpdateListener, SearchUpdateEvent> searchUpdateEventCoalescer = new AbstractEventCoalescer<SearchUpdateListener, SearchUpdateEvent>()
+        {
+            protected Object getCoalescingKey( SearchUpdateEvent event )
+            {
+                return key( event.getSearch(), event.getDetail() );
+            }
+
+
+            public void deliver( SearchUpdateListener listener, SearchUpdateEvent event )
+            {
+                listener.searchUpdated( event );
+            }
+        };
+
+    static final CoalescingEventManager<SearchUpdateListener, SearchUpdateEvent> searchUpdateEventManager = new CoalescingEventManager<SearchUpdateListener, SearchUpdateEvent>(
+        searchUpdateEventCoalescer );
 
 
     /**
@@ -71,20 +97,7 @@ public class EventRegistry extends ConnectionEventRegistry
      */
     public static void fireSearchUpdated( final SearchUpdateEvent searchUpdateEvent, final Object source )
     {
-        EventRunnableFactory<SearchUpdateListener> factory = new EventRunnableFactory<SearchUpdateListener>()
-        {
-            public EventRunnable createEventRunnable( final SearchUpdateListener listener )
-            {
-                return new EventRunnable()
-                {
-                    public void run()
-                    {
-                        listener.searchUpdated( searchUpdateEvent );
-                    }
-                };
-            }
-        };
-        searchUpdateEventManager.fire( factory );
+        searchUpdateEventManager.fire( searchUpdateEvent );
     }
 
     static final EventManager<BookmarkUpdateListener, EventRunner> bookmarkUpdateEventManager = new EventManager<BookmarkUpdateListener, EventRunner>();
@@ -190,7 +203,28 @@ public class EventRegistry extends ConnectionEventRegistry
         browserConnectionUpdateEventManager.fire( factory );
     }
 
-    static final EventManager<EntryUpdateListener, EventRunner> entryUpdateEventManager = new EventManager<EntryUpdateListener, EventRunner>();
+    static final EventCoalescer<EntryUpdateListener, EntryModificationEvent> entryUpdateEventCoalescer = new AbstractEventCoalescer<EntryUpdateListener, EntryModificationEvent>()
+        {
+            protected Object getCoalescingKey( EntryModificationEvent event )
+            {
+                Class<?> type = event.getClass();
+                if ( type == EntryModificationEvent.class || type == ChildrenInitializedEvent.class
+                    || type == AttributesInitializedEvent.class || type == BulkModificationEvent.class )
+                {
+                    return key( type, event.getConnection(), event.getModifiedEntry(), event.getSource() );
+                }
+                return null;
+            }
+
+
+            public void deliver( EntryUpdateListener listener, EntryModificationEvent event )
+            {
+                listener.entryUpdated( event );
+            }
+        };
+
+    static final CoalescingEventManager<EntryUpdateListener, EntryModificationEvent> entryUpdateEventManager = new CoalescingEventManager<EntryUpdateListener, EntryModificationEvent>(
+        entryUpdateEventCoalescer );
 
 
     /**
@@ -226,26 +260,7 @@ public class EventRegistry extends ConnectionEventRegistry
     public static void fireEntryUpdated( final EntryModificationEvent entryUpdateEvent, final Object source )
     {
         entryUpdateEvent.setSource( source );
-        EventRunnableFactory<EntryUpdateListener> factory = new EventRunnableFactory<EntryUpdateListener>()
-        {
-            public EventRunnable createEventRunnable( final EntryUpdateListener listener )
-            {
-                return new EventRunnable()
-                {
-                    public void run()
-                    {
-                        listener.entryUpdated( entryUpdateEvent );
-                    }
-                };
-            }
-
-
-            public String toString()
-            {
-                return "EventRunnableFactory [entryUpdateEvent=" + entryUpdateEvent + "]"; //$NON-NLS-1$ //$NON-NLS-2$
-            }
-        };
-        entryUpdateEventManager.fire( factory );
+        entryUpdateEventManager.fire( entryUpdateEvent );
     }
 
 }
@@ -47,6 +47,12 @@ public class SearchUpdateEvent
         /** Indicates that the search was performed. */
         SEARCH_PERFORMED,
 
+        /**
+         * Indicates that a part of the search results was retrieved.
+         * The search is still running, it is followed by {@link #SEARCH_PERFORMED}.
+         */
+        SEARCH_RESULTS_RETRIEVED,
+
         /**
          * Indicates that the search parameters were updated.
          * Note: This event detail doesn't include the renaming of a search!
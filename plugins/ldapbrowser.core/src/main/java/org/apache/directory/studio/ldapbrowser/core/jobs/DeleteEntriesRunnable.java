@@ -39,7 +39,10 @@ import org.apache.directory.studio.connection.core.Controls;
 import org.apache.directory.studio.connection.core.Connection.AliasDereferencingMethod;
 import org.apache.directory.studio.connection.core.Connection.ReferralHandlingMethod;
 import org.apache.directory.studio.connection.core.StudioControl;
+import org.apache.directory.studio.connection.core.io.ConnectionWrapper;
+import org.apache.directory.studio.connection.core.io.OperationWindow;
 import org.apache.directory.studio.connection.core.io.StudioLdapException;
+import org.apache.directory.studio.connection.core.io.StudioLdapFuture;
 import org.apache.directory.studio.connection.core.io.api.StudioSearchResultEnumeration;
 import org.apache.directory.studio.connection.core.jobs.StudioConnectionBulkRunnableWithProgress;
 import org.apache.directory.studio.ldapbrowser.core.BrowserCoreMessages;
@@ -299,16 +302,13 @@ public class DeleteEntriesRunnable implements StudioConnectionBulkRunnableWithPr
                     .search( dn.getName(), ISearch.FILTER_TRUE, searchControls, aliasDereferencingMethod,
                         referralsHandlingMethod, null, dummyMonitor, null );
 
+                // read the child entries of this batch
+                List<Dn> childDns = new ArrayList<>();
                 try
                 {
-                    // delete all child entries
                     while ( !dummyMonitor.isCanceled() && !dummyMonitor.errorsReported() && result.hasMore() )
                     {
-                        Dn childDn = result.next().getDn();
-
-                        numberOfDeletedEntries = optimisticDeleteEntryRecursive( browserConnection, childDn, false,
-                            false, numberOfDeletedEntries, dummyMonitor, monitor );
-                        numberInBatch++;
+                        childDns.add( result.next().getDn() );
                     }
                 }
                 catch ( Exception e )
@@ -324,6 +324,11 @@ public class DeleteEntriesRunnable implements StudioConnectionBulkRunnableWithPr
                         break;
                     }
                 }
+
+                // delete all child entries, siblings are independent so the requests are pipelined
+                numberInBatch = childDns.size();
+                numberOfDeletedEntries = deleteSiblings( browserConnection, childDns, numberOfDeletedEntries,
+                    dummyMonitor, monitor );
             }
             while ( numberInBatch > 0 && !monitor.isCanceled() && !dummyMonitor.errorsReported() );
 
@@ -354,6 +359,68 @@ public class DeleteEntriesRunnable implements StudioConnectionBulkRunnableWithPr
     }
 
 
+    /**
+     * Deletes sibling entries without waiting for each response. Entries that
+     * have children themselves are deleted recursively once their response arrived.
+     *
+     * @return the number of deleted entries
+     */
+    private static int deleteSiblings( IBrowserConnection browserConnection, List<Dn> dns,
+        int numberOfDeletedEntries, StudioProgressMonitor dummyMonitor, StudioProgressMonitor monitor )
+    {
+        if ( browserConnection.getConnection() == null )
+        {
+            return numberOfDeletedEntries;
+        }
+
+        ConnectionWrapper connectionWrapper = browserConnection.getConnection().getConnectionWrapper();
+        OperationWindow window = new OperationWindow();
+        int[] count = new int[]
+            { numberOfDeletedEntries };
+
+        for ( Dn dn : dns )
+        {
+            if ( dummyMonitor.isCanceled() || dummyMonitor.errorsReported() )
+            {
+                break;
+            }
+
+            // each operation has its own monitor, its errors are handled below
+            StudioProgressMonitor operationMonitor = new StudioProgressMonitor( dummyMonitor );
+            StudioLdapFuture future = connectionWrapper.deleteEntryAsync( dn, new Control[0], operationMonitor,
+                null );
+
+            window.submit( future, f -> {
+                if ( !operationMonitor.errorsReported() )
+                {
+                    count[0]++;
+                    monitor.reportProgress( BrowserCoreMessages.bind( BrowserCoreMessages.model__deleted_n_entries,
+                        new String[]
+                            { "" + count[0] } ) ); //$NON-NLS-1$
+                }
+                else if ( StudioLdapException.isContextNotEmptyException( operationMonitor.getException() ) )
+                {
+                    if ( !dummyMonitor.isCanceled() && !dummyMonitor.errorsReported() )
+                    {
+                        count[0] = optimisticDeleteEntryRecursive( browserConnection, dn, false, false, count[0],
+                            dummyMonitor, monitor );
+                    }
+                }
+                else if ( !dummyMonitor.isCanceled() )
+                {
+                    Exception exception = operationMonitor.getException();
+                    dummyMonitor.reportError( exception );
+                    monitor.reportError( exception );
+                }
+            } );
+        }
+
+        window.awaitAll();
+
+        return count[0];
+    }
+
+
     static void deleteEntry( IBrowserConnection browserConnection, Dn dn, boolean useManageDsaItControl,
         boolean useTreeDeleteControl, StudioProgressMonitor monitor )
     {
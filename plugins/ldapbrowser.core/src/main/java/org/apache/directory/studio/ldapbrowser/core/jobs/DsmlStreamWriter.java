@@ -0,0 +1,237 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *  
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License. 
+ *  
+ */
+package org.apache.directory.studio.ldapbrowser.core.jobs;
+
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+import org.apache.directory.api.dsmlv2.DsmlDecorator;
+import org.apache.directory.api.dsmlv2.ParserUtils;
+import org.dom4j.Document;
+import org.dom4j.DocumentHelper;
+import org.dom4j.Element;
+import org.dom4j.Namespace;
+import org.dom4j.Node;
+import org.dom4j.io.OutputFormat;
+import org.dom4j.io.XMLWriter;
+import org.xml.sax.SAXException;
+
+
+/**
+ * Writes a DSML batch request or batch response element by element to an output stream.
+ * <p>
+ * Only the currently open elements are kept in memory. Each request or response is
+ * converted to XML by its {@link DsmlDecorator} and written immediately, so the size of
+ * the written document is not limited by the available memory.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+class DsmlStreamWriter implements Closeable
+{
+    private static final String BATCH_REQUEST = "batchRequest"; //$NON-NLS-1$
+    private static final String BATCH_RESPONSE = "batchResponse"; //$NON-NLS-1$
+    private static final String SEARCH_RESPONSE = "searchResponse"; //$NON-NLS-1$
+
+    /** The output stream */
+    private final OutputStream out;
+
+    /** The XML writer */
+    private final IndentingXmlWriter xmlWriter;
+
+    /** The document holding the open elements, needed to resolve the namespaces */
+    private final Document document = DocumentHelper.createDocument();
+
+    /** The open elements, the innermost first */
+    private final Deque<Element> openElements = new ArrayDeque<Element>();
+
+
+    /**
+     * Creates a new instance of DsmlStreamWriter and writes the XML declaration.
+     *
+     * @param out the output stream, closed by {@link #close()}
+     * @throws IOException if the XML declaration could not be written
+     */
+    DsmlStreamWriter( OutputStream out ) throws IOException
+    {
+        this.out = out;
+        OutputFormat format = OutputFormat.createPrettyPrint();
+        format.setEncoding( "UTF-8" ); //$NON-NLS-1$
+        format.setIndentSize( 3 );
+        this.xmlWriter = new IndentingXmlWriter( out, format );
+
+        try
+        {
+            xmlWriter.startDocument();
+        }
+        catch ( SAXException e )
+        {
+            throw new IOException( e );
+        }
+    }
+
+
+    /**
+     * Opens the batchResponse root element.
+     *
+     * @throws IOException if the element could not be written
+     */
+    void startBatchResponse() throws IOException
+    {
+        Element element = document.addElement( BATCH_RESPONSE );
+        element.add( ParserUtils.DSML_NAMESPACE );
+        element.add( ParserUtils.XSD_NAMESPACE );
+        element.add( ParserUtils.XSI_NAMESPACE );
+        open( element );
+    }
+
+
+    /**
+     * Opens the batchRequest root element.
+     *
+     * @throws IOException if the element could not be written
+     */
+    void startBatchRequest() throws IOException
+    {
+        Element element = document.addElement( BATCH_REQUEST );
+        element.add( ParserUtils.XSD_NAMESPACE );
+        element.add( ParserUtils.XSI_NAMESPACE );
+        open( element );
+    }
+
+
+    /**
+     * Opens a searchResponse element within the batch response.
+     *
+     * @throws IOException if the element could not be written
+     */
+    void startSearchResponse() throws IOException
+    {
+        open( openElements.peek().addElement( SEARCH_RESPONSE ) );
+    }
+
+
+    /**
+     * Writes the given request or response into the currently open element.
+     *
+     * @param decorator the DSML decorator of the request or response
+     * @throws IOException if the element could not be written
+     */
+    void write( DsmlDecorator<?> decorator ) throws IOException
+    {
+        Element parent = openElements.peek();
+        decorator.toDsml( parent );
+        for ( Node node : parent.content() )
+        {
+            xmlWriter.write( node );
+        }
+        parent.clearContent();
+    }
+
+
+    /**
+     * Closes the currently open element.
+     *
+     * @throws IOException if the element could not be written
+     */
+    void end() throws IOException
+    {
+        Element element = openElements.pop();
+        xmlWriter.newLine( openElements.size() );
+        xmlWriter.writeClose( element );
+        element.detach();
+    }
+
+
+    /**
+     * Closes all open elements, flushes the document and closes the output stream.
+     */
+    public void close() throws IOException
+    {
+        try
+        {
+            while ( !openElements.isEmpty() )
+            {
+                end();
+            }
+            xmlWriter.println();
+            xmlWriter.endDocument();
+            xmlWriter.flush();
+        }
+        catch ( SAXException e )
+        {
+            throw new IOException( e );
+        }
+        finally
+        {
+            out.close();
+        }
+    }
+
+
+    private void open( Element element ) throws IOException
+    {
+        if ( !openElements.isEmpty() )
+        {
+            xmlWriter.newLine( openElements.size() );
+        }
+        xmlWriter.writeOpen( element );
+        openElements.push( element );
+        xmlWriter.setIndentLevel( openElements.size() );
+    }
+
+
+    /**
+     * XML writer that indents the separately written open and close tags like the
+     * elements written in one go. The elements created by the decorators have no
+     * namespace, they are written without an xmlns="" declaration to inherit the
+     * DSML namespace of the root element.
+     */
+    private static class IndentingXmlWriter extends XMLWriter
+    {
+        private IndentingXmlWriter( OutputStream out, OutputFormat format ) throws IOException
+        {
+            super( out, format );
+        }
+
+
+        @Override
+        protected boolean isNamespaceDeclaration( Namespace ns )
+        {
+            if ( ns != null && ns.getPrefix().isEmpty() && ns.getURI().isEmpty() )
+            {
+                return false;
+            }
+            return super.isNamespaceDeclaration( ns );
+        }
+
+
+        private void newLine( int indentLevel ) throws IOException
+        {
+            setIndentLevel( indentLevel );
+            writePrintln();
+            indent();
+        }
+    }
+
+}
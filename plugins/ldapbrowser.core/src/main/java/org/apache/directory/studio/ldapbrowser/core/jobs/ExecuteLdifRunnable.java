@@ -35,7 +35,7 @@ import org.apache.directory.studio.ldapbrowser.core.BrowserCoreMessages;
 import org.apache.directory.studio.ldapbrowser.core.events.BulkModificationEvent;
 import org.apache.directory.studio.ldapbrowser.core.events.EventRegistry;
 import org.apache.directory.studio.ldapbrowser.core.model.IBrowserConnection;
-import org.apache.directory.studio.ldifparser.model.LdifEnumeration;
+import org.apache.directory.studio.ldifparser.model.LdifRecordViewEnumeration;
 import org.apache.directory.studio.ldifparser.parser.LdifParser;
 
 
@@ -135,7 +135,7 @@ public class ExecuteLdifRunnable implements StudioConnectionBulkRunnableWithProg
         {
             Reader ldifReader = new StringReader( ldif );
             LdifParser parser = new LdifParser();
-            LdifEnumeration enumeration = parser.parse( ldifReader );
+            LdifRecordViewEnumeration enumeration = parser.parseRecordViews( ldifReader, 0 );
 
             Writer logWriter = new Writer()
             {
@@ -21,9 +21,8 @@
 package org.apache.directory.studio.ldapbrowser.core.jobs;
 
 
-import java.io.BufferedWriter;
 import java.io.FileOutputStream;
-import java.io.OutputStreamWriter;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
@@ -31,9 +30,6 @@ import java.util.List;
 import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.directory.api.dsmlv2.DsmlDecorator;
 import org.apache.directory.api.dsmlv2.request.AddRequestDsml;
-import org.apache.directory.api.dsmlv2.request.BatchRequestDsml;
-import org.apache.directory.api.dsmlv2.response.BatchResponseDsml;
-import org.apache.directory.api.dsmlv2.response.SearchResponseDsml;
 import org.apache.directory.api.dsmlv2.response.SearchResultDoneDsml;
 import org.apache.directory.api.dsmlv2.response.SearchResultEntryDsml;
 import org.apache.directory.api.dsmlv2.response.SearchResultReferenceDsml;
@@ -194,36 +190,22 @@ public class ExportDsmlRunnable implements StudioConnectionRunnableWithProgress
             StudioSearchResultEnumeration ne = SearchRunnable.search( browserConnection, searchParameter, dummyMonitor );
             monitor.worked( 1 );
 
-            // Getting the DSML string associated to the search
-            // and the type of answer the user is expecting
-            String dsmlExportString = null;
-            
-            switch ( type )
+            // Writing the DSML associated to the search directly to the final destination
+            // file, depending on the type of answer the user is expecting
+            try ( DsmlStreamWriter writer = new DsmlStreamWriter( new FileOutputStream( exportDsmlFilename ) ) )
             {
-                case RESPONSE:
-                    dsmlExportString = processAsDsmlResponse( ne, dummyMonitor );
-                    break;
-                case REQUEST:
-                    dsmlExportString = processAsDsmlRequest( ne, dummyMonitor );
-                    break;
-            }
-            
-            monitor.worked( 1 );
-
-            // Writing the DSML string to the final destination file.
-            if ( dsmlExportString != null )
-            {
-                try ( FileOutputStream fos = new FileOutputStream( exportDsmlFilename ) )
+                switch ( type )
                 {
-                    try ( OutputStreamWriter osw = new OutputStreamWriter( fos, "UTF-8" ) ) //$NON-NLS-1$
-                    {
-                        try ( BufferedWriter bufferedWriter = new BufferedWriter( osw ) )
-                        {
-                            bufferedWriter.write( dsmlExportString );
-                        }
-                    }
+                    case RESPONSE:
+                        processAsDsmlResponse( ne, writer, dummyMonitor );
+                        break;
+                    case REQUEST:
+                        processAsDsmlRequest( ne, writer, dummyMonitor );
+                        break;
                 }
             }
+
+            monitor.worked( 1 );
             monitor.worked( 1 );
         }
         catch ( Exception e )
@@ -237,40 +219,41 @@ public class ExportDsmlRunnable implements StudioConnectionRunnableWithProgress
      * Processes the {@link StudioSearchResultEnumeration} as a DSML response.
      *
      * @param sre the search result enumeration
+     * @param writer the DSML writer
      * @param monitor the monitor
-     * @return the associated DSML
      * @throws LdapException
+     * @throws IOException
      */
-    private String processAsDsmlResponse( StudioSearchResultEnumeration sre, StudioProgressMonitor monitor ) throws LdapException
+    private void processAsDsmlResponse( StudioSearchResultEnumeration sre, DsmlStreamWriter writer,
+        StudioProgressMonitor monitor ) throws LdapException, IOException
     {
-        // Creating the batch reponse
-        BatchResponseDsml batchResponse = new BatchResponseDsml();
-
-        processAsDsmlResponse( sre, batchResponse, monitor, searchParameter );
-
-        // Returning the associated DSML
-        return batchResponse.toDsml();
+        writer.startBatchResponse();
+        processAsDsmlResponse( sre, writer, monitor, searchParameter );
     }
 
 
     /**
      * Processes the {@link StudioSearchResultEnumeration} as a DSML response.
      *
+     * Each search result is written as soon as it is received.
+     *
      * @param sre
      *      the search result enumeration
+     * @param writer
+     *      the DSML writer, positioned within the batch response
      * @param monitor 
      *      the monitor
      * @param searchParameter 
      *      the search parameter
      * @throws LdapURLEncodingException 
      * @throws org.apache.directory.api.ldap.model.exception.LdapException
+     * @throws IOException
      */
-    public static void processAsDsmlResponse( StudioSearchResultEnumeration sre, BatchResponseDsml batchResponse,
-        StudioProgressMonitor monitor, SearchParameter searchParameter ) throws LdapException
+    static void processAsDsmlResponse( StudioSearchResultEnumeration sre, DsmlStreamWriter writer,
+        StudioProgressMonitor monitor, SearchParameter searchParameter ) throws LdapException, IOException
     {
-        // Creating and adding the search response
-        SearchResponseDsml sr = new SearchResponseDsml( codec );
-        batchResponse.addResponse( sr );
+        // Starting the search response
+        writer.startSearchResponse();
 
         try
         {
@@ -282,7 +265,7 @@ public class ExportDsmlRunnable implements StudioConnectionRunnableWithProgress
                 while ( sre.hasMore() )
                 {
                     Entry entry = sre.next().getEntry();
-                    sr.addResponse( convertSearchResultToDsml( entry ) );
+                    writer.write( convertSearchResultToDsml( entry ) );
 
                     count++;
                     monitor.reportProgress( BrowserCoreMessages.bind( BrowserCoreMessages.jobs__export_progress,
@@ -325,7 +308,8 @@ public class ExportDsmlRunnable implements StudioConnectionRunnableWithProgress
                 ldapResult.setDiagnosticMessage( t.getMessage() );
             }
         }
-        sr.addResponse( new SearchResultDoneDsml( codec, srd ) );
+        writer.write( new SearchResultDoneDsml( codec, srd ) );
+        writer.end();
     }
 
 
@@ -411,17 +395,18 @@ public class ExportDsmlRunnable implements StudioConnectionRunnableWithProgress
      *
      * @param sre
      *      the search result enumeration
+     * @param writer
+     *      the DSML writer
      * @param monitor 
      *      the monitor
-     * @return
-     *      the associated DSML
      * @throws LdapException
+     * @throws IOException
      */
-    private String processAsDsmlRequest( StudioSearchResultEnumeration sre, StudioProgressMonitor monitor )
-        throws LdapException
+    private void processAsDsmlRequest( StudioSearchResultEnumeration sre, DsmlStreamWriter writer,
+        StudioProgressMonitor monitor ) throws LdapException, IOException
     {
-        // Creating the batch request
-        BatchRequestDsml batchRequest = new BatchRequestDsml();
+        // Starting the batch request
+        writer.startBatchRequest();
 
         try
         {
@@ -433,8 +418,7 @@ public class ExportDsmlRunnable implements StudioConnectionRunnableWithProgress
                 while ( sre.hasMore() )
                 {
                     Entry entry = sre.next().getEntry();
-                    AddRequestDsml arDsml = convertToAddRequestDsml( entry );
-                    batchRequest.addRequest( arDsml );
+                    writer.write( convertToAddRequestDsml( entry ) );
 
                     count++;
                     monitor.reportProgress( BrowserCoreMessages.bind( BrowserCoreMessages.jobs__export_progress,
@@ -455,9 +439,6 @@ public class ExportDsmlRunnable implements StudioConnectionRunnableWithProgress
                 monitor.reportError( e );
             }
         }
-
-        // Returning the associated DSML
-        return batchRequest.toDsml();
     }
 
 
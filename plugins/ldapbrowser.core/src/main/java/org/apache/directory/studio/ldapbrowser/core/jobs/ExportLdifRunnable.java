@@ -21,11 +21,15 @@
 package org.apache.directory.studio.ldapbrowser.core.jobs;
 
 
-import java.io.BufferedWriter;
-import java.io.FileWriter;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.commons.lang3.ArrayUtils;
@@ -43,22 +47,16 @@ import org.apache.directory.studio.connection.core.jobs.StudioConnectionRunnable
 import org.apache.directory.studio.ldapbrowser.core.BrowserCoreConstants;
 import org.apache.directory.studio.ldapbrowser.core.BrowserCoreMessages;
 import org.apache.directory.studio.ldapbrowser.core.BrowserCorePlugin;
+import org.apache.directory.studio.ldapbrowser.core.jobs.PartitionedExport.EntryEnumeration;
 import org.apache.directory.studio.ldapbrowser.core.model.IBrowserConnection;
-import org.apache.directory.studio.ldapbrowser.core.model.IValue;
 import org.apache.directory.studio.ldapbrowser.core.model.SearchParameter;
-import org.apache.directory.studio.ldapbrowser.core.model.impl.DummyEntry;
-import org.apache.directory.studio.ldapbrowser.core.utils.AttributeComparator;
 import org.apache.directory.studio.ldapbrowser.core.utils.JNDIUtils;
-import org.apache.directory.studio.ldapbrowser.core.utils.ModelConverter;
+import org.apache.directory.studio.ldapbrowser.core.utils.LdifEntryWriter;
 import org.apache.directory.studio.ldapbrowser.core.utils.Utils;
-import org.apache.directory.studio.ldifparser.LdifFormatParameters;
-import org.apache.directory.studio.ldifparser.model.LdifEnumeration;
 import org.apache.directory.studio.ldifparser.model.container.LdifContainer;
 import org.apache.directory.studio.ldifparser.model.container.LdifContentRecord;
 import org.apache.directory.studio.ldifparser.model.lines.LdifAttrValLine;
-import org.apache.directory.studio.ldifparser.model.lines.LdifDnLine;
 import org.apache.directory.studio.ldifparser.model.lines.LdifSepLine;
-import org.apache.directory.studio.ldifparser.model.lines.LdifVersionLine;
 
 
 /**
@@ -77,6 +75,15 @@ public class ExportLdifRunnable implements StudioConnectionRunnableWithProgress
     /** The search parameter. */
     private SearchParameter searchParameter;
 
+    /** The number of concurrent searches, 1 to export with a single search. */
+    private int parallelism;
+
+    /** True to write one file per partition instead of merging them into one file. */
+    private boolean shardFiles;
+
+    /** True to merge the partitions in their order, false to write the entries as they arrive. */
+    private boolean keepOrder;
+
 
     /**
      * Creates a new instance of ExportLdifRunnable.
@@ -87,10 +94,32 @@ public class ExportLdifRunnable implements StudioConnectionRunnableWithProgress
      */
     public ExportLdifRunnable( String exportLdifFilename, IBrowserConnection browserConnection,
         SearchParameter searchParameter )
+    {
+        this( exportLdifFilename, browserConnection, searchParameter, 1, false, true );
+    }
+
+
+    /**
+     * Creates a new instance of ExportLdifRunnable that splits a subtree search into one
+     * partition per child entry of the search base and exports the partitions concurrently.
+     * The search is not split if it has a count limit or if the search base has too many children.
+     * 
+     * @param exportLdifFilename the filename of the LDIF file
+     * @param browserConnection the browser connection
+     * @param searchParameter the search parameter
+     * @param parallelism the number of concurrent searches
+     * @param shardFiles true to write one file per partition, numbered before the file extension
+     * @param keepOrder true to write the merged partitions in a deterministic order
+     */
+    public ExportLdifRunnable( String exportLdifFilename, IBrowserConnection browserConnection,
+        SearchParameter searchParameter, int parallelism, boolean shardFiles, boolean keepOrder )
     {
         this.exportLdifFilename = exportLdifFilename;
         this.browserConnection = browserConnection;
         this.searchParameter = searchParameter;
+        this.parallelism = parallelism;
+        this.shardFiles = shardFiles;
+        this.keepOrder = keepOrder;
     }
 
 
@@ -144,18 +173,33 @@ public class ExportLdifRunnable implements StudioConnectionRunnableWithProgress
 
         try
         {
-            // open file
-            FileWriter fileWriter = new FileWriter( exportLdifFilename );
-            BufferedWriter bufferedWriter = new BufferedWriter( fileWriter );
-
-            // export
-            int count = 0;
-            export( browserConnection, searchParameter, bufferedWriter, count, monitor );
-
-            // close file
-            bufferedWriter.close();
-            fileWriter.close();
+            List<SearchParameter> partitions = parallelism > 1 ? PartitionedExport.getPartitions( browserConnection,
+                searchParameter, monitor ) : null;
 
+            if ( partitions == null )
+            {
+                if ( !monitor.isCanceled() && !monitor.errorsReported() )
+                {
+                    try ( OutputStream out = new BufferedOutputStream( new FileOutputStream( exportLdifFilename ) ) )
+                    {
+                        LdifEntryWriter writer = createWriter( out );
+                        export( browserConnection, searchParameter, writer, new AtomicInteger(), monitor );
+                        writer.flush();
+                    }
+                }
+            }
+            else if ( shardFiles )
+            {
+                exportShards( partitions, monitor );
+            }
+            else if ( keepOrder )
+            {
+                exportOrdered( partitions, monitor );
+            }
+            else
+            {
+                exportUnordered( partitions, monitor );
+            }
         }
         catch ( Exception e )
         {
@@ -164,56 +208,154 @@ public class ExportLdifRunnable implements StudioConnectionRunnableWithProgress
     }
 
 
-    private static void export( IBrowserConnection browserConnection, SearchParameter searchParameter,
-        BufferedWriter bufferedWriter, int count, StudioProgressMonitor monitor ) throws IOException
+    /**
+     * Writes each partition to its own file.
+     */
+    private void exportShards( final List<SearchParameter> partitions, StudioProgressMonitor monitor )
     {
-        try
-        {
-            LdifEnumeration enumeration = search( browserConnection, searchParameter, monitor );
-            LdifFormatParameters ldifFormatParameters = Utils.getLdifFormatParameters();
-
-            // add version spec
-            if ( BrowserCorePlugin.getDefault().getPluginPreferences()
-                .getBoolean( BrowserCoreConstants.PREFERENCE_LDIF_INCLUDE_VERSION_LINE ) )
+        PartitionedExport.run( partitions, parallelism, ( index, parameter, count, partitionMonitor ) -> {
+            String filename = getShardFilename( exportLdifFilename, index, partitions.size() );
+            try ( OutputStream out = new BufferedOutputStream( new FileOutputStream( filename ) ) )
             {
-                LdifVersionLine ldifVersionLine = LdifVersionLine.create();
-                String ldifVersionLineString = ldifVersionLine.toFormattedString( ldifFormatParameters );
-                bufferedWriter.write( ldifVersionLineString );
-                LdifSepLine ldifSepLine = LdifSepLine.create();
-                String ldifSepLineString = ldifSepLine.toFormattedString( ldifFormatParameters );
-                bufferedWriter.write( ldifSepLineString );
+                LdifEntryWriter writer = createWriter( out );
+                export( browserConnection, parameter, writer, count, partitionMonitor );
+                writer.flush();
             }
+        }, monitor );
+    }
 
-            // add the records
-            while ( !monitor.isCanceled() && !monitor.errorsReported() && enumeration.hasNext() )
-            {
-                LdifContainer container = enumeration.next();
 
-                if ( container instanceof LdifContentRecord )
+    /**
+     * Writes each partition to a temporary file and concatenates them in the order of the partitions.
+     */
+    private void exportOrdered( List<SearchParameter> partitions, StudioProgressMonitor monitor ) throws IOException
+    {
+        File file = new File( exportLdifFilename ).getAbsoluteFile();
+        final File[] partitionFiles = new File[partitions.size()];
+        try
+        {
+            PartitionedExport.run( partitions, parallelism, ( index, parameter, count, partitionMonitor ) -> {
+                partitionFiles[index] = File.createTempFile( file.getName() + "-", ".part", file.getParentFile() ); //$NON-NLS-1$ //$NON-NLS-2$
+                try ( OutputStream out = new BufferedOutputStream( new FileOutputStream( partitionFiles[index] ) ) )
                 {
-                    LdifContentRecord record = ( LdifContentRecord ) container;
-                    LdifDnLine dnLine = record.getDnLine();
-                    LdifSepLine sepLine = record.getSepLine();
-
-                    // sort and format
-                    DummyEntry entry = ModelConverter.ldifContentRecordToEntry( record, browserConnection );
-                    List<IValue> sortedValues = AttributeComparator.toSortedValues( entry );
-                    LdifContentRecord newRecord = new LdifContentRecord( dnLine );
-                    for ( IValue value : sortedValues )
+                    LdifEntryWriter writer = createWriter( out, false );
+                    export( browserConnection, parameter, writer, count, partitionMonitor );
+                    writer.flush();
+                }
+            }, monitor );
+
+            if ( !monitor.isCanceled() && !monitor.errorsReported() )
+            {
+                try ( OutputStream out = new BufferedOutputStream( new FileOutputStream( file ) ) )
+                {
+                    createWriter( out ).flush();
+                    for ( File partitionFile : partitionFiles )
                     {
-                        newRecord.addAttrVal( ModelConverter.valueToLdifAttrValLine( value ) );
+                        Files.copy( partitionFile.toPath(), out );
                     }
-                    newRecord.finish( sepLine );
-                    String s = newRecord.toFormattedString( ldifFormatParameters );
+                }
+            }
+        }
+        finally
+        {
+            for ( File partitionFile : partitionFiles )
+            {
+                if ( partitionFile != null )
+                {
+                    Files.deleteIfExists( partitionFile.toPath() );
+                }
+            }
+        }
+    }
+
+
+    /**
+     * Writes the entries of all partitions to one file, in the order they are received.
+     */
+    private void exportUnordered( List<SearchParameter> partitions, StudioProgressMonitor monitor )
+        throws IOException
+    {
+        try ( OutputStream out = new BufferedOutputStream( new FileOutputStream( exportLdifFilename ) ) )
+        {
+            final LdifEntryWriter writer = createWriter( out );
+            PartitionedExport.run( partitions, parallelism, ( index, parameter, count, partitionMonitor ) -> export(
+                browserConnection, parameter, writer, count, partitionMonitor ), monitor );
+            writer.flush();
+        }
+    }
+
+
+    /**
+     * Creates the writer, with the version line if enabled.
+     */
+    private LdifEntryWriter createWriter( OutputStream out ) throws IOException
+    {
+        return createWriter( out, BrowserCorePlugin.getDefault().getPluginPreferences()
+            .getBoolean( BrowserCoreConstants.PREFERENCE_LDIF_INCLUDE_VERSION_LINE ) );
+    }
+
+
+    private LdifEntryWriter createWriter( OutputStream out, boolean includeVersionLine ) throws IOException
+    {
+        LdifEntryWriter writer = new LdifEntryWriter( out, browserConnection.getSchema(),
+            Utils.getLdifFormatParameters(), BrowserCorePlugin.getDefault().getPluginPreferences()
+                .getBoolean( BrowserCoreConstants.PREFERENCE_LDIF_SORT_ATTRIBUTES ) );
+        if ( includeVersionLine )
+        {
+            writer.writeVersionLine();
+        }
+        return writer;
+    }
 
-                    // String s = record.toFormattedString();
-                    bufferedWriter.write( s );
 
-                    count++;
-                    monitor.reportProgress( BrowserCoreMessages.bind( BrowserCoreMessages.jobs__export_progress,
-                        new String[]
-                            { Integer.toString( count ) } ) );
+    /**
+     * Gets the filename of a shard file: the zero-padded partition number is inserted
+     * before the extension of the given filename.
+     *
+     * @param filename the filename
+     * @param index the index of the partition
+     * @param count the number of partitions
+     * @return the filename of the shard file
+     */
+    static String getShardFilename( String filename, int index, int count )
+    {
+        String number = String.format( "%0" + Integer.toString( count - 1 ).length() + "d", index ); //$NON-NLS-1$ //$NON-NLS-2$
+        int separator = Math.max( filename.lastIndexOf( '/' ), filename.lastIndexOf( File.separatorChar ) );
+        int dot = filename.lastIndexOf( '.' );
+        if ( dot > separator + 1 )
+        {
+            return filename.substring( 0, dot ) + "-" + number + filename.substring( dot ); //$NON-NLS-1$
+        }
+        else
+        {
+            return filename + "-" + number; //$NON-NLS-1$
+        }
+    }
+
+
+    /**
+     * Exports the entries of the given search. The writer is locked while an entry is
+     * written, so partitions may share it.
+     */
+    private static void export( IBrowserConnection browserConnection, SearchParameter searchParameter,
+        LdifEntryWriter writer, AtomicInteger count, StudioProgressMonitor monitor ) throws IOException
+    {
+        try
+        {
+            DefaultLdifEnumeration enumeration = search( browserConnection, searchParameter, monitor );
+
+            // add the records, the entries are written directly without intermediate LDIF records
+            while ( !monitor.isCanceled() && !monitor.errorsReported() && enumeration.hasNext() )
+            {
+                Entry entry = enumeration.nextEntry();
+                synchronized ( writer )
+                {
+                    writer.write( entry );
                 }
+
+                monitor.reportProgress( BrowserCoreMessages.bind( BrowserCoreMessages.jobs__export_progress,
+                    new String[]
+                        { Integer.toString( count.incrementAndGet() ) } ) );
             }
         }
         catch ( LdapException loe )
@@ -231,14 +373,14 @@ public class ExportLdifRunnable implements StudioConnectionRunnableWithProgress
     }
 
 
-    static LdifEnumeration search( IBrowserConnection browserConnection, SearchParameter parameter,
+    static DefaultLdifEnumeration search( IBrowserConnection browserConnection, SearchParameter parameter,
         StudioProgressMonitor monitor )
     {
         StudioSearchResultEnumeration result = SearchRunnable.search( browserConnection, parameter, monitor );
         return new DefaultLdifEnumeration( result, browserConnection, parameter, monitor );
     }
 
-    static class DefaultLdifEnumeration implements LdifEnumeration
+    static class DefaultLdifEnumeration implements EntryEnumeration
     {
 
         private StudioSearchResultEnumeration enumeration;
@@ -268,6 +410,10 @@ public class ExportLdifRunnable implements StudioConnectionRunnableWithProgress
                 {
                     return true;
                 }
+                if ( parameter == null )
+                {
+                    return false;
+                }
 
                 for ( Control responseControl : enumeration.getResponseControls() )
                 {
@@ -296,9 +442,51 @@ public class ExportLdifRunnable implements StudioConnectionRunnableWithProgress
         }
 
 
+        /**
+         * Gets the next entry of the search result.
+         *
+         * @return the next entry
+         * @throws LdapException if the entry could not be read
+         */
+        public Entry nextEntry() throws LdapException
+        {
+            return enumeration.next().getEntry();
+        }
+
+
         public LdifContainer next() throws LdapException
         {
-            Entry entry = enumeration.next().getEntry();
+            return toRecord( nextEntry() );
+        }
+
+
+        /**
+         * {@inheritDoc}
+         */
+        public void close()
+        {
+            try
+            {
+                if ( enumeration != null )
+                {
+                    enumeration.close();
+                }
+            }
+            catch ( LdapException e )
+            {
+                // the search is abandoned anyway
+            }
+        }
+
+
+        /**
+         * Converts an entry to an LDIF content record.
+         *
+         * @param entry the entry
+         * @return the LDIF content record
+         */
+        static LdifContentRecord toRecord( Entry entry )
+        {
             Dn dn = entry.getDn();
             LdifContentRecord record = LdifContentRecord.create( dn.getName() );
 
@@ -21,9 +21,13 @@
 package org.apache.directory.studio.ldapbrowser.core.jobs;
 
 
+import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 
 import org.apache.commons.codec.digest.DigestUtils;
@@ -37,6 +41,7 @@ import org.apache.directory.studio.ldapbrowser.core.BrowserCorePlugin;
 import org.apache.directory.studio.ldapbrowser.core.model.IBrowserConnection;
 import org.apache.directory.studio.ldapbrowser.core.model.SearchParameter;
 import org.apache.directory.studio.ldapbrowser.core.utils.JNDIUtils;
+import org.apache.directory.studio.ldapbrowser.core.utils.XlsxSheetWriter;
 import org.apache.directory.studio.ldifparser.model.LdifEnumeration;
 import org.apache.directory.studio.ldifparser.model.container.LdifContainer;
 import org.apache.directory.studio.ldifparser.model.container.LdifContentRecord;
@@ -49,15 +54,22 @@ import org.eclipse.core.runtime.Preferences;
 
 
 /**
- * Runnable to export directory content to an XLS file.
+ * Runnable to export directory content to an XLS or XLSX file.
+ * <p>
+ * Files with the .xlsx extension are written in the Office Open XML format, rows are
+ * streamed to disk and the export is limited only by the sheet size. All other files
+ * are written in the binary Excel 97 format, which is built in memory.
  *
  * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
  */
 public class ExportXlsRunnable implements StudioConnectionRunnableWithProgress
 {
-    /** The maximum count limit */
+    /** The maximum count limit of the binary .xls format */
     public static final int MAX_COUNT_LIMIT = 65000;
 
+    /** The maximum count limit of the .xlsx format, one row is used by the header */
+    public static final int MAX_COUNT_LIMIT_XLSX = XlsxSheetWriter.MAX_ROWS - 1;
+
     /** The filename of the XLS file. */
     private String exportXlsFilename;
 
@@ -140,30 +152,37 @@ public class ExportXlsRunnable implements StudioConnectionRunnableWithProgress
         String valueDelimiter = coreStore.getString( BrowserCoreConstants.PREFERENCE_FORMAT_XLS_VALUEDELIMITER );
         int binaryEncoding = coreStore.getInt( BrowserCoreConstants.PREFERENCE_FORMAT_XLS_BINARYENCODING );
 
-        HSSFWorkbook wb = new HSSFWorkbook();
-        HSSFSheet sheet = wb.createSheet( "Export" ); //$NON-NLS-1$
+        SheetWriter sheetWriter;
+        try
+        {
+            sheetWriter = isXlsx( exportXlsFilename ) ? new XlsxSheet( new File( exportXlsFilename ) )
+                : new HssfSheet( exportXlsFilename );
+        }
+        catch ( IOException e )
+        {
+            monitor.reportError( e );
+            return;
+        }
 
         // header
-        HSSFRow headerRow = sheet.createRow( 0 );
         LinkedHashMap<String, Integer> attributeNameMap = new LinkedHashMap<String, Integer>();
         if ( this.exportDn )
         {
-            int cellNum = 0;
-            attributeNameMap.put( "dn", cellNum ); //$NON-NLS-1$
-            createStringCell( headerRow, cellNum ).setCellValue( "dn" ); //$NON-NLS-1$
+            attributeNameMap.put( "dn", sheetWriter.addColumn( "dn" ) ); //$NON-NLS-1$ //$NON-NLS-2$
         }
 
         // max export
-        if ( searchParameter.getCountLimit() < 1 || searchParameter.getCountLimit() > MAX_COUNT_LIMIT )
+        int maxCountLimit = sheetWriter.getMaxCountLimit();
+        if ( searchParameter.getCountLimit() < 1 || searchParameter.getCountLimit() > maxCountLimit )
         {
-            searchParameter.setCountLimit( MAX_COUNT_LIMIT );
+            searchParameter.setCountLimit( maxCountLimit );
         }
 
         // export
         try
         {
             int count = 0;
-            exportToXls( browserConnection, searchParameter, sheet, headerRow, count, monitor, attributeNameMap,
+            exportToXls( browserConnection, searchParameter, sheetWriter, count, monitor, attributeNameMap,
                 valueDelimiter, binaryEncoding, this.exportDn );
         }
         catch ( Exception e )
@@ -171,30 +190,9 @@ public class ExportXlsRunnable implements StudioConnectionRunnableWithProgress
             monitor.reportError( e );
         }
 
-        // column width
-        for ( int i = 0; i <= sheet.getLastRowNum(); i++ )
-        {
-            HSSFRow row = sheet.getRow( i );
-            for ( short j = 0; row != null && j <= row.getLastCellNum(); j++ )
-            {
-                HSSFCell cell = row.getCell( j );
-                if ( cell != null && cell.getCellType() == HSSFCell.CELL_TYPE_STRING )
-                {
-                    String value = cell.getStringCellValue();
-
-                    if ( ( short ) ( value.length() * 256 * 1.1 ) > sheet.getColumnWidth( j ) )
-                    {
-                        sheet.setColumnWidth( j, ( short ) ( value.length() * 256 * 1.1 ) );
-                    }
-                }
-            }
-        }
-
         try
         {
-            FileOutputStream fileOut = new FileOutputStream( exportXlsFilename );
-            wb.write( fileOut );
-            fileOut.close();
+            sheetWriter.close();
         }
         catch ( Exception e )
         {
@@ -203,13 +201,24 @@ public class ExportXlsRunnable implements StudioConnectionRunnableWithProgress
     }
 
 
+    /**
+     * Checks if the given file should be written in the Office Open XML format.
+     *
+     * @param filename the filename
+     * @return true if the filename has the .xlsx extension
+     */
+    static boolean isXlsx( String filename )
+    {
+        return filename.toLowerCase( Locale.ENGLISH ).endsWith( ".xlsx" ); //$NON-NLS-1$
+    }
+
+
     /**
      * Exports to XLS.
      * 
      * @param browserConnection the browser connection
      * @param searchParameter the search parameter
-     * @param sheet the sheet
-     * @param headerRow the header row
+     * @param sheetWriter the sheet writer
      * @param count the count
      * @param monitor the monitor
      * @param attributeNameMap the attribute name map
@@ -220,7 +229,7 @@ public class ExportXlsRunnable implements StudioConnectionRunnableWithProgress
      * @throws IOException Signals that an I/O exception has occurred.
      */
     private static void exportToXls( IBrowserConnection browserConnection, SearchParameter searchParameter,
-        HSSFSheet sheet, HSSFRow headerRow, int count, StudioProgressMonitor monitor,
+        SheetWriter sheetWriter, int count, StudioProgressMonitor monitor,
         LinkedHashMap<String, Integer> attributeNameMap, String valueDelimiter, int binaryEncoding, boolean exportDn )
         throws IOException
     {
@@ -234,8 +243,7 @@ public class ExportXlsRunnable implements StudioConnectionRunnableWithProgress
                 if ( container instanceof LdifContentRecord )
                 {
                     LdifContentRecord record = ( LdifContentRecord ) container;
-                    recordToHSSFRow( browserConnection, record, sheet, headerRow, attributeNameMap, valueDelimiter,
-                        binaryEncoding, exportDn );
+                    recordToRow( record, sheetWriter, attributeNameMap, valueDelimiter, binaryEncoding, exportDn );
 
                     count++;
                     monitor.reportProgress( BrowserCoreMessages.bind( BrowserCoreMessages.jobs__export_progress,
@@ -261,60 +269,181 @@ public class ExportXlsRunnable implements StudioConnectionRunnableWithProgress
 
 
     /**
-     * Transforms an LDIF record to an HSSF row.
+     * Transforms an LDIF record to a row.
      * 
-     * @param browserConnection the browser connection
      * @param record the record
-     * @param sheet the sheet
-     * @param headerRow the header row
+     * @param sheetWriter the sheet writer
      * @param headerRowAttributeNameMap the header row attribute name map
      * @param valueDelimiter the value delimiter
      * @param binaryEncoding the binary encoding
      * @param exportDn the export dn
+     * 
+     * @throws IOException Signals that an I/O exception has occurred.
      */
-    private static void recordToHSSFRow( IBrowserConnection browserConnection, LdifContentRecord record,
-        HSSFSheet sheet, HSSFRow headerRow, Map<String, Integer> headerRowAttributeNameMap, String valueDelimiter,
-        int binaryEncoding, boolean exportDn )
+    private static void recordToRow( LdifContentRecord record, SheetWriter sheetWriter,
+        Map<String, Integer> headerRowAttributeNameMap, String valueDelimiter, int binaryEncoding, boolean exportDn )
+        throws IOException
     {
         // group multi-valued attributes
         Map<String, String> attributeMap = ExportCsvRunnable.getAttributeMap( null, record, valueDelimiter, "UTF-16", //$NON-NLS-1$
             binaryEncoding );
 
+        // new header columns
+        for ( String attributeName : attributeMap.keySet() )
+        {
+            if ( !headerRowAttributeNameMap.containsKey( attributeName ) )
+            {
+                headerRowAttributeNameMap.put( attributeName, sheetWriter.addColumn( attributeName ) );
+            }
+        }
+
         // output attributes
-        HSSFRow row = sheet.createRow( sheet.getLastRowNum() + 1 );
+        String[] cells = new String[headerRowAttributeNameMap.size()];
         if ( exportDn )
         {
-            HSSFCell cell = createStringCell(row, 0 );
-            cell.setCellValue( record.getDnLine().getValueAsString() );
+            cells[0] = record.getDnLine().getValueAsString();
         }
-        for ( String attributeName : attributeMap.keySet() )
+        for ( Map.Entry<String, String> attribute : attributeMap.entrySet() )
         {
-            String value = attributeMap.get( attributeName );
+            cells[headerRowAttributeNameMap.get( attribute.getKey() )] = attribute.getValue();
+        }
+        sheetWriter.addRow( cells );
+    }
 
-            if ( !headerRowAttributeNameMap.containsKey( attributeName ) )
+
+    /**
+     * Target of the exported rows. Header columns may be added at any time,
+     * the writer places them in the header row.
+     */
+    private interface SheetWriter
+    {
+        int getMaxCountLimit();
+
+
+        int addColumn( String name );
+
+
+        void addRow( String[] cells ) throws IOException;
+
+
+        void close() throws IOException;
+    }
+
+
+    /**
+     * Writes an Office Open XML (.xlsx) file, rows are streamed to disk.
+     */
+    private static class XlsxSheet implements SheetWriter
+    {
+        private final XlsxSheetWriter writer;
+
+
+        private XlsxSheet( File file ) throws IOException
+        {
+            writer = new XlsxSheetWriter( file, "Export" ); //$NON-NLS-1$
+        }
+
+
+        public int getMaxCountLimit()
+        {
+            return MAX_COUNT_LIMIT_XLSX;
+        }
+
+
+        public int addColumn( String name )
+        {
+            return writer.addColumn( name );
+        }
+
+
+        public void addRow( String[] cells ) throws IOException
+        {
+            writer.addRow( cells );
+        }
+
+
+        public void close() throws IOException
+        {
+            writer.close();
+        }
+    }
+
+
+    /**
+     * Writes a binary Excel 97 (.xls) file, the workbook is kept in memory.
+     */
+    private static class HssfSheet implements SheetWriter
+    {
+        private final String filename;
+        private final HSSFWorkbook wb = new HSSFWorkbook();
+        private final HSSFSheet sheet = wb.createSheet( "Export" ); //$NON-NLS-1$
+        private final HSSFRow headerRow = sheet.createRow( 0 );
+        private final List<Integer> columnWidths = new ArrayList<Integer>();
+
+
+        private HssfSheet( String filename )
+        {
+            this.filename = filename;
+        }
+
+
+        public int getMaxCountLimit()
+        {
+            return MAX_COUNT_LIMIT;
+        }
+
+
+        public int addColumn( String name )
+        {
+            int cellNum = columnWidths.size();
+            columnWidths.add( 0 );
+            setCell( headerRow, cellNum, name );
+            return cellNum;
+        }
+
+
+        public void addRow( String[] cells )
+        {
+            HSSFRow row = sheet.createRow( sheet.getLastRowNum() + 1 );
+            for ( int i = 0; i < cells.length; i++ )
             {
-                int cellNum = headerRowAttributeNameMap.size();
-                headerRowAttributeNameMap.put( attributeName, new Integer( cellNum ) );
-                HSSFCell cell = createStringCell( headerRow, cellNum );
-                cell.setCellValue( attributeName );
+                if ( cells[i] != null )
+                {
+                    setCell( row, i, cells[i] );
+                }
             }
+        }
 
-            if ( headerRowAttributeNameMap.containsKey( attributeName ) )
+
+        public void close() throws IOException
+        {
+            // column width, tracked while writing
+            for ( int i = 0; i < columnWidths.size(); i++ )
             {
-                int cellNum = headerRowAttributeNameMap.get( attributeName ).shortValue();
-                HSSFCell cell = createStringCell( row, cellNum );
-                cell.setCellValue( value );
+                if ( columnWidths.get( i ) > 0 )
+                {
+                    sheet.setColumnWidth( i, columnWidths.get( i ) );
+                }
             }
+
+            FileOutputStream fileOut = new FileOutputStream( filename );
+            wb.write( fileOut );
+            fileOut.close();
         }
 
-    }
 
+        private void setCell( HSSFRow row, int cellNum, String value )
+        {
+            HSSFCell cell = row.createCell( cellNum );
+            cell.setCellType( Cell.CELL_TYPE_STRING );
+            cell.setCellValue( value );
 
-    private static HSSFCell createStringCell( HSSFRow row, int cellNum )
-    {
-        HSSFCell cell = row.createCell( cellNum );
-        cell.setCellType( Cell.CELL_TYPE_STRING );
-        return cell;
+            short width = ( short ) ( value.length() * 256 * 1.1 );
+            if ( width > columnWidths.get( cellNum ) )
+            {
+                columnWidths.set( cellNum, ( int ) width );
+            }
+        }
     }
 
 }
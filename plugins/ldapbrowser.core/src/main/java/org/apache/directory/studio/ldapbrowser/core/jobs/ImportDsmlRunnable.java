@@ -20,11 +20,12 @@
 package org.apache.directory.studio.ldapbrowser.core.jobs;
 
 
-import java.io.BufferedWriter;
+import java.io.BufferedInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
-import java.io.OutputStreamWriter;
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
@@ -34,10 +35,7 @@ import javax.naming.directory.SearchControls;
 import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.directory.api.dsmlv2.DsmlDecorator;
 import org.apache.directory.api.dsmlv2.Dsmlv2Parser;
-import org.apache.directory.api.dsmlv2.request.BatchRequestDsml;
-import org.apache.directory.api.dsmlv2.request.Dsmlv2Grammar;
 import org.apache.directory.api.dsmlv2.response.AddResponseDsml;
-import org.apache.directory.api.dsmlv2.response.BatchResponseDsml;
 import org.apache.directory.api.dsmlv2.response.BindResponseDsml;
 import org.apache.directory.api.dsmlv2.response.CompareResponseDsml;
 import org.apache.directory.api.dsmlv2.response.DelResponseDsml;
@@ -187,22 +185,19 @@ public class ImportDsmlRunnable implements StudioConnectionBulkRunnableWithProgr
         monitor.reportProgress( " " ); //$NON-NLS-1$
         monitor.worked( 1 );
 
-        try
+        try ( InputStream in = new BufferedInputStream( new FileInputStream( dsmlFile ) );
+            DsmlStreamWriter responseWriter = responseFile != null ? new DsmlStreamWriter( new FileOutputStream(
+                responseFile ) ) : null )
         {
-            // Parsing the file
-            Dsmlv2Grammar grammar = new Dsmlv2Grammar();
-            Dsmlv2Parser parser = new Dsmlv2Parser( grammar );
-            parser.setInput( new FileInputStream( dsmlFile ), "UTF-8" ); //$NON-NLS-1$
-            parser.parseAllRequests();
-
-            // Getting the batch request
-            BatchRequestDsml batchRequest = parser.getBatchRequest();
-
-            // Creating a DSML batch response (only if needed)
-            BatchResponseDsml batchResponseDsml = null;
-            if ( responseFile != null )
+            // Parsing the file request by request, the requests are not stored
+            // in the batch request
+            Dsmlv2Parser parser = new Dsmlv2Parser( false );
+            parser.setInput( in, "UTF-8" ); //$NON-NLS-1$
+
+            // Starting the DSML batch response (only if needed)
+            if ( responseWriter != null )
             {
-                batchResponseDsml = new BatchResponseDsml();
+                responseWriter.startBatchResponse();
             }
 
             // Setting the errors counter
@@ -213,11 +208,11 @@ public class ImportDsmlRunnable implements StudioConnectionBulkRunnableWithProgr
             StudioProgressMonitor dummyMonitor = new StudioProgressMonitor( monitor );
 
             // Processing each request
-            List<DsmlDecorator<? extends Request>> requests = batchRequest.getRequests();
-            for ( DsmlDecorator<? extends Request> request : requests )
+            DsmlDecorator<? extends Request> request;
+            while ( !monitor.isCanceled() && ( request = parser.getNextRequest() ) != null )
             {
                 // Processing the request
-                processRequest( request, batchResponseDsml, dummyMonitor );
+                processRequest( request, responseWriter, dummyMonitor );
 
                 // Verifying if any error has been reported
                 if ( dummyMonitor.errorsReported() )
@@ -228,18 +223,6 @@ public class ImportDsmlRunnable implements StudioConnectionBulkRunnableWithProgr
                 dummyMonitor.reset();
             }
 
-            // Writing the DSML response file to its final destination file.
-            if ( responseFile != null )
-            {
-                FileOutputStream fos = new FileOutputStream( responseFile );
-                OutputStreamWriter osw = new OutputStreamWriter( fos, "UTF-8" ); //$NON-NLS-1$
-                BufferedWriter bufferedWriter = new BufferedWriter( osw );
-                bufferedWriter.write( batchResponseDsml.toDsml() );
-                bufferedWriter.close();
-                osw.close();
-                fos.close();
-            }
-
             // Displaying an error message if we've had some errors
             if ( errorsCount > 0 )
             {
@@ -269,40 +252,41 @@ public class ImportDsmlRunnable implements StudioConnectionBulkRunnableWithProgr
      *
      * @param request
      *      the request
-     * @param batchResponseDsml
-     *      the DSML batch response (can be <code>null</code>)
+     * @param responseWriter
+     *      the DSML batch response writer (can be <code>null</code>)
      * @throws org.apache.directory.api.ldap.model.exception.LdapURLEncodingException
      * @throws LdapException
+     * @throws IOException
      */
-    private void processRequest( DsmlDecorator<? extends Request> request, BatchResponseDsml batchResponseDsml,
+    private void processRequest( DsmlDecorator<? extends Request> request, DsmlStreamWriter responseWriter,
         StudioProgressMonitor monitor )
-        throws LdapURLEncodingException, LdapException
+        throws LdapURLEncodingException, LdapException, IOException
     {
         switch ( request.getDecorated().getType() )
         {
             case BIND_REQUEST:
-                processBindRequest( ( BindRequest ) request, batchResponseDsml, monitor );
+                processBindRequest( ( BindRequest ) request, responseWriter, monitor );
                 break;
             case ADD_REQUEST:
-                processAddRequest( ( AddRequest ) request, batchResponseDsml, monitor );
+                processAddRequest( ( AddRequest ) request, responseWriter, monitor );
                 break;
             case COMPARE_REQUEST:
-                processCompareRequest( ( CompareRequest ) request, batchResponseDsml, monitor );
+                processCompareRequest( ( CompareRequest ) request, responseWriter, monitor );
                 break;
             case DEL_REQUEST:
-                processDelRequest( ( DeleteRequest ) request, batchResponseDsml, monitor );
+                processDelRequest( ( DeleteRequest ) request, responseWriter, monitor );
                 break;
             case EXTENDED_REQUEST:
-                processExtendedRequest( ( ExtendedRequest ) request, batchResponseDsml, monitor );
+                processExtendedRequest( ( ExtendedRequest ) request, responseWriter, monitor );
                 break;
             case MODIFY_REQUEST:
-                processModifyRequest( ( ModifyRequest ) request, batchResponseDsml, monitor );
+                processModifyRequest( ( ModifyRequest ) request, responseWriter, monitor );
                 break;
             case MODIFYDN_REQUEST:
-                processModifyDNRequest( ( ModifyDnRequest ) request, batchResponseDsml, monitor );
+                processModifyDNRequest( ( ModifyDnRequest ) request, responseWriter, monitor );
                 break;
             case SEARCH_REQUEST:
-                processSearchRequest( ( SearchRequest ) request, batchResponseDsml, monitor );
+                processSearchRequest( ( SearchRequest ) request, responseWriter, monitor );
                 break;
             default:
                 throw new IllegalArgumentException(
@@ -317,23 +301,23 @@ public class ImportDsmlRunnable implements StudioConnectionBulkRunnableWithProgr
      * 
      * @param request
      *      the request
-     * @param batchResponseDsml
-     *      the DSML batch response (can be <code>null</code>)
+     * @param responseWriter
+     *      the DSML batch response writer (can be <code>null</code>)
      */
-    private void processBindRequest( BindRequest request, BatchResponseDsml batchResponseDsml,
-        StudioProgressMonitor monitor )
+    private void processBindRequest( BindRequest request, DsmlStreamWriter responseWriter,
+        StudioProgressMonitor monitor ) throws IOException
     {
         // We can not support extended requests at the moment,
         // we need a more advanced connection wrapper.
 
         // Creating the response
-        if ( batchResponseDsml != null )
+        if ( responseWriter != null )
         {
             BindResponseDsml authResponseDsml = new BindResponseDsml( codec );
             LdapResult ldapResult = authResponseDsml.getLdapResult();
             ldapResult.setResultCode( ResultCodeEnum.UNWILLING_TO_PERFORM );
             ldapResult.setDiagnosticMessage( BrowserCoreMessages.dsml__kind_request_not_supported );
-            batchResponseDsml.addResponse( authResponseDsml );
+            responseWriter.write( authResponseDsml );
         }
     }
 
@@ -343,11 +327,11 @@ public class ImportDsmlRunnable implements StudioConnectionBulkRunnableWithProgr
      * 
      * @param request
      *      the request
-     * @param batchResponseDsml
-     *      the DSML batch response (can be <code>null</code>)
+     * @param responseWriter
+     *      the DSML batch response writer (can be <code>null</code>)
      */
-    private void processAddRequest( AddRequest request, BatchResponseDsml batchResponseDsml,
-        StudioProgressMonitor monitor )
+    private void processAddRequest( AddRequest request, DsmlStreamWriter responseWriter,
+        StudioProgressMonitor monitor ) throws IOException
     {
         // Executing the add request
         Entry entry = request.getEntry();
@@ -357,13 +341,13 @@ public class ImportDsmlRunnable implements StudioConnectionBulkRunnableWithProgr
             .createEntry( entry, getControls( request ), monitor, null );
 
         // Creating the response
-        if ( batchResponseDsml != null )
+        if ( responseWriter != null )
         {
             AddResponseDsml addResponseDsml = new AddResponseDsml( codec );
             LdapResult ldapResult = addResponseDsml.getLdapResult();
             setLdapResultValuesFromMonitor( ldapResult, monitor, MessageTypeEnum.ADD_REQUEST );
             ldapResult.setMatchedDn( entry.getDn() );
-            batchResponseDsml.addResponse( addResponseDsml );
+            responseWriter.write( addResponseDsml );
         }
 
         // Update cached entries
@@ -387,23 +371,23 @@ public class ImportDsmlRunnable implements StudioConnectionBulkRunnableWithProgr
      *
      * @param request
      *      the request
-     * @param batchResponseDsml
-     *      the DSML batch response (can be <code>null</code>)
+     * @param responseWriter
+     *      the DSML batch response writer (can be <code>null</code>)
      */
-    private void processCompareRequest( CompareRequest request, BatchResponseDsml batchResponseDsml,
-        StudioProgressMonitor monitor )
+    private void processCompareRequest( CompareRequest request, DsmlStreamWriter responseWriter,
+        StudioProgressMonitor monitor ) throws IOException
     {
         // We can not support extended requests at the moment,
         // we need a more advanced connection wrapper.
 
         // Creating the response
-        if ( batchResponseDsml != null )
+        if ( responseWriter != null )
         {
             CompareResponseDsml compareResponseDsml = new CompareResponseDsml( codec );
             LdapResult ldapResult = compareResponseDsml.getLdapResult();
             ldapResult.setResultCode( ResultCodeEnum.UNWILLING_TO_PERFORM );
             ldapResult.setDiagnosticMessage( BrowserCoreMessages.dsml__kind_request_not_supported );
-            batchResponseDsml.addResponse( compareResponseDsml );
+            responseWriter.write( compareResponseDsml );
         }
     }
 
@@ -413,24 +397,24 @@ public class ImportDsmlRunnable implements StudioConnectionBulkRunnableWithProgr
      *
      * @param request
      *      the request
-     * @param batchResponseDsml
-     *      the DSML batch response (can be <code>null</code>)
+     * @param responseWriter
+     *      the DSML batch response writer (can be <code>null</code>)
      */
-    private void processDelRequest( DeleteRequest request, BatchResponseDsml batchResponseDsml,
-        StudioProgressMonitor monitor )
+    private void processDelRequest( DeleteRequest request, DsmlStreamWriter responseWriter,
+        StudioProgressMonitor monitor ) throws IOException
     {
         // Executing the del request
         browserConnection.getConnection().getConnectionWrapper()
             .deleteEntry( request.getName(), getControls( request ), monitor, null );
 
         // Creating the response
-        if ( batchResponseDsml != null )
+        if ( responseWriter != null )
         {
             DelResponseDsml delResponseDsml = new DelResponseDsml( codec );
             LdapResult ldapResult = delResponseDsml.getLdapResult();
             setLdapResultValuesFromMonitor( ldapResult, monitor, MessageTypeEnum.ADD_REQUEST );
             delResponseDsml.getLdapResult().setMatchedDn( request.getName() );
-            batchResponseDsml.addResponse( delResponseDsml );
+            responseWriter.write( delResponseDsml );
         }
 
         // Update cached entries
@@ -455,23 +439,23 @@ public class ImportDsmlRunnable implements StudioConnectionBulkRunnableWithProgr
      *
      * @param request
      *      the request
-     * @param batchResponseDsml
-     *      the DSML batch response (can be <code>null</code>)
+     * @param responseWriter
+     *      the DSML batch response writer (can be <code>null</code>)
      */
-    private void processExtendedRequest( ExtendedRequest request, BatchResponseDsml batchResponseDsml,
-        StudioProgressMonitor monitor )
+    private void processExtendedRequest( ExtendedRequest request, DsmlStreamWriter responseWriter,
+        StudioProgressMonitor monitor ) throws IOException
     {
         // We can not support extended requests at the moment,
         // we need a more advanced connection wrapper.
 
         // Creating the response
-        if ( batchResponseDsml != null )
+        if ( responseWriter != null )
         {
             ExtendedResponseDsml extendedResponseDsml = new ExtendedResponseDsml( codec );
             LdapResult ldapResult = extendedResponseDsml.getLdapResult();
             ldapResult.setResultCode( ResultCodeEnum.UNWILLING_TO_PERFORM );
             ldapResult.setDiagnosticMessage( BrowserCoreMessages.dsml__kind_request_not_supported );
-            batchResponseDsml.addResponse( extendedResponseDsml );
+            responseWriter.write( extendedResponseDsml );
         }
     }
 
@@ -481,11 +465,11 @@ public class ImportDsmlRunnable implements StudioConnectionBulkRunnableWithProgr
      *
      * @param request
      *      the request
-     * @param batchResponseDsml
-     *      the DSML batch response (can be <code>null</code>)
+     * @param responseWriter
+     *      the DSML batch response writer (can be <code>null</code>)
      */
-    private void processModifyRequest( ModifyRequest request, BatchResponseDsml batchResponseDsml,
-        StudioProgressMonitor monitor )
+    private void processModifyRequest( ModifyRequest request, DsmlStreamWriter responseWriter,
+        StudioProgressMonitor monitor ) throws IOException
     {
         // Executing the modify request
         browserConnection
@@ -494,13 +478,13 @@ public class ImportDsmlRunnable implements StudioConnectionBulkRunnableWithProgr
             .modifyEntry( request.getName(), request.getModifications(), getControls( request ), monitor, null );
 
         // Creating the response
-        if ( batchResponseDsml != null )
+        if ( responseWriter != null )
         {
             ModifyResponseDsml modifyResponseDsml = new ModifyResponseDsml( codec );
             LdapResult ldapResult = modifyResponseDsml.getLdapResult();
             setLdapResultValuesFromMonitor( ldapResult, monitor, MessageTypeEnum.ADD_REQUEST );
             modifyResponseDsml.getLdapResult().setMatchedDn( request.getName() );
-            batchResponseDsml.addResponse( modifyResponseDsml );
+            responseWriter.write( modifyResponseDsml );
         }
 
         Dn dn = request.getName();
@@ -517,11 +501,11 @@ public class ImportDsmlRunnable implements StudioConnectionBulkRunnableWithProgr
      * 
      * @param request
      *      the request
-     * @param batchResponseDsml
-     *      the DSML batch response (can be <code>null</code>)
+     * @param responseWriter
+     *      the DSML batch response writer (can be <code>null</code>)
      */
-    private void processModifyDNRequest( ModifyDnRequest request, BatchResponseDsml batchResponseDsml,
-        StudioProgressMonitor monitor )
+    private void processModifyDNRequest( ModifyDnRequest request, DsmlStreamWriter responseWriter,
+        StudioProgressMonitor monitor ) throws IOException
     {
         Dn newDn;
         try
@@ -548,13 +532,13 @@ public class ImportDsmlRunnable implements StudioConnectionBulkRunnableWithProgr
                 getControls( request ), monitor, null );
 
         // Creating the response
-        if ( batchResponseDsml != null )
+        if ( responseWriter != null )
         {
             ModDNResponseDsml modDNResponseDsml = new ModDNResponseDsml( codec );
             LdapResult ldapResult = modDNResponseDsml.getLdapResult();
             setLdapResultValuesFromMonitor( ldapResult, monitor, MessageTypeEnum.ADD_REQUEST );
             modDNResponseDsml.getLdapResult().setMatchedDn( request.getName() );
-            batchResponseDsml.addResponse( modDNResponseDsml );
+            responseWriter.write( modDNResponseDsml );
         }
 
         // Update cached entries
@@ -588,16 +572,17 @@ public class ImportDsmlRunnable implements StudioConnectionBulkRunnableWithProgr
      * 
      * @param request
      *      the request
-     * @param batchResponseDsml
-     *      the DSML batch response (can be <code>null</code>)
+     * @param responseWriter
+     *      the DSML batch response writer (can be <code>null</code>)
      * @throws org.apache.directory.api.ldap.model.exception.LdapURLEncodingException
      * @throws org.apache.directory.api.ldap.model.exception.LdapException
+     * @throws IOException
      */
-    private void processSearchRequest( SearchRequest request, BatchResponseDsml batchResponseDsml,
-        StudioProgressMonitor monitor ) throws LdapURLEncodingException, LdapException
+    private void processSearchRequest( SearchRequest request, DsmlStreamWriter responseWriter,
+        StudioProgressMonitor monitor ) throws LdapURLEncodingException, LdapException, IOException
     {
         // Creating the response
-        if ( batchResponseDsml != null )
+        if ( responseWriter != null )
         {
             // [Optimization] We're only searching if we need to produce a response
             StudioSearchResultEnumeration sre = browserConnection
@@ -609,7 +594,7 @@ public class ImportDsmlRunnable implements StudioConnectionBulkRunnableWithProgr
 
             SearchParameter sp = new SearchParameter();
             sp.setReferralsHandlingMethod( browserConnection.getReferralsHandlingMethod() );
-            ExportDsmlRunnable.processAsDsmlResponse( sre, batchResponseDsml, monitor, sp );
+            ExportDsmlRunnable.processAsDsmlResponse( sre, responseWriter, monitor, sp );
         }
     }
 
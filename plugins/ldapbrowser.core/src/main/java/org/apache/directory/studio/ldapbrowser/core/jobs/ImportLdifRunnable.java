@@ -31,13 +31,16 @@ import java.io.Reader;
 import java.io.Writer;
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Date;
+import java.util.Deque;
 import java.util.List;
 
 import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.directory.api.ldap.model.entry.DefaultAttribute;
+import org.apache.directory.api.ldap.model.entry.DefaultEntry;
 import org.apache.directory.api.ldap.model.entry.DefaultModification;
 import org.apache.directory.api.ldap.model.entry.Entry;
 import org.apache.directory.api.ldap.model.entry.Modification;
@@ -47,11 +50,15 @@ import org.apache.directory.api.ldap.model.exception.LdapInvalidDnException;
 import org.apache.directory.api.ldap.model.exception.LdapSchemaException;
 import org.apache.directory.api.ldap.model.message.Control;
 import org.apache.directory.api.ldap.model.name.Dn;
+import org.apache.directory.api.util.Strings;
 import org.apache.directory.studio.common.core.jobs.StudioProgressMonitor;
 import org.apache.directory.studio.connection.core.Connection;
 import org.apache.directory.studio.connection.core.ConnectionCoreConstants;
 import org.apache.directory.studio.connection.core.Controls;
+import org.apache.directory.studio.connection.core.io.ConnectionWrapper;
+import org.apache.directory.studio.connection.core.io.OperationWindow;
 import org.apache.directory.studio.connection.core.io.StudioLdapException;
+import org.apache.directory.studio.connection.core.io.StudioLdapFuture;
 import org.apache.directory.studio.connection.core.jobs.StudioConnectionBulkRunnableWithProgress;
 import org.apache.directory.studio.ldapbrowser.core.BrowserCoreMessages;
 import org.apache.directory.studio.ldapbrowser.core.events.BulkModificationEvent;
@@ -61,20 +68,11 @@ import org.apache.directory.studio.ldapbrowser.core.model.IEntry;
 import org.apache.directory.studio.ldapbrowser.core.utils.ModelConverter;
 import org.apache.directory.studio.ldapbrowser.core.utils.Utils;
 import org.apache.directory.studio.ldifparser.LdifFormatParameters;
-import org.apache.directory.studio.ldifparser.model.LdifEnumeration;
-import org.apache.directory.studio.ldifparser.model.container.LdifChangeAddRecord;
-import org.apache.directory.studio.ldifparser.model.container.LdifChangeDeleteRecord;
-import org.apache.directory.studio.ldifparser.model.container.LdifChangeModDnRecord;
-import org.apache.directory.studio.ldifparser.model.container.LdifChangeModifyRecord;
-import org.apache.directory.studio.ldifparser.model.container.LdifChangeRecord;
-import org.apache.directory.studio.ldifparser.model.container.LdifContainer;
-import org.apache.directory.studio.ldifparser.model.container.LdifContentRecord;
-import org.apache.directory.studio.ldifparser.model.container.LdifModSpec;
-import org.apache.directory.studio.ldifparser.model.container.LdifRecord;
-import org.apache.directory.studio.ldifparser.model.lines.LdifAttrValLine;
+import org.apache.directory.studio.ldifparser.model.LdifRecordView;
+import org.apache.directory.studio.ldifparser.model.LdifRecordView.ChangeType;
+import org.apache.directory.studio.ldifparser.model.LdifRecordView.ModSpec;
+import org.apache.directory.studio.ldifparser.model.LdifRecordViewEnumeration;
 import org.apache.directory.studio.ldifparser.model.lines.LdifCommentLine;
-import org.apache.directory.studio.ldifparser.model.lines.LdifControlLine;
-import org.apache.directory.studio.ldifparser.model.lines.LdifModSpecTypeLine;
 import org.apache.directory.studio.ldifparser.parser.LdifParser;
 
 
@@ -85,6 +83,9 @@ import org.apache.directory.studio.ldifparser.parser.LdifParser;
  */
 public class ImportLdifRunnable implements StudioConnectionBulkRunnableWithProgress
 {
+    /** The memory used by the records parsed ahead of the import, in bytes. */
+    private static final long READ_AHEAD_MEMORY_BUDGET = 4L * 1024 * 1024;
+
     /** The browser connection. */
     private IBrowserConnection browserConnection;
 
@@ -188,7 +189,7 @@ public class ImportLdifRunnable implements StudioConnectionBulkRunnableWithProgr
         {
             Reader ldifReader = new BufferedReader( new FileReader( this.ldifFile ) );
             LdifParser parser = new LdifParser();
-            LdifEnumeration enumeration = parser.parse( ldifReader );
+            LdifRecordViewEnumeration enumeration = parser.parseRecordViews( ldifReader, READ_AHEAD_MEMORY_BUDGET );
 
             Writer logWriter;
             if ( this.logFile != null )
@@ -215,7 +216,15 @@ public class ImportLdifRunnable implements StudioConnectionBulkRunnableWithProgr
                 };
             }
 
-            importLdif( browserConnection, enumeration, logWriter, updateIfEntryExists, continueOnError, monitor );
+            try
+            {
+                importLdif( browserConnection, enumeration, logWriter, updateIfEntryExists, continueOnError,
+                    monitor );
+            }
+            finally
+            {
+                enumeration.close();
+            }
 
             logWriter.close();
             ldifReader.close();
@@ -237,150 +246,52 @@ public class ImportLdifRunnable implements StudioConnectionBulkRunnableWithProgr
 
 
     /**
-     * Imports the LDIF enumeration
+     * Imports the LDIF records.
+     * <p>
+     * The records are sent without waiting for the responses of the previous ones, up to the
+     * configured number of outstanding requests. The next records are parsed while the server
+     * processes the outstanding ones. Records whose entries are in the same subtree as the entry
+     * of an outstanding record wait for it, so parent entries are added before their children and
+     * child entries are deleted before their parents, as ordered in the LDIF. Schema and
+     * configuration changes wait for all outstanding records and block the following ones.
+     * <p>
+     * Results are logged in the order of the records.
      * 
      * @param browserConnection the browser connection
-     * @param enumeration the LDIF enumeration
+     * @param enumeration the LDIF record enumeration
      * @param logWriter the log writer
      * @param updateIfEntryExists the update if entry exists flag
      * @param continueOnError the continue on error flag
      * @param monitor the progress monitor
      */
-    static void importLdif( IBrowserConnection browserConnection, LdifEnumeration enumeration, Writer logWriter,
-        boolean updateIfEntryExists, boolean continueOnError, StudioProgressMonitor monitor )
+    static void importLdif( IBrowserConnection browserConnection, LdifRecordViewEnumeration enumeration,
+        Writer logWriter, boolean updateIfEntryExists, boolean continueOnError, StudioProgressMonitor monitor )
     {
         if ( browserConnection == null )
         {
             return;
         }
 
-        StudioProgressMonitor dummyMonitor = new StudioProgressMonitor( monitor );
-        int importedCount = 0;
-        int errorCount = 0;
+        PipelinedImport pipelinedImport = new PipelinedImport( browserConnection, logWriter, updateIfEntryExists,
+            continueOnError, monitor );
         try
         {
-            while ( !monitor.isCanceled() && enumeration.hasNext() )
+            while ( !monitor.isCanceled() && !pipelinedImport.isStopped() && enumeration.hasNext() )
             {
-                LdifContainer container = enumeration.next();
-
-                if ( container instanceof LdifRecord )
-                {
-                    LdifRecord record = ( LdifRecord ) container;
-                    try
-                    {
-                        dummyMonitor.reset();
-                        importLdifRecord( browserConnection, record, updateIfEntryExists, dummyMonitor );
-                        if ( dummyMonitor.errorsReported() )
-                        {
-                            errorCount++;
-                            logModificationError( browserConnection, logWriter, record, dummyMonitor.getException(),
-                                monitor );
-
-                            if ( !continueOnError )
-                            {
-                                monitor.reportError( dummyMonitor.getException() );
-                                return;
-                            }
-                        }
-                        else
-                        {
-                            importedCount++;
-                            logModification( browserConnection, logWriter, record, monitor );
-
-                            // update cache and adjust attribute/children initialization flags
-                            Dn dn = new Dn( record.getDnLine().getValueAsString() );
-                            IEntry entry = browserConnection.getEntryFromCache( dn );
-                            Dn parentDn = dn.getParent();
-                            IEntry parentEntry = null;
-                            while ( parentEntry == null && parentDn != null )
-                            {
-                                parentEntry = browserConnection.getEntryFromCache( parentDn );
-                                parentDn = parentDn.getParent();
-                            }
-
-                            if ( record instanceof LdifChangeDeleteRecord )
-                            {
-                                if ( entry != null )
-                                {
-                                    entry.setAttributesInitialized( false );
-                                    browserConnection.uncacheEntryRecursive( entry );
-                                }
-                                if ( parentEntry != null )
-                                {
-                                    parentEntry.setChildrenInitialized( false );
-                                }
-                            }
-                            else if ( record instanceof LdifChangeModDnRecord )
-                            {
-                                if ( entry != null )
-                                {
-                                    entry.setAttributesInitialized( false );
-                                    browserConnection.uncacheEntryRecursive( entry );
-                                }
-                                if ( parentEntry != null )
-                                {
-                                    parentEntry.setChildrenInitialized( false );
-                                }
-                                LdifChangeModDnRecord modDnRecord = ( LdifChangeModDnRecord ) record;
-                                if ( modDnRecord.getNewsuperiorLine() != null )
-                                {
-                                    Dn newSuperiorDn = new Dn( modDnRecord.getNewsuperiorLine()
-                                        .getValueAsString() );
-                                    IEntry newSuperiorEntry = browserConnection.getEntryFromCache( newSuperiorDn );
-                                    if ( newSuperiorEntry != null )
-                                    {
-                                        newSuperiorEntry.setChildrenInitialized( false );
-                                    }
-                                }
-                            }
-                            else if ( record instanceof LdifChangeAddRecord || record instanceof LdifContentRecord )
-                            {
-                                if ( entry != null )
-                                {
-                                    entry.setAttributesInitialized( false );
-                                }
-                                if ( parentEntry != null )
-                                {
-                                    parentEntry.setChildrenInitialized( false );
-                                    parentEntry.setHasChildrenHint( true );
-                                }
-                            }
-                            else
-                            {
-                                if ( entry != null )
-                                {
-                                    entry.setAttributesInitialized( false );
-                                }
-                            }
-                        }
-                    }
-                    catch ( Exception e )
-                    {
-                        logModificationError( browserConnection, logWriter, record, e, monitor );
-                        errorCount++;
+                pipelinedImport.submit( enumeration.next() );
+            }
 
-                        if ( !continueOnError )
-                        {
-                            monitor.reportError( e );
-                            return;
-                        }
-                    }
+            pipelinedImport.awaitAll();
 
-                    monitor.reportProgress( BrowserCoreMessages.bind(
-                        BrowserCoreMessages.ldif__imported_n_entries_m_errors, new String[]
-                            { "" + importedCount, "" + errorCount } ) ); //$NON-NLS-1$ //$NON-NLS-2$
-                }
-                else
-                {
-                    logWriter.write( container.toRawString() );
-                }
+            if ( pipelinedImport.isStopped() )
+            {
+                monitor.reportError( pipelinedImport.stopException );
             }
-
-            if ( errorCount > 0 )
+            else if ( pipelinedImport.errorCount > 0 )
             {
                 monitor.reportError( BrowserCoreMessages.bind( BrowserCoreMessages.ldif__n_errors_see_logfile,
                     new String[]
-                        { "" + errorCount } ) ); //$NON-NLS-1$
+                        { "" + pipelinedImport.errorCount } ) ); //$NON-NLS-1$
             }
         }
         catch ( Exception e )
@@ -391,140 +302,231 @@ public class ImportLdifRunnable implements StudioConnectionBulkRunnableWithProgr
 
 
     /**
-     * Imports the LDIF record.
+     * Updates the cache and adjusts the attribute/children initialization flags
+     * after a record was imported.
      * 
      * @param browserConnection the browser connection
-     * @param record the LDIF record
-     * @param updateIfEntryExists the update if entry exists flag
-     * @param monitor the progress monitor
-     * @throws LdapInvalidDnException
+     * @param record the imported LDIF record
+     * @throws LdapInvalidDnException if a Dn of the record is invalid
      */
-    static void importLdifRecord( IBrowserConnection browserConnection, LdifRecord record, boolean updateIfEntryExists,
-        StudioProgressMonitor monitor ) throws LdapException
+    private static void updateCache( IBrowserConnection browserConnection, LdifRecordView record )
+        throws LdapInvalidDnException
     {
-        if ( !record.isValid() )
-        {
-            throw new LdapSchemaException( BrowserCoreMessages.bind( BrowserCoreMessages.model__invalid_record,
-                record.getInvalidString() ) );
-        }
+        Dn dn = new Dn( record.getDn() );
+        IEntry entry = browserConnection.getEntryFromCache( dn );
+        IEntry parentEntry = browserConnection.getAncestorEntryFromCache( dn );
 
-        String dn = record.getDnLine().getValueAsString();
-
-        if ( record instanceof LdifContentRecord || record instanceof LdifChangeAddRecord )
+        switch ( record.getChangeType() )
         {
-            IEntry dummyEntry;
-            if ( record instanceof LdifContentRecord )
-            {
-                LdifContentRecord attrValRecord = ( LdifContentRecord ) record;
-                try
+            case DELETE:
+                if ( entry != null )
                 {
-                    dummyEntry = ModelConverter.ldifContentRecordToEntry( attrValRecord, browserConnection );
+                    entry.setAttributesInitialized( false );
+                    browserConnection.uncacheEntryRecursive( entry );
                 }
-                catch ( LdapInvalidDnException e )
+                if ( parentEntry != null )
                 {
-                    monitor.reportError( e );
-                    return;
+                    parentEntry.setChildrenInitialized( false );
                 }
-            }
-            else
-            {
-                LdifChangeAddRecord changeAddRecord = ( LdifChangeAddRecord ) record;
-                try
+                break;
+
+            case MODDN:
+                if ( entry != null )
                 {
-                    dummyEntry = ModelConverter.ldifChangeAddRecordToEntry( changeAddRecord, browserConnection );
+                    entry.setAttributesInitialized( false );
+                    browserConnection.uncacheEntryRecursive( entry );
                 }
-                catch ( LdapInvalidDnException e )
+                if ( parentEntry != null )
                 {
-                    monitor.reportError( e );
-                    return;
+                    parentEntry.setChildrenInitialized( false );
                 }
-            }
-
-            Entry entry = ModelConverter.toLdapApiEntry( dummyEntry );
-            browserConnection.getConnection().getConnectionWrapper()
-                .createEntry( entry, getControls( record ), monitor, null );
+                if ( record.getNewSuperior() != null )
+                {
+                    Dn newSuperiorDn = new Dn( record.getNewSuperior() );
+                    IEntry newSuperiorEntry = browserConnection.getEntryFromCache( newSuperiorDn );
+                    if ( newSuperiorEntry != null )
+                    {
+                        newSuperiorEntry.setChildrenInitialized( false );
+                    }
+                }
+                break;
 
-            if ( monitor.errorsReported() && updateIfEntryExists
-                && StudioLdapException.isEntryAlreadyExistsException( monitor.getException() ) )
-            {
-                // creation failed with Error 68, now try to update the existing entry
-                monitor.reset();
+            case ADD:
+            case CONTENT:
+                if ( entry != null )
+                {
+                    entry.setAttributesInitialized( false );
+                }
+                if ( parentEntry != null )
+                {
+                    parentEntry.setChildrenInitialized( false );
+                    parentEntry.setHasChildrenHint( true );
+                }
+                break;
 
-                Collection<Modification> modifications = ModelConverter.toReplaceModifications( entry );
-                browserConnection.getConnection().getConnectionWrapper()
-                    .modifyEntry( new Dn( dn ), modifications, getControls( record ), monitor, null );
-            }
+            default:
+                if ( entry != null )
+                {
+                    entry.setAttributesInitialized( false );
+                }
+                break;
         }
-        else if ( record instanceof LdifChangeDeleteRecord )
+    }
+
+
+    /**
+     * Sends the operation of the LDIF record, without waiting for the response.
+     * 
+     * @param browserConnection the browser connection
+     * @param record the LDIF record
+     * @param monitor the progress monitor errors of the operation are reported to
+     * @return the pending result, null if the record contains no operation
+     * @throws LdapException if the record is invalid
+     */
+    static StudioLdapFuture importLdifRecord( IBrowserConnection browserConnection, LdifRecordView record,
+        StudioProgressMonitor monitor ) throws LdapException
+    {
+        if ( !record.isValid() )
         {
-            LdifChangeDeleteRecord changeDeleteRecord = ( LdifChangeDeleteRecord ) record;
-            browserConnection.getConnection().getConnectionWrapper()
-                .deleteEntry( new Dn( dn ), getControls( changeDeleteRecord ), monitor, null );
+            throw new LdapSchemaException( BrowserCoreMessages.bind( BrowserCoreMessages.model__invalid_record,
+                record.getInvalidString() ) );
         }
-        else if ( record instanceof LdifChangeModifyRecord )
+
+        Dn dn = new Dn( record.getDn() );
+        ConnectionWrapper connectionWrapper = browserConnection.getConnection().getConnectionWrapper();
+
+        switch ( record.getChangeType() )
         {
-            LdifChangeModifyRecord modifyRecord = ( LdifChangeModifyRecord ) record;
-            LdifModSpec[] modSpecs = modifyRecord.getModSpecs();
-            Collection<Modification> modifications = new ArrayList<>();
-            for ( int ii = 0; ii < modSpecs.length; ii++ )
-            {
-                LdifModSpecTypeLine modSpecType = modSpecs[ii].getModSpecType();
-                LdifAttrValLine[] attrVals = modSpecs[ii].getAttrVals();
+            case CONTENT:
+            case ADD:
+                return connectionWrapper.createEntryAsync( toLdapApiEntry( record ), getControls( record ), monitor,
+                    null );
+
+            case DELETE:
+                return connectionWrapper.deleteEntryAsync( dn, getControls( record ), monitor, null );
 
-                DefaultAttribute attribute = new DefaultAttribute( modSpecType.getUnfoldedAttributeDescription() );
-                for ( int x = 0; x < attrVals.length; x++ )
+            case MODIFY:
+                Collection<Modification> modifications = new ArrayList<>();
+                for ( ModSpec modSpec : record.getModSpecs() )
                 {
-                    Object valueAsObject = attrVals[x].getValueAsObject();
-                    if ( valueAsObject instanceof String )
+                    DefaultAttribute attribute = new DefaultAttribute( modSpec.getAttributeDescription() );
+                    for ( Object value : modSpec.getValues() )
                     {
-                        attribute.add( ( String ) valueAsObject );
+                        if ( value instanceof String )
+                        {
+                            attribute.add( ( String ) value );
+                        }
+                        else if ( value instanceof byte[] )
+                        {
+                            attribute.add( ( byte[] ) value );
+                        }
                     }
-                    else if ( valueAsObject instanceof byte[] )
+
+                    switch ( modSpec.getModType() )
                     {
-                        attribute.add( ( byte[] ) valueAsObject );
+                        case ADD:
+                            modifications.add( new DefaultModification( ModificationOperation.ADD_ATTRIBUTE,
+                                attribute ) );
+                            break;
+
+                        case DELETE:
+                            modifications.add( new DefaultModification( ModificationOperation.REMOVE_ATTRIBUTE,
+                                attribute ) );
+                            break;
+
+                        default:
+                            modifications.add( new DefaultModification( ModificationOperation.REPLACE_ATTRIBUTE,
+                                attribute ) );
+                            break;
                     }
                 }
 
-                if ( modSpecType.isAdd() )
-                {
-                    modifications.add( new DefaultModification( ModificationOperation.ADD_ATTRIBUTE, attribute ) );
-                }
-                else if ( modSpecType.isDelete() )
-                {
-                    modifications.add( new DefaultModification( ModificationOperation.REMOVE_ATTRIBUTE, attribute ) );
-                }
-                else if ( modSpecType.isReplace() )
+                return connectionWrapper.modifyEntryAsync( dn, modifications, getControls( record ), monitor, null );
+
+            case MODDN:
+                Dn newDn = getNewDn( record );
+                if ( newDn != null )
                 {
-                    modifications.add( new DefaultModification( ModificationOperation.REPLACE_ATTRIBUTE, attribute ) );
+                    return connectionWrapper.renameEntryAsync( dn, newDn, record.isDeleteOldRdn(),
+                        getControls( record ), monitor, null );
                 }
-            }
+                return null;
 
-            browserConnection.getConnection().getConnectionWrapper()
-                .modifyEntry( new Dn( dn ), modifications, getControls( modifyRecord ), monitor, null );
+            default:
+                return null;
         }
-        else if ( record instanceof LdifChangeModDnRecord )
+    }
+
+
+    /**
+     * Replaces the attributes of an existing entry with the attributes of an add record.
+     * Used if the creation failed because the entry already exists.
+     * 
+     * @param browserConnection the browser connection
+     * @param record the add LDIF record
+     * @param monitor the progress monitor
+     * @throws LdapException if the record is invalid
+     */
+    private static void updateExistingEntry( IBrowserConnection browserConnection, LdifRecordView record,
+        StudioProgressMonitor monitor ) throws LdapException
+    {
+        Entry entry = toLdapApiEntry( record );
+        Collection<Modification> modifications = ModelConverter.toReplaceModifications( entry );
+        browserConnection.getConnection().getConnectionWrapper()
+            .modifyEntry( entry.getDn(), modifications, getControls( record ), monitor, null );
+    }
+
+
+    /**
+     * Creates the entry of a content or add record, without creating a browser model entry first.
+     * 
+     * @param record the content or add LDIF record
+     * @return the entry
+     * @throws LdapException if the Dn or an attribute description is invalid
+     */
+    private static Entry toLdapApiEntry( LdifRecordView record ) throws LdapException
+    {
+        Entry entry = new DefaultEntry( new Dn( record.getDn() ) );
+        for ( int i = 0; i < record.getValueCount(); i++ )
         {
-            LdifChangeModDnRecord modDnRecord = ( LdifChangeModDnRecord ) record;
-            if ( modDnRecord.getNewrdnLine() != null && modDnRecord.getDeloldrdnLine() != null )
+            Object value = record.getValue( i );
+            if ( value instanceof byte[] )
+            {
+                entry.add( record.getAttributeDescription( i ), ( byte[] ) value );
+            }
+            else
             {
-                String newRdn = modDnRecord.getNewrdnLine().getValueAsString();
-                boolean deleteOldRdn = modDnRecord.getDeloldrdnLine().isDeleteOldRdn();
+                entry.add( record.getAttributeDescription( i ), value != null ? value.toString() : "" ); //$NON-NLS-1$
+            }
+        }
+        return entry;
+    }
 
-                Dn newDn;
-                if ( modDnRecord.getNewsuperiorLine() != null )
-                {
-                    newDn = new Dn( newRdn, modDnRecord.getNewsuperiorLine().getValueAsString() );
-                }
-                else
-                {
-                    Dn dnObject = new Dn( dn );
-                    Dn parent = dnObject.getParent();
-                    newDn = new Dn( newRdn, parent.getName() );
-                }
 
-                browserConnection.getConnection().getConnectionWrapper()
-                    .renameEntry( new Dn( dn ), newDn, deleteOldRdn, getControls( modDnRecord ), monitor, null );
-            }
+    /**
+     * Gets the new Dn of a modDN record.
+     * 
+     * @param modDnRecord the modDN record
+     * @return the new Dn, null if the record has no new Rdn
+     * @throws LdapInvalidDnException if a Dn of the record is invalid
+     */
+    private static Dn getNewDn( LdifRecordView modDnRecord ) throws LdapInvalidDnException
+    {
+        String newRdn = modDnRecord.getNewRdn();
+        if ( newRdn == null )
+        {
+            return null;
+        }
+
+        if ( modDnRecord.getNewSuperior() != null )
+        {
+            return new Dn( newRdn, modDnRecord.getNewSuperior() );
+        }
+        else
+        {
+            Dn dnObject = new Dn( modDnRecord.getDn() );
+            Dn parent = dnObject.getParent();
+            return new Dn( newRdn, parent.getName() );
         }
     }
 
@@ -536,25 +538,22 @@ public class ImportLdifRunnable implements StudioConnectionBulkRunnableWithProgr
      * 
      * @return the controls
      */
-    private static Control[] getControls( LdifRecord record )
+    private static Control[] getControls( LdifRecordView record )
     {
         Control[] controls = null;
-        if ( record instanceof LdifChangeRecord )
+        if ( record.getChangeType() != ChangeType.CONTENT )
         {
-            LdifChangeRecord changeRecord = ( LdifChangeRecord ) record;
-            LdifControlLine[] controlLines = changeRecord.getControls();
-            controls = new Control[controlLines.length];
-            for ( int i = 0; i < controlLines.length; i++ )
+            LdifRecordView.Control[] ldifControls = record.getControls();
+            controls = new Control[ldifControls.length];
+            for ( int i = 0; i < ldifControls.length; i++ )
             {
-                LdifControlLine line = controlLines[i];
-                controls[i] = Controls.create( line.getUnfoldedOid(), line.isCritical(),
-                    line.getControlValueAsBinary() );
+                LdifRecordView.Control control = ldifControls[i];
+                controls[i] = Controls.create( control.getOid(), control.isCritical(), control.getValue() );
             }
         }
         return controls;
     }
 
-
     /**
      * Log a modification error to the given writer.
      * 
@@ -565,7 +564,7 @@ public class ImportLdifRunnable implements StudioConnectionBulkRunnableWithProgr
      * @param monitor the progress monitor
      */
     private static void logModificationError( IBrowserConnection browserConnection, Writer logWriter,
-        LdifRecord record, Throwable exception, StudioProgressMonitor monitor )
+        LdifRecordView record, Throwable exception, StudioProgressMonitor monitor )
     {
         try
         {
@@ -586,7 +585,7 @@ public class ImportLdifRunnable implements StudioConnectionBulkRunnableWithProgr
             logWriter.write( LdifCommentLine
                 .create( "#!DATE " + df.format( new Date() ) ).toFormattedString( LdifFormatParameters.DEFAULT ) ); //$NON-NLS-1$
             logWriter.write( errorCommentLine.toFormattedString( LdifFormatParameters.DEFAULT ) );
-            logWriter.write( record.toFormattedString( ldifFormatParameters ) );
+            logWriter.write( record.toRecord().toFormattedString( ldifFormatParameters ) );
         }
         catch ( IOException ioe )
         {
@@ -603,8 +602,8 @@ public class ImportLdifRunnable implements StudioConnectionBulkRunnableWithProgr
      * @param record the record
      * @param monitor the progress monitor
      */
-    private static void logModification( IBrowserConnection browserConnection, Writer logWriter, LdifRecord record,
-        StudioProgressMonitor monitor )
+    private static void logModification( IBrowserConnection browserConnection, Writer logWriter,
+        LdifRecordView record, StudioProgressMonitor monitor )
     {
         try
         {
@@ -617,11 +616,271 @@ public class ImportLdifRunnable implements StudioConnectionBulkRunnableWithProgr
                         "#!CONNECTION ldap://" + browserConnection.getConnection().getHost() + ":" + browserConnection.getConnection().getPort() ).toFormattedString( ldifFormatParameters ) ); //$NON-NLS-1$ //$NON-NLS-2$
             logWriter.write( LdifCommentLine
                 .create( "#!DATE " + df.format( new Date() ) ).toFormattedString( ldifFormatParameters ) ); //$NON-NLS-1$
-            logWriter.write( record.toFormattedString( ldifFormatParameters ) );
+            logWriter.write( record.toRecord().toFormattedString( ldifFormatParameters ) );
         }
         catch ( IOException ioe )
         {
             monitor.reportError( BrowserCoreMessages.model__error_logging_modification, ioe );
         }
     }
+
+    /**
+     * Keeps track of the outstanding records of an import.
+     */
+    private static class PipelinedImport
+    {
+        /** The Dns of the subtrees that are only changed one record at a time */
+        private static final String[] SERIALIZED_SUBTREES =
+            { "cn=config", "ou=schema" }; //$NON-NLS-1$ //$NON-NLS-2$
+
+        private final IBrowserConnection browserConnection;
+        private final Writer logWriter;
+        private final boolean updateIfEntryExists;
+        private final boolean continueOnError;
+        private final StudioProgressMonitor monitor;
+
+        /** The outstanding operations */
+        private final OperationWindow window = new OperationWindow();
+
+        /** The outstanding records, oldest first */
+        private final Deque<PendingRecord> pendingRecords = new ArrayDeque<>();
+
+        private int importedCount;
+        private int errorCount;
+
+        /** The exception that stopped the import if continue on error is not set */
+        private Exception stopException;
+
+
+        PipelinedImport( IBrowserConnection browserConnection, Writer logWriter, boolean updateIfEntryExists,
+            boolean continueOnError, StudioProgressMonitor monitor )
+        {
+            this.browserConnection = browserConnection;
+            this.logWriter = logWriter;
+            this.updateIfEntryExists = updateIfEntryExists;
+            this.continueOnError = continueOnError;
+            this.monitor = monitor;
+        }
+
+
+        /**
+         * Sends the record once no outstanding record changes the same subtree.
+         */
+        void submit( LdifRecordView record )
+        {
+            StudioProgressMonitor recordMonitor = new StudioProgressMonitor( monitor );
+            PendingRecord pendingRecord = new PendingRecord( record, recordMonitor );
+
+            try
+            {
+                pendingRecord.subtreeKeys = getSubtreeKeys( record );
+                pendingRecord.barrier = isBarrier( pendingRecord.subtreeKeys );
+
+                while ( hasConflict( pendingRecord ) )
+                {
+                    window.awaitOldest();
+                }
+
+                StudioLdapFuture future = importLdifRecord( browserConnection, record, recordMonitor );
+
+                if ( future != null )
+                {
+                    pendingRecords.addLast( pendingRecord );
+                    window.submit( future, f -> complete( pendingRecord ) );
+                    return;
+                }
+            }
+            catch ( Exception e )
+            {
+                recordMonitor.reportError( e );
+            }
+
+            // nothing was sent, keep the order of the log
+            awaitAll();
+            pendingRecords.addLast( pendingRecord );
+            complete( pendingRecord );
+        }
+
+
+        void awaitAll()
+        {
+            window.awaitAll();
+        }
+
+
+        boolean isStopped()
+        {
+            return stopException != null;
+        }
+
+
+        private void complete( PendingRecord pendingRecord )
+        {
+            pendingRecords.removeFirst();
+
+            LdifRecordView record = pendingRecord.record;
+            StudioProgressMonitor recordMonitor = pendingRecord.monitor;
+
+            try
+            {
+                if ( recordMonitor.errorsReported() && updateIfEntryExists
+                    && ( record.getChangeType() == ChangeType.CONTENT || record.getChangeType() == ChangeType.ADD )
+                    && StudioLdapException.isEntryAlreadyExistsException( recordMonitor.getException() ) )
+                {
+                    // creation failed with Error 68, now try to update the existing entry
+                    recordMonitor.reset();
+                    updateExistingEntry( browserConnection, record, recordMonitor );
+                }
+
+                if ( recordMonitor.errorsReported() )
+                {
+                    logError( record, recordMonitor.getException() );
+                }
+                else if ( !monitor.isCanceled() )
+                {
+                    importedCount++;
+                    logModification( browserConnection, logWriter, record, monitor );
+                    updateCache( browserConnection, record );
+                }
+            }
+            catch ( Exception e )
+            {
+                logError( record, e );
+            }
+
+            monitor.reportProgress( BrowserCoreMessages.bind(
+                BrowserCoreMessages.ldif__imported_n_entries_m_errors, new String[]
+                    { "" + importedCount, "" + errorCount } ) ); //$NON-NLS-1$ //$NON-NLS-2$
+        }
+
+
+        private void logError( LdifRecordView record, Exception exception )
+        {
+            errorCount++;
+            logModificationError( browserConnection, logWriter, record, exception, monitor );
+
+            if ( !continueOnError && stopException == null )
+            {
+                stopException = exception;
+            }
+        }
+
+
+        private boolean hasConflict( PendingRecord pendingRecord )
+        {
+            if ( pendingRecords.isEmpty() )
+            {
+                return false;
+            }
+            if ( pendingRecord.barrier )
+            {
+                return true;
+            }
+
+            for ( PendingRecord outstandingRecord : pendingRecords )
+            {
+                if ( outstandingRecord.barrier )
+                {
+                    return true;
+                }
+
+                for ( String key : pendingRecord.subtreeKeys )
+                {
+                    for ( String outstandingKey : outstandingRecord.subtreeKeys )
+                    {
+                        if ( isSameSubtree( key, outstandingKey ) )
+                        {
+                            return true;
+                        }
+                    }
+                }
+            }
+
+            return false;
+        }
+
+
+        private boolean isBarrier( String[] subtreeKeys )
+        {
+            Dn schemaDn = browserConnection.getSchema().getDn();
+            String schemaKey = schemaDn != null ? getSubtreeKey( schemaDn ) : null;
+
+            for ( String key : subtreeKeys )
+            {
+                if ( key.equals( schemaKey ) )
+                {
+                    return true;
+                }
+
+                for ( String serializedSubtree : SERIALIZED_SUBTREES )
+                {
+                    if ( key.equals( serializedSubtree ) || key.endsWith( "," + serializedSubtree ) ) //$NON-NLS-1$
+                    {
+                        return true;
+                    }
+                }
+            }
+
+            return false;
+        }
+
+
+        /**
+         * Gets the keys of the subtrees changed by the record: the entry and,
+         * for modDN records, the new entry.
+         */
+        private static String[] getSubtreeKeys( LdifRecordView record ) throws LdapInvalidDnException
+        {
+            Dn dn = new Dn( record.getDn() );
+
+            if ( record.getChangeType() == ChangeType.MODDN )
+            {
+                Dn newDn = getNewDn( record );
+
+                if ( newDn != null )
+                {
+                    return new String[]
+                        { getSubtreeKey( dn ), getSubtreeKey( newDn ) };
+                }
+            }
+
+            return new String[]
+                { getSubtreeKey( dn ) };
+        }
+
+
+        /**
+         * The case insensitive key of a Dn. It may consider different entries the same
+         * subtree, which only serializes more records than necessary.
+         */
+        private static String getSubtreeKey( Dn dn )
+        {
+            return Strings.toLowerCase( dn.getNormName() );
+        }
+
+
+        private static boolean isSameSubtree( String key1, String key2 )
+        {
+            return key1.isEmpty() || key2.isEmpty() || key1.equals( key2 )
+                || key1.endsWith( "," + key2 ) || key2.endsWith( "," + key1 ); //$NON-NLS-1$ //$NON-NLS-2$
+        }
+    }
+
+    /**
+     * A record sent to the server.
+     */
+    private static class PendingRecord
+    {
+        private final LdifRecordView record;
+        private final StudioProgressMonitor monitor;
+        private String[] subtreeKeys = new String[0];
+        private boolean barrier;
+
+
+        PendingRecord( LdifRecordView record, StudioProgressMonitor monitor )
+        {
+            this.record = record;
+            this.monitor = monitor;
+        }
+    }
 }
@@ -0,0 +1,642 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *  
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License. 
+ *  
+ */
+package org.apache.directory.studio.ldapbrowser.core.jobs;
+
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+import org.apache.directory.api.ldap.model.constants.SchemaConstants;
+import org.apache.directory.api.ldap.model.entry.DefaultEntry;
+import org.apache.directory.api.ldap.model.entry.Entry;
+import org.apache.directory.api.ldap.model.exception.LdapException;
+import org.apache.directory.api.ldap.model.message.Control;
+import org.apache.directory.api.ldap.model.message.SearchScope;
+import org.apache.directory.api.ldap.model.message.controls.PagedResults;
+import org.apache.directory.api.ldap.model.name.Dn;
+import org.apache.directory.studio.common.core.jobs.StudioProgressMonitor;
+import org.apache.directory.studio.connection.core.Controls;
+import org.apache.directory.studio.connection.core.io.api.StudioSearchResultEnumeration;
+import org.apache.directory.studio.ldapbrowser.core.BrowserCoreConstants;
+import org.apache.directory.studio.ldapbrowser.core.BrowserCoreMessages;
+import org.apache.directory.studio.ldapbrowser.core.jobs.ExportLdifRunnable.DefaultLdifEnumeration;
+import org.apache.directory.studio.ldapbrowser.core.model.IBrowserConnection;
+import org.apache.directory.studio.ldapbrowser.core.model.ISearch;
+import org.apache.directory.studio.ldapbrowser.core.model.SearchParameter;
+import org.apache.directory.studio.ldapbrowser.core.utils.JNDIUtils;
+import org.apache.directory.studio.ldifparser.model.LdifEnumeration;
+import org.apache.directory.studio.ldifparser.model.container.LdifContainer;
+import org.eclipse.core.runtime.NullProgressMonitor;
+
+
+/**
+ * Splits the search of an export into independent partitions and runs them concurrently.
+ * <p>
+ * A subtree search is split into the search of the base entry itself and one subtree search
+ * per immediate child of the search base, ordered by DN. Each partition is searched with its
+ * own progress monitor, the searches lease their own connection from the connection pool
+ * of the connection.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+final class PartitionedExport
+{
+    /** The maximum number of partitions, searches with more children of the base are not split */
+    static final int MAX_PARTITIONS = 1000;
+
+    /** The number of entries buffered per partition when the partitions are merged */
+    static final int MERGE_BUFFER_SIZE = 256;
+
+    /** The time to wait for a buffered entry or for free buffer space before the monitors are checked again */
+    private static final long MERGE_WAIT_MILLIS = 100;
+
+    /**
+     * Exports the entries of one partition.
+     */
+    @FunctionalInterface
+    interface PartitionExporter
+    {
+        /**
+         * Exports the entries of the given partition.
+         *
+         * @param index the index of the partition
+         * @param parameter the search parameter of the partition
+         * @param count the shared counter of exported entries
+         * @param monitor the progress monitor of the partition
+         * @throws Exception if the export failed
+         */
+        void export( int index, SearchParameter parameter, AtomicInteger count, StudioProgressMonitor monitor )
+            throws Exception;
+    }
+
+
+    /**
+     * Searches the entries of one partition.
+     */
+    @FunctionalInterface
+    interface PartitionSearch
+    {
+        /**
+         * Searches the entries of the given partition and passes them to the consumer in order.
+         *
+         * @param parameter the search parameter of the partition
+         * @param consumer the consumer of the entries
+         * @param monitor the progress monitor of the partition
+         * @throws Exception if the search failed
+         */
+        void search( SearchParameter parameter, Consumer<Entry> consumer, StudioProgressMonitor monitor )
+            throws Exception;
+    }
+
+    /**
+     * An enumeration of the exported entries, as entries or as LDIF records.
+     */
+    interface EntryEnumeration extends LdifEnumeration
+    {
+        /**
+         * Gets the next entry.
+         *
+         * @return the next entry, or null if hasNext() returns false
+         * @throws LdapException if the entry could not be read
+         */
+        Entry nextEntry() throws LdapException;
+
+
+        /**
+         * Stops the search, the remaining entries are discarded.
+         */
+        void close();
+    }
+
+
+    private PartitionedExport()
+    {
+        // no instances
+    }
+
+
+    /**
+     * Gets the partitions of the given search: the base entry first, followed by the
+     * subtrees of the immediate children of the search base, ordered by DN.
+     *
+     * @param browserConnection the browser connection
+     * @param parameter the search parameter
+     * @param monitor the progress monitor
+     * @return the search parameters of the partitions, or null if the search can't be split
+     */
+    static List<SearchParameter> getPartitions( IBrowserConnection browserConnection, SearchParameter parameter,
+        StudioProgressMonitor monitor )
+    {
+        // a count limit applies to the whole search and can't be distributed
+        if ( parameter.getScope() != SearchScope.SUBTREE || parameter.getCountLimit() > 0 )
+        {
+            return null;
+        }
+
+        SearchParameter childrenParameter = new SearchParameter();
+        childrenParameter.setSearchBase( parameter.getSearchBase() );
+        childrenParameter.setFilter( ISearch.FILTER_TRUE );
+        childrenParameter.setReturningAttributes( new String[]
+            { SchemaConstants.NO_ATTRIBUTE } );
+        childrenParameter.setScope( SearchScope.ONELEVEL );
+        childrenParameter.setCountLimit( MAX_PARTITIONS + 1 );
+        childrenParameter.setAliasesDereferencingMethod( parameter.getAliasesDereferencingMethod() );
+        childrenParameter.setReferralsHandlingMethod( parameter.getReferralsHandlingMethod() );
+        for ( Control control : parameter.getControls() )
+        {
+            if ( !( control instanceof PagedResults ) )
+            {
+                childrenParameter.getControls().add( control );
+            }
+        }
+
+        List<Dn> children = new ArrayList<Dn>();
+        StudioSearchResultEnumeration enumeration = SearchRunnable.search( browserConnection, childrenParameter,
+            monitor );
+        if ( enumeration == null )
+        {
+            return null;
+        }
+        try
+        {
+            while ( enumeration.hasMore() )
+            {
+                children.add( enumeration.next().getDn() );
+                if ( children.size() > MAX_PARTITIONS )
+                {
+                    enumeration.close();
+                    return null;
+                }
+            }
+        }
+        catch ( LdapException e )
+        {
+            // size limit exceeded or the like: export with a single search
+            return null;
+        }
+
+        children.sort( ( dn1, dn2 ) -> dn1.getName().compareToIgnoreCase( dn2.getName() ) );
+
+        List<SearchParameter> partitions = new ArrayList<SearchParameter>( children.size() + 1 );
+        partitions.add( createPartition( parameter, parameter.getSearchBase(), SearchScope.OBJECT ) );
+        for ( Dn child : children )
+        {
+            partitions.add( createPartition( parameter, child, SearchScope.SUBTREE ) );
+        }
+        return partitions;
+    }
+
+
+    /**
+     * Runs the exporter for all partitions, using the given number of threads. The first failure
+     * cancels the other partitions and is reported to the given monitor.
+     *
+     * @param partitions the search parameters of the partitions
+     * @param parallelism the number of concurrent searches
+     * @param exporter the exporter
+     * @param monitor the progress monitor
+     * @return the number of exported entries
+     */
+    static int run( List<SearchParameter> partitions, int parallelism, final PartitionExporter exporter,
+        final StudioProgressMonitor monitor )
+    {
+        final AtomicInteger count = new AtomicInteger();
+        Execution execution = new Execution( parallelism, partitions.size(), monitor );
+        for ( int i = 0; i < partitions.size(); i++ )
+        {
+            final int index = i;
+            final SearchParameter parameter = partitions.get( i );
+            execution.execute( partitionMonitor -> exporter.export( index, parameter, count, partitionMonitor ), null );
+        }
+        execution.executor.shutdown();
+
+        try
+        {
+            while ( !execution.executor.awaitTermination( 250, TimeUnit.MILLISECONDS ) )
+            {
+                monitor.reportProgress( BrowserCoreMessages.bind( BrowserCoreMessages.jobs__export_progress,
+                    new String[]
+                        { Integer.toString( count.get() ) } ) );
+            }
+        }
+        catch ( InterruptedException e )
+        {
+            execution.executor.shutdownNow();
+            Thread.currentThread().interrupt();
+            monitor.setCanceled( true );
+        }
+
+        execution.reportFailure();
+        return count.get();
+    }
+
+
+    /**
+     * Searches the entries to export. If the parallelism is greater than 1 and the search can be
+     * split, the partitions are searched concurrently and their entries are returned in the order
+     * of the partitions. Otherwise a single search is used.
+     * <p>
+     * A count limit applies to the merged entries, each partition is searched with the same limit.
+     *
+     * @param browserConnection the browser connection
+     * @param parameter the search parameter
+     * @param parallelism the number of concurrent searches
+     * @param monitor the progress monitor, failures of the partitions are reported to it
+     * @return the enumeration of the entries, must be closed
+     */
+    static EntryEnumeration search( final IBrowserConnection browserConnection, SearchParameter parameter,
+        int parallelism, StudioProgressMonitor monitor )
+    {
+        if ( parallelism > 1 )
+        {
+            SearchParameter unlimited = ( SearchParameter ) parameter.clone();
+            unlimited.setCountLimit( 0 );
+            List<SearchParameter> partitions = getPartitions( browserConnection, unlimited, monitor );
+            if ( partitions != null )
+            {
+                for ( SearchParameter partition : partitions )
+                {
+                    partition.setCountLimit( parameter.getCountLimit() );
+                }
+                return merge( partitions, parallelism, parameter.getCountLimit(),
+                    ( partition, consumer, partitionMonitor ) -> searchEntries( browserConnection, partition, consumer,
+                        partitionMonitor ), monitor );
+            }
+        }
+
+        return ExportLdifRunnable.search( browserConnection, parameter, monitor );
+    }
+
+
+    /**
+     * Searches the given partitions concurrently and merges their entries in the order of the
+     * partitions. At most {@value #MERGE_BUFFER_SIZE} entries are buffered per partition, a
+     * partition waits while its buffer is full. The first failure cancels the other partitions
+     * and ends the enumeration, the failure is reported to the given monitor.
+     *
+     * @param partitions the search parameters of the partitions
+     * @param parallelism the number of concurrent searches
+     * @param countLimit the maximum number of merged entries, 0 for no limit
+     * @param search the search of a partition
+     * @param monitor the progress monitor
+     * @return the enumeration of the entries, must be closed
+     */
+    static EntryEnumeration merge( List<SearchParameter> partitions, int parallelism, long countLimit,
+        PartitionSearch search, StudioProgressMonitor monitor )
+    {
+        return new MergedEntryEnumeration( partitions, parallelism, countLimit, search, monitor );
+    }
+
+
+    /**
+     * Searches the entries of a partition.
+     */
+    private static void searchEntries( IBrowserConnection browserConnection, SearchParameter parameter,
+        Consumer<Entry> consumer, StudioProgressMonitor monitor ) throws LdapException
+    {
+        try
+        {
+            DefaultLdifEnumeration enumeration = ExportLdifRunnable.search( browserConnection, parameter, monitor );
+            while ( !monitor.isCanceled() && enumeration.hasNext() )
+            {
+                consumer.accept( enumeration.nextEntry() );
+            }
+        }
+        catch ( LdapException e )
+        {
+            // time limit, size limit or admin limit exceeded: keep the entries received so far
+            int ldapStatusCode = JNDIUtils.getLdapStatusCode( e );
+            if ( ldapStatusCode != 3 && ldapStatusCode != 4 && ldapStatusCode != 11 )
+            {
+                throw e;
+            }
+        }
+    }
+
+
+    private static SearchParameter createPartition( SearchParameter parameter, Dn base, SearchScope scope )
+    {
+        SearchParameter partition = ( SearchParameter ) parameter.clone();
+        partition.setSearchBase( base );
+        partition.setScope( scope );
+
+        // each partition pages with its own cookie
+        for ( int i = 0; i < partition.getControls().size(); i++ )
+        {
+            Control control = partition.getControls().get( i );
+            if ( control instanceof PagedResults )
+            {
+                PagedResults pagedResults = Controls.newPagedResultsControl( ( ( PagedResults ) control ).getSize() );
+                pagedResults.setCritical( control.isCritical() );
+                partition.getControls().set( i, pagedResults );
+            }
+        }
+        return partition;
+    }
+
+
+    /**
+     * A task run for a partition.
+     */
+    @FunctionalInterface
+    private interface PartitionTask
+    {
+        void run( StudioProgressMonitor partitionMonitor ) throws Exception;
+    }
+
+    /**
+     * The concurrent execution of the partitions. Each partition has its own progress monitor,
+     * which is canceled if the export is canceled, another partition failed, or the execution
+     * was stopped.
+     */
+    private static final class Execution
+    {
+        /** The executor running the partitions */
+        private final ExecutorService executor;
+
+        /** The monitor of the export */
+        private final StudioProgressMonitor monitor;
+
+        /** Set if a partition failed or the execution was stopped */
+        private final AtomicBoolean stopped = new AtomicBoolean();
+
+        /** The monitor of the first failed partition */
+        private final AtomicReference<StudioProgressMonitor> failure = new AtomicReference<StudioProgressMonitor>();
+
+
+        private Execution( int parallelism, int partitions, StudioProgressMonitor monitor )
+        {
+            this.monitor = monitor;
+            this.executor = Executors.newFixedThreadPool( Math.max( 1, Math.min( parallelism, partitions ) ),
+                runnable -> {
+                    Thread thread = new Thread( runnable, "Export partition" ); //$NON-NLS-1$
+                    thread.setDaemon( true );
+                    return thread;
+                } );
+        }
+
+
+        /**
+         * Runs the task of a partition.
+         *
+         * @param task the task
+         * @param done run after the task, once a failure of the task is recorded, may be null
+         */
+        private void execute( final PartitionTask task, final Runnable done )
+        {
+            final StudioProgressMonitor partitionMonitor = new StudioProgressMonitor( BrowserCoreConstants.PLUGIN_ID,
+                new NullProgressMonitor()
+                {
+                    public boolean isCanceled()
+                    {
+                        return super.isCanceled() || stopped.get() || monitor.isCanceled();
+                    }
+                } );
+
+            executor.execute( () -> {
+                try
+                {
+                    if ( !partitionMonitor.isCanceled() )
+                    {
+                        task.run( partitionMonitor );
+                    }
+                }
+                catch ( Exception e )
+                {
+                    partitionMonitor.reportError( e );
+                }
+                finally
+                {
+                    // only the first failure is reported, the others are most likely caused by the cancellation
+                    if ( partitionMonitor.errorsReported() )
+                    {
+                        failure.compareAndSet( null, partitionMonitor );
+                        stopped.set( true );
+                    }
+                    partitionMonitor.done();
+                    if ( done != null )
+                    {
+                        done.run();
+                    }
+                }
+            } );
+        }
+
+
+        private boolean failed()
+        {
+            return failure.get() != null;
+        }
+
+
+        private void reportFailure()
+        {
+            StudioProgressMonitor failedMonitor = failure.get();
+            if ( failedMonitor != null )
+            {
+                monitor.reportError( failedMonitor.getException() );
+            }
+        }
+
+
+        private void stop()
+        {
+            stopped.set( true );
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * The entries of concurrently searched partitions, in the order of the partitions.
+     */
+    private static final class MergedEntryEnumeration implements EntryEnumeration
+    {
+        /** The marker of the end of a partition */
+        private static final Entry END = new DefaultEntry();
+
+        /** The buffers of the partitions */
+        private final List<BlockingQueue<Entry>> buffers = new ArrayList<BlockingQueue<Entry>>();
+
+        /** The execution of the partitions */
+        private final Execution execution;
+
+        /** The monitor of the export */
+        private final StudioProgressMonitor monitor;
+
+        /** The maximum number of entries, 0 for no limit */
+        private final long countLimit;
+
+        /** The number of returned entries */
+        private long count;
+
+        /** The index of the partition whose entries are returned */
+        private int current;
+
+        /** The next entry, null if not yet taken from the buffer */
+        private Entry next;
+
+        /** True if the enumeration was closed */
+        private volatile boolean closed;
+
+
+        private MergedEntryEnumeration( List<SearchParameter> partitions, int parallelism, long countLimit,
+            final PartitionSearch search, StudioProgressMonitor monitor )
+        {
+            this.monitor = monitor;
+            this.countLimit = countLimit;
+            this.execution = new Execution( parallelism, partitions.size(), monitor );
+
+            // the partitions start in order, so the partition being read is always running or done
+            for ( final SearchParameter parameter : partitions )
+            {
+                final BlockingQueue<Entry> buffer = new ArrayBlockingQueue<Entry>( MERGE_BUFFER_SIZE );
+                buffers.add( buffer );
+                execution.execute( partitionMonitor -> search.search( parameter,
+                    entry -> put( buffer, entry, partitionMonitor ), partitionMonitor ),
+                    () -> put( buffer, END, null ) );
+            }
+            execution.executor.shutdown();
+        }
+
+
+        /**
+         * Puts an entry into the buffer of a partition, waits while the buffer is full.
+         *
+         * @param buffer the buffer
+         * @param entry the entry
+         * @param partitionMonitor the monitor of the partition, the entry is discarded if it is canceled,
+         *        null to wait until the enumeration is closed
+         */
+        private void put( BlockingQueue<Entry> buffer, Entry entry, StudioProgressMonitor partitionMonitor )
+        {
+            try
+            {
+                while ( !buffer.offer( entry, MERGE_WAIT_MILLIS, TimeUnit.MILLISECONDS ) )
+                {
+                    if ( closed || monitor.isCanceled()
+                        || ( partitionMonitor != null && partitionMonitor.isCanceled() ) )
+                    {
+                        return;
+                    }
+                }
+            }
+            catch ( InterruptedException e )
+            {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+
+        /**
+         * {@inheritDoc}
+         */
+        public boolean hasNext()
+        {
+            try
+            {
+                while ( next == null && !closed && current < buffers.size() )
+                {
+                    if ( countLimit > 0 && count >= countLimit )
+                    {
+                        close();
+                        break;
+                    }
+
+                    Entry entry = buffers.get( current ).poll( MERGE_WAIT_MILLIS, TimeUnit.MILLISECONDS );
+                    if ( entry == null )
+                    {
+                        if ( monitor.isCanceled() )
+                        {
+                            close();
+                        }
+                    }
+                    else if ( entry == END )
+                    {
+                        // a failure of any partition ends the export, the current one may be incomplete
+                        if ( execution.failed() )
+                        {
+                            execution.reportFailure();
+                            close();
+                        }
+                        current++;
+                    }
+                    else
+                    {
+                        next = entry;
+                    }
+                }
+            }
+            catch ( InterruptedException e )
+            {
+                Thread.currentThread().interrupt();
+                monitor.setCanceled( true );
+                close();
+            }
+
+            return next != null;
+        }
+
+
+        /**
+         * {@inheritDoc}
+         */
+        public Entry nextEntry()
+        {
+            if ( !hasNext() )
+            {
+                return null;
+            }
+
+            Entry entry = next;
+            next = null;
+            count++;
+            return entry;
+        }
+
+
+        /**
+         * {@inheritDoc}
+         */
+        public LdifContainer next()
+        {
+            Entry entry = nextEntry();
+            return entry != null ? DefaultLdifEnumeration.toRecord( entry ) : null;
+        }
+
+
+        /**
+         * {@inheritDoc}
+         */
+        public void close()
+        {
+            closed = true;
+            execution.stop();
+        }
+    }
+}
@@ -51,6 +51,7 @@ import org.apache.directory.studio.connection.core.io.api.StudioSearchResult;
 import org.apache.directory.studio.connection.core.io.api.StudioSearchResultEnumeration;
 import org.apache.directory.studio.connection.core.jobs.StudioConnectionBulkRunnableWithProgress;
 import org.apache.directory.studio.ldapbrowser.core.BrowserCoreMessages;
+import org.apache.directory.studio.ldapbrowser.core.BrowserCoreConstants;
 import org.apache.directory.studio.ldapbrowser.core.BrowserCorePlugin;
 import org.apache.directory.studio.ldapbrowser.core.events.EventRegistry;
 import org.apache.directory.studio.ldapbrowser.core.events.SearchUpdateEvent;
@@ -62,6 +63,7 @@ import org.apache.directory.studio.ldapbrowser.core.model.ISearch;
 import org.apache.directory.studio.ldapbrowser.core.model.ISearchResult;
 import org.apache.directory.studio.ldapbrowser.core.model.SearchParameter;
 import org.apache.directory.studio.ldapbrowser.core.model.impl.BaseDNEntry;
+import org.apache.directory.studio.ldapbrowser.core.model.impl.CompactAttribute;
 import org.apache.directory.studio.ldapbrowser.core.model.impl.ContinuedSearchResultEntry;
 import org.apache.directory.studio.ldapbrowser.core.model.impl.Entry;
 import org.apache.directory.studio.ldapbrowser.core.model.impl.SearchContinuation;
@@ -186,13 +188,22 @@ public class SearchRunnable implements StudioConnectionBulkRunnableWithProgress
 
                 do
                 {
+                    // show the results retrieved so far while searching, appended to the results of former pages
+                    ISearchResult[] sr1 = search.getSearchResults();
+                    IncrementalSearchResults incrementalSearchResults = null;
+                    if ( isIncremental() )
+                    {
+                        incrementalSearchResults = new IncrementalSearchResults( search,
+                            search != searchToPerform ? sr1 : new ISearchResult[0] );
+                    }
+
                     // perform search
-                    searchAndUpdateModel( searchToPerform.getBrowserConnection(), searchToPerform, monitor );
+                    searchAndUpdateModel( searchToPerform.getBrowserConnection(), searchToPerform, monitor,
+                        incrementalSearchResults );
 
                     if ( search != searchToPerform )
                     {
                         // merge search results
-                        ISearchResult[] sr1 = search.getSearchResults();
                         ISearchResult[] sr2 = searchToPerform.getSearchResults();
                         ISearchResult[] sr = new ISearchResult[sr1.length + sr2.length];
                         System.arraycopy( sr1, 0, sr, 0, sr1.length );
@@ -294,6 +305,21 @@ public class SearchRunnable implements StudioConnectionBulkRunnableWithProgress
      */
     public static void searchAndUpdateModel( IBrowserConnection browserConnection, ISearch search,
         StudioProgressMonitor monitor )
+    {
+        searchAndUpdateModel( browserConnection, search, monitor, null );
+    }
+
+
+    /**
+     * Searches the directory and updates the browser model.
+     * 
+     * @param browserConnection the browser connection
+     * @param search the search
+     * @param monitor the progress monitor
+     * @param incrementalSearchResults the receiver of the results retrieved so far, may be null
+     */
+    private static void searchAndUpdateModel( IBrowserConnection browserConnection, ISearch search,
+        StudioProgressMonitor monitor, IncrementalSearchResults incrementalSearchResults )
     {
         if ( browserConnection.getConnection() == null )
         {
@@ -365,6 +391,11 @@ public class SearchRunnable implements StudioConnectionBulkRunnableWithProgress
                             searchResultList
                                 .add( new org.apache.directory.studio.ldapbrowser.core.model.impl.SearchResult( entry,
                                     search ) );
+
+                            if ( incrementalSearchResults != null )
+                            {
+                                incrementalSearchResults.resultsRetrieved( searchResultList );
+                            }
                         }
                         else
                         {
@@ -688,8 +719,7 @@ public class SearchRunnable implements StudioConnectionBulkRunnableWithProgress
                     {
                         entry.deleteAttribute( entry.getAttribute( attributeDescription ) );
                     }
-                    entry.addAttribute( new org.apache.directory.studio.ldapbrowser.core.model.impl.Attribute( entry,
-                        attributeDescription ) );
+                    entry.addAttribute( createAttribute( entry, attributeDescription ) );
                 }
                 for ( org.apache.directory.api.ldap.model.entry.Value valueObject : attribute )
                 {
@@ -846,8 +876,7 @@ public class SearchRunnable implements StudioConnectionBulkRunnableWithProgress
                     IAttribute studioAttribute = null;
                     if ( entry.getAttribute( attributeDescription ) == null )
                     {
-                        studioAttribute = new org.apache.directory.studio.ldapbrowser.core.model.impl.Attribute( entry,
-                            attributeDescription );
+                        studioAttribute = createAttribute( entry, attributeDescription );
                         entry.addAttribute( studioAttribute );
                     }
                     else
@@ -870,4 +899,116 @@ public class SearchRunnable implements StudioConnectionBulkRunnableWithProgress
             }
         }
     }
+
+
+    /**
+     * Creates an attribute for the search result, the compact implementation
+     * is used if enabled in the preferences.
+     *
+     * @param entry the entry
+     * @param attributeDescription the attribute description
+     * @return the attribute
+     */
+    private static IAttribute createAttribute( IEntry entry, String attributeDescription )
+    {
+        if ( BrowserCorePlugin.getDefault() != null
+            && BrowserCorePlugin.getDefault().getPluginPreferences().getBoolean(
+                BrowserCoreConstants.PREFERENCE_COMPACT_ATTRIBUTE_STORAGE ) )
+        {
+            return new CompactAttribute( entry, attributeDescription );
+        }
+        return new org.apache.directory.studio.ldapbrowser.core.model.impl.Attribute( entry, attributeDescription );
+    }
+
+
+    /**
+     * Checks whether search results are shown while the search is still running.
+     *
+     * @return true if search results are shown incrementally
+     */
+    private static boolean isIncremental()
+    {
+        return BrowserCorePlugin.getDefault() != null
+            && BrowserCorePlugin.getDefault().getPluginPreferences().getBoolean(
+                BrowserCoreConstants.PREFERENCE_SEARCH_RESULTS_INCREMENTAL );
+    }
+
+
+    /**
+     * Shows the search results retrieved so far in the search while the search is still
+     * running. The results are published every {@link #PUBLISH_COUNT} results or after
+     * {@link #PUBLISH_INTERVAL} milliseconds, whichever comes first. The complete results
+     * are set as usual when the search is finished.
+     */
+    private static class IncrementalSearchResults
+    {
+        /** The number of newly retrieved results after which the results are published */
+        private static final int PUBLISH_COUNT = 1000;
+
+        /** The time in milliseconds after which newly retrieved results are published */
+        private static final long PUBLISH_INTERVAL = 500L;
+
+        /** The search that shows the results */
+        private final ISearch search;
+
+        /** The results of former pages, shown before the retrieved results */
+        private final ISearchResult[] previousResults;
+
+        /** The number of retrieved results already published */
+        private int publishedCount;
+
+        /** The time of the last publication */
+        private long publishedTime;
+
+
+        /**
+         * Creates a new instance of IncrementalSearchResults.
+         *
+         * @param search the search that shows the results
+         * @param previousResults the results of former pages
+         */
+        private IncrementalSearchResults( ISearch search, ISearchResult[] previousResults )
+        {
+            this.search = search;
+            this.previousResults = previousResults != null ? previousResults : new ISearchResult[0];
+            this.publishedTime = System.currentTimeMillis();
+        }
+
+
+        /**
+         * Publishes the retrieved results if enough results were retrieved or enough
+         * time elapsed since the last publication.
+         *
+         * @param results all results retrieved so far
+         */
+        private void resultsRetrieved( List<ISearchResult> results )
+        {
+            int count = results.size();
+            if ( count - publishedCount >= PUBLISH_COUNT
+                || ( count > publishedCount && System.currentTimeMillis() - publishedTime >= PUBLISH_INTERVAL ) )
+            {
+                ISearchResult[] sr = new ISearchResult[previousResults.length + count];
+                System.arraycopy( previousResults, 0, sr, 0, previousResults.length );
+                for ( int i = 0; i < count; i++ )
+                {
+                    sr[previousResults.length + i] = results.get( i );
+                }
+
+                // event firing is suspended while the runnable runs, so setting the results
+                // doesn't notify the listeners, the partial results are announced explicitly
+                search.setSearchResults( sr );
+                EventRegistry.runWithEventFiringInCurrentThread( new Runnable()
+                {
+                    public void run()
+                    {
+                        EventRegistry.fireSearchUpdated( new SearchUpdateEvent( search,
+                            SearchUpdateEvent.EventDetail.SEARCH_RESULTS_RETRIEVED ), IncrementalSearchResults.this );
+                    }
+                } );
+
+                publishedCount = count;
+                publishedTime = System.currentTimeMillis();
+            }
+        }
+    }
 }
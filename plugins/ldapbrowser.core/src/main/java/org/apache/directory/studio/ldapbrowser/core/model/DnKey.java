@@ -0,0 +1,157 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *  
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License. 
+ *  
+ */
+package org.apache.directory.studio.ldapbrowser.core.model;
+
+
+import java.io.Serializable;
+
+
+/**
+ * The key of a Dn in the entry cache. It consists of the key of the parent Dn and
+ * the normalized OID form of the Rdn, so the key of an entry is built from the key
+ * of its parent without building the Dn string, and the keys of all ancestors are
+ * available through {@link #getParent()}.
+ * <p>
+ * The hash code is computed once, equal keys usually share their parent keys and Rdn
+ * strings, so comparing them is mostly comparing references.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public final class DnKey implements Serializable
+{
+    private static final long serialVersionUID = 5410346233917204635L;
+
+    /** The key of the empty Dn */
+    public static final DnKey ROOT = new DnKey( null, "" ); //$NON-NLS-1$
+
+    /** The key of the parent Dn, null for the empty Dn */
+    private final DnKey parent;
+
+    /** The normalized OID form of the Rdn */
+    private final String rdnKey;
+
+    /** The number of Rdns */
+    private final int depth;
+
+    /** The hash code */
+    private final int hashCode;
+
+
+    private DnKey( DnKey parent, String rdnKey )
+    {
+        this.parent = parent;
+        this.rdnKey = rdnKey;
+        this.depth = parent == null ? 0 : parent.depth + 1;
+        this.hashCode = parent == null ? 0 : parent.hashCode * 31 + rdnKey.hashCode();
+    }
+
+
+    /**
+     * Creates the key of a child Dn.
+     *
+     * @param childRdnKey the normalized OID form of the Rdn of the child
+     * @return the key of the child Dn
+     */
+    public DnKey getChild( String childRdnKey )
+    {
+        return new DnKey( this, childRdnKey );
+    }
+
+
+    /**
+     * Gets the key of the parent Dn.
+     *
+     * @return the key of the parent Dn, null if this is the key of the empty Dn
+     */
+    public DnKey getParent()
+    {
+        return parent;
+    }
+
+
+    /**
+     * Gets the number of Rdns.
+     *
+     * @return the number of Rdns
+     */
+    public int getDepth()
+    {
+        return depth;
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    public int hashCode()
+    {
+        return hashCode;
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    public boolean equals( Object o )
+    {
+        if ( !( o instanceof DnKey ) )
+        {
+            return false;
+        }
+
+        DnKey key1 = this;
+        DnKey key2 = ( DnKey ) o;
+        if ( key1.hashCode != key2.hashCode || key1.depth != key2.depth )
+        {
+            return false;
+        }
+
+        while ( key1 != key2 )
+        {
+            if ( !key1.rdnKey.equals( key2.rdnKey ) )
+            {
+                return false;
+            }
+            key1 = key1.parent;
+            key2 = key2.parent;
+        }
+
+        return true;
+    }
+
+
+    /**
+     * Returns the normalized OID form of the Dn.
+     */
+    public String toString()
+    {
+        if ( parent == null )
+        {
+            return ""; //$NON-NLS-1$
+        }
+
+        StringBuilder sb = new StringBuilder( rdnKey );
+        for ( DnKey key = parent; key.parent != null; key = key.parent )
+        {
+            sb.append( ',' ).append( key.rdnKey );
+        }
+        return sb.toString();
+    }
+}
@@ -521,6 +521,16 @@ public interface IBrowserConnection extends Serializable, IAdaptable, Connection
     IEntry getEntryFromCache( Dn dn );
 
 
+    /**
+     * Gets the nearest ancestor of the Dn from cache.
+     * 
+     * @param dn the Dn
+     * 
+     * @return the nearest cached ancestor entry, or null if no ancestor is cached
+     */
+    IEntry getAncestorEntryFromCache( Dn dn );
+
+
     /**
      * Gets the connection.
      * 
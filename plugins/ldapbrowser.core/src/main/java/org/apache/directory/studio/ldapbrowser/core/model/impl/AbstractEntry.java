@@ -419,6 +419,20 @@ public abstract class AbstractEntry implements IEntry, ICompareableEntry
             ai.attributesInitialized = b;
         }
 
+        if ( ai != null && b )
+        {
+            for ( IAttribute attribute : ai.attributeMap.values() )
+            {
+                if ( attribute instanceof CompactAttribute )
+                {
+                    ( ( CompactAttribute ) attribute ).trimToSize();
+                }
+            }
+
+            // set again to update the estimated memory usage of the loaded attributes
+            getBrowserConnectionImpl().setAttributeInfo( this, ai );
+        }
+
         if ( ai != null && !b )
         {
             ai.attributeMap.clear();
@@ -631,6 +645,12 @@ public abstract class AbstractEntry implements IEntry, ICompareableEntry
             ci.childrenInitialized = b;
         }
 
+        if ( ci != null && b )
+        {
+            // set again to update the estimated memory usage of the loaded children
+            getBrowserConnectionImpl().setChildrenInfo( this, ci );
+        }
+
         if ( ci != null && !b )
         {
             if ( ci.childrenSet != null )
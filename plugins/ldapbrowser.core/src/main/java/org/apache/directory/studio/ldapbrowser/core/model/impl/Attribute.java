@@ -89,6 +89,25 @@ public class Attribute implements IAttribute
     }
 
 
+    /**
+     * Creates an new instance of Attribute with the given description,
+     * used by subclasses that store their values themselves.
+     * 
+     * @param entry
+     *                The entry of this attribute, mustn't be null
+     * @param attributeDescription
+     *                The attribute descrption, mustn't be null.
+     */
+    protected Attribute( IEntry entry, AttributeDescription attributeDescription )
+    {
+        assert entry != null;
+        assert attributeDescription != null;
+
+        this.entry = entry;
+        this.attributeDescription = attributeDescription;
+    }
+
+
     /**
      * {@inheritDoc}
      */
@@ -217,7 +236,7 @@ public class Attribute implements IAttribute
      *
      * @param event the EntryModificationEvent
      */
-    private void attributeModified( EntryModificationEvent event )
+    protected void attributeModified( EntryModificationEvent event )
     {
         EventRegistry.fireEntryUpdated( event, getEntry() );
     }
@@ -229,7 +248,7 @@ public class Attribute implements IAttribute
      * @param value the value to check
      * @throws IllegalArgumentException if the value is not valid
      */
-    private void checkValue( IValue value ) throws IllegalArgumentException
+    protected void checkValue( IValue value ) throws IllegalArgumentException
     {
         if ( value == null )
         {
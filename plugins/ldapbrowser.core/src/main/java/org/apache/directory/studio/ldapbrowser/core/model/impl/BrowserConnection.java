@@ -22,19 +22,24 @@ package org.apache.directory.studio.ldapbrowser.core.model.impl;
 
 
 import java.io.Serializable;
-import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.directory.api.ldap.model.exception.LdapInvalidDnException;
 import org.apache.directory.api.ldap.model.name.Dn;
+import org.apache.directory.api.ldap.model.name.Rdn;
 import org.apache.directory.api.ldap.model.url.LdapUrl;
 import org.apache.directory.studio.connection.core.Connection;
 import org.apache.directory.studio.connection.core.Connection.AliasDereferencingMethod;
 import org.apache.directory.studio.connection.core.Connection.ReferralHandlingMethod;
 import org.apache.directory.studio.connection.core.event.ConnectionEventRegistry;
 import org.apache.directory.studio.ldapbrowser.core.BookmarkManager;
+import org.apache.directory.studio.ldapbrowser.core.BrowserCoreConstants;
+import org.apache.directory.studio.ldapbrowser.core.BrowserCorePlugin;
 import org.apache.directory.studio.ldapbrowser.core.SearchManager;
 import org.apache.directory.studio.ldapbrowser.core.internal.search.LdapSearchPageScoreComputer;
+import org.apache.directory.studio.ldapbrowser.core.model.DnKey;
 import org.apache.directory.studio.ldapbrowser.core.model.IBrowserConnection;
 import org.apache.directory.studio.ldapbrowser.core.model.IEntry;
 import org.apache.directory.studio.ldapbrowser.core.model.IQuickSearch;
@@ -73,17 +78,14 @@ public class BrowserConnection implements IBrowserConnection, Serializable
     /** The quick search. */
     private IQuickSearch quickSearch;
 
-    /** The dn to entry cache. */
-    private volatile Map<String, IEntry> dnToEntryCache;
+    /** The maximum number of cached Rdn keys. */
+    private static final int MAX_RDN_KEYS = 10000;
 
-    /** The entry to children filter map. */
-    private volatile Map<IEntry, String> entryToChildrenFilterMap;
+    /** The entry cache, with the attribute infos, children infos and children filters of the entries. */
+    private volatile EntryCache entryCache;
 
-    /** The entry to attribute info map. */
-    private volatile Map<IEntry, AttributeInfo> entryToAttributeInfoMap;
-
-    /** The entry to children info map. */
-    private volatile Map<IEntry, ChildrenInfo> entryToChildrenInfoMap;
+    /** The user provided Rdn to normalized OID Rdn map, depends on the schema. */
+    private final Map<String, String> rdnKeyCache = new ConcurrentHashMap<String, String>();
 
 
     /**
@@ -124,13 +126,11 @@ public class BrowserConnection implements IBrowserConnection, Serializable
         this.searchManager = new SearchManager( this );
         this.bookmarkManager = new BookmarkManager( this );
 
-        this.entryToChildrenFilterMap = new HashMap<IEntry, String>();
-        this.dnToEntryCache = new HashMap<String, IEntry>();
-        this.entryToAttributeInfoMap = new HashMap<IEntry, AttributeInfo>();
-        this.entryToChildrenInfoMap = new HashMap<IEntry, ChildrenInfo>();
+        this.entryCache = new EntryCache( getEntryCacheMaxEntries(), getEntryCacheMaxMemory() );
 
         this.schema = Schema.DEFAULT_SCHEMA;
         this.rootDSE = new RootDSE( this );
+        entryCache.setPinnedEntry( this.rootDSE );
         cacheEntry( this.rootDSE );
     }
 
@@ -154,17 +154,47 @@ public class BrowserConnection implements IBrowserConnection, Serializable
             search.setSearchResults( null );
         }
 
-        dnToEntryCache.clear();
-        entryToAttributeInfoMap.clear();
-        entryToChildrenInfoMap.clear();
-        entryToChildrenFilterMap.clear();
+        entryCache.clear();
+        entryCache.setLimits( getEntryCacheMaxEntries(), getEntryCacheMaxMemory() );
         //        searchManager.setQuickSearch( null ); TODO
 
         rootDSE = new RootDSE( this );
+        entryCache.setPinnedEntry( rootDSE );
         cacheEntry( rootDSE );
     }
 
 
+    /**
+     * Gets the statistics of the entry cache.
+     * 
+     * @return the statistics of the entry cache
+     */
+    public EntryCacheStatistics getEntryCacheStatistics()
+    {
+        return entryCache.getStatistics();
+    }
+
+
+    private static int getEntryCacheMaxEntries()
+    {
+        if ( BrowserCorePlugin.getDefault() == null )
+        {
+            return BrowserCoreConstants.DEFAULT_ENTRY_CACHE_MAX_ENTRIES;
+        }
+        return BrowserCorePlugin.getDefault().getPluginPreferences()
+            .getInt( BrowserCoreConstants.PREFERENCE_ENTRY_CACHE_MAX_ENTRIES );
+    }
+
+
+    private static long getEntryCacheMaxMemory()
+    {
+        int maxMemory = BrowserCorePlugin.getDefault() == null ? BrowserCoreConstants.DEFAULT_ENTRY_CACHE_MAX_MEMORY
+            : BrowserCorePlugin.getDefault().getPluginPreferences()
+                .getInt( BrowserCoreConstants.PREFERENCE_ENTRY_CACHE_MAX_MEMORY );
+        return maxMemory * 1024L * 1024L;
+    }
+
+
     /**
      * {@inheritDoc}
      */
@@ -175,10 +205,10 @@ public class BrowserConnection implements IBrowserConnection, Serializable
             return null;
         }
 
-        String oidDn = Utils.getNormalizedOidString( dn, getSchema() );
-        if ( dnToEntryCache != null && dnToEntryCache.containsKey( oidDn ) )
+        IEntry entry = entryCache.getEntry( getDnKey( dn ) );
+        if ( entry != null )
         {
-            return dnToEntryCache.get( oidDn );
+            return entry;
         }
         if ( getRootDSE().getDn().equals( dn ) )
         {
@@ -188,6 +218,82 @@ public class BrowserConnection implements IBrowserConnection, Serializable
     }
 
 
+    /**
+     * {@inheritDoc}
+     */
+    public IEntry getAncestorEntryFromCache( Dn dn )
+    {
+        if ( dn == null )
+        {
+            return null;
+        }
+
+        for ( DnKey key = getDnKey( dn ).getParent(); key != null; key = key.getParent() )
+        {
+            IEntry entry = entryCache.getEntry( key );
+            if ( entry != null )
+            {
+                return entry;
+            }
+        }
+        return null;
+    }
+
+
+    /**
+     * Gets the cache key of the Dn.
+     * 
+     * @param dn the Dn
+     * 
+     * @return the cache key
+     */
+    public DnKey getDnKey( Dn dn )
+    {
+        List<Rdn> rdns = dn.getRdns();
+        DnKey key = DnKey.ROOT;
+        for ( int i = rdns.size() - 1; i >= 0; i-- )
+        {
+            key = key.getChild( getRdnKey( rdns.get( i ) ) );
+        }
+        return key;
+    }
+
+
+    /**
+     * Gets the cache key of the entry. The key of an entry below a parent entry is
+     * built from the key of its parent, without building the Dn.
+     * 
+     * @param entry the entry
+     * 
+     * @return the cache key
+     */
+    private DnKey getDnKey( IEntry entry )
+    {
+        if ( entry instanceof Entry )
+        {
+            return getDnKey( entry.getParententry() ).getChild( getRdnKey( entry.getRdn() ) );
+        }
+        return getDnKey( entry.getDn() );
+    }
+
+
+    private String getRdnKey( Rdn rdn )
+    {
+        String name = rdn.getName();
+        String rdnKey = rdnKeyCache.get( name );
+        if ( rdnKey == null )
+        {
+            rdnKey = Utils.getNormalizedOidString( rdn, getSchema() );
+            if ( rdnKeyCache.size() >= MAX_RDN_KEYS )
+            {
+                rdnKeyCache.clear();
+            }
+            rdnKeyCache.put( name, rdnKey );
+        }
+        return rdnKey;
+    }
+
+
     /**
      * {@inheritDoc}
      */
@@ -541,6 +647,7 @@ public class BrowserConnection implements IBrowserConnection, Serializable
     public void setSchema( Schema schema )
     {
         this.schema = schema;
+        rdnKeyCache.clear();
     }
 
 
@@ -596,7 +703,7 @@ public class BrowserConnection implements IBrowserConnection, Serializable
      */
     public synchronized void cacheEntry( IEntry entry )
     {
-        dnToEntryCache.put( Utils.getNormalizedOidString( entry.getDn(), getSchema() ), entry );
+        entryCache.putEntry( getDnKey( entry ), entry );
     }
 
 
@@ -607,7 +714,7 @@ public class BrowserConnection implements IBrowserConnection, Serializable
      */
     protected synchronized void uncacheEntry( IEntry entry )
     {
-        dnToEntryCache.remove( Utils.getNormalizedOidString( entry.getDn(), getSchema() ) );
+        entryCache.removeEntry( getDnKey( entry ) );
         setAttributeInfo( entry, null );
         setChildrenInfo( entry, null );
         setChildrenFilter(entry, null);
@@ -640,7 +747,7 @@ public class BrowserConnection implements IBrowserConnection, Serializable
      */
     protected String getChildrenFilter( IEntry entry )
     {
-        return entryToChildrenFilterMap == null ? null : entryToChildrenFilterMap.get( entry );
+        return entryCache.getChildrenFilter( entry );
     }
 
 
@@ -654,11 +761,11 @@ public class BrowserConnection implements IBrowserConnection, Serializable
     {
         if ( childrenFilter == null || "".equals( childrenFilter ) ) //$NON-NLS-1$
         {
-            entryToChildrenFilterMap.remove( entry );
+            entryCache.setChildrenFilter( entry, null );
         }
         else
         {
-            entryToChildrenFilterMap.put( entry, childrenFilter );
+            entryCache.setChildrenFilter( entry, childrenFilter );
         }
     }
 
@@ -672,7 +779,7 @@ public class BrowserConnection implements IBrowserConnection, Serializable
      */
     protected AttributeInfo getAttributeInfo( IEntry entry )
     {
-        return entryToAttributeInfoMap == null ? null : entryToAttributeInfoMap.get( entry );
+        return entryCache.getAttributeInfo( entry );
     }
 
 
@@ -680,18 +787,12 @@ public class BrowserConnection implements IBrowserConnection, Serializable
      * Sets the attribute info.
      * 
      * @param entry the entry
-     * @param ai the attribute info, null to remove the attribute info
+     * @param ai the attribute info, null to remove the attribute info; set it again
+     *        when it is completely loaded to update the estimated memory usage
      */
     protected void setAttributeInfo( IEntry entry, AttributeInfo ai )
     {
-        if ( ai == null )
-        {
-            entryToAttributeInfoMap.remove( entry );
-        }
-        else
-        {
-            entryToAttributeInfoMap.put( entry, ai );
-        }
+        uncacheEvictedEntries( entryCache.setAttributeInfo( entry, ai ) );
     }
 
 
@@ -704,7 +805,7 @@ public class BrowserConnection implements IBrowserConnection, Serializable
      */
     protected ChildrenInfo getChildrenInfo( IEntry entry )
     {
-        return entryToChildrenInfoMap == null ? null : entryToChildrenInfoMap.get( entry );
+        return entryCache.getChildrenInfo( entry );
     }
 
 
@@ -716,13 +817,24 @@ public class BrowserConnection implements IBrowserConnection, Serializable
      */
     protected void setChildrenInfo( IEntry entry, ChildrenInfo ci )
     {
-        if ( ci == null )
-        {
-            entryToChildrenInfoMap.remove( entry );
-        }
-        else
+        uncacheEvictedEntries( entryCache.setChildrenInfo( entry, ci ) );
+    }
+
+
+    /**
+     * Removes the children of entries evicted from the entry cache. They are not
+     * reachable in the tree anymore, their parents will fetch them again.
+     * 
+     * @param evictedChildren the children of the evicted entries, may be null
+     */
+    private void uncacheEvictedEntries( List<IEntry> evictedChildren )
+    {
+        if ( evictedChildren != null )
         {
-            entryToChildrenInfoMap.put( entry, ci );
+            for ( IEntry child : evictedChildren )
+            {
+                uncacheEntry( child );
+            }
         }
     }
 
@@ -0,0 +1,525 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *  
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License. 
+ *  
+ */
+package org.apache.directory.studio.ldapbrowser.core.model.impl;
+
+
+import java.lang.ref.SoftReference;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.directory.studio.ldapbrowser.core.events.EmptyValueAddedEvent;
+import org.apache.directory.studio.ldapbrowser.core.events.EmptyValueDeletedEvent;
+import org.apache.directory.studio.ldapbrowser.core.events.ValueAddedEvent;
+import org.apache.directory.studio.ldapbrowser.core.events.ValueDeletedEvent;
+import org.apache.directory.studio.ldapbrowser.core.events.ValueModifiedEvent;
+import org.apache.directory.studio.ldapbrowser.core.model.AttributeDescription;
+import org.apache.directory.studio.ldapbrowser.core.model.IEntry;
+import org.apache.directory.studio.ldapbrowser.core.model.IValue;
+import org.apache.directory.studio.ldifparser.LdifUtils;
+
+
+/**
+ * An IAttribute implementation with a compact memory layout, used for
+ * large search results.
+ * <p>
+ * The attribute description is shared between all attributes with the same
+ * description. The values are not kept as one {@link Value} object each,
+ * instead all values are packed into a single byte array, string values are
+ * UTF-8 encoded. The {@link IValue} objects are created on demand when
+ * {@link #getValues()} is called and are softly referenced, so they are
+ * reclaimed under memory pressure and created again when needed.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public class CompactAttribute extends Attribute
+{
+
+    private static final long serialVersionUID = 3466183713512364542L;
+
+    /** The maximum number of shared attribute descriptions */
+    private static final int MAX_SHARED_DESCRIPTIONS = 10000;
+
+    /** The shared attribute descriptions */
+    private static final Map<String, AttributeDescription> SHARED_DESCRIPTIONS = new ConcurrentHashMap<String, AttributeDescription>();
+
+    private static final byte[] EMPTY_BYTES = new byte[0];
+
+    private static final int[] EMPTY_INTS = new int[0];
+
+    /** The value kinds */
+    private static final byte KIND_STRING = 0;
+    private static final byte KIND_BINARY = 1;
+    private static final byte KIND_EMPTY_STRING = 2;
+    private static final byte KIND_EMPTY_BINARY = 3;
+
+    /** The packed values */
+    private byte[] data = EMPTY_BYTES;
+
+    /** The number of used bytes in the packed values */
+    private int dataLength;
+
+    /** The end offset of each value within the packed values */
+    private int[] ends = EMPTY_INTS;
+
+    /** The kind of each value */
+    private byte[] kinds = EMPTY_BYTES;
+
+    /** The number of values */
+    private int size;
+
+    /** The values created on demand */
+    private transient SoftReference<IValue[]> views;
+
+
+    /**
+     * Creates an new instance of CompactAttribute with the given description
+     * and no value.
+     * 
+     * @param entry
+     *                The entry of this attribute, mustn't be null
+     * @param description
+     *                The attribute descrption, mustn't be null.
+     */
+    public CompactAttribute( IEntry entry, String description )
+    {
+        super( entry, getSharedDescription( description ) );
+    }
+
+
+    /**
+     * Gets the shared attribute description for the given description.
+     *
+     * @param description the description
+     * @return the shared attribute description
+     */
+    private static AttributeDescription getSharedDescription( String description )
+    {
+        AttributeDescription attributeDescription = SHARED_DESCRIPTIONS.get( description );
+
+        if ( attributeDescription == null )
+        {
+            if ( SHARED_DESCRIPTIONS.size() >= MAX_SHARED_DESCRIPTIONS )
+            {
+                SHARED_DESCRIPTIONS.clear();
+            }
+
+            attributeDescription = new AttributeDescription( description );
+            SHARED_DESCRIPTIONS.put( description, attributeDescription );
+        }
+
+        return attributeDescription;
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    public boolean isConsistent()
+    {
+        if ( size == 0 )
+        {
+            return false;
+        }
+
+        for ( int i = 0; i < size; i++ )
+        {
+            if ( kinds[i] == KIND_EMPTY_STRING || kinds[i] == KIND_EMPTY_BINARY )
+            {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    public void addEmptyValue()
+    {
+        IValue emptyValue = new Value( this );
+        internalAddValue( emptyValue );
+        attributeModified( new EmptyValueAddedEvent( getEntry().getBrowserConnection(), getEntry(), this, emptyValue ) );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    public void deleteEmptyValue()
+    {
+        for ( int i = 0; i < size; i++ )
+        {
+            if ( kinds[i] == KIND_EMPTY_STRING || kinds[i] == KIND_EMPTY_BINARY )
+            {
+                IValue value = getValues()[i];
+                internalDeleteValue( i );
+                attributeModified( new EmptyValueDeletedEvent( getEntry().getBrowserConnection(), getEntry(), this,
+                    value ) );
+                return;
+            }
+        }
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    public void addValue( IValue valueToAdd ) throws IllegalArgumentException
+    {
+        checkValue( valueToAdd );
+        internalAddValue( valueToAdd );
+        attributeModified( new ValueAddedEvent( getEntry().getBrowserConnection(), getEntry(), this, valueToAdd ) );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    public void deleteValue( IValue valueToDelete ) throws IllegalArgumentException
+    {
+        checkValue( valueToDelete );
+
+        int index = indexOf( valueToDelete );
+        if ( index > -1 )
+        {
+            internalDeleteValue( index );
+            attributeModified( new ValueDeletedEvent( getEntry().getBrowserConnection(), getEntry(), this,
+                valueToDelete ) );
+        }
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    public void modifyValue( IValue oldValue, IValue newValue ) throws IllegalArgumentException
+    {
+        checkValue( oldValue );
+        checkValue( newValue );
+
+        int index = indexOf( oldValue );
+        if ( index > -1 )
+        {
+            internalDeleteValue( index );
+        }
+        internalAddValue( newValue );
+        attributeModified( new ValueModifiedEvent( getEntry().getBrowserConnection(), getEntry(), this, oldValue,
+            newValue ) );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    public IValue[] getValues()
+    {
+        IValue[] values = views != null ? views.get() : null;
+
+        if ( values == null )
+        {
+            values = new IValue[size];
+            for ( int i = 0; i < size; i++ )
+            {
+                values[i] = new Value( this, getRawValue( i ) );
+            }
+            views = new SoftReference<IValue[]>( values );
+        }
+
+        return values.clone();
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    public int getValueSize()
+    {
+        return size;
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    public String getStringValue()
+    {
+        if ( size > 0 )
+        {
+            return getStringValue( 0 );
+        }
+        else
+        {
+            return null;
+        }
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    public String[] getStringValues()
+    {
+        String[] stringValues = new String[size];
+
+        for ( int i = 0; i < size; i++ )
+        {
+            stringValues[i] = getStringValue( i );
+        }
+
+        return stringValues;
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    public byte[][] getBinaryValues()
+    {
+        byte[][] binaryValues = new byte[size][];
+
+        for ( int i = 0; i < size; i++ )
+        {
+            binaryValues[i] = getBytes( i );
+        }
+
+        return binaryValues;
+    }
+
+
+    /**
+     * Gets the estimated memory usage of the values, in bytes.
+     *
+     * @return the estimated memory usage of the values
+     */
+    public long getEstimatedSize()
+    {
+        return data.length + ends.length * 4L + kinds.length;
+    }
+
+
+    /**
+     * Releases the unused capacity of the packed values,
+     * called when the attributes of the entry are completely loaded.
+     */
+    void trimToSize()
+    {
+        if ( data.length > dataLength )
+        {
+            data = Arrays.copyOf( data, dataLength );
+        }
+        if ( ends.length > size )
+        {
+            ends = Arrays.copyOf( ends, size );
+            kinds = Arrays.copyOf( kinds, size );
+        }
+    }
+
+
+    /**
+     * Appends the given value to the packed values.
+     *
+     * @param value the value
+     */
+    private void internalAddValue( IValue value )
+    {
+        byte kind;
+        byte[] bytes;
+
+        Object rawValue = value.getRawValue();
+        if ( rawValue == IValue.EMPTY_STRING_VALUE )
+        {
+            kind = KIND_EMPTY_STRING;
+            bytes = EMPTY_BYTES;
+        }
+        else if ( rawValue == IValue.EMPTY_BINARY_VALUE )
+        {
+            kind = KIND_EMPTY_BINARY;
+            bytes = EMPTY_BYTES;
+        }
+        else if ( rawValue instanceof byte[] )
+        {
+            kind = KIND_BINARY;
+            bytes = ( byte[] ) rawValue;
+        }
+        else
+        {
+            kind = KIND_STRING;
+            bytes = LdifUtils.utf8encode( value.getStringValue() );
+        }
+
+        if ( dataLength + bytes.length > data.length )
+        {
+            // the first value is stored without spare capacity, most attributes are single-valued
+            int capacity = size == 0 ? bytes.length : Math.max( dataLength + bytes.length, data.length * 3 / 2 );
+            data = Arrays.copyOf( data, capacity );
+        }
+        if ( size == ends.length )
+        {
+            int capacity = size == 0 ? 1 : size * 3 / 2 + 1;
+            ends = Arrays.copyOf( ends, capacity );
+            kinds = Arrays.copyOf( kinds, capacity );
+        }
+
+        System.arraycopy( bytes, 0, data, dataLength, bytes.length );
+        dataLength += bytes.length;
+        ends[size] = dataLength;
+        kinds[size] = kind;
+        size++;
+
+        // keep the already created values, they may be referenced by the caller
+        IValue[] values = views != null ? views.get() : null;
+        if ( values != null )
+        {
+            values = Arrays.copyOf( values, size );
+            values[size - 1] = value;
+            views = new SoftReference<IValue[]>( values );
+        }
+    }
+
+
+    /**
+     * Removes the value at the given index from the packed values.
+     *
+     * @param index the index
+     */
+    private void internalDeleteValue( int index )
+    {
+        int start = getStart( index );
+        int length = ends[index] - start;
+
+        System.arraycopy( data, ends[index], data, start, dataLength - ends[index] );
+        dataLength -= length;
+
+        for ( int i = index; i < size - 1; i++ )
+        {
+            ends[i] = ends[i + 1] - length;
+            kinds[i] = kinds[i + 1];
+        }
+        size--;
+
+        IValue[] values = views != null ? views.get() : null;
+        if ( values != null )
+        {
+            IValue[] remaining = new IValue[size];
+            System.arraycopy( values, 0, remaining, 0, index );
+            System.arraycopy( values, index + 1, remaining, index, size - index );
+            views = new SoftReference<IValue[]>( remaining );
+        }
+    }
+
+
+    /**
+     * Gets the index of the value with the same content as the given value.
+     *
+     * @param value the value
+     * @return the index, -1 if not found
+     */
+    private int indexOf( IValue value )
+    {
+        byte[] bytes = value.isEmpty() ? null : value.getBinaryValue();
+
+        for ( int i = 0; i < size; i++ )
+        {
+            boolean empty = kinds[i] == KIND_EMPTY_STRING || kinds[i] == KIND_EMPTY_BINARY;
+            if ( bytes == null )
+            {
+                if ( empty )
+                {
+                    return i;
+                }
+            }
+            else if ( !empty && regionEquals( getStart( i ), ends[i], bytes ) )
+            {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+
+
+    private boolean regionEquals( int start, int end, byte[] bytes )
+    {
+        if ( end - start != bytes.length )
+        {
+            return false;
+        }
+
+        for ( int i = 0; i < bytes.length; i++ )
+        {
+            if ( data[start + i] != bytes[i] )
+            {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+
+    private int getStart( int index )
+    {
+        return index == 0 ? 0 : ends[index - 1];
+    }
+
+
+    private byte[] getBytes( int index )
+    {
+        return Arrays.copyOfRange( data, getStart( index ), ends[index] );
+    }
+
+
+    private String getStringValue( int index )
+    {
+        switch ( kinds[index] )
+        {
+            case KIND_EMPTY_STRING:
+                return IValue.EMPTY_STRING_VALUE.getStringValue();
+            case KIND_EMPTY_BINARY:
+                return IValue.EMPTY_BINARY_VALUE.getStringValue();
+            default:
+                return LdifUtils.utf8decode( getBytes( index ) );
+        }
+    }
+
+
+    /**
+     * Gets the raw value at the given index, either a String, a byte[] or
+     * one of the empty values.
+     */
+    private Object getRawValue( int index )
+    {
+        switch ( kinds[index] )
+        {
+            case KIND_EMPTY_STRING:
+                return IValue.EMPTY_STRING_VALUE;
+            case KIND_EMPTY_BINARY:
+                return IValue.EMPTY_BINARY_VALUE;
+            case KIND_BINARY:
+                return getBytes( index );
+            default:
+                return LdifUtils.utf8decode( getBytes( index ) );
+        }
+    }
+
+}
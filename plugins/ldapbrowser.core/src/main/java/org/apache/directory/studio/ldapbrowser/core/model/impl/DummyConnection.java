@@ -104,6 +104,15 @@ public class DummyConnection implements IBrowserConnection
     }
 
 
+    /** 
+     * {@inheritDoc}
+     */
+    public IEntry getAncestorEntryFromCache( Dn dn )
+    {
+        return null;
+    }
+
+
     /** 
      * {@inheritDoc}
      */
@@ -0,0 +1,432 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *  
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License. 
+ *  
+ */
+package org.apache.directory.studio.ldapbrowser.core.model.impl;
+
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.directory.studio.ldapbrowser.core.model.DnKey;
+import org.apache.directory.studio.ldapbrowser.core.model.IAttribute;
+import org.apache.directory.studio.ldapbrowser.core.model.IEntry;
+import org.apache.directory.studio.ldapbrowser.core.model.IValue;
+
+
+/**
+ * The entry cache of a {@link BrowserConnection}.
+ * <p>
+ * The Dn to entry map and the children filters are concurrent maps, so lookups don't need
+ * to lock. The attribute and children infos of the entries are kept in LRU order and are
+ * bounded by their number and by their estimated memory usage. When a bound is exceeded
+ * the infos of the least recently used entries are evicted: the entry becomes uninitialized
+ * and is loaded again from the directory when needed.
+ * <p>
+ * To keep the tree consistent eviction works bottom-up: the infos of an entry are only
+ * evicted once its children have no infos anymore, the children are then removed from
+ * the cache. Infos that are still being loaded and the infos of the pinned entry, the
+ * Root DSE, are never evicted.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+class EntryCache implements Serializable
+{
+    private static final long serialVersionUID = -2946583468017215723L;
+
+    /** The maximum number of least recently used infos inspected per eviction */
+    private static final int MAX_EVICTION_SCAN = 1000;
+
+    /** Estimated memory of an info, an attribute or a value, without the value itself */
+    private static final int OVERHEAD = 64;
+
+    /** Estimated memory of a child entry without infos */
+    private static final int CHILD_ENTRY_SIZE = 256;
+
+    /** The Dn to entry map */
+    private final Map<DnKey, IEntry> dnToEntryMap = new ConcurrentHashMap<DnKey, IEntry>();
+
+    /** The entry to children filter map */
+    private final Map<IEntry, String> entryToChildrenFilterMap = new ConcurrentHashMap<IEntry, String>();
+
+    /** The entry infos in LRU order, guarded by this */
+    private final LinkedHashMap<IEntry, EntryInfos> entryToInfosMap = new LinkedHashMap<IEntry, EntryInfos>( 16,
+        0.75f, true );
+
+    /** The estimated memory usage of all infos, guarded by this */
+    private long weight;
+
+    /** The maximum number of entries with infos */
+    private volatile int maxEntries;
+
+    /** The maximum estimated memory usage of all infos */
+    private volatile long maxWeight;
+
+    /** The entry whose infos are never evicted */
+    private volatile IEntry pinnedEntry;
+
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final AtomicLong evictionCount = new AtomicLong();
+
+
+    /**
+     * Creates a new instance of EntryCache.
+     *
+     * @param maxEntries the maximum number of entries with attribute or children infos
+     * @param maxWeight the maximum estimated memory usage of the infos, in bytes
+     */
+    EntryCache( int maxEntries, long maxWeight )
+    {
+        setLimits( maxEntries, maxWeight );
+    }
+
+
+    /**
+     * Sets the bounds of the cache, they are applied when the next info is added.
+     *
+     * @param maxEntries the maximum number of entries with attribute or children infos
+     * @param maxWeight the maximum estimated memory usage of the infos, in bytes
+     */
+    void setLimits( int maxEntries, long maxWeight )
+    {
+        this.maxEntries = Math.max( 1, maxEntries );
+        this.maxWeight = Math.max( 1, maxWeight );
+    }
+
+
+    /**
+     * Sets the entry whose infos are never evicted.
+     *
+     * @param entry the entry
+     */
+    void setPinnedEntry( IEntry entry )
+    {
+        this.pinnedEntry = entry;
+    }
+
+
+    IEntry getEntry( DnKey key )
+    {
+        IEntry entry = dnToEntryMap.get( key );
+        if ( entry != null )
+        {
+            hitCount.incrementAndGet();
+        }
+        else
+        {
+            missCount.incrementAndGet();
+        }
+        return entry;
+    }
+
+
+    void putEntry( DnKey key, IEntry entry )
+    {
+        dnToEntryMap.put( key, entry );
+    }
+
+
+    void removeEntry( DnKey key )
+    {
+        dnToEntryMap.remove( key );
+    }
+
+
+    String getChildrenFilter( IEntry entry )
+    {
+        return entryToChildrenFilterMap.get( entry );
+    }
+
+
+    void setChildrenFilter( IEntry entry, String childrenFilter )
+    {
+        if ( childrenFilter == null )
+        {
+            entryToChildrenFilterMap.remove( entry );
+        }
+        else
+        {
+            entryToChildrenFilterMap.put( entry, childrenFilter );
+        }
+    }
+
+
+    synchronized AttributeInfo getAttributeInfo( IEntry entry )
+    {
+        EntryInfos infos = entryToInfosMap.get( entry );
+        return infos != null ? infos.attributeInfo : null;
+    }
+
+
+    synchronized ChildrenInfo getChildrenInfo( IEntry entry )
+    {
+        EntryInfos infos = entryToInfosMap.get( entry );
+        return infos != null ? infos.childrenInfo : null;
+    }
+
+
+    /**
+     * Sets the attribute info of the entry, null to remove it.
+     *
+     * @return the children of evicted entries, they must be removed from the cache
+     */
+    List<IEntry> setAttributeInfo( IEntry entry, AttributeInfo attributeInfo )
+    {
+        return setInfos( entry, attributeInfo, null, true );
+    }
+
+
+    /**
+     * Sets the children info of the entry, null to remove it.
+     *
+     * @return the children of evicted entries, they must be removed from the cache
+     */
+    List<IEntry> setChildrenInfo( IEntry entry, ChildrenInfo childrenInfo )
+    {
+        return setInfos( entry, null, childrenInfo, false );
+    }
+
+
+    private synchronized List<IEntry> setInfos( IEntry entry, AttributeInfo attributeInfo,
+        ChildrenInfo childrenInfo, boolean isAttributeInfo )
+    {
+        EntryInfos infos = entryToInfosMap.get( entry );
+        if ( infos == null )
+        {
+            if ( attributeInfo == null && childrenInfo == null )
+            {
+                return null;
+            }
+            infos = new EntryInfos();
+            entryToInfosMap.put( entry, infos );
+        }
+
+        if ( isAttributeInfo )
+        {
+            infos.attributeInfo = attributeInfo;
+        }
+        else
+        {
+            infos.childrenInfo = childrenInfo;
+        }
+
+        weight -= infos.weight;
+        if ( infos.attributeInfo == null && infos.childrenInfo == null )
+        {
+            entryToInfosMap.remove( entry );
+            return null;
+        }
+        infos.weight = infos.computeWeight();
+        weight += infos.weight;
+
+        return evict( entry );
+    }
+
+
+    /**
+     * Evicts the least recently used infos until the cache is within its bounds.
+     * Must be called with the lock held.
+     *
+     * @param excluded the entry whose infos were just set, it is not evicted
+     * @return the children of the evicted entries
+     */
+    private List<IEntry> evict( IEntry excluded )
+    {
+        List<IEntry> evictedChildren = null;
+
+        int scanned = 0;
+        for ( Iterator<Map.Entry<IEntry, EntryInfos>> it = entryToInfosMap.entrySet().iterator(); it.hasNext()
+            && ( entryToInfosMap.size() > maxEntries || weight > maxWeight ) && scanned < MAX_EVICTION_SCAN; scanned++ )
+        {
+            Map.Entry<IEntry, EntryInfos> mapEntry = it.next();
+            IEntry entry = mapEntry.getKey();
+            EntryInfos infos = mapEntry.getValue();
+
+            if ( entry == excluded || entry == pinnedEntry || !isEvictable( infos ) )
+            {
+                continue;
+            }
+
+            it.remove();
+            weight -= infos.weight;
+            evictionCount.incrementAndGet();
+
+            if ( infos.childrenInfo != null && infos.childrenInfo.childrenSet != null )
+            {
+                if ( evictedChildren == null )
+                {
+                    evictedChildren = new ArrayList<IEntry>();
+                }
+                evictedChildren.addAll( infos.childrenInfo.childrenSet );
+            }
+        }
+
+        return evictedChildren;
+    }
+
+
+    /**
+     * Checks if the infos are completely loaded and if the children have no infos.
+     * Must be called with the lock held.
+     */
+    private boolean isEvictable( EntryInfos infos )
+    {
+        if ( infos.attributeInfo != null && !infos.attributeInfo.attributesInitialized )
+        {
+            return false;
+        }
+
+        ChildrenInfo childrenInfo = infos.childrenInfo;
+        if ( childrenInfo != null )
+        {
+            if ( !childrenInfo.childrenInitialized )
+            {
+                return false;
+            }
+
+            try
+            {
+                if ( childrenInfo.childrenSet != null )
+                {
+                    for ( IEntry child : childrenInfo.childrenSet )
+                    {
+                        // containsKey() doesn't change the LRU order
+                        if ( entryToInfosMap.containsKey( child ) )
+                        {
+                            return false;
+                        }
+                    }
+                }
+            }
+            catch ( ConcurrentModificationException e )
+            {
+                // children are being added
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+
+    /**
+     * Removes all entries and infos.
+     */
+    void clear()
+    {
+        synchronized ( this )
+        {
+            entryToInfosMap.clear();
+            weight = 0;
+        }
+        dnToEntryMap.clear();
+        entryToChildrenFilterMap.clear();
+    }
+
+
+    /**
+     * Gets the statistics of this cache.
+     *
+     * @return the statistics
+     */
+    EntryCacheStatistics getStatistics()
+    {
+        int infoCount;
+        long currentWeight;
+        synchronized ( this )
+        {
+            infoCount = entryToInfosMap.size();
+            currentWeight = weight;
+        }
+
+        return new EntryCacheStatistics( dnToEntryMap.size(), infoCount, currentWeight, hitCount.get(),
+            missCount.get(), evictionCount.get() );
+    }
+
+    /**
+     * The attribute and children infos of an entry.
+     */
+    private static class EntryInfos implements Serializable
+    {
+        private static final long serialVersionUID = 6213548931057416412L;
+
+        private AttributeInfo attributeInfo;
+        private ChildrenInfo childrenInfo;
+        private long weight;
+
+
+        /**
+         * Estimates the memory used by the infos. Attributes that are being loaded
+         * are measured again when they are completely loaded.
+         */
+        private long computeWeight()
+        {
+            long size = OVERHEAD;
+
+            try
+            {
+                if ( attributeInfo != null )
+                {
+                    for ( IAttribute attribute : attributeInfo.attributeMap.values() )
+                    {
+                        size += OVERHEAD;
+                        if ( attribute instanceof CompactAttribute )
+                        {
+                            // don't create the values just to measure them
+                            size += ( ( CompactAttribute ) attribute ).getEstimatedSize();
+                            continue;
+                        }
+                        for ( IValue value : attribute.getValues() )
+                        {
+                            Object rawValue = value.getRawValue();
+                            size += OVERHEAD;
+                            if ( rawValue instanceof String )
+                            {
+                                size += ( ( String ) rawValue ).length() * 2L;
+                            }
+                            else if ( rawValue instanceof byte[] )
+                            {
+                                size += ( ( byte[] ) rawValue ).length;
+                            }
+                        }
+                    }
+                }
+
+                if ( childrenInfo != null && childrenInfo.childrenSet != null )
+                {
+                    size += childrenInfo.childrenSet.size() * ( long ) CHILD_ENTRY_SIZE;
+                }
+            }
+            catch ( ConcurrentModificationException e )
+            {
+                // being loaded, keep the previous estimation
+                return Math.max( weight, size );
+            }
+
+            return size;
+        }
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *  
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License. 
+ *  
+ */
+package org.apache.directory.studio.ldapbrowser.core.model.impl;
+
+
+/**
+ * A snapshot of the statistics of the entry cache of a browser connection.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public class EntryCacheStatistics
+{
+    /** The number of cached entries */
+    private final int entryCount;
+
+    /** The number of entries with attribute or children infos */
+    private final int infoCount;
+
+    /** The estimated memory used by the infos, in bytes */
+    private final long estimatedSize;
+
+    /** The number of lookups that found the entry */
+    private final long hitCount;
+
+    /** The number of lookups that didn't find the entry */
+    private final long missCount;
+
+    /** The number of entries whose infos were evicted */
+    private final long evictionCount;
+
+
+    /**
+     * Creates a new instance of EntryCacheStatistics.
+     *
+     * @param entryCount the number of cached entries
+     * @param infoCount the number of entries with attribute or children infos
+     * @param estimatedSize the estimated memory used by the infos, in bytes
+     * @param hitCount the number of lookups that found the entry
+     * @param missCount the number of lookups that didn't find the entry
+     * @param evictionCount the number of entries whose infos were evicted
+     */
+    public EntryCacheStatistics( int entryCount, int infoCount, long estimatedSize, long hitCount, long missCount,
+        long evictionCount )
+    {
+        this.entryCount = entryCount;
+        this.infoCount = infoCount;
+        this.estimatedSize = estimatedSize;
+        this.hitCount = hitCount;
+        this.missCount = missCount;
+        this.evictionCount = evictionCount;
+    }
+
+
+    /**
+     * @return the number of cached entries
+     */
+    public int getEntryCount()
+    {
+        return entryCount;
+    }
+
+
+    /**
+     * @return the number of entries with attribute or children infos
+     */
+    public int getInfoCount()
+    {
+        return infoCount;
+    }
+
+
+    /**
+     * @return the estimated memory used by the attribute and children infos, in bytes
+     */
+    public long getEstimatedSize()
+    {
+        return estimatedSize;
+    }
+
+
+    /**
+     * @return the number of lookups that found the entry
+     */
+    public long getHitCount()
+    {
+        return hitCount;
+    }
+
+
+    /**
+     * @return the number of lookups that didn't find the entry
+     */
+    public long getMissCount()
+    {
+        return missCount;
+    }
+
+
+    /**
+     * @return the number of entries whose infos were evicted
+     */
+    public long getEvictionCount()
+    {
+        return evictionCount;
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    public String toString()
+    {
+        return "entries=" + entryCount + ", infos=" + infoCount + ", size=" + estimatedSize + ", hits=" + hitCount //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+            + ", misses=" + missCount + ", evictions=" + evictionCount; //$NON-NLS-1$ //$NON-NLS-2$
+    }
+}
@@ -52,10 +52,10 @@ import org.apache.directory.api.util.Strings;
 import org.apache.directory.studio.connection.core.Utils;
 import org.apache.directory.studio.ldapbrowser.core.model.AttributeDescription;
 import org.apache.directory.studio.ldifparser.LdifFormatParameters;
-import org.apache.directory.studio.ldifparser.model.LdifEnumeration;
-import org.apache.directory.studio.ldifparser.model.container.LdifContainer;
+import org.apache.directory.studio.ldifparser.model.LdifRecordView;
+import org.apache.directory.studio.ldifparser.model.LdifRecordView.ChangeType;
+import org.apache.directory.studio.ldifparser.model.LdifRecordViewEnumeration;
 import org.apache.directory.studio.ldifparser.model.container.LdifContentRecord;
-import org.apache.directory.studio.ldifparser.model.lines.LdifAttrValLine;
 import org.apache.directory.studio.ldifparser.parser.LdifParser;
 
 
@@ -119,7 +119,8 @@ public class Schema
         return this.defaultSchema;
     }
 
-    private LdifContentRecord schemaRecord;
+    /** The schema record, without the line model */
+    private LdifRecordView schemaRecord;
 
     private Dn dn;
 
@@ -137,6 +138,9 @@ public class Schema
 
     private Map<String, MatchingRuleUse> mrudMapByNameOrNumericOid;
 
+    /** The reverse indexes, built on first use */
+    private volatile SchemaIndex index;
+
 
     /**
      * Creates a new instance of Schema.
@@ -166,13 +170,12 @@ public class Schema
         try
         {
             LdifParser parser = new LdifParser();
-            LdifEnumeration enumeration = parser.parse( reader );
+            LdifRecordViewEnumeration enumeration = parser.parseRecordViews( reader, 0 );
             while ( enumeration.hasNext() )
             {
-                LdifContainer container = enumeration.next();
-                if ( container instanceof LdifContentRecord )
+                LdifRecordView schemaRecord = enumeration.next();
+                if ( schemaRecord.getChangeType() == ChangeType.CONTENT )
                 {
-                    LdifContentRecord schemaRecord = ( LdifContentRecord ) container;
                     parseSchemaRecord( schemaRecord );
                 }
             }
@@ -194,7 +197,7 @@ public class Schema
     {
         try
         {
-            parseSchemaRecord( schemaRecord );
+            parseSchemaRecord( LdifRecordView.create( schemaRecord ) );
         }
         catch ( Exception e )
         {
@@ -230,10 +233,10 @@ public class Schema
      * 
      * @throws Exception the exception
      */
-    private void parseSchemaRecord( LdifContentRecord schemaRecord ) throws Exception
+    private void parseSchemaRecord( LdifRecordView schemaRecord ) throws Exception
     {
-        setSchemaRecord( schemaRecord );
-        setDn( new Dn( schemaRecord.getDnLine().getValueAsString() ) );
+        this.schemaRecord = schemaRecord;
+        setDn( new Dn( schemaRecord.getDn() ) );
 
         ObjectClassDescriptionSchemaParser ocdPparser = new ObjectClassDescriptionSchemaParser();
         ocdPparser.setQuirksMode( true );
@@ -246,12 +249,10 @@ public class Schema
         MatchingRuleUseDescriptionSchemaParser mrudParser = new MatchingRuleUseDescriptionSchemaParser();
         mrudParser.setQuirksMode( true );
 
-        LdifAttrValLine[] lines = schemaRecord.getAttrVals();
-        for ( int i = 0; i < lines.length; i++ )
+        for ( int i = 0; i < schemaRecord.getValueCount(); i++ )
         {
-            LdifAttrValLine line = lines[i];
-            String attributeName = line.getUnfoldedAttributeDescription();
-            String value = line.getValueAsString();
+            String attributeName = schemaRecord.getAttributeDescription( i );
+            String value = schemaRecord.getValueAsString( i );
             List<String> ldifValues = new ArrayList<String>( 1 );
             ldifValues.add( value );
 
@@ -333,6 +334,24 @@ public class Schema
         Collection<String> atdNames = SchemaUtils.getNames( userAtds );
         List<String> atdNames2 = new ArrayList<String>( atdNames );
         extensibleObjectOcd.setMayAttributeTypeOids( atdNames2 );
+        index = null;
+    }
+
+
+    /**
+     * Gets the reverse indexes of this schema, they are built on first use.
+     *
+     * @return the reverse indexes
+     */
+    SchemaIndex getIndex()
+    {
+        SchemaIndex index = this.index;
+        if ( index == null )
+        {
+            index = new SchemaIndex( this );
+            this.index = index;
+        }
+        return index;
     }
 
 
@@ -358,7 +377,7 @@ public class Schema
      */
     public LdifContentRecord getSchemaRecord()
     {
-        return schemaRecord;
+        return schemaRecord != null ? ( LdifContentRecord ) schemaRecord.toRecord() : null;
     }
 
 
@@ -368,11 +387,88 @@ public class Schema
      * @param schemaRecord the new schema record
      */
     public void setSchemaRecord( LdifContentRecord schemaRecord )
+    {
+        this.schemaRecord = schemaRecord != null ? LdifRecordView.create( schemaRecord ) : null;
+    }
+
+
+    /**
+     * Gets the view of the schema record, used by {@link SchemaSnapshot}.
+     *
+     * @return the view of the schema record, may be null
+     */
+    LdifRecordView getSchemaRecordView()
+    {
+        return schemaRecord;
+    }
+
+
+    /**
+     * Sets the view of the schema record, used by {@link SchemaSnapshot}.
+     *
+     * @param schemaRecord the view of the schema record, may be null
+     */
+    void setSchemaRecordView( LdifRecordView schemaRecord )
     {
         this.schemaRecord = schemaRecord;
     }
 
 
+    /**
+     * Gets the object class descriptions by lower-cased name or numeric OID.
+     *
+     * @return the object class index
+     */
+    Map<String, ObjectClass> getObjectClassIndex()
+    {
+        return ocdMapByNameOrNumericOid;
+    }
+
+
+    /**
+     * Gets the attribute type descriptions by lower-cased name or numeric OID.
+     *
+     * @return the attribute type index
+     */
+    Map<String, AttributeType> getAttributeTypeIndex()
+    {
+        return atdMapByNameOrNumericOid;
+    }
+
+
+    /**
+     * Gets the LDAP syntax descriptions by lower-cased numeric OID.
+     *
+     * @return the LDAP syntax index
+     */
+    Map<String, LdapSyntax> getLdapSyntaxIndex()
+    {
+        return lsdMapByNumericOid;
+    }
+
+
+    /**
+     * Gets the matching rule descriptions by lower-cased name or numeric OID.
+     *
+     * @return the matching rule index
+     */
+    Map<String, MatchingRule> getMatchingRuleIndex()
+    {
+        return mrdMapByNameOrNumericOid;
+    }
+
+
+    /**
+     * Gets the matching rule use descriptions by lower-cased name or numeric OID.
+     *
+     * @return the matching rule use index
+     */
+    Map<String, MatchingRuleUse> getMatchingRuleUseIndex()
+    {
+        return mrudMapByNameOrNumericOid;
+    }
+
+
     /**
      * Gets the Dn of the schema record, may be null.
      * 
@@ -448,6 +544,8 @@ public class Schema
      */
     private void addObjectClass( ObjectClass ocd )
     {
+        index = null;
+
         if ( ocd.getOid() != null )
         {
             ocdMapByNameOrNumericOid.put( Strings.toLowerCase( ocd.getOid() ), ocd );
@@ -534,6 +632,8 @@ public class Schema
      */
     private void addAttributeType( AttributeType atd )
     {
+        index = null;
+
         if ( atd.getOid() != null )
         {
             atdMapByNameOrNumericOid.put( Strings.toLowerCase( atd.getOid() ), atd );
@@ -625,6 +725,8 @@ public class Schema
      */
     private void addLdapSyntax( LdapSyntax lsd )
     {
+        index = null;
+
         if ( lsd.getOid() != null )
         {
             lsdMapByNumericOid.put( Strings.toLowerCase( lsd.getOid() ), lsd );
@@ -703,6 +805,8 @@ public class Schema
      */
     private void addMatchingRule( MatchingRule mrd )
     {
+        index = null;
+
         if ( mrd.getOid() != null )
         {
             mrdMapByNameOrNumericOid.put( Strings.toLowerCase( mrd.getOid() ), mrd );
@@ -786,6 +890,8 @@ public class Schema
      */
     private void addMatchingRuleUse( MatchingRuleUse mrud )
     {
+        index = null;
+
         if ( mrud.getOid() != null )
         {
             mrudMapByNameOrNumericOid.put( Strings.toLowerCase( mrud.getOid() ), mrud );
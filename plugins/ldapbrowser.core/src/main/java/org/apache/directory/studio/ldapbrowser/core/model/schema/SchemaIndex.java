@@ -0,0 +1,291 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.apache.directory.studio.ldapbrowser.core.model.schema;
+
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.directory.api.ldap.model.schema.AbstractSchemaObject;
+import org.apache.directory.api.ldap.model.schema.AttributeType;
+import org.apache.directory.api.ldap.model.schema.ObjectClass;
+import org.apache.directory.api.util.Strings;
+
+
+/**
+ * Immutable reverse indexes of a {@link Schema}, used by {@link SchemaUtils} to answer
+ * "who uses this element" queries with map lookups instead of scanning all elements.
+ * <p>
+ * All keys are lower-cased names or numeric OIDs, as referenced by the using elements.
+ * The indexes are built once by {@link Schema#getIndex()} and dropped when the schema
+ * changes.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+final class SchemaIndex
+{
+    /** Attribute type name or OID to the object classes using it as must attribute, transitively */
+    private final Map<String, Set<ObjectClass>> usedAsMust;
+
+    /** Attribute type name or OID to the object classes using it as may attribute, transitively */
+    private final Map<String, Set<ObjectClass>> usedAsMay;
+
+    /** Object class name or OID to its direct sub classes */
+    private final Map<String, Set<ObjectClass>> subObjectClasses;
+
+    /** Attribute type name or OID to its direct sub types */
+    private final Map<String, Set<AttributeType>> derivedAttributeTypes;
+
+    /** Syntax OID to the attribute types using it, transitively */
+    private final Map<String, Set<AttributeType>> syntaxUsers;
+
+    /** Matching rule name or OID to the attribute types using it, transitively */
+    private final Map<String, Set<AttributeType>> matchingRuleUsers;
+
+
+    /**
+     * Builds the indexes of the given schema.
+     *
+     * @param schema the schema
+     */
+    SchemaIndex( Schema schema )
+    {
+        Map<String, Set<ObjectClass>> usedAsMust = new HashMap<String, Set<ObjectClass>>();
+        Map<String, Set<ObjectClass>> usedAsMay = new HashMap<String, Set<ObjectClass>>();
+        Map<String, Set<ObjectClass>> subObjectClasses = new HashMap<String, Set<ObjectClass>>();
+        Map<String, Set<AttributeType>> derivedAttributeTypes = new HashMap<String, Set<AttributeType>>();
+        Map<String, Set<AttributeType>> syntaxUsers = new HashMap<String, Set<AttributeType>>();
+        Map<String, Set<AttributeType>> matchingRuleUsers = new HashMap<String, Set<AttributeType>>();
+
+        Map<ObjectClass, Set<String>> mustCache = new IdentityHashMap<ObjectClass, Set<String>>();
+        Map<ObjectClass, Set<String>> mayCache = new IdentityHashMap<ObjectClass, Set<String>>();
+        for ( ObjectClass ocd : schema.getObjectClassDescriptions() )
+        {
+            for ( String must : getTransitive( ocd, schema, true, mustCache ) )
+            {
+                put( usedAsMust, must, ocd );
+            }
+            for ( String may : getTransitive( ocd, schema, false, mayCache ) )
+            {
+                put( usedAsMay, may, ocd );
+            }
+            for ( String superior : ocd.getSuperiorOids() )
+            {
+                put( subObjectClasses, Strings.toLowerCase( superior ), ocd );
+            }
+        }
+
+        for ( AttributeType atd : schema.getAttributeTypeDescriptions() )
+        {
+            if ( atd.getSuperiorOid() != null )
+            {
+                put( derivedAttributeTypes, Strings.toLowerCase( atd.getSuperiorOid() ), atd );
+            }
+
+            String syntax = SchemaUtils.getSyntaxNumericOidTransitive( atd, schema );
+            if ( syntax != null )
+            {
+                put( syntaxUsers, Strings.toLowerCase( syntax ), atd );
+            }
+
+            String emr = SchemaUtils.getEqualityMatchingRuleNameOrNumericOidTransitive( atd, schema );
+            String smr = SchemaUtils.getSubstringMatchingRuleNameOrNumericOidTransitive( atd, schema );
+            String omr = SchemaUtils.getOrderingMatchingRuleNameOrNumericOidTransitive( atd, schema );
+            for ( String mr : new String[]
+                { emr, smr, omr } )
+            {
+                if ( mr != null )
+                {
+                    put( matchingRuleUsers, Strings.toLowerCase( mr ), atd );
+                }
+            }
+        }
+
+        this.usedAsMust = freeze( usedAsMust );
+        this.usedAsMay = freeze( usedAsMay );
+        this.subObjectClasses = freeze( subObjectClasses );
+        this.derivedAttributeTypes = freeze( derivedAttributeTypes );
+        this.syntaxUsers = freeze( syntaxUsers );
+        this.matchingRuleUsers = freeze( matchingRuleUsers );
+    }
+
+
+    /**
+     * Gets the object classes using any of the given identifiers as must attribute, transitively.
+     *
+     * @param lowerCaseIdentifiers the lower-cased names and OID of the attribute type
+     * @return the object classes
+     */
+    Collection<ObjectClass> getUsedAsMust( Collection<String> lowerCaseIdentifiers )
+    {
+        return lookup( usedAsMust, lowerCaseIdentifiers );
+    }
+
+
+    /**
+     * Gets the object classes using any of the given identifiers as may attribute, transitively.
+     *
+     * @param lowerCaseIdentifiers the lower-cased names and OID of the attribute type
+     * @return the object classes
+     */
+    Collection<ObjectClass> getUsedAsMay( Collection<String> lowerCaseIdentifiers )
+    {
+        return lookup( usedAsMay, lowerCaseIdentifiers );
+    }
+
+
+    /**
+     * Gets the object classes using any of the given identifiers as direct superior.
+     *
+     * @param lowerCaseIdentifiers the lower-cased names and OID of the object class
+     * @return the sub object classes
+     */
+    Collection<ObjectClass> getSubObjectClasses( Collection<String> lowerCaseIdentifiers )
+    {
+        return lookup( subObjectClasses, lowerCaseIdentifiers );
+    }
+
+
+    /**
+     * Gets the attribute types using any of the given identifiers as superior.
+     *
+     * @param lowerCaseIdentifiers the lower-cased names and OID of the attribute type
+     * @return the derived attribute types
+     */
+    Collection<AttributeType> getDerivedAttributeTypes( Collection<String> lowerCaseIdentifiers )
+    {
+        return lookup( derivedAttributeTypes, lowerCaseIdentifiers );
+    }
+
+
+    /**
+     * Gets the attribute types using the given syntax, transitively.
+     *
+     * @param lowerCaseOid the lower-cased numeric OID of the syntax
+     * @return the attribute types
+     */
+    Collection<AttributeType> getSyntaxUsers( String lowerCaseOid )
+    {
+        Set<AttributeType> atds = syntaxUsers.get( lowerCaseOid );
+        return atds != null ? atds : Collections.<AttributeType> emptySet();
+    }
+
+
+    /**
+     * Gets the attribute types using any of the given identifiers as equality,
+     * substring or ordering matching rule, transitively.
+     *
+     * @param lowerCaseIdentifiers the lower-cased names and OID of the matching rule
+     * @return the attribute types
+     */
+    Collection<AttributeType> getMatchingRuleUsers( Collection<String> lowerCaseIdentifiers )
+    {
+        return lookup( matchingRuleUsers, lowerCaseIdentifiers );
+    }
+
+
+    /**
+     * Gets the lower-cased must or may attribute names of the given object class and
+     * its existing superiors. Results are memoized, a cycle in the superior chain is
+     * cut at the object class that was already visited.
+     */
+    private static Set<String> getTransitive( ObjectClass ocd, Schema schema, boolean must,
+        Map<ObjectClass, Set<String>> cache )
+    {
+        Set<String> names = cache.get( ocd );
+        if ( names != null )
+        {
+            return names;
+        }
+
+        names = new HashSet<String>();
+        cache.put( ocd, names );
+
+        for ( String name : must ? ocd.getMustAttributeTypeOids() : ocd.getMayAttributeTypeOids() )
+        {
+            names.add( Strings.toLowerCase( name ) );
+        }
+        for ( String superior : ocd.getSuperiorOids() )
+        {
+            if ( schema.hasObjectClassDescription( superior ) )
+            {
+                names.addAll( getTransitive( schema.getObjectClassDescription( superior ), schema, must, cache ) );
+            }
+        }
+
+        return names;
+    }
+
+
+    private static <T> void put( Map<String, Set<T>> index, String key, T element )
+    {
+        Set<T> elements = index.get( key );
+        if ( elements == null )
+        {
+            elements = new LinkedHashSet<T>();
+            index.put( key, elements );
+        }
+        elements.add( element );
+    }
+
+
+    private static <T> Map<String, Set<T>> freeze( Map<String, Set<T>> index )
+    {
+        for ( Map.Entry<String, Set<T>> entry : index.entrySet() )
+        {
+            entry.setValue( Collections.unmodifiableSet( entry.getValue() ) );
+        }
+        return Collections.unmodifiableMap( index );
+    }
+
+
+    private static <T extends AbstractSchemaObject> Collection<T> lookup( Map<String, Set<T>> index,
+        Collection<String> lowerCaseIdentifiers )
+    {
+        Set<T> result = null;
+        for ( String identifier : lowerCaseIdentifiers )
+        {
+            Set<T> elements = index.get( identifier );
+            if ( elements != null )
+            {
+                if ( result == null )
+                {
+                    result = elements;
+                }
+                else
+                {
+                    if ( !( result instanceof LinkedHashSet ) )
+                    {
+                        result = new LinkedHashSet<T>( result );
+                    }
+                    result.addAll( elements );
+                }
+            }
+        }
+        return result != null ? result : Collections.<T> emptySet();
+    }
+
+}
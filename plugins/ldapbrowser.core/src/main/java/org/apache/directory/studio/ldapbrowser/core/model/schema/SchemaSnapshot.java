@@ -0,0 +1,532 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.apache.directory.studio.ldapbrowser.core.model.schema;
+
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.directory.api.ldap.model.exception.LdapInvalidDnException;
+import org.apache.directory.api.ldap.model.name.Dn;
+import org.apache.directory.api.ldap.model.schema.AbstractSchemaObject;
+import org.apache.directory.api.ldap.model.schema.AttributeType;
+import org.apache.directory.api.ldap.model.schema.LdapSyntax;
+import org.apache.directory.api.ldap.model.schema.MatchingRule;
+import org.apache.directory.api.ldap.model.schema.MatchingRuleUse;
+import org.apache.directory.api.ldap.model.schema.ObjectClass;
+import org.apache.directory.api.ldap.model.schema.ObjectClassTypeEnum;
+import org.apache.directory.api.ldap.model.schema.UsageEnum;
+import org.apache.directory.studio.ldifparser.LdifUtils;
+import org.apache.directory.studio.ldifparser.model.LdifRecordView;
+
+
+/**
+ * Reads and writes a binary snapshot of a {@link Schema}.
+ * <p>
+ * The snapshot contains the already parsed schema elements and the name/OID
+ * indexes of the schema, so loading it neither runs the LDIF parser nor the
+ * description parsers of the Directory API. The raw schema record is stored
+ * as well, so a schema loaded from a snapshot can still be saved as LDIF.
+ * <p>
+ * The snapshot is versioned: a snapshot written by another version of the
+ * format is rejected with an {@link IOException}, the caller is expected to
+ * fall back to the LDIF file then.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public final class SchemaSnapshot
+{
+    /** The file format identifier and version */
+    private static final int MAGIC = 0x53534e50;
+    private static final int VERSION = 1;
+
+    /** The value types of the schema record */
+    private static final byte STRING_VALUE = 0;
+    private static final byte BINARY_VALUE = 1;
+
+
+    private SchemaSnapshot()
+    {
+    }
+
+
+    /**
+     * Writes the snapshot of the given schema to the given stream.
+     *
+     * @param schema the schema
+     * @param stream the stream, not closed by this method
+     * @throws IOException if writing fails
+     */
+    public static void write( Schema schema, OutputStream stream ) throws IOException
+    {
+        DataOutputStream out = new DataOutputStream( new BufferedOutputStream( stream ) );
+
+        out.writeInt( MAGIC );
+        out.writeInt( VERSION );
+
+        writeNullableString( out, schema.getDn() != null ? schema.getDn().getName() : null );
+        writeNullableString( out, schema.getCreateTimestamp() );
+        writeNullableString( out, schema.getModifyTimestamp() );
+        writeRecord( out, schema.getSchemaRecordView() );
+
+        writeIndex( out, schema.getObjectClassIndex(), SchemaSnapshot::writeObjectClass );
+        writeIndex( out, schema.getAttributeTypeIndex(), SchemaSnapshot::writeAttributeType );
+        writeIndex( out, schema.getLdapSyntaxIndex(), SchemaSnapshot::writeLdapSyntax );
+        writeIndex( out, schema.getMatchingRuleIndex(), SchemaSnapshot::writeMatchingRule );
+        writeIndex( out, schema.getMatchingRuleUseIndex(), SchemaSnapshot::writeMatchingRuleUse );
+
+        out.flush();
+    }
+
+
+    /**
+     * Reads a schema from the given snapshot stream.
+     *
+     * @param stream the stream, not closed by this method
+     * @return the schema
+     * @throws IOException if reading fails or the snapshot has an unknown format
+     */
+    public static Schema read( InputStream stream ) throws IOException
+    {
+        DataInputStream in = new DataInputStream( new BufferedInputStream( stream ) );
+
+        if ( in.readInt() != MAGIC || in.readInt() != VERSION )
+        {
+            throw new IOException( "Unknown schema snapshot format" ); //$NON-NLS-1$
+        }
+
+        Schema schema = new Schema();
+
+        String dn = readNullableString( in );
+        if ( dn != null )
+        {
+            try
+            {
+                schema.setDn( new Dn( dn ) );
+            }
+            catch ( LdapInvalidDnException e )
+            {
+                throw new IOException( e.getMessage(), e );
+            }
+        }
+        schema.setCreateTimestamp( readNullableString( in ) );
+        schema.setModifyTimestamp( readNullableString( in ) );
+        schema.setSchemaRecordView( readRecord( in ) );
+
+        readIndex( in, schema.getObjectClassIndex(), SchemaSnapshot::readObjectClass );
+        readIndex( in, schema.getAttributeTypeIndex(), SchemaSnapshot::readAttributeType );
+        readIndex( in, schema.getLdapSyntaxIndex(), SchemaSnapshot::readLdapSyntax );
+        readIndex( in, schema.getMatchingRuleIndex(), SchemaSnapshot::readMatchingRule );
+        readIndex( in, schema.getMatchingRuleUseIndex(), SchemaSnapshot::readMatchingRuleUse );
+
+        return schema;
+    }
+
+
+    /**
+     * Writes a schema element.
+     */
+    @FunctionalInterface
+    private interface ElementWriter<T>
+    {
+        void write( DataOutputStream out, T element ) throws IOException;
+    }
+
+
+    /**
+     * Reads a schema element.
+     */
+    @FunctionalInterface
+    private interface ElementReader<T>
+    {
+        T read( DataInputStream in ) throws IOException;
+    }
+
+
+    /**
+     * Writes the distinct elements of the index, followed by the index keys
+     * with the position of their element.
+     */
+    private static <T> void writeIndex( DataOutputStream out, Map<String, T> index, ElementWriter<T> writer )
+        throws IOException
+    {
+        Map<T, Integer> positions = new IdentityHashMap<T, Integer>();
+        List<T> elements = new ArrayList<T>();
+        for ( T element : index.values() )
+        {
+            if ( !positions.containsKey( element ) )
+            {
+                positions.put( element, elements.size() );
+                elements.add( element );
+            }
+        }
+
+        out.writeInt( elements.size() );
+        for ( T element : elements )
+        {
+            writer.write( out, element );
+        }
+
+        out.writeInt( index.size() );
+        for ( Map.Entry<String, T> entry : index.entrySet() )
+        {
+            writeString( out, entry.getKey() );
+            out.writeInt( positions.get( entry.getValue() ) );
+        }
+    }
+
+
+    private static <T> void readIndex( DataInputStream in, Map<String, T> index, ElementReader<T> reader )
+        throws IOException
+    {
+        int elementCount = readCount( in );
+        List<T> elements = new ArrayList<T>( elementCount );
+        for ( int i = 0; i < elementCount; i++ )
+        {
+            elements.add( reader.read( in ) );
+        }
+
+        int keyCount = readCount( in );
+        for ( int i = 0; i < keyCount; i++ )
+        {
+            String key = readString( in );
+            int position = in.readInt();
+            if ( position < 0 || position >= elementCount )
+            {
+                throw new IOException( "Invalid element position " + position ); //$NON-NLS-1$
+            }
+            index.put( key, elements.get( position ) );
+        }
+    }
+
+
+    private static void writeObjectClass( DataOutputStream out, ObjectClass ocd ) throws IOException
+    {
+        writeCommon( out, ocd );
+        writeNullableString( out, ocd.getType() != null ? ocd.getType().name() : null );
+        writeStrings( out, ocd.getSuperiorOids() );
+        writeStrings( out, ocd.getMustAttributeTypeOids() );
+        writeStrings( out, ocd.getMayAttributeTypeOids() );
+    }
+
+
+    private static ObjectClass readObjectClass( DataInputStream in ) throws IOException
+    {
+        ObjectClass ocd = new ObjectClass( readNullableString( in ) );
+        readCommon( in, ocd );
+        String type = readNullableString( in );
+        if ( type != null )
+        {
+            ocd.setType( readEnum( ObjectClassTypeEnum.class, type ) );
+        }
+        ocd.setSuperiorOids( readStrings( in ) );
+        ocd.setMustAttributeTypeOids( readStrings( in ) );
+        ocd.setMayAttributeTypeOids( readStrings( in ) );
+        return ocd;
+    }
+
+
+    private static void writeAttributeType( DataOutputStream out, AttributeType atd ) throws IOException
+    {
+        writeCommon( out, atd );
+        writeNullableString( out, atd.getSuperiorOid() );
+        writeNullableString( out, atd.getSyntaxOid() );
+        out.writeLong( atd.getSyntaxLength() );
+        writeNullableString( out, atd.getEqualityOid() );
+        writeNullableString( out, atd.getOrderingOid() );
+        writeNullableString( out, atd.getSubstringOid() );
+        writeNullableString( out, atd.getUsage() != null ? atd.getUsage().name() : null );
+        out.writeBoolean( atd.isSingleValued() );
+        out.writeBoolean( atd.isCollective() );
+        out.writeBoolean( atd.isUserModifiable() );
+        out.writeBoolean( atd.isRelaxed() );
+    }
+
+
+    private static AttributeType readAttributeType( DataInputStream in ) throws IOException
+    {
+        AttributeType atd = new AttributeType( readNullableString( in ) );
+        readCommon( in, atd );
+        atd.setSuperiorOid( readNullableString( in ) );
+        atd.setSyntaxOid( readNullableString( in ) );
+        atd.setSyntaxLength( in.readLong() );
+        atd.setEqualityOid( readNullableString( in ) );
+        atd.setOrderingOid( readNullableString( in ) );
+        atd.setSubstringOid( readNullableString( in ) );
+        String usage = readNullableString( in );
+        if ( usage != null )
+        {
+            atd.setUsage( readEnum( UsageEnum.class, usage ) );
+        }
+        atd.setSingleValued( in.readBoolean() );
+        atd.setCollective( in.readBoolean() );
+        atd.setUserModifiable( in.readBoolean() );
+        atd.setRelaxed( in.readBoolean() );
+        return atd;
+    }
+
+
+    private static void writeLdapSyntax( DataOutputStream out, LdapSyntax lsd ) throws IOException
+    {
+        writeCommon( out, lsd );
+        out.writeBoolean( lsd.isHumanReadable() );
+    }
+
+
+    private static LdapSyntax readLdapSyntax( DataInputStream in ) throws IOException
+    {
+        LdapSyntax lsd = new LdapSyntax( readNullableString( in ) );
+        readCommon( in, lsd );
+        lsd.setHumanReadable( in.readBoolean() );
+        return lsd;
+    }
+
+
+    private static void writeMatchingRule( DataOutputStream out, MatchingRule mrd ) throws IOException
+    {
+        writeCommon( out, mrd );
+        writeNullableString( out, mrd.getSyntaxOid() );
+    }
+
+
+    private static MatchingRule readMatchingRule( DataInputStream in ) throws IOException
+    {
+        MatchingRule mrd = new MatchingRule( readNullableString( in ) );
+        readCommon( in, mrd );
+        mrd.setSyntaxOid( readNullableString( in ) );
+        return mrd;
+    }
+
+
+    private static void writeMatchingRuleUse( DataOutputStream out, MatchingRuleUse mrud ) throws IOException
+    {
+        writeCommon( out, mrud );
+        writeStrings( out, mrud.getApplicableAttributeOids() );
+    }
+
+
+    private static MatchingRuleUse readMatchingRuleUse( DataInputStream in ) throws IOException
+    {
+        MatchingRuleUse mrud = new MatchingRuleUse( readNullableString( in ) );
+        readCommon( in, mrud );
+        mrud.setApplicableAttributeOids( readStrings( in ) );
+        return mrud;
+    }
+
+
+    /**
+     * Writes the properties shared by all schema elements, starting with the OID
+     * which is read by the element specific method to create the element.
+     */
+    private static void writeCommon( DataOutputStream out, AbstractSchemaObject so ) throws IOException
+    {
+        writeNullableString( out, so.getOid() );
+        writeStrings( out, so.getNames() );
+        writeNullableString( out, so.getDescription() );
+        writeNullableString( out, so.getSpecification() );
+        writeNullableString( out, so.getSchemaName() );
+        out.writeBoolean( so.isObsolete() );
+        out.writeBoolean( so.isEnabled() );
+
+        Map<String, List<String>> extensions = so.getExtensions();
+        out.writeInt( extensions != null ? extensions.size() : 0 );
+        if ( extensions != null )
+        {
+            for ( Map.Entry<String, List<String>> extension : extensions.entrySet() )
+            {
+                writeString( out, extension.getKey() );
+                writeStrings( out, extension.getValue() );
+            }
+        }
+    }
+
+
+    private static void readCommon( DataInputStream in, AbstractSchemaObject so ) throws IOException
+    {
+        so.setNames( readStrings( in ) );
+        so.setDescription( readNullableString( in ) );
+        so.setSpecification( readNullableString( in ) );
+        so.setSchemaName( readNullableString( in ) );
+        so.setObsolete( in.readBoolean() );
+        so.setEnabled( in.readBoolean() );
+
+        int extensionCount = readCount( in );
+        Map<String, List<String>> extensions = new LinkedHashMap<String, List<String>>();
+        for ( int i = 0; i < extensionCount; i++ )
+        {
+            String key = readString( in );
+            extensions.put( key, readStrings( in ) );
+        }
+        so.setExtensions( extensions );
+    }
+
+
+    private static void writeRecord( DataOutputStream out, LdifRecordView record ) throws IOException
+    {
+        out.writeBoolean( record != null );
+        if ( record == null )
+        {
+            return;
+        }
+
+        writeNullableString( out, record.getDn() );
+        out.writeInt( record.getValueCount() );
+        for ( int i = 0; i < record.getValueCount(); i++ )
+        {
+            writeString( out, record.getAttributeDescription( i ) );
+            Object value = record.getValue( i );
+            if ( value instanceof byte[] )
+            {
+                out.writeByte( BINARY_VALUE );
+                writeBytes( out, ( byte[] ) value );
+            }
+            else
+            {
+                out.writeByte( STRING_VALUE );
+                writeString( out, value != null ? value.toString() : "" ); //$NON-NLS-1$
+            }
+        }
+    }
+
+
+    private static LdifRecordView readRecord( DataInputStream in ) throws IOException
+    {
+        if ( !in.readBoolean() )
+        {
+            return null;
+        }
+
+        String dn = readNullableString( in );
+        int count = readCount( in );
+        String[] attributeDescriptions = new String[count];
+        Object[] values = new Object[count];
+        for ( int i = 0; i < count; i++ )
+        {
+            attributeDescriptions[i] = readString( in );
+            byte type = in.readByte();
+            values[i] = type == BINARY_VALUE ? readBytes( in ) : readString( in );
+        }
+
+        return LdifRecordView.createContentRecord( dn, attributeDescriptions, values );
+    }
+
+
+    private static <E extends Enum<E>> E readEnum( Class<E> enumClass, String name ) throws IOException
+    {
+        try
+        {
+            return Enum.valueOf( enumClass, name );
+        }
+        catch ( IllegalArgumentException e )
+        {
+            throw new IOException( "Unknown " + enumClass.getSimpleName() + " " + name, e ); //$NON-NLS-1$ //$NON-NLS-2$
+        }
+    }
+
+
+    private static void writeStrings( DataOutputStream out, List<String> strings ) throws IOException
+    {
+        out.writeInt( strings != null ? strings.size() : 0 );
+        if ( strings != null )
+        {
+            for ( String s : strings )
+            {
+                writeNullableString( out, s );
+            }
+        }
+    }
+
+
+    private static List<String> readStrings( DataInputStream in ) throws IOException
+    {
+        int count = readCount( in );
+        List<String> strings = new ArrayList<String>( count );
+        for ( int i = 0; i < count; i++ )
+        {
+            strings.add( readNullableString( in ) );
+        }
+        return strings;
+    }
+
+
+    private static void writeNullableString( DataOutputStream out, String s ) throws IOException
+    {
+        out.writeBoolean( s != null );
+        if ( s != null )
+        {
+            writeString( out, s );
+        }
+    }
+
+
+    private static String readNullableString( DataInputStream in ) throws IOException
+    {
+        return in.readBoolean() ? readString( in ) : null;
+    }
+
+
+    private static void writeString( DataOutputStream out, String s ) throws IOException
+    {
+        writeBytes( out, LdifUtils.utf8encode( s ) );
+    }
+
+
+    private static void writeBytes( DataOutputStream out, byte[] bytes ) throws IOException
+    {
+        out.writeInt( bytes.length );
+        out.write( bytes );
+    }
+
+
+    private static String readString( DataInputStream in ) throws IOException
+    {
+        return LdifUtils.utf8decode( readBytes( in ) );
+    }
+
+
+    private static byte[] readBytes( DataInputStream in ) throws IOException
+    {
+        byte[] bytes = new byte[readCount( in )];
+        in.readFully( bytes );
+        return bytes;
+    }
+
+
+    private static int readCount( DataInputStream in ) throws IOException
+    {
+        int count = in.readInt();
+        if ( count < 0 )
+        {
+            throw new IOException( "Invalid length " + count ); //$NON-NLS-1$
+        }
+        return count;
+    }
+
+}
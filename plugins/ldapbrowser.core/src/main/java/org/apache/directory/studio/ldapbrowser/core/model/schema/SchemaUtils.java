@@ -520,14 +520,9 @@ public class SchemaUtils
         Schema schema )
     {
         Set<AttributeType> usedFroms = new TreeSet<AttributeType>( schemaElementNameComparator );
-        for ( AttributeType atd : schema.getAttributeTypeDescriptions() )
+        if ( lsd.getOid() != null )
         {
-            String syntax = getSyntaxNumericOidTransitive( atd, schema );
-            if ( syntax != null && lsd.getOid() != null
-                && Strings.toLowerCase( syntax ).equals( Strings.toLowerCase( lsd.getOid() ) ) )
-            {
-                usedFroms.add( atd );
-            }
+            usedFroms.addAll( schema.getIndex().getSyntaxUsers( Strings.toLowerCase( lsd.getOid() ) ) );
         }
         return usedFroms;
     }
@@ -546,25 +541,7 @@ public class SchemaUtils
         MatchingRule mrd, Schema schema )
     {
         Set<AttributeType> usedFromSet = new TreeSet<AttributeType>( schemaElementNameComparator );
-        for ( AttributeType atd : schema.getAttributeTypeDescriptions() )
-        {
-            Collection<String> lowerCaseIdentifiers = getLowerCaseIdentifiers( mrd );
-            String emr = getEqualityMatchingRuleNameOrNumericOidTransitive( atd, schema );
-            String smr = getSubstringMatchingRuleNameOrNumericOidTransitive( atd, schema );
-            String omr = getOrderingMatchingRuleNameOrNumericOidTransitive( atd, schema );
-            if ( emr != null && lowerCaseIdentifiers.contains( Strings.toLowerCase( emr ) ) )
-            {
-                usedFromSet.add( atd );
-            }
-            if ( smr != null && lowerCaseIdentifiers.contains( Strings.toLowerCase( smr ) ) )
-            {
-                usedFromSet.add( atd );
-            }
-            if ( omr != null && lowerCaseIdentifiers.contains( Strings.toLowerCase( omr ) ) )
-            {
-                usedFromSet.add( atd );
-            }
-        }
+        usedFromSet.addAll( schema.getIndex().getMatchingRuleUsers( getLowerCaseIdentifiers( mrd ) ) );
         return usedFromSet;
     }
 
@@ -745,14 +722,7 @@ public class SchemaUtils
         AttributeType atd, Schema schema )
     {
         Set<AttributeType> derivedAtds = new TreeSet<AttributeType>( schemaElementNameComparator );
-        for ( AttributeType derivedAtd : schema.getAttributeTypeDescriptions() )
-        {
-            String superType = derivedAtd.getSuperiorOid();
-            if ( superType != null && getLowerCaseIdentifiers( atd ).contains( Strings.toLowerCase( superType ) ) )
-            {
-                derivedAtds.add( derivedAtd );
-            }
-        }
+        derivedAtds.addAll( schema.getIndex().getDerivedAttributeTypes( getLowerCaseIdentifiers( atd ) ) );
         return derivedAtds;
     }
 
@@ -769,16 +739,8 @@ public class SchemaUtils
      */
     public static Collection<ObjectClass> getUsedAsMust( AttributeType atd, Schema schema )
     {
-        Collection<String> lowerCaseIdentifiers = getLowerCaseIdentifiers( atd );
         Set<ObjectClass> ocds = new TreeSet<ObjectClass>( schemaElementNameComparator );
-        for ( ObjectClass ocd : schema.getObjectClassDescriptions() )
-        {
-            Collection<String> mustSet = toLowerCaseSet( getMustAttributeTypeDescriptionNamesTransitive( ocd, schema ) );
-            if ( mustSet.removeAll( lowerCaseIdentifiers ) )
-            {
-                ocds.add( ocd );
-            }
-        }
+        ocds.addAll( schema.getIndex().getUsedAsMust( getLowerCaseIdentifiers( atd ) ) );
         return ocds;
     }
 
@@ -795,16 +757,8 @@ public class SchemaUtils
      */
     public static Collection<ObjectClass> getUsedAsMay( AttributeType atd, Schema schema )
     {
-        Collection<String> lowerCaseIdentifiers = getLowerCaseIdentifiers( atd );
         Set<ObjectClass> ocds = new TreeSet<ObjectClass>( schemaElementNameComparator );
-        for ( ObjectClass ocd : schema.getObjectClassDescriptions() )
-        {
-            Collection<String> mustSet = toLowerCaseSet( getMayAttributeTypeDescriptionNamesTransitive( ocd, schema ) );
-            if ( mustSet.removeAll( lowerCaseIdentifiers ) )
-            {
-                ocds.add( ocd );
-            }
-        }
+        ocds.addAll( schema.getIndex().getUsedAsMay( getLowerCaseIdentifiers( atd ) ) );
         return ocds;
     }
 
@@ -854,16 +808,7 @@ public class SchemaUtils
      */
     public static List<ObjectClass> getSubObjectClassDescriptions( ObjectClass ocd, Schema schema )
     {
-        List<ObjectClass> subOcds = new ArrayList<ObjectClass>();
-        for ( ObjectClass testOcd : schema.getObjectClassDescriptions() )
-        {
-            Collection<String> superiorNames = toLowerCaseSet( testOcd.getSuperiorOids() );
-            if ( superiorNames.removeAll( getLowerCaseIdentifiers( ocd ) ) )
-            {
-                subOcds.add( testOcd );
-            }
-        }
-        return subOcds;
+        return new ArrayList<ObjectClass>( schema.getIndex().getSubObjectClasses( getLowerCaseIdentifiers( ocd ) ) );
     }
 
 
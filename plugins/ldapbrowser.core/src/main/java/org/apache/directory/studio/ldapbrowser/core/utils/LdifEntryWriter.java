@@ -0,0 +1,510 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *  
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License. 
+ *  
+ */
+package org.apache.directory.studio.ldapbrowser.core.utils;
+
+
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.directory.api.ldap.model.constants.SchemaConstants;
+import org.apache.directory.api.ldap.model.entry.Attribute;
+import org.apache.directory.api.ldap.model.entry.Entry;
+import org.apache.directory.api.ldap.model.entry.Value;
+import org.apache.directory.api.ldap.model.schema.AttributeType;
+import org.apache.directory.api.ldap.model.schema.ObjectClass;
+import org.apache.directory.api.util.Strings;
+import org.apache.directory.studio.ldapbrowser.core.model.AttributeDescription;
+import org.apache.directory.studio.ldapbrowser.core.model.schema.Schema;
+import org.apache.directory.studio.ldapbrowser.core.model.schema.SchemaUtils;
+import org.apache.directory.studio.ldifparser.LdifFormatParameters;
+import org.apache.directory.studio.ldifparser.LdifUtils;
+import org.apache.directory.studio.ldifparser.model.lines.LdifSepLine;
+import org.apache.directory.studio.ldifparser.model.lines.LdifVersionLine;
+
+
+/**
+ * Writes search result entries as LDIF content records directly to an output stream.
+ * <p>
+ * The output is the same as formatting the records built by
+ * {@link ModelConverter#ldifContentRecordToEntry} and {@link AttributeComparator#toSortedValues},
+ * but no intermediate entry, value and line objects are created. Base64 encoding and line
+ * folding are done while writing to an internal byte buffer, the sort keys of the attributes
+ * are computed once per attribute description and object class combination.
+ * <p>
+ * All written characters are US-ASCII: values that are not safe are base64 encoded.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public class LdifEntryWriter implements Flushable
+{
+    private static final byte[] BASE64 = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/" //$NON-NLS-1$
+        .getBytes( StandardCharsets.US_ASCII );
+
+    private static final byte[] DN = "dn".getBytes( StandardCharsets.US_ASCII ); //$NON-NLS-1$
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /** Orders the attributes like the {@link AttributeComparator} with its default settings */
+    private static final Comparator<AttributeValues> ATTRIBUTE_ORDER = ( a1, a2 ) -> {
+        if ( a1.info.objectClass != a2.info.objectClass )
+        {
+            return a1.info.objectClass ? -1 : 1;
+        }
+        if ( a1.must != a2.must )
+        {
+            return a1.must ? -1 : 1;
+        }
+        if ( a1.info.operational != a2.info.operational )
+        {
+            return a1.info.operational ? 1 : -1;
+        }
+        return a1.info.description.compareToIgnoreCase( a2.info.description );
+    };
+
+    /** Orders the values of an attribute like the {@link AttributeComparator} with its default settings */
+    private static final Comparator<Object> VALUE_ORDER = ( v1, v2 ) -> getStringValue( v1 ).compareToIgnoreCase(
+        getStringValue( v2 ) );
+
+    /** The output stream */
+    private final OutputStream out;
+
+    /** The schema */
+    private final Schema schema;
+
+    /** The format parameters */
+    private final LdifFormatParameters formatParameters;
+
+    /** The line separator */
+    private final byte[] lineSeparator;
+
+    /** The line width, lines are not folded if less than 2 */
+    private final int lineWidth;
+
+    /** True to sort the attributes and values */
+    private final boolean sort;
+
+    /** The output buffer */
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+
+    /** The number of bytes in the output buffer */
+    private int position;
+
+    /** The column of the current line */
+    private int column;
+
+    /** The number of bytes written to the output stream */
+    private long bytesWritten;
+
+    /** The attribute information, keyed by the attribute description as returned by the server */
+    private final Map<String, AttributeInfo> attributeInfos = new HashMap<String, AttributeInfo>();
+
+    /** The must attribute types, keyed by the object class values of an entry */
+    private final Map<String, Set<AttributeType>> mustAttributeTypes = new HashMap<String, Set<AttributeType>>();
+
+    /** The lower-cased OID string of the objectClass attribute */
+    private final String objectClassKey;
+
+
+    /**
+     * Creates a new instance of LdifEntryWriter.
+     *
+     * @param out the output stream, not buffered by the caller
+     * @param schema the schema used to detect binary, must and operational attributes
+     * @param formatParameters the LDIF format parameters
+     * @param sort true to sort attributes and values like the {@link AttributeComparator}
+     */
+    public LdifEntryWriter( OutputStream out, Schema schema, LdifFormatParameters formatParameters, boolean sort )
+    {
+        this.out = out;
+        this.schema = schema;
+        this.formatParameters = formatParameters;
+        this.lineSeparator = formatParameters.getLineSeparator().getBytes( StandardCharsets.US_ASCII );
+        this.lineWidth = formatParameters.getLineWidth();
+        this.sort = sort;
+        this.objectClassKey = Strings.toLowerCase( new AttributeDescription( SchemaConstants.OBJECT_CLASS_AT )
+            .toOidString( schema ) );
+    }
+
+
+    /**
+     * Writes the version line followed by a separator line.
+     *
+     * @throws IOException if the output stream could not be written
+     */
+    public void writeVersionLine() throws IOException
+    {
+        writeAscii( LdifVersionLine.create().toFormattedString( formatParameters ) );
+        writeAscii( LdifSepLine.create().toFormattedString( formatParameters ) );
+    }
+
+
+    /**
+     * Writes the given entry as content record, followed by a separator line.
+     *
+     * @param entry the entry
+     * @throws IOException if the output stream could not be written
+     */
+    public void write( Entry entry ) throws IOException
+    {
+        // group the values by attribute type and options, like a DummyEntry does
+        Map<String, AttributeValues> attributes = new LinkedHashMap<String, AttributeValues>();
+        for ( Attribute attribute : entry )
+        {
+            AttributeInfo info = getAttributeInfo( attribute.getUpId() );
+            AttributeValues values = attributes.get( info.key );
+            if ( values == null )
+            {
+                values = new AttributeValues( info );
+                attributes.put( info.key, values );
+            }
+            for ( Value value : attribute )
+            {
+                values.values.add( getRawValue( value ) );
+            }
+        }
+
+        List<AttributeValues> sortedAttributes = new ArrayList<AttributeValues>( attributes.values() );
+        if ( sort )
+        {
+            Set<AttributeType> musts = getMustAttributeTypes( attributes.get( objectClassKey ) );
+            for ( AttributeValues values : sortedAttributes )
+            {
+                values.must = values.info.objectClass || musts.contains( values.info.attributeType );
+                if ( values.values.size() > 1 )
+                {
+                    values.values.sort( VALUE_ORDER );
+                }
+            }
+            sortedAttributes.sort( ATTRIBUTE_ORDER );
+        }
+
+        // dn line
+        String dn = entry.getDn().getName();
+        if ( LdifUtils.mustEncode( dn ) )
+        {
+            writeBase64Line( DN, dn.getBytes( StandardCharsets.UTF_8 ) );
+        }
+        else
+        {
+            writeSafeLine( DN, dn );
+        }
+
+        // attribute value lines
+        for ( AttributeValues values : sortedAttributes )
+        {
+            AttributeInfo info = values.info;
+            for ( Object value : values.values )
+            {
+                if ( info.binary )
+                {
+                    writeBase64Line( info.descriptionBytes, value instanceof String ? ( ( String ) value )
+                        .getBytes( StandardCharsets.UTF_8 ) : ( byte[] ) value );
+                }
+                else
+                {
+                    String s = getStringValue( value );
+                    if ( LdifUtils.mustEncode( s ) )
+                    {
+                        writeBase64Line( info.descriptionBytes, s.getBytes( StandardCharsets.UTF_8 ) );
+                    }
+                    else
+                    {
+                        writeSafeLine( info.descriptionBytes, s );
+                    }
+                }
+            }
+        }
+
+        // separator line
+        writeBytes( lineSeparator );
+    }
+
+
+    /**
+     * Gets the number of bytes written so far, including the buffered bytes.
+     *
+     * @return the number of bytes written
+     */
+    public long getBytesWritten()
+    {
+        return bytesWritten + position;
+    }
+
+
+    /**
+     * Writes the buffered bytes to the output stream and flushes it.
+     */
+    public void flush() throws IOException
+    {
+        flushBuffer();
+        out.flush();
+    }
+
+
+    /**
+     * Checks if the given attribute type is binary.
+     *
+     * @param atd the attribute type
+     * @return true if values of the attribute type are written base64 encoded
+     */
+    protected boolean isBinary( AttributeType atd )
+    {
+        return SchemaUtils.isBinary( atd, schema );
+    }
+
+
+    private AttributeInfo getAttributeInfo( String description )
+    {
+        AttributeInfo info = attributeInfos.get( description );
+        if ( info == null )
+        {
+            info = new AttributeInfo( description );
+            attributeInfos.put( description, info );
+        }
+        return info;
+    }
+
+
+    /**
+     * Gets the must attribute types of the entry with the given objectClass values,
+     * like {@link SchemaUtils#getMustAttributeTypeDescriptions(org.apache.directory.studio.ldapbrowser.core.model.IEntry)}.
+     */
+    private Set<AttributeType> getMustAttributeTypes( AttributeValues objectClasses )
+    {
+        List<String> ocNames = new ArrayList<String>();
+        if ( objectClasses != null )
+        {
+            for ( Object value : objectClasses.values )
+            {
+                ocNames.add( getStringValue( value ) );
+            }
+        }
+
+        String key = String.join( "\u0000", ocNames ); //$NON-NLS-1$
+        Set<AttributeType> musts = mustAttributeTypes.get( key );
+        if ( musts == null )
+        {
+            musts = new HashSet<AttributeType>();
+            for ( String ocName : ocNames )
+            {
+                ObjectClass ocd = schema.getObjectClassDescription( ocName );
+                Collection<String> mustNames = SchemaUtils.getMustAttributeTypeDescriptionNamesTransitive( ocd,
+                    schema );
+                for ( String must : mustNames )
+                {
+                    musts.add( schema.getAttributeTypeDescription( must ) );
+                }
+            }
+            mustAttributeTypes.put( key, musts );
+        }
+        return musts;
+    }
+
+
+    /**
+     * Gets the value as it would be stored in an LDIF content record:
+     * a String if it is human readable and safe, a byte array otherwise.
+     */
+    private static Object getRawValue( Value value )
+    {
+        if ( value.isHumanReadable() )
+        {
+            String s = value.getString();
+            return LdifUtils.mustEncode( s ) ? s.getBytes( StandardCharsets.UTF_8 ) : s;
+        }
+        else
+        {
+            return value.getBytes();
+        }
+    }
+
+
+    private static String getStringValue( Object rawValue )
+    {
+        return rawValue instanceof String ? ( String ) rawValue : LdifUtils.utf8decode( ( byte[] ) rawValue );
+    }
+
+
+    private void writeSafeLine( byte[] name, String value ) throws IOException
+    {
+        column = 0;
+        writeFolded( name );
+        writeFolded( ( byte ) ':' );
+        if ( formatParameters.isSpaceAfterColon() )
+        {
+            writeFolded( ( byte ) ' ' );
+        }
+        for ( int i = 0; i < value.length(); i++ )
+        {
+            writeFolded( ( byte ) value.charAt( i ) );
+        }
+        writeBytes( lineSeparator );
+    }
+
+
+    private void writeBase64Line( byte[] name, byte[] value ) throws IOException
+    {
+        column = 0;
+        writeFolded( name );
+        writeFolded( ( byte ) ':' );
+        writeFolded( ( byte ) ':' );
+        if ( formatParameters.isSpaceAfterColon() )
+        {
+            writeFolded( ( byte ) ' ' );
+        }
+
+        int i = 0;
+        for ( ; i + 2 < value.length; i += 3 )
+        {
+            int bits = ( value[i] & 0xff ) << 16 | ( value[i + 1] & 0xff ) << 8 | ( value[i + 2] & 0xff );
+            writeFolded( BASE64[bits >>> 18] );
+            writeFolded( BASE64[( bits >>> 12 ) & 0x3f] );
+            writeFolded( BASE64[( bits >>> 6 ) & 0x3f] );
+            writeFolded( BASE64[bits & 0x3f] );
+        }
+        if ( i < value.length )
+        {
+            int bits = ( value[i] & 0xff ) << 16 | ( i + 1 < value.length ? ( value[i + 1] & 0xff ) << 8 : 0 );
+            writeFolded( BASE64[bits >>> 18] );
+            writeFolded( BASE64[( bits >>> 12 ) & 0x3f] );
+            writeFolded( i + 1 < value.length ? BASE64[( bits >>> 6 ) & 0x3f] : ( byte ) '=' );
+            writeFolded( ( byte ) '=' );
+        }
+
+        writeBytes( lineSeparator );
+    }
+
+
+    private void writeFolded( byte[] bytes ) throws IOException
+    {
+        for ( byte b : bytes )
+        {
+            writeFolded( b );
+        }
+    }
+
+
+    /**
+     * Writes a byte of the current line, a line break and a space is inserted
+     * before if the line is full.
+     */
+    private void writeFolded( byte b ) throws IOException
+    {
+        if ( column == lineWidth && lineWidth > 1 )
+        {
+            writeBytes( lineSeparator );
+            writeByte( ( byte ) ' ' );
+            column = 1;
+        }
+        writeByte( b );
+        column++;
+    }
+
+
+    private void writeAscii( String s ) throws IOException
+    {
+        writeBytes( s.getBytes( StandardCharsets.US_ASCII ) );
+    }
+
+
+    private void writeBytes( byte[] bytes ) throws IOException
+    {
+        for ( byte b : bytes )
+        {
+            writeByte( b );
+        }
+    }
+
+
+    private void writeByte( byte b ) throws IOException
+    {
+        if ( position == buffer.length )
+        {
+            flushBuffer();
+        }
+        buffer[position++] = b;
+    }
+
+
+    private void flushBuffer() throws IOException
+    {
+        if ( position > 0 )
+        {
+            out.write( buffer, 0, position );
+            bytesWritten += position;
+            position = 0;
+        }
+    }
+
+    /**
+     * The schema information of an attribute description, computed once.
+     */
+    private class AttributeInfo
+    {
+        private final String description;
+        private final byte[] descriptionBytes;
+        private final String key;
+        private final AttributeType attributeType;
+        private final boolean objectClass;
+        private final boolean binary;
+        private final boolean operational;
+
+
+        private AttributeInfo( String description )
+        {
+            AttributeDescription ad = new AttributeDescription( description );
+            this.description = description;
+            this.descriptionBytes = description.getBytes( StandardCharsets.UTF_8 );
+            this.key = Strings.toLowerCase( ad.toOidString( schema ) );
+            this.attributeType = schema.getAttributeTypeDescription( ad.getParsedAttributeType() );
+            this.objectClass = SchemaConstants.OBJECT_CLASS_AT.equalsIgnoreCase( description );
+            this.binary = isBinary( attributeType );
+            this.operational = attributeType == null || SchemaUtils.isOperational( attributeType );
+        }
+    }
+
+    /**
+     * The raw values of one attribute of the entry being written.
+     */
+    private static class AttributeValues
+    {
+        private final AttributeInfo info;
+        private final List<Object> values = new ArrayList<Object>();
+        private boolean must;
+
+
+        private AttributeValues( AttributeInfo info )
+        {
+            this.info = info;
+        }
+    }
+
+}
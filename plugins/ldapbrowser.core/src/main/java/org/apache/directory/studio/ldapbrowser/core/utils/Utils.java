@@ -104,14 +104,22 @@ public class Utils
                 sb.append( ',' );
             }
 
-            sb.append( getOidString( rdn, schema ) );
+            sb.append( getNormalizedOidString( rdn, schema ) );
         }
 
         return sb.toString();
     }
 
 
-    private static String getOidString( Rdn rdn, Schema schema )
+    /**
+     * Transforms the given Rdn into a normalized String, like {@link #getNormalizedOidString(Dn, Schema)}.
+     * 
+     * @param rdn the Rdn
+     * @param schema the schema
+     * 
+     * @return the oid string
+     */
+    public static String getNormalizedOidString( Rdn rdn, Schema schema )
     {
         StringBuilder sb = new StringBuilder();
 
@@ -0,0 +1,404 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *  
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License. 
+ *  
+ */
+package org.apache.directory.studio.ldapbrowser.core.utils;
+
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+
+/**
+ * Streaming writer of a single sheet Office Open XML (.xlsx) workbook.
+ * <p>
+ * Data rows are appended to a temporary file as they arrive, so the memory footprint
+ * does not depend on the number of rows. Header columns may be added at any time, the
+ * header row and the column widths are written in front of the data rows when the
+ * writer is closed. All cells are written as inline strings.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public class XlsxSheetWriter
+{
+    /** The maximum number of rows of a sheet, including the header row */
+    public static final int MAX_ROWS = 1048576;
+
+    /** The maximum number of columns of a sheet */
+    public static final int MAX_COLUMNS = 16384;
+
+    /** The maximum number of characters of a cell */
+    public static final int MAX_CELL_LENGTH = 32767;
+
+    /** The maximum column width, in characters */
+    private static final int MAX_COLUMN_WIDTH = 255;
+
+    private static final String XML_HEADER = "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n"; //$NON-NLS-1$
+
+    private static final String CONTENT_TYPES = XML_HEADER
+        + "<Types xmlns=\"http://schemas.openxmlformats.org/package/2006/content-types\">" //$NON-NLS-1$
+        + "<Default Extension=\"rels\" ContentType=\"application/vnd.openxmlformats-package.relationships+xml\"/>" //$NON-NLS-1$
+        + "<Default Extension=\"xml\" ContentType=\"application/xml\"/>" //$NON-NLS-1$
+        + "<Override PartName=\"/xl/workbook.xml\" ContentType=\"application/vnd.openxmlformats-officedocument.spreadsheetml.sheet.main+xml\"/>" //$NON-NLS-1$
+        + "<Override PartName=\"/xl/worksheets/sheet1.xml\" ContentType=\"application/vnd.openxmlformats-officedocument.spreadsheetml.worksheet+xml\"/>" //$NON-NLS-1$
+        + "<Override PartName=\"/xl/styles.xml\" ContentType=\"application/vnd.openxmlformats-officedocument.spreadsheetml.styles+xml\"/>" //$NON-NLS-1$
+        + "</Types>"; //$NON-NLS-1$
+
+    private static final String ROOT_RELS = XML_HEADER
+        + "<Relationships xmlns=\"http://schemas.openxmlformats.org/package/2006/relationships\">" //$NON-NLS-1$
+        + "<Relationship Id=\"rId1\" Type=\"http://schemas.openxmlformats.org/officeDocument/2006/relationships/officeDocument\" Target=\"xl/workbook.xml\"/>" //$NON-NLS-1$
+        + "</Relationships>"; //$NON-NLS-1$
+
+    private static final String WORKBOOK_RELS = XML_HEADER
+        + "<Relationships xmlns=\"http://schemas.openxmlformats.org/package/2006/relationships\">" //$NON-NLS-1$
+        + "<Relationship Id=\"rId1\" Type=\"http://schemas.openxmlformats.org/officeDocument/2006/relationships/worksheet\" Target=\"worksheets/sheet1.xml\"/>" //$NON-NLS-1$
+        + "<Relationship Id=\"rId2\" Type=\"http://schemas.openxmlformats.org/officeDocument/2006/relationships/styles\" Target=\"styles.xml\"/>" //$NON-NLS-1$
+        + "</Relationships>"; //$NON-NLS-1$
+
+    private static final String STYLES = XML_HEADER
+        + "<styleSheet xmlns=\"http://schemas.openxmlformats.org/spreadsheetml/2006/main\">" //$NON-NLS-1$
+        + "<fonts count=\"1\"><font><sz val=\"11\"/><name val=\"Calibri\"/></font></fonts>" //$NON-NLS-1$
+        + "<fills count=\"2\"><fill><patternFill patternType=\"none\"/></fill><fill><patternFill patternType=\"gray125\"/></fill></fills>" //$NON-NLS-1$
+        + "<borders count=\"1\"><border><left/><right/><top/><bottom/><diagonal/></border></borders>" //$NON-NLS-1$
+        + "<cellStyleXfs count=\"1\"><xf numFmtId=\"0\" fontId=\"0\" fillId=\"0\" borderId=\"0\"/></cellStyleXfs>" //$NON-NLS-1$
+        + "<cellXfs count=\"1\"><xf numFmtId=\"0\" fontId=\"0\" fillId=\"0\" borderId=\"0\" xfId=\"0\"/></cellXfs>" //$NON-NLS-1$
+        + "</styleSheet>"; //$NON-NLS-1$
+
+    private static final String SHEET_NAMESPACE = "http://schemas.openxmlformats.org/spreadsheetml/2006/main"; //$NON-NLS-1$
+
+    /** The target file */
+    private final File file;
+
+    /** The sheet name */
+    private final String sheetName;
+
+    /** The temporary file holding the data rows */
+    private final File rowsFile;
+
+    /** The writer of the data rows */
+    private Writer rowsWriter;
+
+    /** The header names, in column order */
+    private final List<String> columns = new ArrayList<String>();
+
+    /** The maximum text length per column */
+    private int[] columnLengths = new int[16];
+
+    /** The number of data rows written so far */
+    private int rowCount;
+
+
+    /**
+     * Creates a new instance of XlsxSheetWriter.
+     *
+     * @param file the target file
+     * @param sheetName the name of the sheet
+     * @throws IOException if the temporary file could not be created
+     */
+    public XlsxSheetWriter( File file, String sheetName ) throws IOException
+    {
+        this.file = file;
+        this.sheetName = sheetName;
+        this.rowsFile = File.createTempFile( "xlsx", ".xml" ); //$NON-NLS-1$ //$NON-NLS-2$
+        this.rowsWriter = new BufferedWriter( new OutputStreamWriter( new FileOutputStream( rowsFile ),
+            StandardCharsets.UTF_8 ), 64 * 1024 );
+    }
+
+
+    /**
+     * Adds a header column.
+     *
+     * @param name the header name
+     * @return the index of the new column
+     */
+    public int addColumn( String name )
+    {
+        if ( columns.size() >= MAX_COLUMNS )
+        {
+            throw new IllegalStateException( "Too many columns" ); //$NON-NLS-1$
+        }
+
+        int column = columns.size();
+        columns.add( name );
+        updateColumnLength( column, name );
+        return column;
+    }
+
+
+    /**
+     * Gets the number of header columns.
+     *
+     * @return the number of header columns
+     */
+    public int getColumnCount()
+    {
+        return columns.size();
+    }
+
+
+    /**
+     * Gets the number of data rows written so far.
+     *
+     * @return the number of data rows
+     */
+    public int getRowCount()
+    {
+        return rowCount;
+    }
+
+
+    /**
+     * Appends a data row. The array index is the column index, null elements
+     * are left empty.
+     *
+     * @param cells the cell values
+     * @throws IOException if the row could not be written
+     */
+    public void addRow( String[] cells ) throws IOException
+    {
+        if ( rowCount + 1 >= MAX_ROWS )
+        {
+            throw new IllegalStateException( "Too many rows" ); //$NON-NLS-1$
+        }
+
+        rowCount++;
+        writeRow( rowsWriter, rowCount + 1, cells );
+    }
+
+
+    /**
+     * Writes the workbook to the target file and deletes the temporary file.
+     *
+     * @throws IOException if the workbook could not be written
+     */
+    public void close() throws IOException
+    {
+        if ( rowsWriter == null )
+        {
+            return;
+        }
+
+        try
+        {
+            rowsWriter.close();
+            rowsWriter = null;
+
+            try ( ZipOutputStream zip = new ZipOutputStream( new BufferedOutputStream( new FileOutputStream( file ) ) ) )
+            {
+                writeEntry( zip, "[Content_Types].xml", CONTENT_TYPES ); //$NON-NLS-1$
+                writeEntry( zip, "_rels/.rels", ROOT_RELS ); //$NON-NLS-1$
+                writeEntry( zip, "xl/workbook.xml", XML_HEADER //$NON-NLS-1$
+                    + "<workbook xmlns=\"" + SHEET_NAMESPACE + "\"" //$NON-NLS-1$ //$NON-NLS-2$
+                    + " xmlns:r=\"http://schemas.openxmlformats.org/officeDocument/2006/relationships\">" //$NON-NLS-1$
+                    + "<sheets><sheet name=\"" + escape( sheetName ) + "\" sheetId=\"1\" r:id=\"rId1\"/></sheets>" //$NON-NLS-1$ //$NON-NLS-2$
+                    + "</workbook>" ); //$NON-NLS-1$
+                writeEntry( zip, "xl/_rels/workbook.xml.rels", WORKBOOK_RELS ); //$NON-NLS-1$
+                writeEntry( zip, "xl/styles.xml", STYLES ); //$NON-NLS-1$
+
+                zip.putNextEntry( new ZipEntry( "xl/worksheets/sheet1.xml" ) ); //$NON-NLS-1$
+                Writer sheetWriter = new BufferedWriter( new OutputStreamWriter( zip, StandardCharsets.UTF_8 ) );
+                sheetWriter.write( XML_HEADER );
+                sheetWriter.write( "<worksheet xmlns=\"" + SHEET_NAMESPACE + "\">" ); //$NON-NLS-1$ //$NON-NLS-2$
+                writeColumns( sheetWriter );
+                sheetWriter.write( "<sheetData>" ); //$NON-NLS-1$
+                if ( !columns.isEmpty() )
+                {
+                    writeRow( sheetWriter, 1, columns.toArray( new String[columns.size()] ) );
+                }
+                sheetWriter.flush();
+                try ( InputStream in = Files.newInputStream( rowsFile.toPath() ) )
+                {
+                    copy( in, zip );
+                }
+                sheetWriter.write( "</sheetData></worksheet>" ); //$NON-NLS-1$
+                sheetWriter.flush();
+                zip.closeEntry();
+            }
+        }
+        finally
+        {
+            rowsFile.delete();
+        }
+    }
+
+
+    private void writeColumns( Writer writer ) throws IOException
+    {
+        StringBuilder sb = new StringBuilder();
+        for ( int i = 0; i < columns.size(); i++ )
+        {
+            if ( columnLengths[i] > 0 )
+            {
+                int width = Math.min( MAX_COLUMN_WIDTH, ( int ) Math.ceil( columnLengths[i] * 1.1 ) );
+                sb.append( "<col min=\"" ).append( i + 1 ).append( "\" max=\"" ).append( i + 1 ) //$NON-NLS-1$ //$NON-NLS-2$
+                    .append( "\" width=\"" ).append( width ).append( "\" customWidth=\"1\"/>" ); //$NON-NLS-1$ //$NON-NLS-2$
+            }
+        }
+        if ( sb.length() > 0 )
+        {
+            writer.write( "<cols>" ); //$NON-NLS-1$
+            writer.write( sb.toString() );
+            writer.write( "</cols>" ); //$NON-NLS-1$
+        }
+    }
+
+
+    private void writeRow( Writer writer, int rowNum, String[] cells ) throws IOException
+    {
+        writer.write( "<row r=\"" ); //$NON-NLS-1$
+        writer.write( Integer.toString( rowNum ) );
+        writer.write( "\">" ); //$NON-NLS-1$
+        for ( int i = 0; i < cells.length; i++ )
+        {
+            String value = cells[i];
+            if ( value == null )
+            {
+                continue;
+            }
+            if ( value.length() > MAX_CELL_LENGTH )
+            {
+                value = value.substring( 0, MAX_CELL_LENGTH );
+            }
+            updateColumnLength( i, value );
+
+            writer.write( "<c r=\"" ); //$NON-NLS-1$
+            writer.write( getColumnName( i ) );
+            writer.write( Integer.toString( rowNum ) );
+            writer.write( "\" t=\"inlineStr\"><is><t xml:space=\"preserve\">" ); //$NON-NLS-1$
+            writer.write( escape( value ) );
+            writer.write( "</t></is></c>" ); //$NON-NLS-1$
+        }
+        writer.write( "</row>" ); //$NON-NLS-1$
+    }
+
+
+    private void updateColumnLength( int column, String value )
+    {
+        if ( column >= columnLengths.length )
+        {
+            columnLengths = Arrays.copyOf( columnLengths, Math.max( column + 1, columnLengths.length * 2 ) );
+        }
+        columnLengths[column] = Math.max( columnLengths[column], value.length() );
+    }
+
+
+    /**
+     * Gets the column name, e.g. A for 0, Z for 25, AA for 26.
+     *
+     * @param column the zero-based column index
+     * @return the column name
+     */
+    static String getColumnName( int column )
+    {
+        StringBuilder sb = new StringBuilder( 3 );
+        for ( int i = column + 1; i > 0; i = ( i - 1 ) / 26 )
+        {
+            sb.insert( 0, ( char ) ( 'A' + ( i - 1 ) % 26 ) );
+        }
+        return sb.toString();
+    }
+
+
+    /**
+     * Escapes the XML markup characters and drops the characters that are not
+     * allowed in XML 1.0.
+     */
+    private static String escape( String value )
+    {
+        StringBuilder sb = null;
+        for ( int i = 0; i < value.length(); i++ )
+        {
+            char c = value.charAt( i );
+            String replacement;
+            switch ( c )
+            {
+                case '<':
+                    replacement = "&lt;"; //$NON-NLS-1$
+                    break;
+                case '>':
+                    replacement = "&gt;"; //$NON-NLS-1$
+                    break;
+                case '&':
+                    replacement = "&amp;"; //$NON-NLS-1$
+                    break;
+                case '"':
+                    replacement = "&quot;"; //$NON-NLS-1$
+                    break;
+                case '\t':
+                case '\n':
+                case '\r':
+                    replacement = null;
+                    break;
+                default:
+                    replacement = ( c < 0x20 || c == 0xFFFE || c == 0xFFFF ) ? "" : null; //$NON-NLS-1$
+            }
+
+            if ( replacement != null && sb == null )
+            {
+                sb = new StringBuilder( value.length() + 16 );
+                sb.append( value, 0, i );
+            }
+            if ( sb != null )
+            {
+                if ( replacement != null )
+                {
+                    sb.append( replacement );
+                }
+                else
+                {
+                    sb.append( c );
+                }
+            }
+        }
+        return sb != null ? sb.toString() : value;
+    }
+
+
+    private static void writeEntry( ZipOutputStream zip, String name, String content ) throws IOException
+    {
+        zip.putNextEntry( new ZipEntry( name ) );
+        zip.write( content.getBytes( StandardCharsets.UTF_8 ) );
+        zip.closeEntry();
+    }
+
+
+    private static void copy( InputStream in, OutputStream out ) throws IOException
+    {
+        byte[] buffer = new byte[64 * 1024];
+        int n;
+        while ( ( n = in.read( buffer ) ) != -1 )
+        {
+            out.write( buffer, 0, n );
+        }
+    }
+
+}
@@ -0,0 +1,168 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *  
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License. 
+ *  
+ */
+package org.apache.directory.studio.ldapbrowser.core;
+
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Collections;
+import java.util.Map;
+
+import org.apache.directory.api.ldap.model.name.Dn;
+import org.apache.directory.api.ldap.model.name.Rdn;
+import org.apache.directory.studio.connection.core.Connection;
+import org.apache.directory.studio.connection.core.ConnectionParameter;
+import org.apache.directory.studio.ldapbrowser.core.events.EventRegistry;
+import org.apache.directory.studio.ldapbrowser.core.model.IAttribute;
+import org.apache.directory.studio.ldapbrowser.core.model.IEntry;
+import org.apache.directory.studio.ldapbrowser.core.model.impl.Attribute;
+import org.apache.directory.studio.ldapbrowser.core.model.impl.BaseDNEntry;
+import org.apache.directory.studio.ldapbrowser.core.model.impl.BrowserConnection;
+import org.apache.directory.studio.ldapbrowser.core.model.impl.Entry;
+import org.apache.directory.studio.ldapbrowser.core.model.impl.Value;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+
+/**
+ * Tests the {@link BrowseCache}.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public class BrowseCacheTest
+{
+    private static final long MAX_AGE = 60L * 60L * 1000L;
+
+    private BrowserConnection browserConnection;
+
+
+    @BeforeEach
+    public void setup() throws Exception
+    {
+        EventRegistry.suspendEventFiringInCurrentThread();
+        browserConnection = new BrowserConnection( new Connection( new ConnectionParameter() ) );
+    }
+
+
+    @AfterEach
+    public void tearDown() throws Exception
+    {
+        EventRegistry.resumeEventFiringInCurrentThread();
+    }
+
+
+    @Test
+    public void testRestoreValidatedEntries() throws Exception
+    {
+        IEntry baseEntry = createBaseEntry();
+        IEntry people = new Entry( baseEntry, new Rdn( "ou=people" ) );
+        browserConnection.cacheEntry( people );
+        baseEntry.addChild( people );
+        baseEntry.setChildrenInitialized( true );
+        IAttribute ou = new Attribute( people, "ou" );
+        people.addAttribute( ou );
+        ou.addValue( new Value( ou, "people" ) );
+        IAttribute photo = new Attribute( people, "jpegPhoto" );
+        people.addAttribute( photo );
+        photo.addValue( new Value( photo, new byte[]
+            { 1, 2, 3 } ) );
+        people.setAttributesInitialized( true );
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        BrowseCache.write( browserConnection, out, Collections.singletonMap( baseEntry, "csn1" ),
+            System.currentTimeMillis() );
+
+        // reopen with an unchanged contextCSN
+        browserConnection.clearCaches();
+        baseEntry = createBaseEntry();
+        int count = BrowseCache.read( browserConnection, new ByteArrayInputStream( out.toByteArray() ),
+            Collections.singletonMap( baseEntry, "csn1" ), MAX_AGE );
+
+        assertEquals( 2, count );
+        assertTrue( baseEntry.isChildrenInitialized() );
+        assertEquals( 1, baseEntry.getChildrenCount() );
+        people = browserConnection.getEntryFromCache( new Dn( "ou=people,dc=example,dc=com" ) );
+        assertNotNull( people );
+        assertTrue( people.isAttributesInitialized() );
+        assertFalse( people.isChildrenInitialized() );
+        assertEquals( "people", people.getAttribute( "ou" ).getStringValue() );
+        assertArrayEquals( new byte[]
+            { 1, 2, 3 }, people.getAttribute( "jpegPhoto" ).getBinaryValues()[0] );
+    }
+
+
+    @Test
+    public void testChangedNamingContextIsNotRestored() throws Exception
+    {
+        IEntry baseEntry = createBaseEntry();
+        IEntry people = new Entry( baseEntry, new Rdn( "ou=people" ) );
+        browserConnection.cacheEntry( people );
+        baseEntry.addChild( people );
+        baseEntry.setChildrenInitialized( true );
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        BrowseCache.write( browserConnection, out, Collections.singletonMap( baseEntry, "csn1" ),
+            System.currentTimeMillis() );
+
+        browserConnection.clearCaches();
+        baseEntry = createBaseEntry();
+        int count = BrowseCache.read( browserConnection, new ByteArrayInputStream( out.toByteArray() ),
+            Collections.singletonMap( baseEntry, "csn2" ), MAX_AGE );
+
+        assertEquals( 0, count );
+        assertFalse( baseEntry.isChildrenInitialized() );
+    }
+
+
+    @Test
+    public void testExpiredCacheWithoutValidatorIsNotRestored() throws Exception
+    {
+        IEntry baseEntry = createBaseEntry();
+        baseEntry.setChildrenInitialized( true );
+        Map<IEntry, String> noValidators = Collections.emptyMap();
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        BrowseCache.write( browserConnection, out, noValidators, System.currentTimeMillis() - 2 * MAX_AGE );
+
+        browserConnection.clearCaches();
+        createBaseEntry();
+        assertEquals( 0, BrowseCache.read( browserConnection, new ByteArrayInputStream( out.toByteArray() ),
+            noValidators, MAX_AGE ) );
+        assertEquals( 1, BrowseCache.read( browserConnection, new ByteArrayInputStream( out.toByteArray() ),
+            noValidators, 4 * MAX_AGE ) );
+    }
+
+
+    private IEntry createBaseEntry() throws Exception
+    {
+        IEntry baseEntry = new BaseDNEntry( new Dn( "dc=example,dc=com" ), browserConnection );
+        browserConnection.cacheEntry( baseEntry );
+        browserConnection.getRootDSE().addChild( baseEntry );
+        return baseEntry;
+    }
+
+}
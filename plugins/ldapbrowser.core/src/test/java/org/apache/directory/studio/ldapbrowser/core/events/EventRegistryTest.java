@@ -0,0 +1,154 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *  
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License. 
+ *  
+ */
+package org.apache.directory.studio.ldapbrowser.core.events;
+
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.directory.api.ldap.model.name.Dn;
+import org.apache.directory.studio.connection.core.Connection;
+import org.apache.directory.studio.connection.core.ConnectionParameter;
+import org.apache.directory.studio.connection.core.event.CoalescingEventManager;
+import org.apache.directory.studio.connection.core.event.ConnectionEventRegistry;
+import org.apache.directory.studio.connection.core.event.EventRunnable;
+import org.apache.directory.studio.connection.core.event.EventRunner;
+import org.apache.directory.studio.ldapbrowser.core.model.IEntry;
+import org.apache.directory.studio.ldapbrowser.core.model.impl.BaseDNEntry;
+import org.apache.directory.studio.ldapbrowser.core.model.impl.BrowserConnection;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+
+/**
+ * Tests the batching and coalescing of entry update events.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public class EventRegistryTest
+{
+    private BrowserConnection browserConnection;
+
+    private CoalescingEventManager<EntryUpdateListener, EntryModificationEvent> manager;
+
+    private List<EventRunnable> queuedRunnables;
+
+    private List<EntryModificationEvent> asyncEvents;
+
+    private List<EntryModificationEvent> syncEvents;
+
+    private EntryUpdateListener asyncListener;
+
+    private EntryUpdateListener syncListener;
+
+
+    @BeforeEach
+    public void setup() throws Exception
+    {
+        browserConnection = new BrowserConnection( new Connection( new ConnectionParameter() ) );
+        queuedRunnables = new ArrayList<EventRunnable>();
+        asyncEvents = new ArrayList<EntryModificationEvent>();
+        syncEvents = new ArrayList<EntryModificationEvent>();
+
+        asyncListener = event -> asyncEvents.add( event );
+        syncListener = event -> syncEvents.add( event );
+
+        // a long window, the test flushes explicitly
+        manager = new CoalescingEventManager<EntryUpdateListener, EntryModificationEvent>(
+            EventRegistry.entryUpdateEventCoalescer, 60000L );
+        manager.addListener( asyncListener, new EventRunner()
+        {
+            public void execute( EventRunnable runnable )
+            {
+                queuedRunnables.add( runnable );
+            }
+
+
+            public boolean isAsynchronous()
+            {
+                return true;
+            }
+        } );
+        manager.addListener( syncListener, runnable -> runnable.run() );
+    }
+
+
+    @Test
+    public void testRepeatedEventsAreCoalesced() throws Exception
+    {
+        IEntry entry1 = new BaseDNEntry( new Dn( "dc=one" ), browserConnection ); //$NON-NLS-1$
+        IEntry entry2 = new BaseDNEntry( new Dn( "dc=two" ), browserConnection ); //$NON-NLS-1$
+
+        // other tests may have left event firing suspended in this thread
+        EventRegistry.runWithEventFiringInCurrentThread( () -> {
+            long coalescedBefore = ConnectionEventRegistry.getCoalescedCount();
+
+            for ( int i = 0; i < 10; i++ )
+            {
+                manager.fire( new ChildrenInitializedEvent( entry1 ) );
+            }
+            manager.fire( new EntryDeletedEvent( browserConnection, entry2 ) );
+            manager.fire( new EntryDeletedEvent( browserConnection, entry2 ) );
+            manager.fire( new ChildrenInitializedEvent( entry2 ) );
+            manager.fire( new ChildrenInitializedEvent( entry1 ) );
+
+            // synchronous listeners get every event immediately
+            assertEquals( 14, syncEvents.size() );
+
+            // asynchronous listeners get one batch
+            assertEquals( 0, queuedRunnables.size() );
+            manager.flush();
+            assertEquals( 1, queuedRunnables.size() );
+            queuedRunnables.get( 0 ).run();
+
+            assertEquals( 4, asyncEvents.size() );
+            assertSame( EntryDeletedEvent.class, asyncEvents.get( 0 ).getClass() );
+            assertSame( EntryDeletedEvent.class, asyncEvents.get( 1 ).getClass() );
+            assertSame( entry2, asyncEvents.get( 2 ).getModifiedEntry() );
+            assertSame( entry1, asyncEvents.get( 3 ).getModifiedEntry() );
+            assertEquals( 10, ConnectionEventRegistry.getCoalescedCount() - coalescedBefore );
+        } );
+    }
+
+
+    @Test
+    public void testSuspendedFiringIsNested() throws Exception
+    {
+        IEntry entry = new BaseDNEntry( new Dn( "dc=one" ), browserConnection ); //$NON-NLS-1$
+
+        // other tests may have left event firing suspended in this thread
+        EventRegistry.runWithEventFiringInCurrentThread( () -> {
+            EventRegistry.suspendEventFiringInCurrentThread();
+            EventRegistry.suspendEventFiringInCurrentThread();
+            manager.fire( new ChildrenInitializedEvent( entry ) );
+            EventRegistry.resumeEventFiringInCurrentThread();
+            manager.fire( new ChildrenInitializedEvent( entry ) );
+            EventRegistry.resumeEventFiringInCurrentThread();
+            assertEquals( 0, syncEvents.size() );
+
+            manager.fire( new ChildrenInitializedEvent( entry ) );
+            assertEquals( 1, syncEvents.size() );
+        } );
+    }
+
+}
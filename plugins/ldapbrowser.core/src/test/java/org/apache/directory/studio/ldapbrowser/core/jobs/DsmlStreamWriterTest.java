@@ -0,0 +1,112 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *  
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License. 
+ *  
+ */
+package org.apache.directory.studio.ldapbrowser.core.jobs;
+
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+import org.apache.directory.api.dsmlv2.DsmlDecorator;
+import org.apache.directory.api.dsmlv2.Dsmlv2Parser;
+import org.apache.directory.api.dsmlv2.request.AddRequestDsml;
+import org.apache.directory.api.dsmlv2.response.SearchResultDoneDsml;
+import org.apache.directory.api.dsmlv2.response.SearchResultEntryDsml;
+import org.apache.directory.api.ldap.codec.api.LdapApiService;
+import org.apache.directory.api.ldap.codec.api.LdapApiServiceFactory;
+import org.apache.directory.api.ldap.model.entry.DefaultEntry;
+import org.apache.directory.api.ldap.model.entry.Entry;
+import org.apache.directory.api.ldap.model.message.AddRequest;
+import org.apache.directory.api.ldap.model.message.Request;
+import org.apache.directory.api.ldap.model.message.ResultCodeEnum;
+import org.apache.directory.api.ldap.model.message.SearchResultDone;
+import org.apache.directory.api.ldap.model.message.SearchResultDoneImpl;
+import org.junit.jupiter.api.Test;
+
+
+public class DsmlStreamWriterTest
+{
+    private LdapApiService codec = LdapApiServiceFactory.getSingleton();
+
+
+    @Test
+    public void testBatchRequestRoundTrip() throws Exception
+    {
+        Entry entry1 = new DefaultEntry( "cn=a & b,dc=example,dc=com", "objectClass: person", "cn: a & b", "sn: b" );
+        Entry entry2 = new DefaultEntry( "cn=c,dc=example,dc=com", "objectClass: person", "cn: c", "sn: c" );
+        entry2.add( "userCertificate", new byte[]
+            { 1, 2, 3 } );
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try ( DsmlStreamWriter writer = new DsmlStreamWriter( out ) )
+        {
+            writer.startBatchRequest();
+            for ( Entry entry : new Entry[]
+                { entry1, entry2 } )
+            {
+                AddRequestDsml request = new AddRequestDsml( codec );
+                request.setEntry( entry );
+                writer.write( request );
+            }
+        }
+
+        Dsmlv2Parser parser = new Dsmlv2Parser( false );
+        parser.setInput( new ByteArrayInputStream( out.toByteArray() ), "UTF-8" );
+
+        DsmlDecorator<? extends Request> request = parser.getNextRequest();
+        assertEquals( entry1.getDn(), ( ( AddRequest ) request ).getEntry().getDn() );
+        request = parser.getNextRequest();
+        assertEquals( entry2.getDn(), ( ( AddRequest ) request ).getEntry().getDn() );
+        assertTrue( ( ( AddRequest ) request ).getEntry().containsAttribute( "userCertificate" ) );
+        assertNull( parser.getNextRequest() );
+        assertTrue( parser.getBatchRequest().getRequests().isEmpty() );
+    }
+
+
+    @Test
+    public void testBatchResponseNesting() throws Exception
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try ( DsmlStreamWriter writer = new DsmlStreamWriter( out ) )
+        {
+            writer.startBatchResponse();
+            writer.startSearchResponse();
+            SearchResultEntryDsml entry = new SearchResultEntryDsml( codec );
+            entry.setEntry( new DefaultEntry( "cn=a,dc=example,dc=com", "cn: a" ) );
+            writer.write( entry );
+            SearchResultDone done = new SearchResultDoneImpl();
+            done.getLdapResult().setResultCode( ResultCodeEnum.SUCCESS );
+            writer.write( new SearchResultDoneDsml( codec, done ) );
+            writer.end();
+        }
+
+        String dsml = new String( out.toByteArray(), StandardCharsets.UTF_8 );
+        assertTrue( dsml.contains( "<batchResponse xmlns=\"urn:oasis:names:tc:DSML:2:0:core\"" ) );
+        assertTrue( dsml.contains( "\n   <searchResponse>\n      <searchResultEntry dn=\"cn=a,dc=example,dc=com\">" ) );
+        assertTrue( dsml.contains( "</searchResultDone>\n   </searchResponse>\n</batchResponse>" ) );
+        assertFalse( dsml.contains( "xmlns=\"\"" ) );
+    }
+
+}
@@ -0,0 +1,61 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *  
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License. 
+ *  
+ */
+package org.apache.directory.studio.ldapbrowser.core.jobs;
+
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.File;
+
+import org.apache.directory.api.ldap.model.message.SearchScope;
+import org.apache.directory.studio.ldapbrowser.core.model.SearchParameter;
+import org.junit.jupiter.api.Test;
+
+
+public class ExportLdifRunnableTest
+{
+    @Test
+    public void testShardFilename()
+    {
+        assertEquals( "export-0.ldif", ExportLdifRunnable.getShardFilename( "export.ldif", 0, 3 ) ); //$NON-NLS-1$ //$NON-NLS-2$
+        assertEquals( "export-007.ldif", ExportLdifRunnable.getShardFilename( "export.ldif", 7, 1000 ) ); //$NON-NLS-1$ //$NON-NLS-2$
+        assertEquals( "export-12", ExportLdifRunnable.getShardFilename( "export", 12, 20 ) ); //$NON-NLS-1$ //$NON-NLS-2$
+        assertEquals( "dir.d" + File.separator + "export-1", ExportLdifRunnable.getShardFilename( "dir.d" //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+            + File.separator + "export", 1, 2 ) ); //$NON-NLS-1$
+        assertEquals( "dir" + File.separator + ".ldif-1", ExportLdifRunnable.getShardFilename( "dir" //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+            + File.separator + ".ldif", 1, 2 ) ); //$NON-NLS-1$
+    }
+
+
+    @Test
+    public void testSearchesNotSplit()
+    {
+        SearchParameter oneLevel = new SearchParameter();
+        oneLevel.setScope( SearchScope.ONELEVEL );
+        assertNull( PartitionedExport.getPartitions( null, oneLevel, null ) );
+
+        SearchParameter countLimit = new SearchParameter();
+        countLimit.setScope( SearchScope.SUBTREE );
+        countLimit.setCountLimit( 100 );
+        assertNull( PartitionedExport.getPartitions( null, countLimit, null ) );
+    }
+
+}
@@ -0,0 +1,218 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *  
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License. 
+ *  
+ */
+package org.apache.directory.studio.ldapbrowser.core.model.impl;
+
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.directory.api.ldap.model.name.Dn;
+import org.apache.directory.studio.connection.core.event.ConnectionEventRegistry;
+import org.apache.directory.studio.ldapbrowser.core.model.IAttribute;
+import org.apache.directory.studio.ldapbrowser.core.model.IBrowserConnection;
+import org.apache.directory.studio.ldapbrowser.core.model.IEntry;
+import org.apache.directory.studio.ldapbrowser.core.model.IValue;
+import org.apache.directory.studio.ldapbrowser.core.model.schema.Schema;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+
+/**
+ * Tests the {@link CompactAttribute} and compares its memory usage with the
+ * default {@link Attribute}.
+ * <p>
+ * The memory benchmark only runs if the system property <code>benchmark</code> is set to <code>true</code>,
+ * the number of entries can be set with the system property <code>benchmark.entries</code>.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public class CompactAttributeTest
+{
+    private IBrowserConnection connection;
+
+    private IEntry entry;
+
+
+    @BeforeEach
+    public void setup() throws Exception
+    {
+        ConnectionEventRegistry.suspendEventFiringInCurrentThread();
+        connection = new DummyConnection( Schema.DEFAULT_SCHEMA );
+        entry = new DummyEntry( new Dn( "cn=foo" ), connection );
+    }
+
+
+    @AfterEach
+    public void tearDown() throws Exception
+    {
+        ConnectionEventRegistry.resumeEventFiringInCurrentThread();
+    }
+
+
+    @Test
+    public void testValues()
+    {
+        CompactAttribute cn = new CompactAttribute( entry, "cn" );
+        cn.addValue( new Value( cn, "foo" ) );
+        cn.addValue( new Value( cn, "bär" ) );
+        cn.addValue( new Value( cn, IValue.EMPTY_STRING_VALUE ) );
+
+        assertEquals( 3, cn.getValueSize() );
+        assertFalse( cn.isConsistent() );
+        assertEquals( "foo", cn.getStringValue() );
+        assertArrayEquals( new String[]
+            { "foo", "bär", "" }, cn.getStringValues() );
+        assertTrue( cn.getValues()[2].isEmpty() );
+
+        cn.deleteEmptyValue();
+        assertTrue( cn.isConsistent() );
+        assertEquals( 2, cn.getValueSize() );
+
+        cn.modifyValue( new Value( cn, "foo" ), new Value( cn, "baz" ) );
+        cn.deleteValue( new Value( cn, "bär" ) );
+        assertArrayEquals( new String[]
+            { "baz" }, cn.getStringValues() );
+    }
+
+
+    @Test
+    public void testBinaryValues()
+    {
+        CompactAttribute jpegPhoto = new CompactAttribute( entry, "jpegPhoto" );
+        byte[] bytes = new byte[]
+            { 0x00, ( byte ) 0xff, 0x10 };
+        jpegPhoto.addValue( new Value( jpegPhoto, bytes ) );
+
+        assertArrayEquals( bytes, jpegPhoto.getBinaryValues()[0] );
+        assertArrayEquals( bytes, ( byte[] ) jpegPhoto.getValues()[0].getRawValue() );
+    }
+
+
+    @Test
+    public void testValuesAreKeptUntilModified()
+    {
+        CompactAttribute cn = new CompactAttribute( entry, "cn" );
+        assertNull( cn.getStringValue() );
+
+        IValue foo = new Value( cn, "foo" );
+        cn.addValue( foo );
+        IValue[] values = cn.getValues();
+        assertSame( values[0], cn.getValues()[0] );
+
+        IValue bar = new Value( cn, "bar" );
+        cn.addValue( bar );
+        assertSame( values[0], cn.getValues()[0] );
+        assertSame( bar, cn.getValues()[1] );
+    }
+
+
+    @Test
+    public void testDescriptionsAreShared()
+    {
+        CompactAttribute cn1 = new CompactAttribute( entry, "cn" );
+        CompactAttribute cn2 = new CompactAttribute( new DummyEntry( entry.getDn(), connection ), "cn" );
+
+        assertSame( cn1.getAttributeDescription(), cn2.getAttributeDescription() );
+        assertEquals( new Attribute( entry, "cn" ), cn1 );
+    }
+
+
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    public void testMemoryUsage() throws Exception
+    {
+        int count = Integer.getInteger( "benchmark.entries", 500000 );
+
+        long defaultUsage = measureMemoryUsage( count, false );
+        long compactUsage = measureMemoryUsage( count, true );
+
+        System.out.println( "Attributes of " + count + " entries: default " + ( defaultUsage / 1024 / 1024 )
+            + " MB, compact " + ( compactUsage / 1024 / 1024 ) + " MB" );
+        assertTrue( compactUsage < defaultUsage );
+    }
+
+
+    /**
+     * Creates a search result with the given number of entries and measures
+     * the heap used by their attributes and values.
+     */
+    private long measureMemoryUsage( int count, boolean compact ) throws Exception
+    {
+        List<IEntry> entries = new ArrayList<IEntry>( count );
+        for ( int i = 0; i < count; i++ )
+        {
+            entries.add( new DummyEntry( entry.getDn(), connection ) );
+        }
+
+        long before = getUsedMemory();
+
+        for ( int i = 0; i < count; i++ )
+        {
+            IEntry e = entries.get( i );
+            addAttribute( e, compact, "objectClass", "top", "person", "organizationalPerson", "inetOrgPerson" );
+            addAttribute( e, compact, "cn", "User " + i );
+            addAttribute( e, compact, "sn", "Surname " + i );
+            addAttribute( e, compact, "uid", "user" + i );
+            addAttribute( e, compact, "mail", "user" + i + "@example.com" );
+            addAttribute( e, compact, "telephoneNumber", "+1 555 " + i );
+            addAttribute( e, compact, "description", "Description of user " + i );
+        }
+
+        long after = getUsedMemory();
+        assertEquals( count, entries.size() );
+
+        return after - before;
+    }
+
+
+    private static void addAttribute( IEntry entry, boolean compact, String description, String... values )
+    {
+        IAttribute attribute = compact ? new CompactAttribute( entry, description ) : new Attribute( entry,
+            description );
+        entry.addAttribute( attribute );
+        for ( String value : values )
+        {
+            // copy the value, the values of a search result are not shared
+            attribute.addValue( new Value( attribute, new String( value ) ) );
+        }
+    }
+
+
+    private static long getUsedMemory() throws InterruptedException
+    {
+        Runtime runtime = Runtime.getRuntime();
+        for ( int i = 0; i < 3; i++ )
+        {
+            System.gc();
+            Thread.sleep( 100 );
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+}
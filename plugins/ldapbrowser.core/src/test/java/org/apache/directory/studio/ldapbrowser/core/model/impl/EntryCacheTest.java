@@ -0,0 +1,164 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *   distributed with this work for additional information
+ *   regarding copyright ownership.  The ASF licenses this file
+ *   to you under the Apache License, Version 2.0 (the
+ *   "License"); you may not use this file except in compliance
+ *   with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an
+ *   "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *   KIND, either express or implied.  See the License for the
+ *   specific language governing permissions and limitations
+ *   under the License.
+ *
+ */
+package org.apache.directory.studio.ldapbrowser.core.model.impl;
+
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.apache.directory.api.ldap.model.name.Dn;
+import org.apache.directory.api.ldap.model.name.Rdn;
+import org.apache.directory.studio.connection.core.Connection;
+import org.apache.directory.studio.connection.core.ConnectionParameter;
+import org.apache.directory.studio.ldapbrowser.core.model.DnKey;
+import org.apache.directory.studio.ldapbrowser.core.model.IEntry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+
+/**
+ * Tests the bounded entry cache of the {@link BrowserConnection}.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public class EntryCacheTest
+{
+    private BrowserConnection browserConnection;
+
+    private EntryCache entryCache;
+
+
+    @BeforeEach
+    public void setup() throws Exception
+    {
+        browserConnection = new BrowserConnection( new Connection( new ConnectionParameter() ) );
+        entryCache = new EntryCache( 3, Long.MAX_VALUE );
+        entryCache.setPinnedEntry( browserConnection.getRootDSE() );
+    }
+
+
+    @Test
+    public void testLeastRecentlyUsedInfosAreEvicted() throws Exception
+    {
+        IEntry[] entries = new IEntry[4];
+        for ( int i = 0; i < entries.length; i++ )
+        {
+            entries[i] = new BaseDNEntry( new Dn( "ou=entry" + i ), browserConnection );
+            AttributeInfo ai = new AttributeInfo();
+            ai.attributesInitialized = true;
+            assertNull( entryCache.setAttributeInfo( entries[i], ai ) );
+        }
+
+        assertNull( entryCache.getAttributeInfo( entries[0] ) );
+        assertNotNull( entryCache.getAttributeInfo( entries[1] ) );
+        assertNotNull( entryCache.getAttributeInfo( entries[3] ) );
+        assertEquals( 1, entryCache.getStatistics().getEvictionCount() );
+        assertEquals( 3, entryCache.getStatistics().getInfoCount() );
+    }
+
+
+    @Test
+    public void testInfosBeingLoadedAreNotEvicted() throws Exception
+    {
+        IEntry[] entries = new IEntry[4];
+        for ( int i = 0; i < entries.length; i++ )
+        {
+            entries[i] = new BaseDNEntry( new Dn( "ou=entry" + i ), browserConnection );
+            entryCache.setAttributeInfo( entries[i], new AttributeInfo() );
+        }
+
+        assertEquals( 4, entryCache.getStatistics().getInfoCount() );
+        assertEquals( 0, entryCache.getStatistics().getEvictionCount() );
+    }
+
+
+    @Test
+    public void testEvictionIsBottomUp() throws Exception
+    {
+        IEntry parent = new BaseDNEntry( new Dn( "ou=parent" ), browserConnection );
+        IEntry child = new Entry( parent, new Rdn( "cn=child" ) );
+
+        ChildrenInfo ci = new ChildrenInfo();
+        ci.childrenInitialized = true;
+        ci.childrenSet = new java.util.LinkedHashSet<IEntry>();
+        ci.childrenSet.add( child );
+        entryCache.setChildrenInfo( parent, ci );
+
+        AttributeInfo ai = new AttributeInfo();
+        ai.attributesInitialized = true;
+        entryCache.setAttributeInfo( child, ai );
+
+        // the parent is the least recently used one, but its child still has infos
+        IEntry other1 = new BaseDNEntry( new Dn( "ou=other1" ), browserConnection );
+        IEntry other2 = new BaseDNEntry( new Dn( "ou=other2" ), browserConnection );
+        entryCache.setAttributeInfo( other1, ai );
+        assertNull( entryCache.setAttributeInfo( other2, ai ) );
+
+        assertEquals( 1, entryCache.getStatistics().getEvictionCount() );
+        assertNull( entryCache.getAttributeInfo( child ) );
+
+        // now the parent can be evicted, its children are returned to be uncached
+        IEntry other3 = new BaseDNEntry( new Dn( "ou=other3" ), browserConnection );
+        assertSame( child, entryCache.setAttributeInfo( other3, ai ).get( 0 ) );
+        assertNull( entryCache.getChildrenInfo( parent ) );
+    }
+
+
+    @Test
+    public void testHitsAndMisses() throws Exception
+    {
+        IEntry entry = new BaseDNEntry( new Dn( "ou=entry" ), browserConnection );
+        entryCache.putEntry( DnKey.ROOT.getChild( "2.5.4.11=entry" ), entry );
+
+        assertSame( entry, entryCache.getEntry( DnKey.ROOT.getChild( "2.5.4.11=entry" ) ) );
+        assertNull( entryCache.getEntry( DnKey.ROOT.getChild( "2.5.4.11=other" ) ) );
+        assertEquals( 1, entryCache.getStatistics().getHitCount() );
+        assertEquals( 1, entryCache.getStatistics().getMissCount() );
+
+        entryCache.clear();
+        assertFalse( entryCache.getStatistics().getEntryCount() > 0 );
+        assertTrue( entryCache.getStatistics().getEstimatedSize() == 0 );
+    }
+
+
+    @Test
+    public void testDnKeys() throws Exception
+    {
+        DnKey key = browserConnection.getDnKey( new Dn( "CN=Foo,ou=Bar" ) );
+
+        assertEquals( key, browserConnection.getDnKey( new Dn( "cn=foo, OU=bar" ) ) );
+        assertEquals( key.hashCode(), browserConnection.getDnKey( new Dn( "cn=foo, OU=bar" ) ).hashCode() );
+        assertEquals( browserConnection.getDnKey( new Dn( "ou=bar" ) ), key.getParent() );
+        assertSame( DnKey.ROOT, key.getParent().getParent() );
+        assertFalse( key.equals( browserConnection.getDnKey( new Dn( "cn=foo,ou=baz" ) ) ) );
+        assertEquals( 2, key.getDepth() );
+
+        IEntry parent = new BaseDNEntry( new Dn( "ou=bar" ), browserConnection );
+        IEntry child = new Entry( parent, new Rdn( "cn=Foo" ) );
+        browserConnection.cacheEntry( parent );
+        browserConnection.cacheEntry( child );
+        assertSame( child, browserConnection.getEntryFromCache( new Dn( "CN=foo,OU=BAR" ) ) );
+        assertSame( parent, browserConnection.getAncestorEntryFromCache( new Dn( "cn=baz,cn=foo2,ou=bar" ) ) );
+    }
+}
@@ -0,0 +1,287 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *  
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License. 
+ *  
+ */
+package org.apache.directory.studio.ldapbrowser.core.model.schema;
+
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.directory.api.ldap.model.schema.AbstractSchemaObject;
+import org.apache.directory.api.ldap.model.schema.AttributeType;
+import org.apache.directory.api.ldap.model.schema.LdapSyntax;
+import org.apache.directory.api.ldap.model.schema.MatchingRule;
+import org.apache.directory.api.ldap.model.schema.ObjectClass;
+import org.apache.directory.api.util.Strings;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+
+/**
+ * Tests the reverse indexes of the {@link Schema} by comparing the results of the
+ * {@link SchemaUtils} queries with a scan over all schema elements.
+ * <p>
+ * The benchmark only runs if the system property <code>benchmark</code> is set to <code>true</code>,
+ * the number of attribute types of the generated schema can be set with the system property
+ * <code>benchmark.attributeTypes</code>.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public class SchemaIndexTest
+{
+
+    @Test
+    public void testDefaultSchema()
+    {
+        assertSameResults( Schema.DEFAULT_SCHEMA );
+
+        Schema schema = Schema.DEFAULT_SCHEMA;
+        AttributeType cn = schema.getAttributeTypeDescription( "cn" ); //$NON-NLS-1$
+        ObjectClass person = schema.getObjectClassDescription( "person" ); //$NON-NLS-1$
+        ObjectClass top = schema.getObjectClassDescription( "top" ); //$NON-NLS-1$
+        assertTrue( SchemaUtils.getUsedAsMust( cn, schema ).contains( person ) );
+        assertTrue( SchemaUtils.getSubObjectClassDescriptions( top, schema ).contains( person ) );
+        assertTrue( SchemaUtils.getDerivedAttributeTypeDescriptions( schema.getAttributeTypeDescription( "name" ), //$NON-NLS-1$
+            schema ).contains( cn ) );
+    }
+
+
+    @Test
+    public void testGeneratedSchema()
+    {
+        Schema schema = createSchema( 200 );
+        assertSameResults( schema );
+
+        // must attributes are inherited by all 20 generated object classes
+        AttributeType at0 = schema.getAttributeTypeDescription( "at0" ); //$NON-NLS-1$
+        Collection<ObjectClass> usedAsMust = SchemaUtils.getUsedAsMust( at0, schema );
+        assertEquals( 20, usedAsMust.size() );
+        assertFalse( SchemaUtils.getUsedAsMay( at0, schema ).contains( schema.getObjectClassDescription( "oc0" ) ) ); //$NON-NLS-1$
+    }
+
+
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    public void testPerformance()
+    {
+        int count = Integer.getInteger( "benchmark.attributeTypes", 1500 );
+        Schema schema = createSchema( count );
+        Collection<AttributeType> atds = schema.getAttributeTypeDescriptions();
+
+        long scanStart = System.nanoTime();
+        for ( AttributeType atd : atds )
+        {
+            scanUsedAsMust( atd, schema );
+            scanUsedAsMay( atd, schema );
+        }
+        long scanTime = ( System.nanoTime() - scanStart ) / 1000000L;
+
+        long indexStart = System.nanoTime();
+        for ( AttributeType atd : atds )
+        {
+            SchemaUtils.getUsedAsMust( atd, schema );
+            SchemaUtils.getUsedAsMay( atd, schema );
+        }
+        long indexTime = ( System.nanoTime() - indexStart ) / 1000000L;
+
+        System.out.println( "Must/may usage of " + atds.size() + " attribute types and " //$NON-NLS-1$
+            + schema.getObjectClassDescriptions().size() + " object classes: scan " + scanTime //$NON-NLS-1$
+            + " ms, index " + indexTime + " ms" ); //$NON-NLS-1$ //$NON-NLS-2$
+    }
+
+
+    private static void assertSameResults( Schema schema )
+    {
+        for ( AttributeType atd : schema.getAttributeTypeDescriptions() )
+        {
+            assertEquals( scanUsedAsMust( atd, schema ), new HashSet<ObjectClass>( SchemaUtils.getUsedAsMust( atd,
+                schema ) ) );
+            assertEquals( scanUsedAsMay( atd, schema ), new HashSet<ObjectClass>( SchemaUtils.getUsedAsMay( atd,
+                schema ) ) );
+            assertEquals( scanDerived( atd, schema ), new HashSet<AttributeType>( SchemaUtils
+                .getDerivedAttributeTypeDescriptions( atd, schema ) ) );
+        }
+        for ( ObjectClass ocd : schema.getObjectClassDescriptions() )
+        {
+            assertEquals( scanSubObjectClasses( ocd, schema ), new HashSet<ObjectClass>( SchemaUtils
+                .getSubObjectClassDescriptions( ocd, schema ) ) );
+        }
+        for ( LdapSyntax lsd : schema.getLdapSyntaxDescriptions() )
+        {
+            Set<AttributeType> expected = new HashSet<AttributeType>();
+            for ( AttributeType atd : schema.getAttributeTypeDescriptions() )
+            {
+                String syntax = SchemaUtils.getSyntaxNumericOidTransitive( atd, schema );
+                if ( syntax != null && syntax.equalsIgnoreCase( lsd.getOid() ) )
+                {
+                    expected.add( atd );
+                }
+            }
+            assertEquals( expected, new HashSet<AttributeType>( SchemaUtils.getUsedFromAttributeTypeDescriptions(
+                lsd, schema ) ) );
+        }
+        for ( MatchingRule mrd : schema.getMatchingRuleDescriptions() )
+        {
+            Collection<String> identifiers = SchemaUtils.getLowerCaseIdentifiers( mrd );
+            Set<AttributeType> expected = new HashSet<AttributeType>();
+            for ( AttributeType atd : schema.getAttributeTypeDescriptions() )
+            {
+                for ( String mr : new String[]
+                    { SchemaUtils.getEqualityMatchingRuleNameOrNumericOidTransitive( atd, schema ),
+                        SchemaUtils.getSubstringMatchingRuleNameOrNumericOidTransitive( atd, schema ),
+                        SchemaUtils.getOrderingMatchingRuleNameOrNumericOidTransitive( atd, schema ) } )
+                {
+                    if ( mr != null && identifiers.contains( Strings.toLowerCase( mr ) ) )
+                    {
+                        expected.add( atd );
+                    }
+                }
+            }
+            assertEquals( expected, new HashSet<AttributeType>( SchemaUtils.getUsedFromAttributeTypeDescriptions(
+                mrd, schema ) ) );
+        }
+    }
+
+
+    private static Set<ObjectClass> scanUsedAsMust( AttributeType atd, Schema schema )
+    {
+        Set<ObjectClass> ocds = new HashSet<ObjectClass>();
+        for ( ObjectClass ocd : schema.getObjectClassDescriptions() )
+        {
+            if ( containsAny( SchemaUtils.getMustAttributeTypeDescriptionNamesTransitive( ocd, schema ), atd ) )
+            {
+                ocds.add( ocd );
+            }
+        }
+        return ocds;
+    }
+
+
+    private static Set<ObjectClass> scanUsedAsMay( AttributeType atd, Schema schema )
+    {
+        Set<ObjectClass> ocds = new HashSet<ObjectClass>();
+        for ( ObjectClass ocd : schema.getObjectClassDescriptions() )
+        {
+            if ( containsAny( SchemaUtils.getMayAttributeTypeDescriptionNamesTransitive( ocd, schema ), atd ) )
+            {
+                ocds.add( ocd );
+            }
+        }
+        return ocds;
+    }
+
+
+    private static Set<AttributeType> scanDerived( AttributeType atd, Schema schema )
+    {
+        Set<AttributeType> atds = new HashSet<AttributeType>();
+        for ( AttributeType derivedAtd : schema.getAttributeTypeDescriptions() )
+        {
+            List<String> superior = new ArrayList<String>();
+            if ( derivedAtd.getSuperiorOid() != null )
+            {
+                superior.add( derivedAtd.getSuperiorOid() );
+            }
+            if ( containsAny( superior, atd ) )
+            {
+                atds.add( derivedAtd );
+            }
+        }
+        return atds;
+    }
+
+
+    private static Set<ObjectClass> scanSubObjectClasses( ObjectClass ocd, Schema schema )
+    {
+        Set<ObjectClass> ocds = new HashSet<ObjectClass>();
+        for ( ObjectClass testOcd : schema.getObjectClassDescriptions() )
+        {
+            if ( containsAny( testOcd.getSuperiorOids(), ocd ) )
+            {
+                ocds.add( testOcd );
+            }
+        }
+        return ocds;
+    }
+
+
+    private static boolean containsAny( Collection<String> names, AbstractSchemaObject asd )
+    {
+        Collection<String> identifiers = SchemaUtils.getLowerCaseIdentifiers( asd );
+        for ( String name : names )
+        {
+            if ( identifiers.contains( Strings.toLowerCase( name ) ) )
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+
+    /**
+     * Creates a schema with the given number of attribute types and a tenth as many
+     * object classes, the object classes form a tree with four sub classes per class.
+     */
+    private static Schema createSchema( int attributeTypeCount )
+    {
+        StringBuilder sb = new StringBuilder();
+        sb.append( "dn: cn=schema\n" ); //$NON-NLS-1$
+        sb.append( "objectClass: top\n" ); //$NON-NLS-1$
+        sb.append( "objectClass: subschema\n" ); //$NON-NLS-1$
+        sb.append( "objectClasses: ( 2.5.6.0 NAME 'top' ABSTRACT MUST objectClass )\n" ); //$NON-NLS-1$
+        sb.append( "objectClasses: ( 1.3.6.1.4.1.1466.101.120.111 NAME 'extensibleObject' SUP top AUXILIARY )\n" ); //$NON-NLS-1$
+        sb.append( "attributeTypes: ( 2.5.4.0 NAME 'objectClass' " //$NON-NLS-1$
+            + "EQUALITY objectIdentifierMatch SYNTAX 1.3.6.1.4.1.1466.115.121.1.38 )\n" ); //$NON-NLS-1$
+        for ( int i = 0; i < attributeTypeCount; i++ )
+        {
+            sb.append( "attributeTypes: ( 1.2.3.1." + i + " NAME 'at" + i + "'" ); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+            if ( i % 10 == 0 )
+            {
+                sb.append( " EQUALITY caseIgnoreMatch SUBSTR caseIgnoreSubstringsMatch" ); //$NON-NLS-1$
+                sb.append( " SYNTAX 1.3.6.1.4.1.1466.115.121.1.15" ); //$NON-NLS-1$
+            }
+            else
+            {
+                sb.append( " SUP at" + ( i - i % 10 ) ); //$NON-NLS-1$
+            }
+            sb.append( " )\n" ); //$NON-NLS-1$
+        }
+        int objectClassCount = Math.max( 1, attributeTypeCount / 10 );
+        for ( int i = 0; i < objectClassCount; i++ )
+        {
+            sb.append( "objectClasses: ( 1.2.3.2." + i + " NAME 'oc" + i + "'" ); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+            sb.append( " SUP " + ( i == 0 ? "top" : "oc" + ( ( i - 1 ) / 4 ) ) + " STRUCTURAL" ); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+            sb.append( " MUST at" + ( i * 10 ) ); //$NON-NLS-1$
+            sb.append( " MAY ( at" + ( i * 10 + 1 ) + " $ at" + ( i * 10 + 2 ) + " ) )\n" ); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+        }
+
+        Schema schema = new Schema();
+        schema.loadFromLdif( new StringReader( sb.toString() ) );
+        return schema;
+    }
+
+}
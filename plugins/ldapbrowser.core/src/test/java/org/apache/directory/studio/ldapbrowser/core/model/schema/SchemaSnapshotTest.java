@@ -0,0 +1,109 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *  
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License. 
+ *  
+ */
+package org.apache.directory.studio.ldapbrowser.core.model.schema;
+
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+
+import org.apache.directory.api.ldap.model.schema.AttributeType;
+import org.apache.directory.api.ldap.model.schema.ObjectClass;
+import org.junit.jupiter.api.Test;
+
+
+/**
+ * Tests the {@link SchemaSnapshot}.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public class SchemaSnapshotTest
+{
+
+    @Test
+    public void testRoundTrip() throws Exception
+    {
+        Schema schema = Schema.DEFAULT_SCHEMA;
+        Schema copy = roundTrip( schema );
+
+        assertEquals( schema.getDn(), copy.getDn() );
+        assertEquals( schema.getObjectClassDescriptions().size(), copy.getObjectClassDescriptions().size() );
+        assertEquals( schema.getAttributeTypeDescriptions().size(), copy.getAttributeTypeDescriptions().size() );
+        assertEquals( schema.getLdapSyntaxDescriptions().size(), copy.getLdapSyntaxDescriptions().size() );
+        assertEquals( schema.getMatchingRuleDescriptions().size(), copy.getMatchingRuleDescriptions().size() );
+        assertEquals( schema.getMatchingRuleUseDescriptions().size(), copy.getMatchingRuleUseDescriptions()
+            .size() );
+
+        AttributeType cn = schema.getAttributeTypeDescription( "cn" ); //$NON-NLS-1$
+        AttributeType cnCopy = copy.getAttributeTypeDescription( "commonName" ); //$NON-NLS-1$
+        assertNotNull( cnCopy );
+        assertSame( cnCopy, copy.getAttributeTypeDescription( cn.getOid() ) );
+        assertEquals( cn.getNames(), cnCopy.getNames() );
+        assertEquals( cn.getSuperiorOid(), cnCopy.getSuperiorOid() );
+        assertEquals( cn.getSyntaxOid(), cnCopy.getSyntaxOid() );
+        assertEquals( cn.getUsage(), cnCopy.getUsage() );
+        assertEquals( cn.getExtensions(), cnCopy.getExtensions() );
+
+        ObjectClass person = schema.getObjectClassDescription( "person" ); //$NON-NLS-1$
+        ObjectClass personCopy = copy.getObjectClassDescription( "person" ); //$NON-NLS-1$
+        assertEquals( person.getType(), personCopy.getType() );
+        assertEquals( person.getSuperiorOids(), personCopy.getSuperiorOids() );
+        assertEquals( person.getMustAttributeTypeOids(), personCopy.getMustAttributeTypeOids() );
+        assertEquals( person.getMayAttributeTypeOids(), personCopy.getMayAttributeTypeOids() );
+    }
+
+
+    @Test
+    public void testSchemaRecordIsKept() throws Exception
+    {
+        Schema copy = roundTrip( Schema.DEFAULT_SCHEMA );
+
+        StringWriter expected = new StringWriter();
+        Schema.DEFAULT_SCHEMA.saveToLdif( expected );
+        StringWriter actual = new StringWriter();
+        copy.saveToLdif( actual );
+
+        assertEquals( expected.toString(), actual.toString() );
+    }
+
+
+    @Test
+    public void testUnknownFormat()
+    {
+        assertThrows( IOException.class,
+            () -> SchemaSnapshot.read( new ByteArrayInputStream( new byte[]
+                { 0, 0, 0, 1, 0, 0, 0, 1 } ) ) );
+    }
+
+
+    private static Schema roundTrip( Schema schema ) throws IOException
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        SchemaSnapshot.write( schema, out );
+        return SchemaSnapshot.read( new ByteArrayInputStream( out.toByteArray() ) );
+    }
+
+}
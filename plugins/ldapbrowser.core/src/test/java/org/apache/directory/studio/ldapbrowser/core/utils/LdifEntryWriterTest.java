@@ -0,0 +1,358 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *  
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License. 
+ *  
+ */
+package org.apache.directory.studio.ldapbrowser.core.utils;
+
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.apache.directory.api.ldap.model.entry.Attribute;
+import org.apache.directory.api.ldap.model.entry.DefaultEntry;
+import org.apache.directory.api.ldap.model.entry.Entry;
+import org.apache.directory.api.ldap.model.entry.Value;
+import org.apache.directory.api.ldap.model.schema.AttributeType;
+import org.apache.directory.studio.connection.core.event.ConnectionEventRegistry;
+import org.apache.directory.studio.ldapbrowser.core.model.AttributeDescription;
+import org.apache.directory.studio.ldapbrowser.core.model.IBrowserConnection;
+import org.apache.directory.studio.ldapbrowser.core.model.IValue;
+import org.apache.directory.studio.ldapbrowser.core.model.impl.DummyConnection;
+import org.apache.directory.studio.ldapbrowser.core.model.impl.DummyEntry;
+import org.apache.directory.studio.ldapbrowser.core.model.schema.Schema;
+import org.apache.directory.studio.ldifparser.LdifFormatParameters;
+import org.apache.directory.studio.ldifparser.model.container.LdifContentRecord;
+import org.apache.directory.studio.ldifparser.model.lines.LdifAttrValLine;
+import org.apache.directory.studio.ldifparser.model.lines.LdifSepLine;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+
+/**
+ * Tests the {@link LdifEntryWriter}, also by comparing its output with the records
+ * built by {@link ModelConverter} and sorted by {@link AttributeComparator}.
+ * <p>
+ * The benchmark only runs if the system property <code>benchmark</code> is set to <code>true</code>,
+ * the number of entries can be set with the system property <code>benchmark.entries</code>.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public class LdifEntryWriterTest
+{
+    /** The OIDs of userPassword and jpegPhoto, treated as binary without the plugin preferences */
+    private static final Set<String> BINARY_OIDS = new HashSet<String>( Arrays.asList( "2.5.4.35", //$NON-NLS-1$
+        "0.9.2342.19200300.100.1.60" ) ); //$NON-NLS-1$
+
+    private static final LdifFormatParameters PARAMETERS = new LdifFormatParameters( true, 76, "\n" ); //$NON-NLS-1$
+
+    private IBrowserConnection connection;
+
+
+    @BeforeEach
+    public void setup()
+    {
+        ConnectionEventRegistry.suspendEventFiringInCurrentThread();
+        connection = new DummyConnection( Schema.DEFAULT_SCHEMA );
+    }
+
+
+    @AfterEach
+    public void tearDown()
+    {
+        ConnectionEventRegistry.resumeEventFiringInCurrentThread();
+    }
+
+
+    @Test
+    public void testSortedEntry() throws Exception
+    {
+        Entry entry = new DefaultEntry( "cn=foo,o=test" ); //$NON-NLS-1$
+        entry.add( "description", "zzz" ); //$NON-NLS-1$ //$NON-NLS-2$
+        entry.add( "sn", "foo" ); //$NON-NLS-1$ //$NON-NLS-2$
+        entry.add( "createTimestamp", "20200101000000Z" ); //$NON-NLS-1$ //$NON-NLS-2$
+        entry.add( "cn", "foo", "Bar", "baz" ); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+        entry.add( "objectClass", "top", "person" ); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+
+        assertEquals( "dn: cn=foo,o=test\n" //$NON-NLS-1$
+            + "objectClass: person\n" //$NON-NLS-1$
+            + "objectClass: top\n" //$NON-NLS-1$
+            + "cn: Bar\n" //$NON-NLS-1$
+            + "cn: baz\n" //$NON-NLS-1$
+            + "cn: foo\n" //$NON-NLS-1$
+            + "sn: foo\n" //$NON-NLS-1$
+            + "description: zzz\n" //$NON-NLS-1$
+            + "createTimestamp: 20200101000000Z\n" //$NON-NLS-1$
+            + "\n", write( PARAMETERS, true, entry ) ); //$NON-NLS-1$
+    }
+
+
+    @Test
+    public void testUnsortedEntry() throws Exception
+    {
+        Entry entry = new DefaultEntry( "cn=foo,o=test" ); //$NON-NLS-1$
+        entry.add( "sn", "foo" ); //$NON-NLS-1$ //$NON-NLS-2$
+        entry.add( "cn", "foo" ); //$NON-NLS-1$ //$NON-NLS-2$
+        entry.add( "objectClass", "person" ); //$NON-NLS-1$ //$NON-NLS-2$
+
+        assertEquals( "dn: cn=foo,o=test\n" //$NON-NLS-1$
+            + "sn: foo\n" //$NON-NLS-1$
+            + "cn: foo\n" //$NON-NLS-1$
+            + "objectClass: person\n" //$NON-NLS-1$
+            + "\n", write( PARAMETERS, false, entry ) ); //$NON-NLS-1$
+    }
+
+
+    @Test
+    public void testBase64AndFolding() throws Exception
+    {
+        Entry entry = new DefaultEntry( "cn=Jürgen,o=test" ); //$NON-NLS-1$
+        entry.add( "cn", "Jürgen" ); //$NON-NLS-1$ //$NON-NLS-2$
+        entry.add( "description", " leading space" ); //$NON-NLS-1$ //$NON-NLS-2$
+        entry.add( "userPassword", new byte[] //$NON-NLS-1$
+            { 0, 1, 2, 3 } );
+        entry.add( "sn", "abcdefghijklmnopqrstuvwxyz" ); //$NON-NLS-1$ //$NON-NLS-2$
+
+        LdifFormatParameters parameters = new LdifFormatParameters( false, 10, "\r\n" ); //$NON-NLS-1$
+        assertEquals( "dn::Y249Ss\r\n" //$NON-NLS-1$
+            + " O8cmdlbix\r\n" //$NON-NLS-1$
+            + " vPXRlc3Q=\r\n" //$NON-NLS-1$
+            + "cn::SsO8cm\r\n" //$NON-NLS-1$
+            + " dlbg==\r\n" //$NON-NLS-1$
+            + "descriptio\r\n" //$NON-NLS-1$
+            + " n::IGxlYW\r\n" //$NON-NLS-1$
+            + " Rpbmcgc3B\r\n" //$NON-NLS-1$
+            + " hY2U=\r\n" //$NON-NLS-1$
+            + "sn:abcdefg\r\n" //$NON-NLS-1$
+            + " hijklmnop\r\n" //$NON-NLS-1$
+            + " qrstuvwxy\r\n" //$NON-NLS-1$
+            + " z\r\n" //$NON-NLS-1$
+            + "userPasswo\r\n" //$NON-NLS-1$
+            + " rd::AAECA\r\n" //$NON-NLS-1$
+            + " w==\r\n" //$NON-NLS-1$
+            + "\r\n", write( parameters, true, entry ) ); //$NON-NLS-1$
+    }
+
+
+    @Test
+    public void testSameAsRecordPath() throws Exception
+    {
+        Random random = new Random( 42 );
+        for ( LdifFormatParameters parameters : new LdifFormatParameters[]
+            { PARAMETERS, new LdifFormatParameters( false, 7, "\r\n" ), new LdifFormatParameters( true, 2, "\n" ) } ) //$NON-NLS-1$ //$NON-NLS-2$
+        {
+            List<Entry> entries = createEntries( random, 200 );
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            writeEntries( entries, out, parameters );
+            assertEquals( writeRecords( entries, parameters ), new String( out.toByteArray(),
+                StandardCharsets.US_ASCII ) );
+        }
+    }
+
+
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    public void testPerformance() throws Exception
+    {
+        int count = Integer.getInteger( "benchmark.entries", 100000 ); //$NON-NLS-1$
+        List<Entry> entries = createEntries( new Random( 42 ), count );
+
+        // warm up both paths
+        writeRecords( entries.subList( 0, Math.min( count, 1000 ) ), PARAMETERS );
+        writeEntries( entries.subList( 0, Math.min( count, 1000 ) ), new ByteArrayOutputStream(), PARAMETERS );
+
+        long recordStart = System.nanoTime();
+        int recordBytes = writeRecords( entries, PARAMETERS ).length();
+        long recordTime = System.nanoTime() - recordStart;
+
+        CountingOutputStream out = new CountingOutputStream();
+        long writerStart = System.nanoTime();
+        writeEntries( entries, out, PARAMETERS );
+        long writerTime = System.nanoTime() - writerStart;
+
+        System.out.println( "LDIF export of " + count + " entries (" + recordBytes / 1024 / 1024 + " MB): records " //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+            + recordTime / 1000000L + " ms, " + mbPerSecond( recordBytes, recordTime ) + " MB/s, writer " //$NON-NLS-1$ //$NON-NLS-2$
+            + writerTime / 1000000L + " ms, " + mbPerSecond( out.count, writerTime ) + " MB/s" ); //$NON-NLS-1$ //$NON-NLS-2$
+        assertEquals( recordBytes, out.count );
+    }
+
+
+    private static String write( LdifFormatParameters parameters, boolean sort, Entry entry ) throws IOException
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        LdifEntryWriter writer = new TestLdifEntryWriter( out, parameters, sort );
+        writer.write( entry );
+        writer.flush();
+        return new String( out.toByteArray(), StandardCharsets.US_ASCII );
+    }
+
+
+    private static void writeEntries( List<Entry> entries, OutputStream out, LdifFormatParameters parameters )
+        throws IOException
+    {
+        LdifEntryWriter writer = new TestLdifEntryWriter( out, parameters, true );
+        for ( Entry entry : entries )
+        {
+            writer.write( entry );
+        }
+        writer.flush();
+    }
+
+
+    /**
+     * Writes the entries like the export did before the {@link LdifEntryWriter}: each entry is converted
+     * to an LDIF record, to a dummy entry, sorted and formatted again.
+     */
+    private String writeRecords( List<Entry> entries, LdifFormatParameters parameters ) throws Exception
+    {
+        StringBuilder sb = new StringBuilder();
+        for ( Entry entry : entries )
+        {
+            LdifContentRecord record = LdifContentRecord.create( entry.getDn().getName() );
+            for ( Attribute attribute : entry )
+            {
+                for ( Value value : attribute )
+                {
+                    record.addAttrVal( value.isHumanReadable() ? LdifAttrValLine.create( attribute.getUpId(), value
+                        .getString() ) : LdifAttrValLine.create( attribute.getUpId(), value.getBytes() ) );
+                }
+            }
+            record.finish( LdifSepLine.create() );
+
+            DummyEntry dummyEntry = ModelConverter.ldifContentRecordToEntry( record, connection );
+            LdifContentRecord sortedRecord = new LdifContentRecord( record.getDnLine() );
+            for ( IValue value : AttributeComparator.toSortedValues( dummyEntry ) )
+            {
+                // same as ModelConverter.valueToLdifAttrValLine(), with the binary attributes of this test
+                String description = value.getAttribute().getDescription();
+                AttributeType atd = Schema.DEFAULT_SCHEMA.getAttributeTypeDescription( new AttributeDescription(
+                    description ).getParsedAttributeType() );
+                sortedRecord.addAttrVal( isBinary( atd ) ? LdifAttrValLine.create( description, value
+                    .getBinaryValue() ) : LdifAttrValLine.create( description, value.getStringValue() ) );
+            }
+            sortedRecord.finish( record.getSepLine() );
+            sb.append( sortedRecord.toFormattedString( parameters ) );
+        }
+        return sb.toString();
+    }
+
+
+    private static List<Entry> createEntries( Random random, int count ) throws Exception
+    {
+        String[] descriptions =
+            { "cn", "CN", "sn", "description", "mail", "userPassword", "jpegPhoto", "createTimestamp", //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$ //$NON-NLS-6$ //$NON-NLS-7$ //$NON-NLS-8$
+                "cn;lang-de", "2.5.4.3", "givenName", "member", "x-unknown" }; //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$
+        String[] objectClasses =
+            { "top", "person", "organizationalPerson", "inetOrgPerson", "groupOfNames", "unknown" }; //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$ //$NON-NLS-6$
+
+        List<Entry> entries = new ArrayList<Entry>( count );
+        for ( int i = 0; i < count; i++ )
+        {
+            Entry entry = new DefaultEntry( "uid=user" + i + ",ou=people,o=test" ); //$NON-NLS-1$ //$NON-NLS-2$
+            entry.add( "objectClass", objectClasses[random.nextInt( objectClasses.length )], //$NON-NLS-1$
+                objectClasses[random.nextInt( objectClasses.length )] );
+            for ( int j = random.nextInt( 8 ); j >= 0; j-- )
+            {
+                String description = descriptions[random.nextInt( descriptions.length )];
+                if ( random.nextInt( 4 ) == 0 )
+                {
+                    byte[] bytes = new byte[random.nextInt( 100 ) + 1];
+                    random.nextBytes( bytes );
+                    entry.add( description, bytes );
+                }
+                else
+                {
+                    entry.add( description, createString( random ), createString( random ) );
+                }
+            }
+            entries.add( entry );
+        }
+        return entries;
+    }
+
+
+    private static String createString( Random random )
+    {
+        String chars = "abcXYZ 01:<,é中"; //$NON-NLS-1$
+        int length = random.nextInt( random.nextInt( 10 ) == 0 ? 150 : 20 );
+        StringBuilder sb = new StringBuilder( length );
+        for ( int i = 0; i < length; i++ )
+        {
+            sb.append( chars.charAt( random.nextInt( chars.length() ) ) );
+        }
+        return sb.toString();
+    }
+
+
+    private static boolean isBinary( AttributeType atd )
+    {
+        return atd != null && BINARY_OIDS.contains( atd.getOid() );
+    }
+
+
+    private static long mbPerSecond( long bytes, long nanos )
+    {
+        return nanos > 0 ? bytes * 1000L / nanos : 0;
+    }
+
+    private static class TestLdifEntryWriter extends LdifEntryWriter
+    {
+        TestLdifEntryWriter( OutputStream out, LdifFormatParameters parameters, boolean sort )
+        {
+            super( out, Schema.DEFAULT_SCHEMA, parameters, sort );
+        }
+
+
+        @Override
+        protected boolean isBinary( AttributeType atd )
+        {
+            return LdifEntryWriterTest.isBinary( atd );
+        }
+    }
+
+    private static class CountingOutputStream extends OutputStream
+    {
+        private long count;
+
+
+        @Override
+        public void write( int b )
+        {
+            count++;
+        }
+
+
+        @Override
+        public void write( byte[] b, int off, int len )
+        {
+            count += len;
+        }
+    }
+
+}
@@ -0,0 +1,114 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *  
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License. 
+ *  
+ */
+package org.apache.directory.studio.ldapbrowser.core.utils;
+
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+
+public class XlsxSheetWriterTest
+{
+    @TempDir
+    Path tempDir;
+
+
+    @Test
+    public void testColumnName()
+    {
+        assertEquals( "A", XlsxSheetWriter.getColumnName( 0 ) );
+        assertEquals( "Z", XlsxSheetWriter.getColumnName( 25 ) );
+        assertEquals( "AA", XlsxSheetWriter.getColumnName( 26 ) );
+        assertEquals( "AZ", XlsxSheetWriter.getColumnName( 51 ) );
+        assertEquals( "ZZ", XlsxSheetWriter.getColumnName( 701 ) );
+        assertEquals( "AAA", XlsxSheetWriter.getColumnName( 702 ) );
+        assertEquals( "XFD", XlsxSheetWriter.getColumnName( XlsxSheetWriter.MAX_COLUMNS - 1 ) );
+    }
+
+
+    @Test
+    public void testHeaderWrittenBeforeStreamedRows() throws Exception
+    {
+        File file = tempDir.resolve( "export.xlsx" ).toFile();
+        XlsxSheetWriter writer = new XlsxSheetWriter( file, "Export" );
+        writer.addColumn( "dn" );
+        writer.addRow( new String[]
+            { "cn=a,dc=example" } );
+        writer.addColumn( "cn" );
+        writer.addRow( new String[]
+            { "cn=b & c,dc=example", "b <c>\u0001" } );
+        writer.close();
+
+        assertEquals( 2, writer.getRowCount() );
+        assertEquals( 2, writer.getColumnCount() );
+
+        try ( ZipFile zip = new ZipFile( file ) )
+        {
+            assertNotNull( zip.getEntry( "[Content_Types].xml" ) );
+            assertNotNull( zip.getEntry( "_rels/.rels" ) );
+            assertNotNull( zip.getEntry( "xl/workbook.xml" ) );
+            assertNotNull( zip.getEntry( "xl/_rels/workbook.xml.rels" ) );
+            assertNotNull( zip.getEntry( "xl/styles.xml" ) );
+
+            String sheet = read( zip, zip.getEntry( "xl/worksheets/sheet1.xml" ) );
+            int cols = sheet.indexOf( "<cols>" );
+            int header = sheet.indexOf( "<row r=\"1\">" );
+            int row2 = sheet.indexOf( "<row r=\"2\">" );
+            int row3 = sheet.indexOf( "<row r=\"3\">" );
+            assertTrue( cols >= 0 && cols < header && header < row2 && row2 < row3 );
+            assertTrue( sheet.indexOf( ">cn</t>" ) < row2 );
+            assertTrue( sheet.contains( "<c r=\"B3\" t=\"inlineStr\"><is><t xml:space=\"preserve\">b &lt;c&gt;</t>" ) );
+            assertTrue( sheet.contains( ">cn=b &amp; c,dc=example<" ) );
+            assertFalse( sheet.contains( "\u0001" ) );
+            assertTrue( sheet.endsWith( "</sheetData></worksheet>" ) );
+        }
+    }
+
+
+    private static String read( ZipFile zip, ZipEntry entry ) throws IOException
+    {
+        try ( InputStream in = zip.getInputStream( entry ) )
+        {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            int n;
+            while ( ( n = in.read( buffer ) ) != -1 )
+            {
+                out.write( buffer, 0, n );
+            }
+            return new String( out.toByteArray(), StandardCharsets.UTF_8 );
+        }
+    }
+
+}
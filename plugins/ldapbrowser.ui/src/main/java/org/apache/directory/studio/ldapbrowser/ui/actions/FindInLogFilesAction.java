@@ -0,0 +1,110 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.apache.directory.studio.ldapbrowser.ui.actions;
+
+
+import java.io.IOException;
+
+import org.apache.directory.studio.ldapbrowser.common.actions.BrowserAction;
+import org.apache.directory.studio.ldapbrowser.ui.BrowserUIConstants;
+import org.apache.directory.studio.ldapbrowser.ui.BrowserUIPlugin;
+import org.eclipse.jface.dialogs.InputDialog;
+import org.eclipse.jface.dialogs.MessageDialog;
+import org.eclipse.jface.resource.ImageDescriptor;
+import org.eclipse.jface.window.Window;
+import org.eclipse.osgi.util.NLS;
+
+
+/**
+ * Base class of the actions to find a text in the log files displayed by a log view.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public abstract class FindInLogFilesAction extends BrowserAction
+{
+    /** The last searched text. */
+    private String text = ""; //$NON-NLS-1$
+
+
+    /**
+     * {@inheritDoc}
+     */
+    public final void run()
+    {
+        InputDialog dialog = new InputDialog( getShell(), Messages.getString( "FindInLogFilesAction.Find" ), //$NON-NLS-1$
+            Messages.getString( "FindInLogFilesAction.FindText" ), text, null ); //$NON-NLS-1$
+        if ( dialog.open() != Window.OK || dialog.getValue().isEmpty() )
+        {
+            return;
+        }
+        text = dialog.getValue();
+
+        try
+        {
+            if ( !find( text ) )
+            {
+                MessageDialog.openInformation( getShell(), Messages.getString( "FindInLogFilesAction.Find" ), //$NON-NLS-1$
+                    NLS.bind( Messages.getString( "FindInLogFilesAction.NotFound" ), text ) ); //$NON-NLS-1$
+            }
+        }
+        catch ( IOException e )
+        {
+            MessageDialog.openError( getShell(), Messages.getString( "FindInLogFilesAction.Find" ), //$NON-NLS-1$
+                e.getMessage() );
+        }
+    }
+
+
+    /**
+     * Searches the given text in the log files and selects the match.
+     *
+     * @param text the text to search
+     * @return true if the text was found
+     * @throws IOException if a log file can't be read
+     */
+    protected abstract boolean find( String text ) throws IOException;
+
+
+    /**
+     * {@inheritDoc}
+     */
+    public String getText()
+    {
+        return Messages.getString( "FindInLogFilesAction.Find" ); //$NON-NLS-1$
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    public ImageDescriptor getImageDescriptor()
+    {
+        return BrowserUIPlugin.getDefault().getImageDescriptor( BrowserUIConstants.IMG_SEARCH );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    public String getCommandId()
+    {
+        return null;
+    }
+}
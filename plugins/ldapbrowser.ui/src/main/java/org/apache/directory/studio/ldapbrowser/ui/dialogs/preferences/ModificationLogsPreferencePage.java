@@ -28,6 +28,7 @@ import org.apache.directory.studio.ldapbrowser.ui.BrowserUIPlugin;
 import org.eclipse.core.runtime.preferences.IEclipsePreferences;
 import org.eclipse.jface.preference.PreferencePage;
 import org.eclipse.swt.widgets.Button;
+import org.eclipse.swt.widgets.Combo;
 import org.eclipse.swt.widgets.Composite;
 import org.eclipse.swt.widgets.Control;
 import org.eclipse.swt.widgets.Group;
@@ -48,6 +49,7 @@ public class ModificationLogsPreferencePage extends PreferencePage implements IW
     private Button enableModificationLogging;
     private Text logFileCountText;
     private Text logFileSizeText;
+    private Combo queuePolicyCombo;
     private Text maskedAttributesText;
 
     /**
@@ -126,6 +128,18 @@ public class ModificationLogsPreferencePage extends PreferencePage implements IW
         logFileSizeText.addModifyListener( e -> validate() );
         BaseWidgetUtils.createLabel( rotateComposite, Messages.getString( "ModificationLogsPreferencePage.KB" ), 1 ); //$NON-NLS-1$
 
+        BaseWidgetUtils.createSpacer( composite, 1 );
+        BaseWidgetUtils.createSpacer( composite, 1 );
+
+        Group queueGroup = BaseWidgetUtils.createGroup( BaseWidgetUtils.createColumnContainer( composite, 1, 1 ),
+            Messages.getString( "ModificationLogsPreferencePage.LogQueue" ), 1 ); //$NON-NLS-1$
+        Composite queueComposite = BaseWidgetUtils.createColumnContainer( queueGroup, 2, 1 );
+        BaseWidgetUtils.createLabel( queueComposite, Messages.getString( "ModificationLogsPreferencePage.LogQueueFull" ), 1 ); //$NON-NLS-1$
+        queuePolicyCombo = BaseWidgetUtils.createReadonlyCombo( queueComposite, new String[]
+            { Messages.getString( "ModificationLogsPreferencePage.QueuePolicyBlock" ), //$NON-NLS-1$
+                Messages.getString( "ModificationLogsPreferencePage.QueuePolicyDrop" ), //$NON-NLS-1$
+                Messages.getString( "ModificationLogsPreferencePage.QueuePolicySample" ) }, 0, 1 ); //$NON-NLS-1$
+
         setValues();
 
         applyDialogFont( composite );
@@ -139,6 +153,7 @@ public class ModificationLogsPreferencePage extends PreferencePage implements IW
         maskedAttributesText.setText( ConnectionCorePlugin.getDefault().getMModificationLogsMaskedAttributes() );
         logFileCountText.setText( "" + ConnectionCorePlugin.getDefault().getModificationLogsFileCount() );
         logFileSizeText.setText( "" + ConnectionCorePlugin.getDefault().getModificationLogsFileSize() );
+        queuePolicyCombo.select( ConnectionCorePlugin.getDefault().getModificationLogsQueuePolicy() );
     }
 
 
@@ -162,6 +177,8 @@ public class ModificationLogsPreferencePage extends PreferencePage implements IW
             Integer.parseInt( logFileCountText.getText() ) );
         instancePreferences.putInt( ConnectionCoreConstants.PREFERENCE_MODIFICATIONLOGS_FILE_SIZE,
             Integer.parseInt( logFileSizeText.getText() ) );
+        instancePreferences.putInt( ConnectionCoreConstants.PREFERENCE_MODIFICATIONLOGS_QUEUE_POLICY,
+            queuePolicyCombo.getSelectionIndex() );
         ConnectionCorePlugin.getDefault().flushInstanceScopePreferences();
         return true;
     }
@@ -177,6 +194,7 @@ public class ModificationLogsPreferencePage extends PreferencePage implements IW
         instancePreferences.remove( ConnectionCoreConstants.PREFERENCE_MODIFICATIONLOGS_MASKED_ATTRIBUTES );
         instancePreferences.remove( ConnectionCoreConstants.PREFERENCE_MODIFICATIONLOGS_FILE_COUNT );
         instancePreferences.remove( ConnectionCoreConstants.PREFERENCE_MODIFICATIONLOGS_FILE_SIZE );
+        instancePreferences.remove( ConnectionCoreConstants.PREFERENCE_MODIFICATIONLOGS_QUEUE_POLICY );
         ConnectionCorePlugin.getDefault().flushInstanceScopePreferences();
         setValues();
         super.performDefaults();
@@ -28,6 +28,7 @@ import org.apache.directory.studio.ldapbrowser.ui.BrowserUIPlugin;
 import org.eclipse.core.runtime.preferences.IEclipsePreferences;
 import org.eclipse.jface.preference.PreferencePage;
 import org.eclipse.swt.widgets.Button;
+import org.eclipse.swt.widgets.Combo;
 import org.eclipse.swt.widgets.Composite;
 import org.eclipse.swt.widgets.Control;
 import org.eclipse.swt.widgets.Group;
@@ -49,6 +50,7 @@ public class SearchLogsPreferencePage extends PreferencePage implements IWorkben
     private Button enableSearchResultEntryLogging;
     private Text logFileCountText;
     private Text logFileSizeText;
+    private Combo queuePolicyCombo;
 
     /**
      * Creates a new instance of SearchResultEditorPreferencePage.
@@ -115,6 +117,18 @@ public class SearchLogsPreferencePage extends PreferencePage implements IWorkben
         logFileSizeText.addModifyListener( e -> validate() );
         BaseWidgetUtils.createLabel( rotateComposite, Messages.getString( "SearchLogsPreferencePage.KB" ), 1 ); //$NON-NLS-1$
 
+        BaseWidgetUtils.createSpacer( composite, 1 );
+        BaseWidgetUtils.createSpacer( composite, 1 );
+
+        Group queueGroup = BaseWidgetUtils.createGroup( BaseWidgetUtils.createColumnContainer( composite, 1, 1 ),
+            Messages.getString( "SearchLogsPreferencePage.LogQueue" ), 1 ); //$NON-NLS-1$
+        Composite queueComposite = BaseWidgetUtils.createColumnContainer( queueGroup, 2, 1 );
+        BaseWidgetUtils.createLabel( queueComposite, Messages.getString( "SearchLogsPreferencePage.LogQueueFull" ), 1 ); //$NON-NLS-1$
+        queuePolicyCombo = BaseWidgetUtils.createReadonlyCombo( queueComposite, new String[]
+            { Messages.getString( "SearchLogsPreferencePage.QueuePolicyBlock" ), //$NON-NLS-1$
+                Messages.getString( "SearchLogsPreferencePage.QueuePolicyDrop" ), //$NON-NLS-1$
+                Messages.getString( "SearchLogsPreferencePage.QueuePolicySample" ) }, 0, 1 ); //$NON-NLS-1$
+
         setValues();
 
         applyDialogFont( composite );
@@ -129,6 +143,7 @@ public class SearchLogsPreferencePage extends PreferencePage implements IWorkben
             .setSelection( ConnectionCorePlugin.getDefault().isSearchResultEntryLogsEnabled() );
         logFileCountText.setText( "" + ConnectionCorePlugin.getDefault().getSearchLogsFileCount() );
         logFileSizeText.setText( "" + ConnectionCorePlugin.getDefault().getSearchLogsFileSize() );
+        queuePolicyCombo.select( ConnectionCorePlugin.getDefault().getSearchLogsQueuePolicy() );
     }
 
 
@@ -152,6 +167,8 @@ public class SearchLogsPreferencePage extends PreferencePage implements IWorkben
             Integer.parseInt( logFileCountText.getText() ) );
         instancePreferences.putInt( ConnectionCoreConstants.PREFERENCE_SEARCHLOGS_FILE_SIZE,
             Integer.parseInt( logFileSizeText.getText() ) );
+        instancePreferences.putInt( ConnectionCoreConstants.PREFERENCE_SEARCHLOGS_QUEUE_POLICY,
+            queuePolicyCombo.getSelectionIndex() );
         ConnectionCorePlugin.getDefault().flushInstanceScopePreferences();
         return true;
     }
@@ -167,6 +184,7 @@ public class SearchLogsPreferencePage extends PreferencePage implements IWorkben
         instancePreferences.remove( ConnectionCoreConstants.PREFERENCE_SEARCHRESULTENTRYLOGS_ENABLE );
         instancePreferences.remove( ConnectionCoreConstants.PREFERENCE_SEARCHLOGS_FILE_COUNT );
         instancePreferences.remove( ConnectionCoreConstants.PREFERENCE_SEARCHLOGS_FILE_SIZE );
+        instancePreferences.remove( ConnectionCoreConstants.PREFERENCE_SEARCHLOGS_QUEUE_POLICY );
         ConnectionCorePlugin.getDefault().flushInstanceScopePreferences();
         setValues();
         super.performDefaults();
@@ -22,6 +22,8 @@ package org.apache.directory.studio.ldapbrowser.ui.dialogs.preferences;
 
 
 import org.apache.directory.studio.common.ui.widgets.BaseWidgetUtils;
+import org.apache.directory.studio.ldapbrowser.core.BrowserCoreConstants;
+import org.apache.directory.studio.ldapbrowser.core.BrowserCorePlugin;
 import org.apache.directory.studio.ldapbrowser.ui.BrowserUIConstants;
 import org.apache.directory.studio.ldapbrowser.ui.BrowserUIPlugin;
 import org.eclipse.jface.preference.PreferencePage;
@@ -53,6 +55,9 @@ public class SearchResultEditorPreferencePage extends PreferencePage implements
     /** The sort/filter limit text */
     private Text sortFilterLimitText;
 
+    /** The show results while searching button. */
+    private Button incrementalResultsButton;
+
 
     /**
      * Creates a new instance of SearchResultEditorPreferencePage.
@@ -113,6 +118,12 @@ public class SearchResultEditorPreferencePage extends PreferencePage implements
             }
         } );
 
+        // Show results while searching
+        incrementalResultsButton = BaseWidgetUtils.createCheckbox( composite, Messages
+            .getString( "SearchResultEditorPreferencePage.IncrementalResults" ), 2 ); //$NON-NLS-1$
+        incrementalResultsButton.setSelection( BrowserCorePlugin.getDefault().getPluginPreferences().getBoolean(
+            BrowserCoreConstants.PREFERENCE_SEARCH_RESULTS_INCREMENTAL ) );
+
         applyDialogFont( composite );
         return composite;
     }
@@ -144,6 +155,11 @@ public class SearchResultEditorPreferencePage extends PreferencePage implements
         getPreferenceStore().setValue( BrowserUIConstants.PREFERENCE_SEARCHRESULTEDITOR_SORT_FILTER_LIMIT,
             sortFilterLimit );
 
+        // Show results while searching
+        BrowserCorePlugin.getDefault().getPluginPreferences().setValue(
+            BrowserCoreConstants.PREFERENCE_SEARCH_RESULTS_INCREMENTAL, incrementalResultsButton.getSelection() );
+        BrowserCorePlugin.getDefault().savePluginPreferences();
+
         return true;
     }
 
@@ -157,6 +173,8 @@ public class SearchResultEditorPreferencePage extends PreferencePage implements
             BrowserUIConstants.PREFERENCE_SEARCHRESULTEDITOR_SHOW_DN ) );
         showLinksButton.setSelection( getPreferenceStore().getDefaultBoolean(
             BrowserUIConstants.PREFERENCE_SEARCHRESULTEDITOR_SHOW_LINKS ) );
+        incrementalResultsButton.setSelection( BrowserCorePlugin.getDefault().getPluginPreferences()
+            .getDefaultBoolean( BrowserCoreConstants.PREFERENCE_SEARCH_RESULTS_INCREMENTAL ) );
         super.performDefaults();
     }
 
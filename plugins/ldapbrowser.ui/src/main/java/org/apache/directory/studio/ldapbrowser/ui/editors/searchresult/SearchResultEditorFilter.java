@@ -22,6 +22,9 @@ package org.apache.directory.studio.ldapbrowser.ui.editors.searchresult;
 
 
 import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.stream.IntStream;
 
 import org.apache.directory.studio.ldapbrowser.core.model.AttributeHierarchy;
 import org.apache.directory.studio.ldapbrowser.core.model.IAttribute;
@@ -34,11 +37,23 @@ import org.eclipse.jface.viewers.ViewerFilter;
 
 /**
  * The SearchResultEditorFilter implements the filter for the search result editor.
+ * <p>
+ * The upper-cased text of the returning attributes' string values is computed once per
+ * search result and kept until the input changes or {@link #invalidate()} is called.
+ * Large result sets are filtered in parallel.
  *
  * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
  */
 public class SearchResultEditorFilter extends ViewerFilter
 {
+    /** The number of elements from which elements are filtered in parallel */
+    private static final int PARALLEL_THRESHOLD = 10000;
+
+    /** The separator of values in the filter text, it doesn't occur in quick filter values */
+    private static final char SEPARATOR = '\u0000';
+
+    /** The filter text of search results that always go through the quick filter */
+    private static final String ALWAYS = new String( "always" ); //$NON-NLS-1$
 
     /** The content provider. */
     protected SearchResultEditorContentProvider contentProvider;
@@ -49,6 +64,12 @@ public class SearchResultEditorFilter extends ViewerFilter
     /** The show Dn flag. */
     private boolean showDn;
 
+    /** The search. */
+    private ISearch search;
+
+    /** The filter texts of the search results */
+    private Map<Object, String> filterTexts = new IdentityHashMap<Object, String>();
+
 
     /**
      * Creates a new instance of SearchResultEditorFilter.
@@ -78,10 +99,25 @@ public class SearchResultEditorFilter extends ViewerFilter
      */
     public void inputChanged( ISearch newSearch, boolean showDn )
     {
+        if ( this.search != newSearch || this.showDn != showDn )
+        {
+            invalidate();
+        }
+
+        this.search = newSearch;
         this.showDn = showDn;
     }
 
 
+    /**
+     * Drops the computed filter texts, must be called when values of the search results change.
+     */
+    public void invalidate()
+    {
+        filterTexts = new IdentityHashMap<Object, String>();
+    }
+
+
     /**
      * Checks if is filtered.
      * 
@@ -101,15 +137,39 @@ public class SearchResultEditorFilter extends ViewerFilter
         if ( isFiltered() )
         {
             int size = elements.length;
+            final String[] texts = new String[size];
+            for ( int i = 0; i < size; ++i )
+            {
+                texts[i] = filterTexts.get( elements[i] );
+            }
+
+            final String filterValue = quickFilterValue.toUpperCase();
+            final boolean[] selected = new boolean[size];
+            IntStream indexes = IntStream.range( 0, size );
+            if ( size >= PARALLEL_THRESHOLD )
+            {
+                indexes = indexes.parallel();
+            }
+            indexes.forEach( i -> {
+                if ( texts[i] == null )
+                {
+                    texts[i] = getFilterText( elements[i] );
+                }
+                selected[i] = texts[i] == ALWAYS || texts[i].indexOf( filterValue ) > -1;
+            } );
+
+            // only keep the filter texts of the current elements
+            Map<Object, String> newFilterTexts = new IdentityHashMap<Object, String>( size );
             ArrayList<Object> out = new ArrayList<Object>( size );
             for ( int i = 0; i < size; ++i )
             {
-                Object element = elements[i];
-                if ( select( viewer, parent, element ) )
+                newFilterTexts.put( elements[i], texts[i] );
+                if ( selected[i] )
                 {
-                    out.add( element );
+                    out.add( elements[i] );
                 }
             }
+            filterTexts = newFilterTexts;
 
             return out.toArray();
         }
@@ -166,6 +226,57 @@ public class SearchResultEditorFilter extends ViewerFilter
     }
 
 
+    /**
+     * Gets the filter text of the given element: the upper-cased string values of the
+     * returning attributes and the Dn, if shown, separated by {@link #SEPARATOR}.
+     *
+     * @param element the element
+     * @return the filter text, {@link #ALWAYS} if the element always goes through the quick filter
+     */
+    private String getFilterText( Object element )
+    {
+        if ( !( element instanceof ISearchResult ) )
+        {
+            return ALWAYS;
+        }
+
+        ISearchResult searchResult = ( ISearchResult ) element;
+        StringBuilder sb = new StringBuilder();
+
+        String[] returningAttributes = searchResult.getSearch().getReturningAttributes();
+        for ( int r = 0; r < returningAttributes.length; r++ )
+        {
+            AttributeHierarchy ah = searchResult.getAttributeWithSubtypes( returningAttributes[r] );
+            if ( ah != null )
+            {
+                IAttribute[] attributes = ah.getAttributes();
+                for ( int i = 0; i < attributes.length; i++ )
+                {
+                    IValue[] values = attributes[i].getValues();
+                    for ( int k = 0; k < values.length; k++ )
+                    {
+                        if ( values[k].isString() )
+                        {
+                            sb.append( values[k].getStringValue().toUpperCase() ).append( SEPARATOR );
+                        }
+                        else if ( !values[k].isBinary() )
+                        {
+                            return ALWAYS;
+                        }
+                    }
+                }
+            }
+        }
+
+        if ( showDn )
+        {
+            sb.append( searchResult.getDn().getName().toUpperCase() );
+        }
+
+        return sb.toString();
+    }
+
+
     /**
      * Checks if the value goes through quick filter.
      * 
@@ -194,6 +305,8 @@ public class SearchResultEditorFilter extends ViewerFilter
     public void dispose()
     {
         contentProvider = null;
+        search = null;
+        invalidate();
     }
 
 
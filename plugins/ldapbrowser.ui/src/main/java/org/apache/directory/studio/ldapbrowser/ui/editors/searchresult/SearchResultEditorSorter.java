@@ -23,6 +23,9 @@ package org.apache.directory.studio.ldapbrowser.ui.editors.searchresult;
 
 import java.util.Arrays;
 import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.stream.IntStream;
 
 import org.apache.directory.studio.ldapbrowser.common.BrowserCommonActivator;
 import org.apache.directory.studio.ldapbrowser.common.BrowserCommonConstants;
@@ -42,11 +45,38 @@ import org.eclipse.swt.widgets.TableColumn;
 
 /**
  * The SearchResultEditorSorter implements the Sorter for the search result editor.
+ * <p>
+ * The value of the sort column is computed once per search result and kept until the
+ * sort column or the input changes, or {@link #invalidate()} is called. The ascending order
+ * of the last sorted elements is kept too, so changing the sort order only reverses it.
+ * Large result sets are sorted in parallel.
  *
  * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
  */
 public class SearchResultEditorSorter extends ViewerSorter implements SelectionListener
 {
+    /** The number of elements from which sort keys are computed and sorted in parallel */
+    private static final int PARALLEL_THRESHOLD = 10000;
+
+    /** The ascending order of sort keys, sort keys with equal values keep their order */
+    private static final Comparator<SortKey> ASCENDING = new Comparator<SortKey>()
+    {
+        public int compare( SortKey k1, SortKey k2 )
+        {
+            if ( k1.rank != k2.rank )
+            {
+                return k1.rank < k2.rank ? -1 : 1;
+            }
+            else if ( k1.value == null )
+            {
+                return 0;
+            }
+            else
+            {
+                return k1.value.compareToIgnoreCase( k2.value );
+            }
+        }
+    };
 
     /** The content provider. */
     protected SearchResultEditorContentProvider contentProvider;
@@ -66,6 +96,18 @@ public class SearchResultEditorSorter extends ViewerSorter implements SelectionL
     /** The sort order. */
     private int sortOrder;
 
+    /** The sort keys of the search results, valid for {@link #keysSortBy} */
+    private Map<Object, SortKey> sortKeys = new IdentityHashMap<Object, SortKey>();
+
+    /** The sort column of the sort keys */
+    private int keysSortBy = -1;
+
+    /** The sort keys of the last sorted elements, in ascending order */
+    private SortKey[] sortedKeys;
+
+    /** The generation of {@link #sortedKeys}, sort keys of the last sorted elements have this generation */
+    private int sortedGeneration;
+
 
     /**
      * Connects this sorter to the given content provider.
@@ -96,6 +138,11 @@ public class SearchResultEditorSorter extends ViewerSorter implements SelectionL
      */
     public void inputChanged( ISearch newSearch, boolean showDn )
     {
+        if ( this.search != newSearch || this.showDn != showDn )
+        {
+            invalidate();
+        }
+
         this.search = newSearch;
         this.showDn = showDn;
 
@@ -147,6 +194,18 @@ public class SearchResultEditorSorter extends ViewerSorter implements SelectionL
         columns = null;
         search = null;
         contentProvider = null;
+        invalidate();
+    }
+
+
+    /**
+     * Drops the computed sort keys, must be called when values of the search results change.
+     */
+    public void invalidate()
+    {
+        sortKeys = new IdentityHashMap<Object, SortKey>();
+        keysSortBy = -1;
+        sortedKeys = null;
     }
 
 
@@ -240,17 +299,175 @@ public class SearchResultEditorSorter extends ViewerSorter implements SelectionL
      */
     public void sort( final Viewer viewer, Object[] elements )
     {
-        if ( isSorted() )
+        if ( isSorted() && search != null )
         {
-            Arrays.sort( elements, new Comparator<Object>()
+            if ( keysSortBy != sortBy )
+            {
+                invalidate();
+                keysSortBy = sortBy;
+            }
+
+            if ( !isSortedBefore( elements ) )
+            {
+                sortedKeys = getSortKeys( elements );
+
+                if ( sortedKeys.length >= PARALLEL_THRESHOLD )
+                {
+                    Arrays.parallelSort( sortedKeys, ASCENDING );
+                }
+                else
+                {
+                    Arrays.sort( sortedKeys, ASCENDING );
+                }
+
+                // only keep the sort keys of the current elements
+                sortKeys = new IdentityHashMap<Object, SortKey>( sortedKeys.length );
+                sortedGeneration++;
+                for ( SortKey key : sortedKeys )
+                {
+                    key.generation = sortedGeneration;
+                    sortKeys.put( key.element, key );
+                }
+            }
+
+            if ( sortOrder == BrowserCoreConstants.SORT_ORDER_ASCENDING )
+            {
+                for ( int i = 0; i < sortedKeys.length; i++ )
+                {
+                    elements[i] = sortedKeys[i].element;
+                }
+            }
+            else
             {
-                public int compare( Object a, Object b )
+                // reverse the ascending order, but keep the order of equal elements
+                int i = 0;
+                int end = sortedKeys.length;
+                while ( end > 0 )
                 {
-                    return SearchResultEditorSorter.this.compare( viewer, a, b );
+                    int start = end - 1;
+                    while ( start > 0 && ASCENDING.compare( sortedKeys[start - 1], sortedKeys[end - 1] ) == 0 )
+                    {
+                        start--;
+                    }
+                    for ( int k = start; k < end; k++ )
+                    {
+                        elements[i++] = sortedKeys[k].element;
+                    }
+                    end = start;
                 }
-            } );
+            }
+        }
+    }
+
+
+    /**
+     * Checks if the given elements are the elements sorted last.
+     *
+     * @param elements the elements
+     * @return true if the given elements are the elements sorted last
+     */
+    private boolean isSortedBefore( Object[] elements )
+    {
+        if ( sortedKeys == null || sortedKeys.length != elements.length )
+        {
+            return false;
+        }
+
+        for ( Object element : elements )
+        {
+            SortKey key = sortKeys.get( element );
+            if ( key == null || key.generation != sortedGeneration )
+            {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+
+    /**
+     * Gets the sort keys of the given elements, computes the missing ones.
+     *
+     * @param elements the elements
+     * @return the sort keys, in the order of the elements
+     */
+    private SortKey[] getSortKeys( final Object[] elements )
+    {
+        final SortKey[] keys = new SortKey[elements.length];
+        for ( int i = 0; i < elements.length; i++ )
+        {
+            keys[i] = sortKeys.get( elements[i] );
+        }
+
+        IntStream indexes = IntStream.range( 0, elements.length );
+        if ( elements.length >= PARALLEL_THRESHOLD )
+        {
+            indexes = indexes.parallel();
+        }
+        indexes.forEach( i -> {
+            if ( keys[i] == null )
+            {
+                keys[i] = createSortKey( elements[i] );
+            }
+        } );
+
+        return keys;
+    }
+
+
+    /**
+     * Creates the sort key of the given element, containing the value of the sort column.
+     *
+     * @param element the element
+     * @return the sort key
+     */
+    private SortKey createSortKey( Object element )
+    {
+        IEntry entry = ( ( ISearchResult ) element ).getEntry();
+
+        if ( entry == null )
+        {
+            return new SortKey( element, 0, null );
+        }
+
+        String attributeName = getSortAttributeName();
+
+        if ( attributeName == BrowserUIConstants.DN )
+        {
+            return new SortKey( element, 2, entry.getDn().getNormName() );
+        }
+
+        AttributeHierarchy ah = entry.getAttributeWithSubtypes( attributeName );
+
+        if ( ah == null )
+        {
+            return new SortKey( element, 1, null );
         }
 
+        return new SortKey( element, 2, getValue( ah.getAttribute() ) );
+    }
+
+
+    /**
+     * Gets the name of the attribute of the sort column.
+     *
+     * @return the attribute name
+     */
+    private String getSortAttributeName()
+    {
+        if ( showDn && ( sortBy == 0 ) )
+        {
+            return BrowserUIConstants.DN;
+        }
+        else if ( showDn && ( sortBy > 0 ) )
+        {
+            return search.getReturningAttributes()[sortBy - 1];
+        }
+        else
+        {
+            return search.getReturningAttributes()[sortBy];
+        }
     }
 
 
@@ -287,20 +504,7 @@ public class SearchResultEditorSorter extends ViewerSorter implements SelectionL
         }
         else
         {
-            String attributeName;
-
-            if ( showDn && ( sortBy == 0 ) )
-            {
-                attributeName = BrowserUIConstants.DN;
-            }
-            else if ( showDn && ( sortBy > 0 ) )
-            {
-                attributeName = search.getReturningAttributes()[sortBy - 1];
-            }
-            else
-            {
-                attributeName = search.getReturningAttributes()[sortBy];
-            }
+            String attributeName = getSortAttributeName();
 
             if ( attributeName == BrowserUIConstants.DN )
             {
@@ -408,4 +612,30 @@ public class SearchResultEditorSorter extends ViewerSorter implements SelectionL
             .compareToIgnoreCase( s1 );
     }
 
+
+    /**
+     * The precomputed value of the sort column of a search result.
+     */
+    private static final class SortKey
+    {
+        /** The search result */
+        private final Object element;
+
+        /** 0 if the search result has no entry, 1 if the entry has no such attribute, 2 otherwise */
+        private final int rank;
+
+        /** The value, null if rank is less than 2 */
+        private final String value;
+
+        /** The generation of the sorted keys this key belongs to */
+        private int generation;
+
+
+        private SortKey( Object element, int rank, String value )
+        {
+            this.element = element;
+            this.rank = rank;
+            this.value = value;
+        }
+    }
 }
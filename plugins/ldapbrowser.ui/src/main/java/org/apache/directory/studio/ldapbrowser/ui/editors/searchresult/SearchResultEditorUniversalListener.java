@@ -525,7 +525,14 @@ public class SearchResultEditorUniversalListener implements SearchUpdateListener
     {
         if ( selectedSearch == searchUpdateEvent.getSearch() )
         {
-            refreshInput();
+            if ( searchUpdateEvent.getDetail() == SearchUpdateEvent.EventDetail.SEARCH_RESULTS_RETRIEVED )
+            {
+                refreshResults();
+            }
+            else
+            {
+                refreshInput();
+            }
         }
     }
 
@@ -538,6 +545,10 @@ public class SearchResultEditorUniversalListener implements SearchUpdateListener
      */
     public void entryUpdated( EntryModificationEvent event )
     {
+        // the values of the search results may have changed
+        editor.getConfiguration().getFilter().invalidate();
+        editor.getConfiguration().getSorter().invalidate();
+
         if ( event instanceof EmptyValueAddedEvent && !editor.getActionGroup().isEditorActive() )
         {
             EmptyValueAddedEvent evae = ( EmptyValueAddedEvent ) event;
@@ -669,6 +680,17 @@ public class SearchResultEditorUniversalListener implements SearchUpdateListener
     }
 
 
+    /**
+     * Refreshes the search results only, keeps the columns and their widths.
+     * Used while the search is still running and retrieves more results.
+     */
+    private void refreshResults()
+    {
+        viewer.setInput( selectedSearch );
+        editor.getConfiguration().getContentProvider( editor.getMainWidget() ).refresh();
+    }
+
+
     /**
      * Ensures that the table contains at least the number of
      * the requested columns.
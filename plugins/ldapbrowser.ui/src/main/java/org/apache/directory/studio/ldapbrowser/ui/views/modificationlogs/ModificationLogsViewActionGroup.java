@@ -57,6 +57,9 @@ public class ModificationLogsViewActionGroup implements ActionHandlerManager, IM
     /** The Constant clearAction. */
     private static final String clearAction = "clearAction"; //$NON-NLS-1$
 
+    /** The Constant findAction. */
+    private static final String findAction = "findAction"; //$NON-NLS-1$
+
     /** The Constant exportAction. */
     private static final String exportAction = "exportAction"; //$NON-NLS-1$
 
@@ -89,6 +92,8 @@ public class ModificationLogsViewActionGroup implements ActionHandlerManager, IM
             new RefreshAction( view ) ) );
         modificationLogsViewActionMap.put( clearAction, new ModificationLogsViewActionProxy( viewer, new ClearAction(
             view ) ) );
+        modificationLogsViewActionMap.put( findAction, new ModificationLogsViewActionProxy( viewer, new FindAction(
+            view ) ) );
         modificationLogsViewActionMap.put( exportAction, new ModificationLogsViewActionProxy( viewer,
             new ExportAction() ) );
         enableModificationLogsAction = new EnableModificationLogsAction();
@@ -133,6 +138,8 @@ public class ModificationLogsViewActionGroup implements ActionHandlerManager, IM
         actionBars.getToolBarManager().add( modificationLogsViewActionMap.get( olderAction ) );
         actionBars.getToolBarManager().add( modificationLogsViewActionMap.get( newerAction ) );
         actionBars.getToolBarManager().add( new Separator() );
+        actionBars.getToolBarManager().add( modificationLogsViewActionMap.get( findAction ) );
+        actionBars.getToolBarManager().add( new Separator() );
         actionBars.getToolBarManager().add( modificationLogsViewActionMap.get( exportAction ) );
 
         // Menu Bar
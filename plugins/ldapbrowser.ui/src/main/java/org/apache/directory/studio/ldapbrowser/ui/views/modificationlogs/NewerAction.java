@@ -28,7 +28,7 @@ import org.eclipse.jface.resource.ImageDescriptor;
 
 
 /**
- * Action to switch to a newer logfile.
+ * Action to switch to the next page or to a newer logfile.
  *
  * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
  */
@@ -65,8 +65,16 @@ public class NewerAction extends BrowserAction
     public void run()
     {
         ModificationLogsViewInput oldInput = ( ModificationLogsViewInput ) getInput();
-        ModificationLogsViewInput newInput = new ModificationLogsViewInput( oldInput.getBrowserConnection(), oldInput
-            .getIndex() - 1 );
+        ModificationLogsViewInput newInput;
+        if ( oldInput.getPage() < view.getUniversalListener().getPageCount() - 1 )
+        {
+            newInput = new ModificationLogsViewInput( oldInput.getBrowserConnection(), oldInput.getIndex(),
+                oldInput.getPage() + 1 );
+        }
+        else
+        {
+            newInput = new ModificationLogsViewInput( oldInput.getBrowserConnection(), oldInput.getIndex() - 1, 0 );
+        }
         view.getUniversalListener().setInput( newInput );
         view.getUniversalListener().scrollToOldest();
 
@@ -107,8 +115,12 @@ public class NewerAction extends BrowserAction
      */
     public boolean isEnabled()
     {
-        return ( getInput() instanceof ModificationLogsViewInput )
-            && ( ( ModificationLogsViewInput ) getInput() ).getIndex() > 0;
+        if ( getInput() instanceof ModificationLogsViewInput )
+        {
+            ModificationLogsViewInput input = ( ModificationLogsViewInput ) getInput();
+            return input.getIndex() > 0 || input.getPage() < view.getUniversalListener().getPageCount() - 1;
+        }
+        return false;
     }
 
 }
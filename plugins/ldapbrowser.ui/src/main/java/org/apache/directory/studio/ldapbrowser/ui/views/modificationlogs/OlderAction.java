@@ -32,7 +32,7 @@ import org.eclipse.jface.resource.ImageDescriptor;
 
 
 /**
- * Action to switch to an older logfile.
+ * Action to switch to the previous page or to an older logfile.
  *
  * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
  */
@@ -69,8 +69,16 @@ public class OlderAction extends BrowserAction
     public void run()
     {
         ModificationLogsViewInput oldInput = ( ModificationLogsViewInput ) getInput();
-        ModificationLogsViewInput newInput = new ModificationLogsViewInput( oldInput.getBrowserConnection(), oldInput
-            .getIndex() + 1 );
+        ModificationLogsViewInput newInput;
+        if ( oldInput.getPage() > 0 )
+        {
+            newInput = new ModificationLogsViewInput( oldInput.getBrowserConnection(), oldInput.getIndex(),
+                oldInput.getPage() - 1 );
+        }
+        else
+        {
+            newInput = new ModificationLogsViewInput( oldInput.getBrowserConnection(), oldInput.getIndex() + 1 );
+        }
         view.getUniversalListener().setInput( newInput );
         view.getUniversalListener().scrollToNewest();
     }
@@ -111,6 +119,10 @@ public class OlderAction extends BrowserAction
         if ( ( getInput() instanceof ModificationLogsViewInput ) )
         {
             ModificationLogsViewInput input = ( ModificationLogsViewInput ) getInput();
+            if ( input.getPage() > 0 )
+            {
+                return true;
+            }
             if ( input.getBrowserConnection().getConnection() != null )
             {
                 LdifModificationLogger modificationLogger = ConnectionCorePlugin.getDefault()
@@ -0,0 +1,66 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.apache.directory.studio.ldapbrowser.ui.views.searchlogs;
+
+
+import java.io.IOException;
+
+import org.apache.directory.studio.ldapbrowser.ui.actions.FindInLogFilesAction;
+
+
+/**
+ * Action to find a text in the search logs.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public class FindAction extends FindInLogFilesAction
+{
+    /** The search logs view. */
+    private SearchLogsView view;
+
+
+    /**
+     * Creates a new instance of FindAction.
+     *
+     * @param view the search logs view
+     */
+    public FindAction( SearchLogsView view )
+    {
+        this.view = view;
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    protected boolean find( String text ) throws IOException
+    {
+        return view.getUniversalListener().find( text );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    public boolean isEnabled()
+    {
+        return getInput() instanceof SearchLogsViewInput;
+    }
+}
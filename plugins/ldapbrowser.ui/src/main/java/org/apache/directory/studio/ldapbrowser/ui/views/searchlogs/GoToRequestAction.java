@@ -0,0 +1,121 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.apache.directory.studio.ldapbrowser.ui.views.searchlogs;
+
+
+import java.io.IOException;
+
+import org.apache.directory.studio.ldapbrowser.common.actions.BrowserAction;
+import org.eclipse.jface.dialogs.InputDialog;
+import org.eclipse.jface.dialogs.MessageDialog;
+import org.eclipse.jface.resource.ImageDescriptor;
+import org.eclipse.jface.window.Window;
+import org.eclipse.osgi.util.NLS;
+
+
+/**
+ * Action to jump to a search request by its request number.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public class GoToRequestAction extends BrowserAction
+{
+
+    /** The search logs view. */
+    private SearchLogsView view;
+
+
+    /**
+     * Creates a new instance of GoToRequestAction.
+     *
+     * @param view the search logs view
+     */
+    public GoToRequestAction( SearchLogsView view )
+    {
+        this.view = view;
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    public void run()
+    {
+        InputDialog dialog = new InputDialog( getShell(), Messages.getString( "GoToRequestAction.GoToRequest" ), //$NON-NLS-1$
+            Messages.getString( "GoToRequestAction.RequestNumber" ), "", //$NON-NLS-1$ //$NON-NLS-2$
+            newText -> newText.matches( "[0-9]{1,18}" ) ? null //$NON-NLS-1$
+                : Messages.getString( "GoToRequestAction.InvalidRequestNumber" ) ); //$NON-NLS-1$
+        if ( dialog.open() != Window.OK )
+        {
+            return;
+        }
+
+        try
+        {
+            if ( !view.getUniversalListener().goToRequest( Long.parseLong( dialog.getValue() ) ) )
+            {
+                MessageDialog.openInformation( getShell(), Messages.getString( "GoToRequestAction.GoToRequest" ), //$NON-NLS-1$
+                    NLS.bind( Messages.getString( "GoToRequestAction.NotFound" ), dialog.getValue() ) ); //$NON-NLS-1$
+            }
+        }
+        catch ( IOException e )
+        {
+            MessageDialog.openError( getShell(), Messages.getString( "GoToRequestAction.GoToRequest" ), //$NON-NLS-1$
+                e.getMessage() );
+        }
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    public String getText()
+    {
+        return Messages.getString( "GoToRequestAction.GoToRequest" ); //$NON-NLS-1$
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    public ImageDescriptor getImageDescriptor()
+    {
+        return null;
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    public String getCommandId()
+    {
+        return null;
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    public boolean isEnabled()
+    {
+        return getInput() instanceof SearchLogsViewInput;
+    }
+
+}
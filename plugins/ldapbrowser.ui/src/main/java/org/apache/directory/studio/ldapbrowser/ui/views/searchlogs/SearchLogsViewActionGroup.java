@@ -57,6 +57,12 @@ public class SearchLogsViewActionGroup implements ActionHandlerManager, IMenuLis
     /** The Constant refreshAction. */
     private static final String clearAction = "clearAction"; //$NON-NLS-1$
 
+    /** The Constant findAction. */
+    private static final String findAction = "findAction"; //$NON-NLS-1$
+
+    /** The Constant goToRequestAction. */
+    private static final String goToRequestAction = "goToRequestAction"; //$NON-NLS-1$
+
     /** The Constant exportAction. */
     private static final String exportAction = "exportAction"; //$NON-NLS-1$
 
@@ -88,6 +94,9 @@ public class SearchLogsViewActionGroup implements ActionHandlerManager, IMenuLis
         searchLogsViewActionMap.put( newerAction, new SearchLogsViewActionProxy( viewer, new NewerAction( view ) ) );
         searchLogsViewActionMap.put( refreshAction, new SearchLogsViewActionProxy( viewer, new RefreshAction( view ) ) );
         searchLogsViewActionMap.put( clearAction, new SearchLogsViewActionProxy( viewer, new ClearAction( view ) ) );
+        searchLogsViewActionMap.put( findAction, new SearchLogsViewActionProxy( viewer, new FindAction( view ) ) );
+        searchLogsViewActionMap.put( goToRequestAction, new SearchLogsViewActionProxy( viewer,
+            new GoToRequestAction( view ) ) );
         searchLogsViewActionMap.put( exportAction, new SearchLogsViewActionProxy( viewer, new ExportAction() ) );
         enableSearchRequestLogsAction = new EnableSearchRequestLogsAction();
         enableSearchResultEntryLogsAction = new EnableSearchResultEntryLogsAction();
@@ -133,6 +142,9 @@ public class SearchLogsViewActionGroup implements ActionHandlerManager, IMenuLis
         actionBars.getToolBarManager().add( searchLogsViewActionMap.get( olderAction ) );
         actionBars.getToolBarManager().add( searchLogsViewActionMap.get( newerAction ) );
         actionBars.getToolBarManager().add( new Separator() );
+        actionBars.getToolBarManager().add( searchLogsViewActionMap.get( findAction ) );
+        actionBars.getToolBarManager().add( searchLogsViewActionMap.get( goToRequestAction ) );
+        actionBars.getToolBarManager().add( new Separator() );
         actionBars.getToolBarManager().add( searchLogsViewActionMap.get( exportAction ) );
 
         // Menu Bar
@@ -26,30 +26,52 @@ import org.apache.directory.studio.ldapbrowser.core.model.IBrowserConnection;
 
 /**
  * A SearchLogsViewInput represents the input of the search logs view.
- * It consists of a connection and the index of the displayed log file.
+ * It consists of a connection, the index of the displayed log file and the
+ * displayed page of that file.
  *
  * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
  */
 public class SearchLogsViewInput
 {
 
+    /** The page number used to display the last page of a log file */
+    public static final int LAST_PAGE = Integer.MAX_VALUE;
+
     /** The browser connection. */
     private IBrowserConnection browserConnection;
 
     /** The index of the displayed log file */
     private int index;
 
+    /** The displayed page of the log file */
+    private int page;
+
 
     /**
-     * Creates a new instance of ModificationLogsViewInput.
+     * Creates a new instance of SearchLogsViewInput that displays
+     * the last page of the log file.
      * 
      * @param browserConnection the browser connection
      * @param index the index of the displayed log file
      */
     public SearchLogsViewInput( IBrowserConnection browserConnection, int index )
+    {
+        this( browserConnection, index, LAST_PAGE );
+    }
+
+
+    /**
+     * Creates a new instance of SearchLogsViewInput.
+     * 
+     * @param browserConnection the browser connection
+     * @param index the index of the displayed log file
+     * @param page the displayed page of the log file
+     */
+    public SearchLogsViewInput( IBrowserConnection browserConnection, int index, int page )
     {
         this.browserConnection = browserConnection;
         this.index = index;
+        this.page = page;
     }
 
 
@@ -74,4 +96,15 @@ public class SearchLogsViewInput
         return index;
     }
 
+
+    /**
+     * Gets the displayed page of the log file.
+     * 
+     * @return the page
+     */
+    public int getPage()
+    {
+        return page;
+    }
+
 }
@@ -22,10 +22,11 @@ package org.apache.directory.studio.ldapbrowser.ui.views.searchlogs;
 
 
 import java.io.File;
-import java.io.FileReader;
+import java.io.IOException;
 
 import org.apache.directory.studio.connection.core.Connection;
 import org.apache.directory.studio.connection.core.ConnectionCorePlugin;
+import org.apache.directory.studio.connection.core.io.api.LdifLogFile;
 import org.apache.directory.studio.connection.core.io.api.LdifSearchLogger;
 import org.apache.directory.studio.ldapbrowser.common.BrowserCommonActivator;
 import org.apache.directory.studio.ldapbrowser.common.actions.BrowserSelectionUtils;
@@ -42,6 +43,8 @@ import org.apache.directory.studio.ldapbrowser.core.events.SearchUpdateListener;
 import org.apache.directory.studio.ldapbrowser.core.model.IBrowserConnection;
 import org.apache.directory.studio.ldapbrowser.ui.views.connection.ConnectionView;
 import org.apache.directory.studio.ldifparser.model.container.LdifContainer;
+import org.eclipse.jface.text.BadLocationException;
+import org.eclipse.jface.text.source.SourceViewer;
 import org.eclipse.jface.viewers.ISelection;
 import org.eclipse.ui.INullSelectionListener;
 import org.eclipse.ui.IWorkbenchPart;
@@ -59,9 +62,15 @@ public class SearchLogsViewUniversalListener implements BrowserConnectionUpdateL
     /** The search log view. */
     private SearchLogsView view;
 
+    /** The number of log records shown on one page */
+    private static final int PAGE_SIZE = 500;
+
     /** The current input */
     private SearchLogsViewInput input;
 
+    /** The index of the displayed log file, null if no file is displayed */
+    private LdifLogFile logFile;
+
     /** The last refresh timestamp. */
     private long lastRefreshTimestamp;
 
@@ -136,6 +145,11 @@ public class SearchLogsViewUniversalListener implements BrowserConnectionUpdateL
     void refreshInput()
     {
         SearchLogsViewInput newInput = input;
+        if ( newInput != null && newInput.getPage() >= getPageCount() - 1 )
+        {
+            // follow new records when the last page is displayed
+            newInput = new SearchLogsViewInput( newInput.getBrowserConnection(), newInput.getIndex() );
+        }
         input = null;
         setInput( newInput );
     }
@@ -158,34 +172,148 @@ public class SearchLogsViewUniversalListener implements BrowserConnectionUpdateL
             if ( ( input != null ) && ( input.getBrowserConnection() != null )
                 && ( input.getBrowserConnection().getConnection() != null ) && ( searchLogger != null ) )
             {
-                // load file %u %g
-                StringBuffer sb = new StringBuffer();
+                // load page of file %u %g
+                String text = ""; //$NON-NLS-1$
                 File[] files = searchLogger.getFiles( input.getBrowserConnection().getConnection() );
                 int i = input.getIndex();
                 if ( 0 <= i && i < files.length && files[i] != null && files[i].exists() && files[i].canRead() )
                 {
-                    try ( FileReader fr = new FileReader( files[i] ) )
+                    try
                     {
-                        char[] cbuf = new char[4096];
-                        for ( int length = fr.read( cbuf ); length > 0; length = fr.read( cbuf ) )
+                        if ( logFile == null || !logFile.getFile().equals( files[i] ) )
+                        {
+                            logFile = new LdifLogFile( files[i] );
+                        }
+                        logFile.update();
+
+                        int page = Math.max( 0, Math.min( input.getPage(), getPageCount() - 1 ) );
+                        if ( page != input.getPage() )
                         {
-                            sb.append( cbuf, 0, length );
+                            input = new SearchLogsViewInput( input.getBrowserConnection(), i, page );
+                            this.input = input;
                         }
+                        text = logFile.getText( page * PAGE_SIZE,
+                            Math.min( ( page + 1 ) * PAGE_SIZE, logFile.getRecordCount() ) );
                     }
                     catch ( Exception e )
                     {
-                        sb.append( e.getMessage() );
+                        text = e.getMessage();
                     }
                 }
+                else
+                {
+                    logFile = null;
+                }
 
                 // change input
-                view.getMainWidget().getSourceViewer().getDocument().set( sb.toString() );
+                view.getMainWidget().getSourceViewer().getDocument().set( text );
                 view.getActionGroup().setInput( input );
             }
         }
     }
 
 
+    /**
+     * Gets the number of pages of the displayed log file.
+     *
+     * @return the number of pages, 0 if no file is displayed
+     */
+    int getPageCount()
+    {
+        if ( logFile == null )
+        {
+            return 0;
+        }
+        return Math.max( 1, ( logFile.getRecordCount() + PAGE_SIZE - 1 ) / PAGE_SIZE );
+    }
+
+
+    /**
+     * Searches the given text in the displayed log file, starting after the caret,
+     * and then in the older log files. Only the page containing the match is loaded
+     * into the view.
+     *
+     * @param text the text to search, the case of ASCII letters is ignored
+     * @return true if the text was found and selected
+     * @throws IOException if a log file can't be read
+     */
+    boolean find( String text ) throws IOException
+    {
+        if ( input == null || logFile == null || input.getBrowserConnection().getConnection() == null )
+        {
+            return false;
+        }
+
+        // byte offset after the caret
+        SourceViewer viewer = view.getMainWidget().getSourceViewer();
+        int caret = viewer.getSelectedRange().x;
+        String textBeforeCaret = viewer.getDocument().get().substring( 0, caret );
+        int pageStartRecord = input.getPage() * PAGE_SIZE;
+        long from = logFile.getRecordOffset( pageStartRecord ) + textBeforeCaret.getBytes().length + 1;
+
+        LdifSearchLogger searchLogger = ConnectionCorePlugin.getDefault().getLdifSearchLogger();
+        File[] files = searchLogger.getFiles( input.getBrowserConnection().getConnection() );
+        LdifLogFile.Match match = LdifLogFile.find( files, input.getIndex(), logFile, from, text );
+        if ( match == null )
+        {
+            return false;
+        }
+
+        int page = Math.max( 0, match.getRecord() ) / PAGE_SIZE;
+        setInput( new SearchLogsViewInput( input.getBrowserConnection(), match.getFileIndex(), page ) );
+        int offset = logFile.getText( logFile.getRecordOffset( page * PAGE_SIZE ), match.getOffset() ).length();
+        viewer.setSelectedRange( offset, text.length() );
+        viewer.revealRange( offset, text.length() );
+        return true;
+    }
+
+
+    /**
+     * Searches the first record of the given search request in the log files,
+     * starting with the newest one, and displays its page.
+     *
+     * @param requestNumber the request number
+     * @return true if the request was found
+     * @throws IOException if a log file can't be read
+     */
+    boolean goToRequest( long requestNumber ) throws IOException
+    {
+        if ( input == null || input.getBrowserConnection().getConnection() == null )
+        {
+            return false;
+        }
+
+        LdifSearchLogger searchLogger = ConnectionCorePlugin.getDefault().getLdifSearchLogger();
+        File[] files = searchLogger.getFiles( input.getBrowserConnection().getConnection() );
+        for ( int i = 0; i < files.length; i++ )
+        {
+            LdifLogFile file = logFile != null && logFile.getFile().equals( files[i] ) ? logFile
+                : new LdifLogFile( files[i] );
+            file.update();
+            int record = file.findRequest( requestNumber );
+            if ( record >= 0 )
+            {
+                int page = record / PAGE_SIZE;
+                setInput( new SearchLogsViewInput( input.getBrowserConnection(), i, page ) );
+                int offset = logFile.getText( logFile.getRecordOffset( page * PAGE_SIZE ),
+                    logFile.getRecordOffset( record ) ).length();
+                try
+                {
+                    SourceViewer viewer = view.getMainWidget().getSourceViewer();
+                    viewer.setTopIndex( viewer.getDocument().getLineOfOffset( offset ) );
+                    viewer.setSelectedRange( offset, 0 );
+                }
+                catch ( BadLocationException e )
+                {
+                }
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+
     /**
      * {@inheritDoc}
      *
@@ -279,6 +407,7 @@ public class SearchLogsViewUniversalListener implements BrowserConnectionUpdateL
         if ( input.getBrowserConnection().getConnection() != null )
         {
             LdifSearchLogger searchLogger = ConnectionCorePlugin.getDefault().getLdifSearchLogger();
+            logFile = null;
             searchLogger.dispose( input.getBrowserConnection().getConnection() );
             view.getMainWidget().getSourceViewer().setTopIndex( 0 );
             view.getMainWidget().getSourceViewer().getDocument().set( "" );
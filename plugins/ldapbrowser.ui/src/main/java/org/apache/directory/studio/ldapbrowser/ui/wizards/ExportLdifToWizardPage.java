@@ -25,10 +25,17 @@ import org.apache.directory.studio.common.ui.widgets.BaseWidgetUtils;
 import org.apache.directory.studio.ldapbrowser.common.dialogs.preferences.TextFormatsPreferencePage;
 import org.apache.directory.studio.ldapbrowser.ui.BrowserUIConstants;
 import org.apache.directory.studio.ldapbrowser.ui.BrowserUIPlugin;
+import org.eclipse.swt.events.ModifyEvent;
+import org.eclipse.swt.events.ModifyListener;
 import org.eclipse.swt.events.SelectionAdapter;
 import org.eclipse.swt.events.SelectionEvent;
+import org.eclipse.swt.events.VerifyEvent;
+import org.eclipse.swt.events.VerifyListener;
+import org.eclipse.swt.widgets.Button;
 import org.eclipse.swt.widgets.Composite;
+import org.eclipse.swt.widgets.Group;
 import org.eclipse.swt.widgets.Link;
+import org.eclipse.swt.widgets.Text;
 import org.eclipse.ui.dialogs.PreferencesUtil;
 
 
@@ -40,6 +47,27 @@ import org.eclipse.ui.dialogs.PreferencesUtil;
 public class ExportLdifToWizardPage extends ExportBaseToPage
 {
 
+    /** The default number of concurrent searches of a parallel export */
+    private static final int DEFAULT_PARALLELISM = 4;
+
+    /** The associated wizard */
+    private ExportLdifWizard wizard;
+
+    /** The parallel export button */
+    private Button parallelButton;
+
+    /** The number of concurrent searches */
+    private Text parallelismText;
+
+    /** The merge into one file button */
+    private Button mergeButton;
+
+    /** The keep order button */
+    private Button keepOrderButton;
+
+    /** The one file per partition button */
+    private Button shardButton;
+
     /** The extensions used by LDIF files */
     private static final String[] EXTENSIONS = new String[]
         { "*.ldif", "*" }; //$NON-NLS-1$ //$NON-NLS-2$
@@ -51,9 +79,10 @@ public class ExportLdifToWizardPage extends ExportBaseToPage
      * @param pageName the page name
      * @param wizard the wizard
      */
-    public ExportLdifToWizardPage( String pageName, ExportBaseWizard wizard )
+    public ExportLdifToWizardPage( String pageName, ExportLdifWizard wizard )
     {
         super( pageName, wizard );
+        this.wizard = wizard;
         setImageDescriptor( BrowserUIPlugin.getDefault().getImageDescriptor( BrowserUIConstants.IMG_EXPORT_LDIF_WIZARD ) );
     }
 
@@ -79,6 +108,106 @@ public class ExportLdifToWizardPage extends ExportBaseToPage
                     null, TextFormatsPreferencePage.LDIF_TAB ).open();
             }
         } );
+
+        createParallelControls( composite );
+    }
+
+
+    /**
+     * Creates the controls of the parallel export.
+     */
+    private void createParallelControls( Composite composite )
+    {
+        Composite parallelOuterComposite = BaseWidgetUtils.createColumnContainer( composite, 1, 3 );
+        Group parallelGroup = BaseWidgetUtils.createGroup( parallelOuterComposite, Messages
+            .getString( "ExportLdifToWizardPage.ParallelExport" ), 1 ); //$NON-NLS-1$
+        Composite parallelComposite = BaseWidgetUtils.createColumnContainer( parallelGroup, 3, 1 );
+
+        parallelButton = BaseWidgetUtils.createCheckbox( parallelComposite, Messages
+            .getString( "ExportLdifToWizardPage.ExportChildrenConcurrently" ), 3 ); //$NON-NLS-1$
+
+        BaseWidgetUtils.createRadioIndent( parallelComposite, 1 );
+        BaseWidgetUtils.createLabel( parallelComposite, Messages
+            .getString( "ExportLdifToWizardPage.ConcurrentSearches" ), 1 ); //$NON-NLS-1$
+        parallelismText = BaseWidgetUtils.createText( parallelComposite, Integer.toString( DEFAULT_PARALLELISM ), 3,
+            1 );
+        parallelismText.addVerifyListener( new VerifyListener()
+        {
+            public void verifyText( VerifyEvent e )
+            {
+                if ( !e.text.matches( "[0-9]*" ) ) //$NON-NLS-1$
+                {
+                    e.doit = false;
+                }
+            }
+        } );
+
+        BaseWidgetUtils.createRadioIndent( parallelComposite, 1 );
+        mergeButton = BaseWidgetUtils.createRadiobutton( parallelComposite, Messages
+            .getString( "ExportLdifToWizardPage.MergeIntoOneFile" ), 2 ); //$NON-NLS-1$
+        mergeButton.setSelection( true );
+        BaseWidgetUtils.createRadioIndent( parallelComposite, 2 );
+        keepOrderButton = BaseWidgetUtils.createCheckbox( parallelComposite, Messages
+            .getString( "ExportLdifToWizardPage.KeepOrder" ), 1 ); //$NON-NLS-1$
+        keepOrderButton.setSelection( true );
+
+        BaseWidgetUtils.createRadioIndent( parallelComposite, 1 );
+        shardButton = BaseWidgetUtils.createRadiobutton( parallelComposite, Messages
+            .getString( "ExportLdifToWizardPage.OneFilePerPartition" ), 2 ); //$NON-NLS-1$
+
+        BaseWidgetUtils.createRadioIndent( parallelComposite, 1 );
+        BaseWidgetUtils.createWrappedLabel( parallelComposite, Messages
+            .getString( "ExportLdifToWizardPage.ParallelExportDescription" ), 2 ); //$NON-NLS-1$
+
+        SelectionAdapter listener = new SelectionAdapter()
+        {
+            public void widgetSelected( SelectionEvent e )
+            {
+                updateParallelOptions();
+            }
+        };
+        parallelButton.addSelectionListener( listener );
+        mergeButton.addSelectionListener( listener );
+        keepOrderButton.addSelectionListener( listener );
+        shardButton.addSelectionListener( listener );
+        parallelismText.addModifyListener( new ModifyListener()
+        {
+            public void modifyText( ModifyEvent e )
+            {
+                updateParallelOptions();
+            }
+        } );
+
+        updateParallelOptions();
+    }
+
+
+    /**
+     * Enables the parallel export controls and passes the options to the wizard.
+     */
+    private void updateParallelOptions()
+    {
+        boolean parallel = parallelButton.getSelection();
+        parallelismText.setEnabled( parallel );
+        mergeButton.setEnabled( parallel );
+        keepOrderButton.setEnabled( parallel && mergeButton.getSelection() );
+        shardButton.setEnabled( parallel );
+
+        int parallelism = 1;
+        if ( parallel && !"".equals( parallelismText.getText() ) ) //$NON-NLS-1$
+        {
+            try
+            {
+                parallelism = Math.max( 1, Integer.parseInt( parallelismText.getText() ) );
+            }
+            catch ( NumberFormatException nfe )
+            {
+                // too large: keep a single search
+            }
+        }
+        wizard.setParallelism( parallelism );
+        wizard.setShardFiles( shardButton.getSelection() );
+        wizard.setKeepOrder( keepOrderButton.getSelection() );
     }
 
 
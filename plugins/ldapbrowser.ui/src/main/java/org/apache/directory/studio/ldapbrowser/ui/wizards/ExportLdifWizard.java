@@ -42,6 +42,15 @@ public class ExportLdifWizard extends ExportBaseWizard
     /** The to page, used to select the target file. */
     private ExportLdifToWizardPage toPage;
 
+    /** The number of concurrent searches, 1 to export with a single search. */
+    private int parallelism = 1;
+
+    /** True to write one file per partition. */
+    private boolean shardFiles;
+
+    /** True to merge the partitions in a deterministic order. */
+    private boolean keepOrder = true;
+
 
     /**
      * Creates a new instance of ExportLdifWizard.
@@ -99,9 +108,42 @@ public class ExportLdifWizard extends ExportBaseWizard
         toPage.saveDialogSettings();
 
         new StudioBrowserJob( new ExportLdifRunnable( exportFilename, search.getBrowserConnection(),
-            search.getSearchParameter() ) ).execute();
+            search.getSearchParameter(), parallelism, shardFiles, keepOrder ) ).execute();
 
         return true;
     }
 
+
+    /**
+     * Sets the number of concurrent searches.
+     *
+     * @param parallelism the number of concurrent searches, 1 to export with a single search
+     */
+    public void setParallelism( int parallelism )
+    {
+        this.parallelism = parallelism;
+    }
+
+
+    /**
+     * Sets if one file per partition should be written.
+     *
+     * @param shardFiles true to write one file per partition
+     */
+    public void setShardFiles( boolean shardFiles )
+    {
+        this.shardFiles = shardFiles;
+    }
+
+
+    /**
+     * Sets if the partitions should be merged in a deterministic order.
+     *
+     * @param keepOrder true to merge the partitions in a deterministic order
+     */
+    public void setKeepOrder( boolean keepOrder )
+    {
+        this.keepOrder = keepOrder;
+    }
+
 }
@@ -85,6 +85,10 @@ public final class LdifEditorConstants
 
     public static final String PREFERENCE_LDIFEDITOR_OPTIONS_CONTINUEONERROR = "ldifEditorOptionsContinueOnError"; //$NON-NLS-1$
 
+    public static final String PREFERENCE_LDIFEDITOR_LAZYPARSING_ENABLE = "ldifEditorLazyParsingEnable"; //$NON-NLS-1$
+
+    public static final String PREFERENCE_LDIFEDITOR_LAZYPARSING_THRESHOLD = "ldifEditorLazyParsingThreshold"; //$NON-NLS-1$
+
     public static final String PREFERENCE_LDIFEDITOR_SYNTAX_RGB_SUFFIX = "_RGB"; //$NON-NLS-1$
 
     public static final String PREFERENCE_LDIFEDITOR_SYNTAX_STYLE_SUFFIX = "_STYLE"; //$NON-NLS-1$
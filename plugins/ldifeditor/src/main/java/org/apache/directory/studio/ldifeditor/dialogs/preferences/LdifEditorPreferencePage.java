@@ -28,6 +28,8 @@ import org.eclipse.jface.preference.PreferencePage;
 import org.eclipse.swt.SWT;
 import org.eclipse.swt.events.SelectionAdapter;
 import org.eclipse.swt.events.SelectionEvent;
+import org.eclipse.swt.events.VerifyEvent;
+import org.eclipse.swt.events.VerifyListener;
 import org.eclipse.swt.layout.GridData;
 import org.eclipse.swt.layout.GridLayout;
 import org.eclipse.swt.widgets.Button;
@@ -36,6 +38,7 @@ import org.eclipse.swt.widgets.Control;
 import org.eclipse.swt.widgets.Group;
 import org.eclipse.swt.widgets.Label;
 import org.eclipse.swt.widgets.Link;
+import org.eclipse.swt.widgets.Text;
 import org.eclipse.ui.IWorkbench;
 import org.eclipse.ui.IWorkbenchPreferencePage;
 import org.eclipse.ui.dialogs.PreferencesUtil;
@@ -75,6 +78,15 @@ public class LdifEditorPreferencePage extends PreferencePage implements IWorkben
     /** The continue on error button. */
     private Button continueOnErrorButton;
 
+    /** The lazy parsing button. */
+    private Button lazyParsingButton;
+
+    /** The lazy parsing threshold text. */
+    private Text lazyParsingThresholdText;
+
+    /** The lazy parsing threshold unit label. */
+    private Label lazyParsingThresholdLabel;
+
 
     /**
      * Creates a new instance of LdifEditorPreferencePage.
@@ -193,6 +205,41 @@ public class LdifEditorPreferencePage extends PreferencePage implements IWorkben
         continueOnErrorButton.setSelection( getPreferenceStore().getBoolean(
             LdifEditorConstants.PREFERENCE_LDIFEDITOR_OPTIONS_CONTINUEONERROR ) );
 
+        BaseWidgetUtils.createSpacer( composite, 1 );
+
+        // Large files
+        Group largeFilesGroup = BaseWidgetUtils.createGroup( BaseWidgetUtils.createColumnContainer( composite, 1, 1 ),
+            Messages.getString( "LdifEditorPreferencePage.LargeFiles" ), 1 ); //$NON-NLS-1$
+
+        Composite lazyParsingComposite = BaseWidgetUtils.createColumnContainer( largeFilesGroup, 3, 1 );
+        lazyParsingButton = BaseWidgetUtils.createCheckbox( lazyParsingComposite, Messages
+            .getString( "LdifEditorPreferencePage.LazyParsing" ), 1 ); //$NON-NLS-1$
+        lazyParsingButton.setToolTipText( Messages.getString( "LdifEditorPreferencePage.LazyParsingToolTip" ) ); //$NON-NLS-1$
+        lazyParsingButton.setSelection( getPreferenceStore().getBoolean(
+            LdifEditorConstants.PREFERENCE_LDIFEDITOR_LAZYPARSING_ENABLE ) );
+        lazyParsingButton.addSelectionListener( new SelectionAdapter()
+        {
+            public void widgetSelected( SelectionEvent e )
+            {
+                checkEnabled();
+            }
+        } );
+        lazyParsingThresholdText = BaseWidgetUtils.createText( lazyParsingComposite, "", 4, 1 ); //$NON-NLS-1$
+        lazyParsingThresholdText.setText( getPreferenceStore().getString(
+            LdifEditorConstants.PREFERENCE_LDIFEDITOR_LAZYPARSING_THRESHOLD ) );
+        lazyParsingThresholdText.addVerifyListener( new VerifyListener()
+        {
+            public void verifyText( VerifyEvent e )
+            {
+                if ( !e.text.matches( "[0-9]*" ) ) //$NON-NLS-1$
+                {
+                    e.doit = false;
+                }
+            }
+        } );
+        lazyParsingThresholdLabel = BaseWidgetUtils.createLabel( lazyParsingComposite, Messages
+            .getString( "LdifEditorPreferencePage.Megabytes" ), 1 ); //$NON-NLS-1$
+
         checkEnabled();
 
         return composite;
@@ -208,6 +255,8 @@ public class LdifEditorPreferencePage extends PreferencePage implements IWorkben
         initiallyFoldCommentsButton.setEnabled( enableFoldingButton.getSelection() );
         initiallyFoldRecordsButton.setEnabled( enableFoldingButton.getSelection() );
         initiallyFoldWrappedLinesButton.setEnabled( enableFoldingButton.getSelection() );
+        lazyParsingThresholdText.setEnabled( lazyParsingButton.getSelection() );
+        lazyParsingThresholdLabel.setEnabled( lazyParsingButton.getSelection() );
     }
 
 
@@ -233,6 +282,11 @@ public class LdifEditorPreferencePage extends PreferencePage implements IWorkben
         getPreferenceStore().setValue( LdifEditorConstants.PREFERENCE_LDIFEDITOR_OPTIONS_CONTINUEONERROR,
             continueOnErrorButton.getSelection() );
 
+        getPreferenceStore().setValue( LdifEditorConstants.PREFERENCE_LDIFEDITOR_LAZYPARSING_ENABLE,
+            lazyParsingButton.getSelection() );
+        getPreferenceStore().setValue( LdifEditorConstants.PREFERENCE_LDIFEDITOR_LAZYPARSING_THRESHOLD,
+            lazyParsingThresholdText.getText() );
+
         return true;
     }
 
@@ -259,6 +313,11 @@ public class LdifEditorPreferencePage extends PreferencePage implements IWorkben
         continueOnErrorButton.setSelection( getPreferenceStore().getDefaultBoolean(
             LdifEditorConstants.PREFERENCE_LDIFEDITOR_OPTIONS_CONTINUEONERROR ) );
 
+        lazyParsingButton.setSelection( getPreferenceStore().getDefaultBoolean(
+            LdifEditorConstants.PREFERENCE_LDIFEDITOR_LAZYPARSING_ENABLE ) );
+        lazyParsingThresholdText.setText( getPreferenceStore().getDefaultString(
+            LdifEditorConstants.PREFERENCE_LDIFEDITOR_LAZYPARSING_THRESHOLD ) );
+
         super.performDefaults();
 
         checkEnabled();
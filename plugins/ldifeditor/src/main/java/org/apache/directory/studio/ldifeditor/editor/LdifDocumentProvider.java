@@ -35,11 +35,13 @@ import java.util.ArrayList;
 import java.util.List;
 
 import org.apache.directory.studio.ldapbrowser.core.BrowserCoreConstants;
+import org.apache.directory.studio.ldifeditor.LdifEditorActivator;
 import org.apache.directory.studio.ldifeditor.LdifEditorConstants;
 import org.apache.directory.studio.ldifeditor.editor.text.LdifExternalAnnotationModel;
 import org.apache.directory.studio.ldifparser.model.LdifFile;
 import org.apache.directory.studio.ldifparser.model.container.LdifContainer;
 import org.apache.directory.studio.ldifparser.model.container.LdifRecord;
+import org.apache.directory.studio.ldifparser.model.container.LdifUnparsedContainer;
 import org.apache.directory.studio.ldifparser.parser.LdifParser;
 import org.eclipse.core.resources.IFile;
 import org.eclipse.core.runtime.CoreException;
@@ -47,11 +49,14 @@ import org.eclipse.core.runtime.IPath;
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.Status;
+import org.eclipse.jface.preference.IPreferenceStore;
 import org.eclipse.jface.operation.IRunnableContext;
+import org.eclipse.jface.text.BadLocationException;
 import org.eclipse.jface.text.Document;
 import org.eclipse.jface.text.DocumentEvent;
 import org.eclipse.jface.text.IDocument;
 import org.eclipse.jface.text.IDocumentListener;
+import org.eclipse.jface.text.IRegion;
 import org.eclipse.jface.text.Region;
 import org.eclipse.jface.text.TextUtilities;
 import org.eclipse.jface.text.source.IAnnotationModel;
@@ -64,18 +69,34 @@ import org.eclipse.ui.texteditor.AbstractDocumentProvider;
 /**
  * This class implements the LDIF Document Provider.
  * This class is used to share a LDIF Document and listen on document modifications.
+ * <p>
+ * Documents larger than a configurable threshold are parsed lazily: they are only indexed
+ * by record boundaries into {@link LdifUnparsedContainer}s, and the editor parses the records
+ * around the visible region with {@link #parseRegion(IDocument, int, int)} as it is scrolled.
  *
  * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
  */
 public class LdifDocumentProvider extends AbstractDocumentProvider implements IDocumentListener
 {
 
+    /** The minimal length of the unparsed containers of a lazily parsed document */
+    private static final int CHUNK_LENGTH = 64 * 1024;
+
+    /** The number of characters before and after the visible region that are parsed too */
+    private static final int PARSE_MARGIN = CHUNK_LENGTH;
+
+    /** The number of characters before and after the visible region that are kept parsed */
+    private static final int KEEP_MARGIN = 8 * CHUNK_LENGTH;
+
     private final LdifParser ldifParser;
 
     private final LdifDocumentSetupParticipant ldifDocumentSetupParticipant;
 
     private LdifFile ldifModel;
 
+    /** Whether or not the document is parsed lazily */
+    private boolean lazyParsing;
+
 
     /**
      * Creates a new instance of LdifDocumentProvider.
@@ -138,72 +159,96 @@ public class LdifDocumentProvider extends AbstractDocumentProvider implements ID
             // changeOffset+replacedTextLength, check end of record)
             List<LdifContainer> oldContainerList = new ArrayList<LdifContainer>();
             List<LdifContainer> containers = ldifModel.getContainers();
-            
-            for ( int i = 0; i < containers.size(); i++ )
+            int size = containers.size();
+
+            // find the first overlapping container, starting at the first one that doesn't end before the change
+            int first = -1;
+            for ( int i = ldifModel.getContainerIndex( changeRegion.getOffset() ); i < size; i++ )
             {
                 LdifContainer ldifContainer = containers.get( i );
+                Region containerRegion = new Region( ldifContainer.getOffset(), ldifContainer.getLength() );
 
-                Region containerRegion = new Region( containers.get( i ).getOffset(), containers.get( i ).getLength() );
+                if ( TextUtilities.overlaps( containerRegion, changeRegion ) )
+                {
+                    first = i;
+                    break;
+                }
+                else if ( containerRegion.getOffset() >= changeRegion.getOffset() + changeRegion.getLength() )
+                {
+                    break;
+                }
+            }
 
-                boolean changeOffsetAtEOF = i == containers.size() - 1
-                    && changeOffset >= containerRegion.getOffset() + containerRegion.getLength();
+            boolean changeOffsetAtEOF = false;
+            if ( first == -1 && size > 0 )
+            {
+                LdifContainer lastContainer = containers.get( size - 1 );
+                if ( changeOffset >= lastContainer.getOffset() + lastContainer.getLength() )
+                {
+                    first = size - 1;
+                    changeOffsetAtEOF = true;
+                }
+            }
 
-                if ( TextUtilities.overlaps( containerRegion, changeRegion ) || changeOffsetAtEOF )
+            if ( first > -1 )
+            {
+                // add invalid containers and non-records before overlap
+                int i = first - 1;
+                for ( ; i >= 0; i-- )
                 {
-                    // remember index
-                    int index = i;
+                    LdifContainer ldifContainer = containers.get( i );
 
-                    // add invalid containers and non-records before overlap
-                    i--;
-                    for ( ; i >= 0; i-- )
+                    if ( !( ldifContainer instanceof LdifUnparsedContainer )
+                        && ( !ldifContainer.isValid() || !( ldifContainer instanceof LdifRecord ) ) )
                     {
-                        ldifContainer = containers.get( i );
-                        
-                        if ( !ldifContainer.isValid() || !( ldifContainer instanceof LdifRecord ) )
-                        {
-                            oldContainerList.add( 0, ldifContainer );
-                        }
-                        else
-                        {
-                            break;
-                        }
+                        oldContainerList.add( 0, ldifContainer );
                     }
+                    else
+                    {
+                        break;
+                    }
+                }
 
-                    // add all overlapping containers
-                    i = index;
-                    for ( ; i < containers.size(); i++ )
+                // add all overlapping containers
+                i = first;
+                for ( ; i < size; i++ )
+                {
+                    LdifContainer ldifContainer = containers.get( i );
+                    Region containerRegion = new Region( ldifContainer.getOffset(), ldifContainer.getLength() );
+
+                    if ( TextUtilities.overlaps( containerRegion, changeRegion ) || changeOffsetAtEOF )
                     {
-                        ldifContainer = containers.get( i );
-                        containerRegion = new Region( ldifContainer.getOffset(), ldifContainer.getLength() );
-                        
-                        if ( TextUtilities.overlaps( containerRegion, changeRegion ) || changeOffsetAtEOF )
-                        {
-                            oldContainerList.add( ldifContainer );
-                        }
-                        else
-                        {
-                            break;
-                        }
+                        oldContainerList.add( ldifContainer );
                     }
+                    else
+                    {
+                        break;
+                    }
+                }
+
+                // add invalid containers and non-records after overlap
+                for ( ; i < size; i++ )
+                {
+                    LdifContainer ldifContainer = containers.get( i );
+                    LdifContainer lastContainer = oldContainerList.get( oldContainerList.size() - 1 );
 
-                    // add invalid containers and non-records after overlap
-                    for ( ; i < containers.size(); i++ )
+                    if ( ldifContainer instanceof LdifUnparsedContainer || lastContainer instanceof LdifUnparsedContainer )
                     {
-                        ldifContainer = containers.get( i );
-
-                        if ( !ldifContainer.isValid() || !( ldifContainer instanceof LdifRecord )
-                            || !( oldContainerList.get( oldContainerList.size() - 1 ) instanceof LdifRecord ) )
-                        {
-                            oldContainerList.add( ldifContainer );
-                        }
-                        else
-                        {
-                            break;
-                        }
+                        // unparsed containers always end at a record boundary
+                        break;
+                    }
+                    else if ( !ldifContainer.isValid() || !( ldifContainer instanceof LdifRecord )
+                        || !( lastContainer instanceof LdifRecord ) )
+                    {
+                        oldContainerList.add( ldifContainer );
+                    }
+                    else
+                    {
+                        break;
                     }
                 }
             }
-            
+
             LdifContainer[] oldContainers = ( LdifContainer[] ) oldContainerList
                 .toArray( new LdifContainer[oldContainerList.size()] );
             int oldCount = oldContainers.length;
@@ -214,11 +259,21 @@ public class LdifDocumentProvider extends AbstractDocumentProvider implements ID
             // get new content
             int newOffset = oldOffset;
             int newLength = oldLength - replacedTextLength + insertedTextLength;
-            String textToParse = document.get( newOffset, newLength );
+            List<LdifContainer> newContainers;
 
-            // parse partion content to containers (offset=0)
-            LdifFile newModel = this.ldifParser.parse( textToParse );
-            List<LdifContainer> newContainers = newModel.getContainers();
+            if ( lazyParsing && newLength > 4 * CHUNK_LENGTH )
+            {
+                // only index large inserted text, like the whole document if it is replaced
+                newContainers = LdifParser.index( new DocumentText( document ), newOffset, newLength, CHUNK_LENGTH );
+            }
+            else
+            {
+                String textToParse = document.get( newOffset, newLength );
+
+                // parse partion content to containers (offset=0)
+                LdifFile newModel = this.ldifParser.parse( textToParse );
+                newContainers = newModel.getContainers();
+            }
 
             // replace old containers with new containers
             // must adjust offsets of all following containers in model
@@ -233,6 +288,89 @@ public class LdifDocumentProvider extends AbstractDocumentProvider implements ID
     }
 
 
+    /**
+     * Parses the records around the given region of a lazily parsed document, and drops the
+     * parsed records that are far from it again, so only the records around the visible region
+     * are kept fully parsed. Does nothing if the document isn't parsed lazily.
+     *
+     * @param document the document
+     * @param offset the offset of the region, usually the visible region
+     * @param length the length of the region
+     * @return the region whose records have been parsed, or null if no records have been parsed
+     */
+    public IRegion parseRegion( IDocument document, int offset, int length )
+    {
+        if ( !lazyParsing || ldifModel == null )
+        {
+            return null;
+        }
+
+        // drop the parsed records far from the region, the length of the model doesn't change
+        int keepStart = offset - KEEP_MARGIN;
+        int keepEnd = offset + length + KEEP_MARGIN;
+        List<LdifContainer> farContainers = new ArrayList<LdifContainer>();
+
+        for ( LdifContainer container : ldifModel.getContainers() )
+        {
+            boolean isFar = container.getOffset() + container.getLength() <= keepStart
+                || container.getOffset() >= keepEnd;
+
+            if ( isFar && !( container instanceof LdifUnparsedContainer ) )
+            {
+                farContainers.add( container );
+            }
+            else
+            {
+                unparse( document, farContainers );
+            }
+        }
+
+        unparse( document, farContainers );
+
+        // parse the unparsed records around the region
+        int parseStart = Math.max( 0, offset - PARSE_MARGIN );
+        int parseEnd = offset + length + PARSE_MARGIN;
+        int parsedStart = -1;
+        int parsedEnd = -1;
+
+        for ( LdifContainer container : LdifFile.getContainers( ldifModel, parseStart, parseEnd - parseStart ) )
+        {
+            if ( container instanceof LdifUnparsedContainer )
+            {
+                if ( parsedStart == -1 )
+                {
+                    parsedStart = container.getOffset();
+                }
+
+                parsedEnd = container.getOffset() + container.getLength();
+                ldifModel.replace( new LdifContainer[]
+                    { container }, ldifParser.parse( container.toRawString() ).getContainers() );
+            }
+        }
+
+        return parsedStart == -1 ? null : new Region( parsedStart, parsedEnd - parsedStart );
+    }
+
+
+    /**
+     * Replaces the given consecutive parsed containers by unparsed containers and clears the list.
+     */
+    private void unparse( IDocument document, List<LdifContainer> containers )
+    {
+        if ( !containers.isEmpty() )
+        {
+            LdifContainer first = containers.get( 0 );
+            LdifContainer last = containers.get( containers.size() - 1 );
+            int offset = first.getOffset();
+            int length = last.getOffset() + last.getLength() - offset;
+
+            ldifModel.replace( containers.toArray( new LdifContainer[containers.size()] ), LdifParser.index(
+                new DocumentText( document ), offset, length, CHUNK_LENGTH ) );
+            containers.clear();
+        }
+    }
+
+
     /**
      * Creates an LDIF annotation model.
      */
@@ -338,8 +476,20 @@ public class LdifDocumentProvider extends AbstractDocumentProvider implements ID
         // setup document partitioning
         ldifDocumentSetupParticipant.setup( document );
 
-        // initial parsing of whole document
-        this.ldifModel = this.ldifParser.parse( document.get() );
+        // initial parsing of whole document, large documents are only indexed
+        IPreferenceStore store = LdifEditorActivator.getDefault().getPreferenceStore();
+        long threshold = store.getInt( LdifEditorConstants.PREFERENCE_LDIFEDITOR_LAZYPARSING_THRESHOLD ) * 1024L * 1024L;
+        this.lazyParsing = store.getBoolean( LdifEditorConstants.PREFERENCE_LDIFEDITOR_LAZYPARSING_ENABLE )
+            && document.getLength() > threshold;
+
+        if ( lazyParsing )
+        {
+            this.ldifModel = LdifParser.index( new DocumentText( document ), CHUNK_LENGTH );
+        }
+        else
+        {
+            this.ldifModel = this.ldifParser.parse( document.get() );
+        }
 
         // add listener for incremental parsing
         document.addDocumentListener( this );
@@ -536,4 +686,57 @@ public class LdifDocumentProvider extends AbstractDocumentProvider implements ID
     {
         return true;
     }
-}
\ No newline at end of file
+
+
+    /**
+     * A view of a document as a CharSequence, the unparsed containers read their text from it.
+     */
+    private static class DocumentText implements CharSequence
+    {
+        private final IDocument document;
+
+
+        private DocumentText( IDocument document )
+        {
+            this.document = document;
+        }
+
+
+        public int length()
+        {
+            return document.getLength();
+        }
+
+
+        public char charAt( int index )
+        {
+            try
+            {
+                return document.getChar( index );
+            }
+            catch ( BadLocationException e )
+            {
+                throw new IndexOutOfBoundsException( e.getMessage() );
+            }
+        }
+
+
+        public CharSequence subSequence( int start, int end )
+        {
+            try
+            {
+                return document.get( start, end - start );
+            }
+            catch ( BadLocationException e )
+            {
+                throw new IndexOutOfBoundsException( e.getMessage() );
+            }
+        }
+
+
+        public String toString()
+        {
+            return document.get();
+        }
+    }
+}
@@ -69,7 +69,10 @@ import org.eclipse.jface.action.ToolBarManager;
 import org.eclipse.jface.dialogs.IDialogConstants;
 import org.eclipse.jface.dialogs.MessageDialog;
 import org.eclipse.jface.preference.IPreferenceStore;
+import org.eclipse.jface.text.IRegion;
 import org.eclipse.jface.text.ITextHover;
+import org.eclipse.jface.text.ITextViewerExtension2;
+import org.eclipse.jface.text.IViewportListener;
 import org.eclipse.jface.text.contentassist.IContentAssistProcessor;
 import org.eclipse.jface.text.source.IAnnotationHover;
 import org.eclipse.jface.text.source.ISourceViewer;
@@ -522,6 +525,52 @@ public class LdifEditor extends TextEditor implements ILdifEditor, ConnectionUpd
         projectionSupport = new ProjectionSupport( projectionViewer, getAnnotationAccess(), getSharedColors() );
         projectionSupport.install();
         projectionViewer.doOperation( ProjectionViewer.TOGGLE );
+
+        // parse the records of lazily parsed documents as they are scrolled into view
+        projectionViewer.addViewportListener( new IViewportListener()
+        {
+            public void viewportChanged( int verticalOffset )
+            {
+                parseVisibleRegion();
+            }
+        } );
+        parseVisibleRegion();
+    }
+
+
+    /**
+     * Parses the records around the visible region if the document is parsed lazily,
+     * and updates the highlighting, folding, annotations and outline of the parsed records.
+     */
+    private void parseVisibleRegion()
+    {
+        ISourceViewer sourceViewer = getSourceViewer();
+        IDocumentProvider provider = getDocumentProvider();
+
+        if ( sourceViewer == null || sourceViewer.getDocument() == null
+            || !( provider instanceof LdifDocumentProvider ) )
+        {
+            return;
+        }
+
+        int offset = sourceViewer.getTopIndexStartOffset();
+        int length = sourceViewer.getBottomIndexEndOffset() - offset;
+        IRegion parsedRegion = ( ( LdifDocumentProvider ) provider ).parseRegion( sourceViewer.getDocument(),
+            offset, length );
+
+        if ( parsedRegion != null )
+        {
+            if ( sourceViewer instanceof ITextViewerExtension2 )
+            {
+                ( ( ITextViewerExtension2 ) sourceViewer ).invalidateTextPresentation( parsedRegion.getOffset(),
+                    parsedRegion.getLength() );
+            }
+
+            if ( getSourceViewerConfiguration() instanceof LdifSourceViewerConfiguration )
+            {
+                ( ( LdifSourceViewerConfiguration ) getSourceViewerConfiguration() ).modelChanged();
+            }
+        }
     }
 
 
@@ -119,6 +119,19 @@ public class LdifSourceViewerConfiguration extends SourceViewerConfiguration
     }
 
 
+    /**
+     * Notifies the reconciler about changes of the LDIF model that don't come from
+     * a document change, like lazily parsed records.
+     */
+    public void modelChanged()
+    {
+        if ( reconcilingStrategy != null )
+        {
+            reconcilingStrategy.modelChanged();
+        }
+    }
+
+
     /**
      * {@inheritDoc}
      */
@@ -34,6 +34,7 @@ import org.apache.directory.studio.ldifparser.model.LdifFile;
 import org.apache.directory.studio.ldifparser.model.LdifPart;
 import org.apache.directory.studio.ldifparser.model.container.LdifCommentContainer;
 import org.apache.directory.studio.ldifparser.model.container.LdifContainer;
+import org.apache.directory.studio.ldifparser.model.container.LdifUnparsedContainer;
 import org.apache.directory.studio.ldifparser.model.lines.LdifNonEmptyLineBase;
 import org.apache.directory.studio.ldifparser.model.lines.LdifSepLine;
 
@@ -156,6 +157,7 @@ public class LdifFoldingRegionUpdater implements IPropertyChangeListener
     /**
      * Creates all folding region of the given LDIF model.
      * LdifCommentContainers and wrapped lines are marked as collapsed.
+     * Unparsed containers of a lazily parsed document get their folding regions once they are parsed.
      * 
      * @param model
      * @param document
@@ -180,6 +182,11 @@ public class LdifFoldingRegionUpdater implements IPropertyChangeListener
         {
             for ( LdifContainer ldifContainer : containers )
             {
+                if ( ldifContainer instanceof LdifUnparsedContainer )
+                {
+                    continue;
+                }
+
                 int containerStartLine = document.getLineOfOffset( ldifContainer.getOffset() );
                 int containerEndLine = -1;
                 LdifPart[] parts = ldifContainer.getParts();
@@ -93,6 +93,16 @@ public class LdifReconcilingStrategy implements IReconcilingStrategy, IReconcili
     }
 
 
+    /**
+     * Notifies the outline, annotations and folding regions about changes of the LDIF model
+     * that don't come from a document change, like lazily parsed records.
+     */
+    public void modelChanged()
+    {
+        reconcile();
+    }
+
+
     private void reconcile()
     {
         notifyEnvironment();
@@ -100,14 +100,20 @@ public class LdifDamagerRepairer implements IPresentationDamager, IPresentationR
         List<LdifContainer> allContainers = ldifModel.getContainers();
         List<LdifContainer> containerList = new ArrayList<LdifContainer>();
 
-        for ( LdifContainer ldifContainer : allContainers )
+        // only visit the containers from the start of the damaged region
+        for ( int i = ldifModel.getContainerIndex( damage.getOffset() ); i < allContainers.size(); i++ )
         {
+            LdifContainer ldifContainer = allContainers.get( i );
             Region containerRegion = new Region( ldifContainer.getOffset(), ldifContainer.getLength() );
 
             if ( TextUtilities.overlaps( containerRegion, damage ) )
             {
                 containerList.add( ldifContainer );
             }
+            else if ( containerRegion.getOffset() > damage.getOffset() + damage.getLength() )
+            {
+                break;
+            }
         }
 
         LdifContainer[] containers = ( LdifContainer[] ) containerList
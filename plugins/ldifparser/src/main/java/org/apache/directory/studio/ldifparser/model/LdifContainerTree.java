@@ -0,0 +1,332 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *  
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License. 
+ *  
+ */
+package org.apache.directory.studio.ldifparser.model;
+
+
+import java.io.Serializable;
+import java.util.List;
+
+import org.apache.directory.studio.ldifparser.model.container.LdifContainer;
+
+
+/**
+ * The ordered containers of a {@link LdifFile}, stored in a balanced tree (a treap ordered by
+ * position) so that containers can be looked up by index or offset and replaced in O(log n).
+ * <p>
+ * Offset adjustments are not applied to all following containers. Each node keeps a pending
+ * adjustment for its whole subtree, relative to the offsets stored in the containers, which is
+ * pushed down to the children and applied to the container when the node is visited. A container
+ * returned by this tree always has its actual offsets.
+ * <p>
+ * The tree is not thread-safe, the {@link LdifFile} synchronizes all access.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+final class LdifContainerTree implements Serializable
+{
+    private static final long serialVersionUID = 3470235126512658124L;
+
+    /** The root node, null if the tree is empty */
+    private Node root;
+
+    /** The state of the pseudo random priority generator */
+    private int seed = 0x2545F491;
+
+
+    /**
+     * @return the number of containers
+     */
+    int size()
+    {
+        return size( root );
+    }
+
+
+    /**
+     * Gets the container at the given index.
+     *
+     * @param index the index
+     * @return the container
+     * @throws IndexOutOfBoundsException if the index is out of range
+     */
+    LdifContainer get( int index )
+    {
+        if ( index < 0 || index >= size() )
+        {
+            throw new IndexOutOfBoundsException( "Index: " + index + ", Size: " + size() ); //$NON-NLS-1$ //$NON-NLS-2$
+        }
+
+        Node node = root;
+        while ( true )
+        {
+            pushDown( node );
+            int leftSize = size( node.left );
+            if ( index < leftSize )
+            {
+                node = node.left;
+            }
+            else if ( index == leftSize )
+            {
+                return node.container;
+            }
+            else
+            {
+                index -= leftSize + 1;
+                node = node.right;
+            }
+        }
+    }
+
+
+    /**
+     * Appends a container.
+     *
+     * @param container the container
+     */
+    void add( LdifContainer container )
+    {
+        root = merge( root, new Node( container, nextPriority() ) );
+    }
+
+
+    /**
+     * Gets the index of the first container whose end offset is greater than or equal to the given offset.
+     *
+     * @param offset the offset
+     * @return the index, the number of containers if all containers end before the given offset
+     */
+    int indexOfEnd( int offset )
+    {
+        int index = 0;
+        int result = size();
+        Node node = root;
+        while ( node != null )
+        {
+            pushDown( node );
+            LdifContainer container = node.container;
+            if ( container.getOffset() + container.getLength() >= offset )
+            {
+                result = index + size( node.left );
+                node = node.left;
+            }
+            else
+            {
+                index += size( node.left ) + 1;
+                node = node.right;
+            }
+        }
+        return result;
+    }
+
+
+    /**
+     * Replaces containers and shifts the offsets of all following containers.
+     *
+     * @param index the index of the first container to remove
+     * @param removeCount the number of containers to remove
+     * @param newContainers the containers to insert, with their actual offsets
+     * @param adjust the adjustment of the offsets of the following containers
+     */
+    void replace( int index, int removeCount, List<LdifContainer> newContainers, int adjust )
+    {
+        Node[] split = split( root, index );
+        Node head = split[0];
+        Node tail = split( split[1], removeCount )[1];
+
+        Node middle = null;
+        for ( LdifContainer container : newContainers )
+        {
+            middle = merge( middle, new Node( container, nextPriority() ) );
+        }
+
+        if ( tail != null )
+        {
+            tail.pending += adjust;
+        }
+
+        root = merge( merge( head, middle ), tail );
+    }
+
+
+    /**
+     * Gets all containers in order, with their actual offsets.
+     *
+     * @return the containers
+     */
+    LdifContainer[] toArray()
+    {
+        LdifContainer[] containers = new LdifContainer[size()];
+        int i = 0;
+
+        // iterative in-order traversal, the depth of the tree is small but not bounded
+        Node[] stack = new Node[64];
+        int depth = 0;
+        Node node = root;
+        while ( node != null || depth > 0 )
+        {
+            while ( node != null )
+            {
+                pushDown( node );
+                if ( depth == stack.length )
+                {
+                    Node[] newStack = new Node[depth * 2];
+                    System.arraycopy( stack, 0, newStack, 0, depth );
+                    stack = newStack;
+                }
+                stack[depth++] = node;
+                node = node.left;
+            }
+            node = stack[--depth];
+            stack[depth] = null;
+            containers[i++] = node.container;
+            node = node.right;
+        }
+
+        return containers;
+    }
+
+
+    private int nextPriority()
+    {
+        // xorshift
+        seed ^= seed << 13;
+        seed ^= seed >>> 17;
+        seed ^= seed << 5;
+        return seed;
+    }
+
+
+    /**
+     * Applies the pending adjustment of the node to its container and passes it to the children.
+     */
+    private static void pushDown( Node node )
+    {
+        if ( node.pending != 0 )
+        {
+            node.container.adjustOffset( node.pending );
+            if ( node.left != null )
+            {
+                node.left.pending += node.pending;
+            }
+            if ( node.right != null )
+            {
+                node.right.pending += node.pending;
+            }
+            node.pending = 0;
+        }
+    }
+
+
+    private static int size( Node node )
+    {
+        return node != null ? node.size : 0;
+    }
+
+
+    private static void update( Node node )
+    {
+        node.size = size( node.left ) + size( node.right ) + 1;
+    }
+
+
+    /**
+     * Merges two trees, all containers of the left tree are before the ones of the right tree.
+     */
+    private static Node merge( Node left, Node right )
+    {
+        if ( left == null )
+        {
+            return right;
+        }
+        if ( right == null )
+        {
+            return left;
+        }
+
+        if ( left.priority > right.priority )
+        {
+            pushDown( left );
+            left.right = merge( left.right, right );
+            update( left );
+            return left;
+        }
+        else
+        {
+            pushDown( right );
+            right.left = merge( left, right.left );
+            update( right );
+            return right;
+        }
+    }
+
+
+    /**
+     * Splits a tree into the first count containers and the rest.
+     */
+    private static Node[] split( Node node, int count )
+    {
+        if ( node == null )
+        {
+            return new Node[2];
+        }
+
+        pushDown( node );
+        Node[] result;
+        if ( size( node.left ) >= count )
+        {
+            result = split( node.left, count );
+            node.left = result[1];
+            result[1] = node;
+        }
+        else
+        {
+            result = split( node.right, count - size( node.left ) - 1 );
+            node.right = result[0];
+            result[0] = node;
+        }
+        update( node );
+        return result;
+    }
+
+    /**
+     * A node of the tree.
+     */
+    private static final class Node implements Serializable
+    {
+        private static final long serialVersionUID = -5197541376207367386L;
+
+        private final LdifContainer container;
+        private final int priority;
+        private Node left;
+        private Node right;
+        private int size = 1;
+
+        /** The offset adjustment not yet applied to the containers of this subtree */
+        private int pending;
+
+
+        private Node( LdifContainer container, int priority )
+        {
+            this.container = container;
+            this.priority = priority;
+        }
+    }
+
+}
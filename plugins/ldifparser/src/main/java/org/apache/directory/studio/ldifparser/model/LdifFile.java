@@ -22,9 +22,12 @@ package org.apache.directory.studio.ldifparser.model;
 
 
 import java.io.Serializable;
+import java.util.AbstractList;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Iterator;
 import java.util.List;
+import java.util.RandomAccess;
 
 import org.apache.directory.studio.ldifparser.LdifFormatParameters;
 import org.apache.directory.studio.ldifparser.model.container.LdifChangeRecord;
@@ -35,6 +38,10 @@ import org.apache.directory.studio.ldifparser.model.container.LdifRecord;
 
 /**
  * A LDIF file, as we manipulate it in Studio. It's a list of LdifContainer.
+ * <p>
+ * The containers are stored in a balanced tree, so looking up the containers at an
+ * offset and replacing containers while editing don't depend on the size of the file.
+ * All access to the containers is synchronized on this LdifFile.
  *
  * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
  */
@@ -43,8 +50,8 @@ public class LdifFile implements Serializable
     /** The serialVersionUID */
     private static final long serialVersionUID = 846864138240517008L;
 
-    /** The list of container constituting this LDIF file */
-    private List<LdifContainer> containerList = new ArrayList<LdifContainer>();
+    /** The containers constituting this LDIF file */
+    private final LdifContainerTree containerTree = new LdifContainerTree();
     
     /** A flag which is set if a LdifChange is added into the LdifFile */
     private boolean hasChanges = false;
@@ -85,9 +92,9 @@ public class LdifFile implements Serializable
      * 
      * @param container The added LdifContainer
      */
-    public void addContainer( LdifContainer container )
+    public synchronized void addContainer( LdifContainer container )
     {
-        containerList.add( container );
+        containerTree.add( container );
         
         if ( container instanceof LdifChangeRecord )
         {
@@ -97,11 +104,24 @@ public class LdifFile implements Serializable
 
 
     /**
-     * @return A list of LdifContainers, including version, comments, records and unknown
+     * @return An unmodifiable list of LdifContainers, including version, comments, records and unknown.
+     * Indexed access takes O(log n), iterating takes a snapshot of the containers.
      */
     public List<LdifContainer> getContainers()
     {
-        return containerList;
+        return new ContainerList();
+    }
+
+
+    /**
+     * Gets the index of the first container that ends at or after the given offset.
+     *
+     * @param offset the offset
+     * @return the index in {@link #getContainers()}, the number of containers if all end before the offset
+     */
+    public synchronized int getContainerIndex( int offset )
+    {
+        return containerTree.indexOfEnd( offset );
     }
 
 
@@ -112,7 +132,7 @@ public class LdifFile implements Serializable
     {
         List<LdifRecord> recordList = new ArrayList<LdifRecord>();
 
-        for ( LdifContainer container : containerList )
+        for ( LdifContainer container : getContainers() )
         {
             if ( container instanceof LdifRecord )
             {
@@ -127,15 +147,15 @@ public class LdifFile implements Serializable
     /**
      * @return the last LdifContainer, or null
      */
-    public LdifContainer getLastContainer()
+    public synchronized LdifContainer getLastContainer()
     {
-        if ( containerList.isEmpty() )
+        if ( containerTree.size() == 0 )
         {
             return null;
         }
         else
         {
-            return containerList.get( containerList.size() - 1 );
+            return containerTree.get( containerTree.size() - 1 );
         }
     }
 
@@ -144,7 +164,7 @@ public class LdifFile implements Serializable
     {
         StringBuilder sb = new StringBuilder();
 
-        for ( LdifContainer container : containerList )
+        for ( LdifContainer container : getContainers() )
         {
             sb.append( container.toRawString() );
         }
@@ -157,7 +177,7 @@ public class LdifFile implements Serializable
     {
         StringBuilder sb = new StringBuilder();
 
-        for ( LdifContainer ldifContainer : containerList )
+        for ( LdifContainer ldifContainer : getContainers() )
         {
             sb.append( ldifContainer.toFormattedString( formatParameters ) );
         }
@@ -170,7 +190,7 @@ public class LdifFile implements Serializable
     {
         StringBuilder sb = new StringBuilder();
 
-        for ( LdifContainer ldifContainer : containerList )
+        for ( LdifContainer ldifContainer : getContainers() )
         {
             sb.append( ldifContainer );
         }
@@ -193,14 +213,20 @@ public class LdifFile implements Serializable
             return null;
         }
 
-        List<LdifContainer> containers = model.getContainers();
-
-        if ( containers.size() > 0 )
+        synchronized ( model )
         {
-            for ( LdifContainer ldifContainer : containers )
+            LdifContainerTree containers = model.containerTree;
+
+            // the first container ending after the offset, skip empty containers ending at the offset
+            for ( int i = containers.indexOfEnd( offset ); i < containers.size(); i++ )
             {
-                if ( ( ldifContainer.getOffset() <= offset ) &&
-                    ( offset < ldifContainer.getOffset() + ldifContainer.getLength() ) )
+                LdifContainer ldifContainer = containers.get( i );
+
+                if ( offset < ldifContainer.getOffset() )
+                {
+                    break;
+                }
+                else if ( offset < ldifContainer.getOffset() + ldifContainer.getLength() )
                 {
                     return ldifContainer;
                 }
@@ -250,16 +276,21 @@ public class LdifFile implements Serializable
         }
 
         List<LdifContainer> containerList = new ArrayList<LdifContainer>();
-        List<LdifContainer> containers = model.getContainers();
 
-        if ( containers.size() > 0 )
+        synchronized ( model )
         {
-            for ( LdifContainer container : containers )
+            LdifContainerTree containers = model.containerTree;
+
+            for ( int i = containers.indexOfEnd( offset ); i < containers.size(); i++ )
             {
+                LdifContainer container = containers.get( i );
                 int containerOffset = container.getOffset();
 
-                if ( ( offset < containerOffset + container.getLength() ) &&
-                    ( offset + length > containerOffset ) )
+                if ( offset + length <= containerOffset )
+                {
+                    break;
+                }
+                else if ( offset < containerOffset + container.getLength() )
                 {
                     containerList.add( container );
                 }
@@ -277,10 +308,26 @@ public class LdifFile implements Serializable
             return null;
         }
 
-        List<LdifContainer> containers = model.getContainers();
+        List<LdifContainer> containers = new ArrayList<LdifContainer>();
 
-        return getParts( containers, offset, length );
+        synchronized ( model )
+        {
+            LdifContainerTree containerTree = model.containerTree;
 
+            for ( int i = containerTree.indexOfEnd( offset ); i < containerTree.size(); i++ )
+            {
+                LdifContainer container = containerTree.get( i );
+
+                if ( offset + length < container.getOffset() )
+                {
+                    break;
+                }
+
+                containers.add( container );
+            }
+        }
+
+        return getParts( containers, offset, length );
     }
 
 
@@ -374,50 +421,106 @@ public class LdifFile implements Serializable
     }
 
 
-    public void replace( LdifContainer[] oldContainers, List<LdifContainer> newContainers )
+    /**
+     * Replaces the given consecutive containers with the new containers and shifts the offsets
+     * of all following containers.
+     *
+     * @param oldContainers the containers to replace, in order
+     * @param newContainers the new containers, with offsets relative to the first replaced container
+     */
+    public synchronized void replace( LdifContainer[] oldContainers, List<LdifContainer> newContainers )
     {
         // find index
         int index = 0;
 
-        if ( oldContainers.length > 0 )
-        {
-            index = containerList.indexOf( oldContainers[0] );
-        }
-
         // remove old containers
         int removeLength = 0;
         int removeOffset = 0;
 
         if ( oldContainers.length > 0 )
         {
+            index = indexOf( oldContainers[0] );
             removeOffset = oldContainers[0].getOffset();
 
             for ( int i = 0; i < oldContainers.length; i++ )
             {
-                containerList.remove( index );
                 removeLength += oldContainers[i].getLength();
             }
         }
 
         // add new containers
         int insertLength = 0;
-        int pos = 0;
 
         for ( LdifContainer ldifContainer : newContainers )
         {
             ldifContainer.adjustOffset( removeOffset );
             insertLength += ldifContainer.getLength();
-            containerList.add( index + pos, ldifContainer );
-            pos++;
         }
 
-        // adjust offset of following containers
-        int adjust = insertLength - removeLength;
+        // the offsets of following containers are adjusted lazily
+        containerTree.replace( index, oldContainers.length, newContainers, insertLength - removeLength );
+    }
 
-        for ( int i = index + newContainers.size(); i < containerList.size(); i++ )
+
+    /**
+     * Gets the index of the given container, looked up by its offset.
+     */
+    private int indexOf( LdifContainer container )
+    {
+        int offset = container.getOffset();
+
+        for ( int i = containerTree.indexOfEnd( offset ); i < containerTree.size(); i++ )
+        {
+            LdifContainer candidate = containerTree.get( i );
+
+            if ( candidate == container )
+            {
+                return i;
+            }
+            else if ( candidate.getOffset() > offset )
+            {
+                break;
+            }
+        }
+
+        throw new IllegalArgumentException( "Container not found" ); //$NON-NLS-1$
+    }
+
+    /**
+     * The unmodifiable list view of the containers.
+     */
+    private class ContainerList extends AbstractList<LdifContainer> implements RandomAccess
+    {
+        public LdifContainer get( int index )
         {
-            LdifContainer container = containerList.get( i );
-            container.adjustOffset( adjust );
+            synchronized ( LdifFile.this )
+            {
+                return containerTree.get( index );
+            }
+        }
+
+
+        public int size()
+        {
+            synchronized ( LdifFile.this )
+            {
+                return containerTree.size();
+            }
+        }
+
+
+        public Iterator<LdifContainer> iterator()
+        {
+            return Arrays.asList( toArray() ).iterator();
+        }
+
+
+        public LdifContainer[] toArray()
+        {
+            synchronized ( LdifFile.this )
+            {
+                return containerTree.toArray();
+            }
         }
     }
 }
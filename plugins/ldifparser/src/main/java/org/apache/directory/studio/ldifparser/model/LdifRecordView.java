@@ -0,0 +1,607 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *  
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License. 
+ *  
+ */
+
+package org.apache.directory.studio.ldifparser.model;
+
+
+import org.apache.directory.studio.ldifparser.LdifUtils;
+import org.apache.directory.studio.ldifparser.model.container.LdifChangeAddRecord;
+import org.apache.directory.studio.ldifparser.model.container.LdifChangeDeleteRecord;
+import org.apache.directory.studio.ldifparser.model.container.LdifChangeModDnRecord;
+import org.apache.directory.studio.ldifparser.model.container.LdifChangeModifyRecord;
+import org.apache.directory.studio.ldifparser.model.container.LdifChangeRecord;
+import org.apache.directory.studio.ldifparser.model.container.LdifContentRecord;
+import org.apache.directory.studio.ldifparser.model.container.LdifModSpec;
+import org.apache.directory.studio.ldifparser.model.container.LdifRecord;
+import org.apache.directory.studio.ldifparser.model.lines.LdifAttrValLine;
+import org.apache.directory.studio.ldifparser.model.lines.LdifChangeTypeLine;
+import org.apache.directory.studio.ldifparser.model.lines.LdifControlLine;
+import org.apache.directory.studio.ldifparser.model.lines.LdifDeloldrdnLine;
+import org.apache.directory.studio.ldifparser.model.lines.LdifDnLine;
+import org.apache.directory.studio.ldifparser.model.lines.LdifModSpecSepLine;
+import org.apache.directory.studio.ldifparser.model.lines.LdifNewrdnLine;
+import org.apache.directory.studio.ldifparser.model.lines.LdifNewsuperiorLine;
+import org.apache.directory.studio.ldifparser.model.lines.LdifSepLine;
+
+
+/**
+ * A lightweight, immutable view of a LDIF record. It only contains the decoded Dn,
+ * change type, controls and attribute values, but not the raw text of the record
+ * or the line model. Use it if the record is never formatted again.
+ * <p>
+ * Values are either a String or a byte array, as returned by
+ * {@link LdifAttrValLine#getValueAsObject()}.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public final class LdifRecordView
+{
+    /**
+     * The type of the record.
+     */
+    public enum ChangeType
+    {
+        /** A content record, without changetype */
+        CONTENT,
+
+        /** changetype: add */
+        ADD,
+
+        /** changetype: delete */
+        DELETE,
+
+        /** changetype: modify */
+        MODIFY,
+
+        /** changetype: moddn or modrdn */
+        MODDN
+    }
+
+    /**
+     * The operation of a modification.
+     */
+    public enum ModType
+    {
+        ADD, DELETE, REPLACE
+    }
+
+    /** Estimated memory used by an object header and reference */
+    private static final int OBJECT_OVERHEAD = 16;
+
+    private static final String[] NO_ATTRIBUTES = new String[0];
+    private static final Object[] NO_VALUES = new Object[0];
+    private static final Control[] NO_CONTROLS = new Control[0];
+    private static final ModSpec[] NO_MOD_SPECS = new ModSpec[0];
+
+    private final String dn;
+    private final ChangeType changeType;
+    private final Control[] controls;
+
+    /** The attribute descriptions of the values of content and add records */
+    private final String[] attributeDescriptions;
+
+    /** The values of content and add records */
+    private final Object[] values;
+
+    /** The modifications of modify records */
+    private final ModSpec[] modSpecs;
+
+    private final String newRdn;
+    private final boolean deleteOldRdn;
+    private final String newSuperior;
+
+    /** Null if the record is valid */
+    private final String invalidString;
+
+    private final long estimatedSize;
+
+
+    private LdifRecordView( String dn, ChangeType changeType, Control[] controls, String[] attributeDescriptions,
+        Object[] values, ModSpec[] modSpecs, String newRdn, boolean deleteOldRdn, String newSuperior,
+        String invalidString )
+    {
+        this.dn = dn;
+        this.changeType = changeType;
+        this.controls = controls;
+        this.attributeDescriptions = attributeDescriptions;
+        this.values = values;
+        this.modSpecs = modSpecs;
+        this.newRdn = newRdn;
+        this.deleteOldRdn = deleteOldRdn;
+        this.newSuperior = newSuperior;
+        this.invalidString = invalidString;
+
+        long size = OBJECT_OVERHEAD * 4 + sizeOf( dn ) + sizeOf( newRdn ) + sizeOf( newSuperior );
+        for ( Control control : controls )
+        {
+            size += OBJECT_OVERHEAD + sizeOf( control.oid ) + sizeOf( control.value );
+        }
+        for ( int i = 0; i < values.length; i++ )
+        {
+            size += sizeOf( attributeDescriptions[i] ) + sizeOf( values[i] );
+        }
+        for ( ModSpec modSpec : modSpecs )
+        {
+            size += OBJECT_OVERHEAD + sizeOf( modSpec.attributeDescription );
+            for ( Object value : modSpec.values )
+            {
+                size += sizeOf( value );
+            }
+        }
+        this.estimatedSize = size;
+    }
+
+
+    /**
+     * Creates the view of a parsed record.
+     *
+     * @param record the record
+     * @return the view
+     */
+    public static LdifRecordView create( LdifRecord record )
+    {
+        String dn = record.getDnLine() != null ? record.getDnLine().getValueAsString() : null;
+        String invalidString = record.isValid() ? null : record.getInvalidString();
+
+        Control[] controls = NO_CONTROLS;
+        if ( record instanceof LdifChangeRecord )
+        {
+            LdifControlLine[] controlLines = ( ( LdifChangeRecord ) record ).getControls();
+            if ( controlLines.length > 0 )
+            {
+                controls = new Control[controlLines.length];
+                for ( int i = 0; i < controlLines.length; i++ )
+                {
+                    LdifControlLine line = controlLines[i];
+                    controls[i] = new Control( line.getUnfoldedOid(), line.isCritical(),
+                        line.getControlValueAsBinary() );
+                }
+            }
+        }
+
+        if ( record instanceof LdifContentRecord || record instanceof LdifChangeAddRecord )
+        {
+            LdifAttrValLine[] attrVals = record instanceof LdifContentRecord
+                ? ( ( LdifContentRecord ) record ).getAttrVals()
+                : ( ( LdifChangeAddRecord ) record ).getAttrVals();
+            String[] attributeDescriptions = new String[attrVals.length];
+            Object[] values = new Object[attrVals.length];
+            for ( int i = 0; i < attrVals.length; i++ )
+            {
+                attributeDescriptions[i] = attrVals[i].getUnfoldedAttributeDescription();
+                values[i] = attrVals[i].getValueAsObject();
+            }
+
+            ChangeType changeType = record instanceof LdifContentRecord ? ChangeType.CONTENT : ChangeType.ADD;
+            return new LdifRecordView( dn, changeType, controls, attributeDescriptions, values, NO_MOD_SPECS,
+                null, false, null, invalidString );
+        }
+        else if ( record instanceof LdifChangeDeleteRecord )
+        {
+            return new LdifRecordView( dn, ChangeType.DELETE, controls, NO_ATTRIBUTES, NO_VALUES, NO_MOD_SPECS,
+                null, false, null, invalidString );
+        }
+        else if ( record instanceof LdifChangeModifyRecord )
+        {
+            LdifModSpec[] ldifModSpecs = ( ( LdifChangeModifyRecord ) record ).getModSpecs();
+            ModSpec[] modSpecs = new ModSpec[ldifModSpecs.length];
+            for ( int i = 0; i < ldifModSpecs.length; i++ )
+            {
+                LdifModSpec ldifModSpec = ldifModSpecs[i];
+                ModType modType = ldifModSpec.isAdd() ? ModType.ADD
+                    : ldifModSpec.isDelete() ? ModType.DELETE : ModType.REPLACE;
+                LdifAttrValLine[] attrVals = ldifModSpec.getAttrVals();
+                Object[] values = new Object[attrVals.length];
+                for ( int x = 0; x < attrVals.length; x++ )
+                {
+                    values[x] = attrVals[x].getValueAsObject();
+                }
+                modSpecs[i] = new ModSpec( modType,
+                    ldifModSpec.getModSpecType().getUnfoldedAttributeDescription(), values );
+            }
+
+            return new LdifRecordView( dn, ChangeType.MODIFY, controls, NO_ATTRIBUTES, NO_VALUES, modSpecs,
+                null, false, null, invalidString );
+        }
+        else if ( record instanceof LdifChangeModDnRecord )
+        {
+            LdifChangeModDnRecord modDnRecord = ( LdifChangeModDnRecord ) record;
+            String newRdn = modDnRecord.getNewrdnLine() != null && modDnRecord.getDeloldrdnLine() != null
+                ? modDnRecord.getNewrdnLine().getValueAsString()
+                : null;
+            boolean deleteOldRdn = modDnRecord.getDeloldrdnLine() != null
+                && modDnRecord.getDeloldrdnLine().isDeleteOldRdn();
+            String newSuperior = modDnRecord.getNewsuperiorLine() != null
+                ? modDnRecord.getNewsuperiorLine().getValueAsString()
+                : null;
+
+            return new LdifRecordView( dn, ChangeType.MODDN, controls, NO_ATTRIBUTES, NO_VALUES, NO_MOD_SPECS,
+                newRdn, deleteOldRdn, newSuperior, invalidString );
+        }
+        else
+        {
+            // a change record without valid change type
+            return new LdifRecordView( dn, ChangeType.CONTENT, controls, NO_ATTRIBUTES, NO_VALUES, NO_MOD_SPECS,
+                null, false, null, invalidString != null ? invalidString : "Missing changetype" ); //$NON-NLS-1$
+        }
+    }
+
+
+    /**
+     * Creates the view of a content record from its attribute descriptions and values,
+     * for example when restoring a previously stored record without parsing it again.
+     *
+     * @param dn the DN
+     * @param attributeDescriptions the attribute descriptions
+     * @param values the values, String or byte[], with the same length as attributeDescriptions
+     * @return the view
+     */
+    public static LdifRecordView createContentRecord( String dn, String[] attributeDescriptions, Object[] values )
+    {
+        if ( attributeDescriptions.length != values.length )
+        {
+            throw new IllegalArgumentException( "Attribute descriptions and values don't match" ); //$NON-NLS-1$
+        }
+
+        return new LdifRecordView( dn, ChangeType.CONTENT, NO_CONTROLS, attributeDescriptions, values,
+            NO_MOD_SPECS, null, false, null, null );
+    }
+
+
+    /**
+     * Creates a new record from this view, for example to format it.
+     *
+     * @return the new record
+     */
+    public LdifRecord toRecord()
+    {
+        LdifRecord record;
+
+        switch ( changeType )
+        {
+            case ADD:
+                LdifChangeAddRecord addRecord = new LdifChangeAddRecord( LdifDnLine.create( dn ) );
+                addControls( addRecord );
+                addRecord.setChangeType( LdifChangeTypeLine.createAdd() );
+                for ( int i = 0; i < values.length; i++ )
+                {
+                    addRecord.addAttrVal( createAttrValLine( attributeDescriptions[i], values[i] ) );
+                }
+                record = addRecord;
+                break;
+
+            case DELETE:
+                LdifChangeDeleteRecord deleteRecord = new LdifChangeDeleteRecord( LdifDnLine.create( dn ) );
+                addControls( deleteRecord );
+                deleteRecord.setChangeType( LdifChangeTypeLine.createDelete() );
+                record = deleteRecord;
+                break;
+
+            case MODIFY:
+                LdifChangeModifyRecord modifyRecord = new LdifChangeModifyRecord( LdifDnLine.create( dn ) );
+                addControls( modifyRecord );
+                modifyRecord.setChangeType( LdifChangeTypeLine.createModify() );
+                for ( ModSpec modSpec : modSpecs )
+                {
+                    LdifModSpec ldifModSpec = modSpec.modType == ModType.ADD
+                        ? LdifModSpec.createAdd( modSpec.attributeDescription )
+                        : modSpec.modType == ModType.DELETE
+                            ? LdifModSpec.createDelete( modSpec.attributeDescription )
+                            : LdifModSpec.createReplace( modSpec.attributeDescription );
+                    for ( Object value : modSpec.values )
+                    {
+                        ldifModSpec.addAttrVal( createAttrValLine( modSpec.attributeDescription, value ) );
+                    }
+                    ldifModSpec.finish( LdifModSpecSepLine.create() );
+                    modifyRecord.addModSpec( ldifModSpec );
+                }
+                record = modifyRecord;
+                break;
+
+            case MODDN:
+                LdifChangeModDnRecord modDnRecord = new LdifChangeModDnRecord( LdifDnLine.create( dn ) );
+                addControls( modDnRecord );
+                modDnRecord.setChangeType( LdifChangeTypeLine.createModDn() );
+                if ( newRdn != null )
+                {
+                    modDnRecord.setNewrdn( LdifNewrdnLine.create( newRdn ) );
+                    modDnRecord.setDeloldrdn( deleteOldRdn ? LdifDeloldrdnLine.create1()
+                        : LdifDeloldrdnLine.create0() );
+                }
+                if ( newSuperior != null )
+                {
+                    modDnRecord.setNewsuperior( LdifNewsuperiorLine.create( newSuperior ) );
+                }
+                record = modDnRecord;
+                break;
+
+            default:
+                LdifContentRecord contentRecord = LdifContentRecord.create( dn );
+                for ( int i = 0; i < values.length; i++ )
+                {
+                    contentRecord.addAttrVal( createAttrValLine( attributeDescriptions[i], values[i] ) );
+                }
+                record = contentRecord;
+                break;
+        }
+
+        record.finish( LdifSepLine.create() );
+
+        return record;
+    }
+
+
+    private void addControls( LdifChangeRecord record )
+    {
+        for ( Control control : controls )
+        {
+            record.addControl( LdifControlLine.create( control.oid, control.critical, control.value ) );
+        }
+    }
+
+
+    private static LdifAttrValLine createAttrValLine( String attributeDescription, Object value )
+    {
+        if ( value instanceof byte[] )
+        {
+            return LdifAttrValLine.create( attributeDescription, ( byte[] ) value );
+        }
+        else
+        {
+            return LdifAttrValLine.create( attributeDescription, value != null ? value.toString() : "" ); //$NON-NLS-1$
+        }
+    }
+
+
+    private static long sizeOf( Object value )
+    {
+        if ( value instanceof String )
+        {
+            return OBJECT_OVERHEAD + ( ( String ) value ).length() * 2L;
+        }
+        else if ( value instanceof byte[] )
+        {
+            return OBJECT_OVERHEAD + ( ( byte[] ) value ).length;
+        }
+        else
+        {
+            return OBJECT_OVERHEAD;
+        }
+    }
+
+
+    /**
+     * @return the Dn, not decoded if base64 encoded
+     */
+    public String getDn()
+    {
+        return dn;
+    }
+
+
+    /**
+     * @return the change type
+     */
+    public ChangeType getChangeType()
+    {
+        return changeType;
+    }
+
+
+    /**
+     * @return the controls of change records
+     */
+    public Control[] getControls()
+    {
+        return controls;
+    }
+
+
+    /**
+     * @return the number of attribute values of content and add records
+     */
+    public int getValueCount()
+    {
+        return values.length;
+    }
+
+
+    /**
+     * @param index the index of the attribute value
+     * @return the attribute description of the attribute value
+     */
+    public String getAttributeDescription( int index )
+    {
+        return attributeDescriptions[index];
+    }
+
+
+    /**
+     * @param index the index of the attribute value
+     * @return the value, a String or a byte array, null if the value can't be read
+     */
+    public Object getValue( int index )
+    {
+        return values[index];
+    }
+
+
+    /**
+     * @param index the index of the attribute value
+     * @return the value as String, binary values are UTF-8 decoded
+     */
+    public String getValueAsString( int index )
+    {
+        Object value = values[index];
+        if ( value instanceof String )
+        {
+            return ( String ) value;
+        }
+        else if ( value instanceof byte[] )
+        {
+            return LdifUtils.utf8decode( ( byte[] ) value );
+        }
+        else
+        {
+            return ""; //$NON-NLS-1$
+        }
+    }
+
+
+    /**
+     * @return the modifications of modify records
+     */
+    public ModSpec[] getModSpecs()
+    {
+        return modSpecs;
+    }
+
+
+    /**
+     * @return the new Rdn of moddn records, null if missing
+     */
+    public String getNewRdn()
+    {
+        return newRdn;
+    }
+
+
+    /**
+     * @return the deleteoldrdn flag of moddn records
+     */
+    public boolean isDeleteOldRdn()
+    {
+        return deleteOldRdn;
+    }
+
+
+    /**
+     * @return the new superior of moddn records, null if missing
+     */
+    public String getNewSuperior()
+    {
+        return newSuperior;
+    }
+
+
+    /**
+     * @return true if the record is valid
+     */
+    public boolean isValid()
+    {
+        return invalidString == null;
+    }
+
+
+    /**
+     * @return the reason why the record is invalid, null if valid
+     */
+    public String getInvalidString()
+    {
+        return invalidString;
+    }
+
+
+    /**
+     * @return the estimated memory used by this view, in bytes
+     */
+    public long getEstimatedSize()
+    {
+        return estimatedSize;
+    }
+
+    /**
+     * A control of a change record.
+     */
+    public static final class Control
+    {
+        private final String oid;
+        private final boolean critical;
+        private final byte[] value;
+
+
+        Control( String oid, boolean critical, byte[] value )
+        {
+            this.oid = oid;
+            this.critical = critical;
+            this.value = value;
+        }
+
+
+        public String getOid()
+        {
+            return oid;
+        }
+
+
+        public boolean isCritical()
+        {
+            return critical;
+        }
+
+
+        /**
+         * @return the control value, null if the control has no value
+         */
+        public byte[] getValue()
+        {
+            return value;
+        }
+    }
+
+    /**
+     * A modification of a modify record.
+     */
+    public static final class ModSpec
+    {
+        private final ModType modType;
+        private final String attributeDescription;
+        private final Object[] values;
+
+
+        ModSpec( ModType modType, String attributeDescription, Object[] values )
+        {
+            this.modType = modType;
+            this.attributeDescription = attributeDescription;
+            this.values = values;
+        }
+
+
+        public ModType getModType()
+        {
+            return modType;
+        }
+
+
+        public String getAttributeDescription()
+        {
+            return attributeDescription;
+        }
+
+
+        /**
+         * @return the values, Strings or byte arrays
+         */
+        public Object[] getValues()
+        {
+            return values;
+        }
+    }
+}
@@ -0,0 +1,51 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *  
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License. 
+ *  
+ */
+package org.apache.directory.studio.ldifparser.model;
+
+
+import org.apache.directory.api.ldap.model.exception.LdapException;
+
+
+/**
+ * A LdifRecordView enumeration. Comments, version lines and other non-record
+ * parts of the LDIF are skipped.
+ * 
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public interface LdifRecordViewEnumeration extends AutoCloseable
+{
+    /**
+     * @return true if this enumeration has more elements.
+     */
+    boolean hasNext() throws LdapException;
+
+
+    /**
+     * @return the next record view or null if hasNext() returns false.
+     */
+    LdifRecordView next() throws LdapException;
+
+
+    /**
+     * Stops parsing, records that were read ahead are discarded.
+     * The underlying reader is not closed.
+     */
+    void close();
+}
@@ -0,0 +1,105 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *  
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License. 
+ *  
+ */
+package org.apache.directory.studio.ldifparser.model;
+
+
+import org.apache.directory.studio.ldifparser.LdifFormatParameters;
+import org.apache.directory.studio.ldifparser.parser.LdifParser;
+
+
+/**
+ * A part covering a region of a LDIF that has only been indexed, not parsed.
+ * It doesn't copy its text but reads it from the indexed LDIF when needed.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public final class LdifUnparsedPart implements LdifPart
+{
+    /** The indexed LDIF, read at the current offset of this part */
+    private final CharSequence ldif;
+
+    /** The offset of this part */
+    private int offset;
+
+    /** The length of this part */
+    private final int length;
+
+
+    public LdifUnparsedPart( CharSequence ldif, int offset, int length )
+    {
+        this.ldif = ldif;
+        this.offset = offset;
+        this.length = length;
+    }
+
+
+    public int getOffset()
+    {
+        return offset;
+    }
+
+
+    public int getLength()
+    {
+        return length;
+    }
+
+
+    /**
+     * @return The raw version of the unparsed region, read from the indexed LDIF
+     */
+    public String toRawString()
+    {
+        return ldif.subSequence( offset, offset + length ).toString();
+    }
+
+
+    /**
+     * @return The formatted version of the unparsed region, it is parsed to be formatted
+     */
+    public String toFormattedString( LdifFormatParameters formatParameters )
+    {
+        return new LdifParser().parse( toRawString() ).toFormattedString( formatParameters );
+    }
+
+
+    public String toString()
+    {
+        return getClass().getName() + " (" + getOffset() + "," + getLength() + ")"; //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+    }
+
+
+    public boolean isValid()
+    {
+        return true;
+    }
+
+
+    public String getInvalidString()
+    {
+        return ""; //$NON-NLS-1$
+    }
+
+
+    public void adjustOffset( int adjust )
+    {
+        offset += adjust;
+    }
+}
@@ -23,15 +23,22 @@ package org.apache.directory.studio.ldifparser.parser;
 
 import java.io.Reader;
 import java.io.StringReader;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Deque;
 import java.util.List;
 
+import org.apache.directory.api.ldap.model.exception.LdapException;
+
 import org.apache.directory.studio.ldifparser.model.LdifEOFPart;
 import org.apache.directory.studio.ldifparser.model.LdifEnumeration;
 import org.apache.directory.studio.ldifparser.model.LdifFile;
 import org.apache.directory.studio.ldifparser.model.LdifInvalidPart;
 import org.apache.directory.studio.ldifparser.model.LdifPart;
+import org.apache.directory.studio.ldifparser.model.LdifRecordView;
+import org.apache.directory.studio.ldifparser.model.LdifRecordViewEnumeration;
+import org.apache.directory.studio.ldifparser.model.LdifUnparsedPart;
 import org.apache.directory.studio.ldifparser.model.container.LdifChangeAddRecord;
 import org.apache.directory.studio.ldifparser.model.container.LdifChangeDeleteRecord;
 import org.apache.directory.studio.ldifparser.model.container.LdifChangeModDnRecord;
@@ -45,6 +52,7 @@ import org.apache.directory.studio.ldifparser.model.container.LdifInvalidContain
 import org.apache.directory.studio.ldifparser.model.container.LdifModSpec;
 import org.apache.directory.studio.ldifparser.model.container.LdifRecord;
 import org.apache.directory.studio.ldifparser.model.container.LdifSepContainer;
+import org.apache.directory.studio.ldifparser.model.container.LdifUnparsedContainer;
 import org.apache.directory.studio.ldifparser.model.container.LdifVersionContainer;
 import org.apache.directory.studio.ldifparser.model.lines.LdifAttrValLine;
 import org.apache.directory.studio.ldifparser.model.lines.LdifChangeTypeLine;
@@ -103,6 +111,95 @@ public class LdifParser
     }
 
 
+    /**
+     * Indexes a LDIF without parsing it. The LDIF is split into {@link LdifUnparsedContainer}s
+     * that end after an empty line, i.e. at a record boundary, and are at least the given length.
+     * The unparsed containers read their text from the given LDIF, each of them can be parsed
+     * on its own with {@link #parse(String)}.
+     * 
+     * @param ldif the LDIF, the unparsed containers keep a reference to it
+     * @param chunkLength the minimal length of an unparsed container
+     * @return the LdifFile with the unparsed containers
+     */
+    public static LdifFile index( CharSequence ldif, int chunkLength )
+    {
+        LdifFile model = new LdifFile();
+
+        for ( LdifContainer container : index( ldif, 0, ldif.length(), chunkLength ) )
+        {
+            model.addContainer( container );
+        }
+
+        return model;
+    }
+
+
+    /**
+     * Indexes a region of a LDIF without parsing it, see {@link #index(CharSequence, int)}.
+     * The offsets of the unparsed containers are relative to the start of the region, as
+     * expected by {@link LdifFile#replace(LdifContainer[], List)}, they only read the right
+     * text once they have been moved to the region.
+     * 
+     * @param ldif the LDIF, the unparsed containers keep a reference to it
+     * @param offset the start of the region, should be a record boundary
+     * @param length the length of the region
+     * @param chunkLength the minimal length of an unparsed container
+     * @return the unparsed containers
+     */
+    public static List<LdifContainer> index( CharSequence ldif, int offset, int length, int chunkLength )
+    {
+        List<LdifContainer> containers = new ArrayList<LdifContainer>();
+        int end = offset + length;
+        int start = offset;
+
+        while ( start < end )
+        {
+            // go to the first line start after the minimal length
+            int pos = Math.min( start + Math.max( chunkLength, 1 ), end );
+
+            while ( pos < end && ldif.charAt( pos - 1 ) != '\n' )
+            {
+                pos++;
+            }
+
+            // go to the end of the next empty line that isn't followed by a folded line
+            int chunkEnd = end;
+
+            while ( pos < end )
+            {
+                int lineEnd = pos;
+
+                if ( ldif.charAt( pos ) == '\r' && pos + 1 < end && ldif.charAt( pos + 1 ) == '\n' )
+                {
+                    lineEnd = pos + 2;
+                }
+                else if ( ldif.charAt( pos ) == '\n' )
+                {
+                    lineEnd = pos + 1;
+                }
+
+                if ( lineEnd > pos && ( lineEnd == end || ldif.charAt( lineEnd ) != ' ' ) )
+                {
+                    chunkEnd = lineEnd;
+                    break;
+                }
+
+                while ( pos < end && ldif.charAt( pos ) != '\n' )
+                {
+                    pos++;
+                }
+
+                pos++;
+            }
+
+            containers.add( new LdifUnparsedContainer( new LdifUnparsedPart( ldif, start - offset, chunkEnd - start ) ) );
+            start = chunkEnd;
+        }
+
+        return containers;
+    }
+
+
     public LdifEnumeration parse( Reader ldifReader )
     {
         scanner.setLdif( ldifReader );
@@ -110,7 +207,7 @@ public class LdifParser
         LdifEnumeration enumeration = new LdifEnumeration()
         {
 
-            private List<LdifContainer> containerList = new ArrayList<LdifContainer>();
+            private Deque<LdifContainer> containerList = new ArrayDeque<LdifContainer>();
 
             private boolean headerParsed = false;
 
@@ -164,7 +261,7 @@ public class LdifParser
             {
                 if ( hasNext() )
                 {
-                    return containerList.remove( 0 );
+                    return containerList.removeFirst();
                 }
                 else
                 {
@@ -177,6 +274,80 @@ public class LdifParser
     }
 
 
+    /**
+     * Parses the records of a LDIF into lightweight record views. The line model
+     * of each record is dropped as soon as its view is created, and comments,
+     * version lines and other non-record parts are skipped.
+     * <p>
+     * With a positive memory budget the LDIF is parsed ahead in a background thread,
+     * the records read ahead use at most about the given number of bytes. Otherwise
+     * records are parsed on demand in the calling thread.
+     * 
+     * @param ldifReader the reader
+     * @param memoryBudget the memory budget for records read ahead in bytes, 0 or less to parse on demand
+     * @return the enumeration, must be closed if not completely consumed
+     */
+    public LdifRecordViewEnumeration parseRecordViews( Reader ldifReader, long memoryBudget )
+    {
+        if ( memoryBudget > 0 )
+        {
+            ReadAheadLdifRecordViewEnumeration enumeration = new ReadAheadLdifRecordViewEnumeration( ldifReader,
+                memoryBudget );
+            enumeration.start();
+
+            return enumeration;
+        }
+
+        LdifEnumeration containers = parse( ldifReader );
+
+        return new LdifRecordViewEnumeration()
+        {
+            private LdifRecordView nextView;
+
+            private boolean closed;
+
+
+            public boolean hasNext() throws LdapException
+            {
+                while ( nextView == null && !closed && containers.hasNext() )
+                {
+                    LdifContainer container = containers.next();
+
+                    if ( container instanceof LdifRecord )
+                    {
+                        nextView = LdifRecordView.create( ( LdifRecord ) container );
+                    }
+                }
+
+                return nextView != null;
+            }
+
+
+            public LdifRecordView next() throws LdapException
+            {
+                if ( hasNext() )
+                {
+                    LdifRecordView view = nextView;
+                    nextView = null;
+
+                    return view;
+                }
+                else
+                {
+                    return null;
+                }
+            }
+
+
+            public void close()
+            {
+                closed = true;
+                nextView = null;
+            }
+        };
+    }
+
+
     /**
      * Checks for version line. If version line is present it is parsed and
      * added to the given model.
@@ -21,7 +21,6 @@
 package org.apache.directory.studio.ldifparser.parser;
 
 
-import java.io.EOFException;
 import java.io.IOException;
 import java.io.Reader;
 
@@ -128,19 +127,45 @@ import java.io.Reader;
 // ; as specified in [5]
 // BASE64-STRING = [*(BASE64-CHAR)]
 
+/**
+ * The scanner reads the LDIF into a reusable character array, it grows only if a single
+ * token doesn't fit. Tokens are slices of that array, only copied once when the token is
+ * created. The characters before the start of the current token are discarded when more
+ * input is needed.
+ * <p>
+ * The value of a token is the raw input, including folding sequences (SEP + SPACE).
+ */
 public class LdifScanner
 {
+    /** The initial size of the buffer */
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /** Returned by {@link #read()} at the end of the input */
+    private static final int EOF = -1;
 
     private Reader ldifReader;
 
-    private char[] buffer = new char[256];
+    /** The buffer, reused for all LDIFs scanned by this scanner */
+    private char[] buffer = new char[BUFFER_SIZE];
+
+    /** The absolute offset of the first character in the buffer */
+    private int bufferOffset;
+
+    /** The number of valid characters in the buffer */
+    private int bufferLength;
 
-    private StringBuffer ldifBuffer;
+    /** The end of input flag */
+    private boolean eof;
 
-    private int ldifBufferOffset;
+    /** The absolute offset of the first character that must be kept in the buffer */
+    private int mark;
 
+    /** The absolute offset of the last read character */
     private int pos;
 
+    /** The position before the last read, used to unread */
+    private int lastPos;
+
 
     public LdifScanner()
     {
@@ -150,265 +175,172 @@ public class LdifScanner
 
     public void setLdif( Reader ldifReader )
     {
-        // this.ldif = ldif;
         this.ldifReader = ldifReader;
         this.pos = -1;
-
-        this.ldifBuffer = new StringBuffer();
-        this.ldifBufferOffset = 0;
+        this.lastPos = -1;
+        this.mark = 0;
+        this.bufferOffset = 0;
+        this.bufferLength = 0;
+        this.eof = false;
     }
 
 
-    char currentChar() throws EOFException
+    /**
+     * Gets the character at the given absolute offset.
+     *
+     * @param index the absolute offset
+     * @return the character or {@link #EOF}
+     */
+    private int charAt( int index )
     {
-
-        // check and fill buffer
-        try
+        while ( index >= bufferOffset + bufferLength )
         {
-            int num = 0;
-            while ( ldifBufferOffset + ldifBuffer.length() <= pos && num > -1 )
+            if ( eof || !fill() )
             {
-                num = this.ldifReader.read( buffer );
-                if ( num > -1 )
-                {
-                    ldifBuffer.append( buffer, 0, num );
-                }
+                return EOF;
             }
         }
-        catch ( IOException e )
-        {
-        }
 
-        if ( 0 <= pos && pos < ldifBufferOffset + ldifBuffer.length() )
+        return buffer[index - bufferOffset];
+    }
+
+
+    /**
+     * Reads more input into the buffer. Discards the characters before the mark
+     * or grows the buffer if it is full.
+     *
+     * @return false if the end of input is reached
+     */
+    private boolean fill()
+    {
+        if ( bufferLength == buffer.length )
         {
-            try
+            int discard = mark - bufferOffset;
+
+            if ( discard > 0 )
             {
-                return ldifBuffer.charAt( pos - ldifBufferOffset );
+                System.arraycopy( buffer, discard, buffer, 0, bufferLength - discard );
+                bufferOffset += discard;
+                bufferLength -= discard;
             }
-            catch ( RuntimeException e )
+            else
             {
-                e.printStackTrace();
-                throw e;
+                char[] newBuffer = new char[buffer.length * 2];
+                System.arraycopy( buffer, 0, newBuffer, 0, bufferLength );
+                buffer = newBuffer;
             }
         }
-        else
-        {
-            throw new EOFException();
-        }
-
-        // return 0<=pos&&pos<ldif.length() ? ldif.charAt(pos) : '\u0000';
-    }
-
-
-    void addFolding( StringBuffer sb )
-    {
-
-        int oldPos = pos;
 
         try
         {
-            pos++;
-            char c = currentChar();
-            if ( c == '\n' || c == '\r' )
-            {
-                StringBuffer temp = new StringBuffer( 3 );
-                temp.append( c );
-                if ( c == '\r' )
-                {
-                    pos++;
-                    c = currentChar();
-                    if ( c == '\n' )
-                    {
-                        temp.append( c );
-                    }
-                    else
-                    {
-                        pos--;
-                    }
-                }
-                else if ( c == '\n' )
-                {
-                    pos++;
-                    c = currentChar();
-                    if ( c == '\r' )
-                    {
-                        temp.append( c );
-                    }
-                    else
-                    {
-                        pos--;
-                    }
-                }
+            int num = ldifReader.read( buffer, bufferLength, buffer.length - bufferLength );
 
-                pos++;
-                c = currentChar();
-                if ( c == ' ' )
-                {
-                    // space after newline, continue
-                    temp.append( c );
-                    sb.append( temp );
-                }
-                else
-                {
-                    for ( int i = 0; i < temp.length(); i++ )
-                    {
-                        pos--;
-                    }
-                    pos--;
-                }
+            if ( num > 0 )
+            {
+                bufferLength += num;
+                return true;
             }
-            else
+            else if ( num == 0 )
             {
-                pos--;
+                return true;
             }
         }
-        catch ( EOFException e )
+        catch ( IOException e )
         {
-            // reset position
-            pos = oldPos;
         }
 
+        eof = true;
+
+        return false;
     }
 
 
     /**
-     * Reads the next character from input stram if available. If read was
-     * possible the character is appended to the given StringBuffer and
-     * returned. Otherwise throws a EOFException. Additionally this method
-     * checks folding sequence SEP + SPACE. If any folding sequence was
-     * found the sequence is appended to the given StringBuffer. So it is
-     * possible the StringBuffer doesn't end with the read character after
-     * calling this method but with a folding sequence
-     * 
-     * @param sb
-     * @return the next character if available
-     * @throws EOFException
+     * Reads the next character. Additionally this method checks for a folding
+     * sequence SEP + SPACE after the character. If a folding sequence was found it
+     * is read too, so the current position is not the position of the returned
+     * character but the end of the folding sequence.
+     *
+     * @return the next character or {@link #EOF}, the position is unchanged at EOF
      */
-    public char read( StringBuffer sb ) throws EOFException
+    private int read()
     {
-        try
-        {
-
-            // check EOF
-            // if(pos > -1) {
-            // currentChar();
-            // }
-
-            // get next char
-            pos++;
-            char c = currentChar();
-            sb.append( c );
-
-            // folding
-            addFolding( sb );
-
-            return c;
-        }
-        catch ( EOFException e )
+        int c = charAt( pos + 1 );
+        if ( c == EOF )
         {
-            pos--;
-            throw e;
+            return EOF;
         }
-    }
-
 
-    void removeFolding( StringBuffer sb )
-    {
-
-        int oldPos = pos;
+        lastPos = pos;
+        pos++;
 
-        try
+        // folding
+        int p = pos + 1;
+        int next = charAt( p );
+        if ( next == '\r' )
         {
-            char c = currentChar();
-            pos--;
-            if ( c == ' ' )
+            if ( charAt( p + 1 ) == '\n' )
             {
-                StringBuffer temp = new StringBuffer();
-                temp.insert( 0, c );
-                c = currentChar();
-                pos--;
-
-                if ( c == '\n' || c == '\r' )
-                {
-                    if ( c == '\r' )
-                    {
-                        temp.insert( 0, c );
-                        c = currentChar();
-                        pos--;
-                        if ( c == '\n' )
-                        {
-                            temp.insert( 0, c );
-                        }
-                        else
-                        {
-                            pos++;
-                        }
-                    }
-                    else if ( c == '\n' )
-                    {
-                        temp.insert( 0, c );
-                        c = currentChar();
-                        pos--;
-                        if ( c == '\r' )
-                        {
-                            temp.insert( 0, c );
-                        }
-                        else
-                        {
-                            pos++;
-                        }
-                    }
-
-                    sb.delete( sb.length() - temp.length(), sb.length() );
-                }
-                else
-                {
-                    pos++;
-                    pos++;
-                }
+                p++;
             }
-            else
+        }
+        else if ( next == '\n' )
+        {
+            if ( charAt( p + 1 ) == '\r' )
             {
-                pos++;
+                p++;
             }
         }
-        catch ( EOFException e )
+        else
+        {
+            return c;
+        }
+
+        if ( charAt( p + 1 ) == ' ' )
         {
-            // reset position
-            pos = oldPos;
+            // space after newline, continue
+            pos = p + 1;
         }
+
+        return c;
     }
 
 
     /**
-     * Inverses the previous read().
-     * 
-     * @param sb
-     * @throws EOFException
+     * Inverses the previous read(), including the folding sequence.
      */
-    public void unread( StringBuffer sb )
+    private void unread()
     {
-        removeFolding( sb );
+        pos = lastPos;
+    }
 
-        if ( pos > -1 )
-        {
-            pos--;
 
-            if ( sb.length() > 0 )
-            {
-                sb.deleteCharAt( sb.length() - 1 );
-            }
-        }
+    /**
+     * Gets the input from the given start position (exclusive) to the current position (inclusive).
+     *
+     * @param start the start position
+     * @return the input
+     */
+    private String slice( int start )
+    {
+        return new String( buffer, start + 1 - bufferOffset, pos - start );
+    }
+
+
+    private LdifToken token( int type, int start )
+    {
+        return new LdifToken( type, slice( start ), start + 1 );
     }
 
 
     private String getFullLine( String start )
     {
-        String s1 = this.getWord( start );
-        if ( s1 != null )
+        int begin = pos;
+
+        if ( getWord( start ) != null )
         {
-            String s2 = getContent( false );
-            return s2 != null ? s1 + s2 : s1;
+            getContent( false );
+            return slice( begin );
         }
         else
         {
@@ -419,104 +351,70 @@ public class LdifScanner
 
     private String getContent( boolean allowEmptyContent )
     {
+        int start = pos;
 
-        StringBuffer sb = new StringBuffer( 256 );
-
-        try
+        int c = read();
+        while ( c != EOF )
         {
-            char c = '\u0000';
-            while ( c != '\n' && c != '\r' )
+            if ( c == '\n' || c == '\r' )
             {
-                c = read( sb );
+                unread();
+                break;
             }
-            unread( sb );
-
-        }
-        catch ( EOFException e )
-        {
+            c = read();
         }
 
-        return sb.length() > 0 || allowEmptyContent ? sb.toString() : null;
+        return pos > start || allowEmptyContent ? slice( start ) : null;
     }
 
 
     private String getWord( String word )
     {
-        StringBuffer sb = new StringBuffer();
+        int start = pos;
 
-        // read
-        try
+        for ( int i = 0; i < word.length(); i++ )
         {
-            boolean matches = true;
-            for ( int i = 0; i < word.length(); i++ )
+            int c = read();
+            if ( c == EOF || Character.toUpperCase( ( char ) c ) != Character.toUpperCase( word.charAt( i ) ) )
             {
-
-                char c = read( sb );
-                //if ( c != word.charAt( i ) )
-                if ( Character.toUpperCase( c ) != Character.toUpperCase( word.charAt( i ) ) )
-                {
-                    matches = false;
-                    unread( sb );
-                    break;
-                }
-            }
-
-            if ( matches )
-            {
-                return sb.toString();
+                pos = start;
+                return null;
             }
         }
-        catch ( EOFException e )
-        {
-        }
 
-        // unread
-        while ( sb.length() > 0 )
-        {
-            unread( sb );
-        }
-        // prevChar(sb);
-        return null;
+        return slice( start );
     }
 
 
     private String getWordTillColon( String word )
     {
+        int start = pos;
 
         String wordWithColon = word + ":"; //$NON-NLS-1$
-        String line = getWord( wordWithColon );
-        if ( line != null )
+        if ( getWord( wordWithColon ) != null )
         {
-            StringBuffer sb = new StringBuffer( line );
-            unread( sb );
-            return sb.toString();
+            unread();
+            return slice( start );
         }
 
         // allow eof and sep
-        line = getWord( word );
-        if ( line != null )
+        if ( getWord( word ) != null )
         {
-            StringBuffer sb = new StringBuffer( line );
-            try
+            int c = read();
+            if ( c == EOF )
             {
-                char c = read( sb );
-                unread( sb );
-                if ( c == '\r' || c == '\n' )
-                {
-                    return sb.toString();
-                }
-                else
-                {
-                    while ( sb.length() > 0 )
-                    {
-                        unread( sb );
-                    }
-                    return null;
-                }
+                return slice( start );
             }
-            catch ( EOFException e )
+
+            unread();
+            if ( c == '\r' || c == '\n' )
+            {
+                return slice( start );
+            }
+            else
             {
-                return sb.toString();
+                pos = start;
+                return null;
             }
         }
 
@@ -526,13 +424,8 @@ public class LdifScanner
 
     private void flushBuffer()
     {
-        if ( this.ldifBufferOffset < this.pos && this.ldifBuffer.length() > 0 )
-        {
-            int delta = Math.min( pos - this.ldifBufferOffset, this.ldifBuffer.length() );
-            delta--;
-            this.ldifBuffer.delete( 0, delta );
-            this.ldifBufferOffset += delta;
-        }
+        // the characters before the current token are not needed anymore
+        mark = pos + 1;
     }
 
 
@@ -579,18 +472,12 @@ public class LdifScanner
     {
         this.flushBuffer();
 
-        StringBuffer sb = new StringBuffer( 1 );
-        try
-        {
-            read( sb );
-            unread( sb );
-            return null;
-        }
-        catch ( EOFException e )
+        if ( charAt( pos + 1 ) == EOF )
         {
             return new LdifToken( LdifToken.EOF, "", pos + 1 ); //$NON-NLS-1$
         }
 
+        return null;
     }
 
 
@@ -598,46 +485,22 @@ public class LdifScanner
     {
         this.flushBuffer();
 
-        try
+        int start = pos;
+        int c = read();
+        if ( c == '\n' || c == '\r' )
         {
-            StringBuffer sb = new StringBuffer();
-            char c = read( sb );
-            if ( c == '\n' || c == '\r' )
-            {
-
-                // check for two-char-linebreak
-                try
-                {
-                    if ( c == '\r' )
-                    {
-                        c = read( sb );
-                        if ( c != '\n' )
-                        {
-                            unread( sb );
-                        }
-                    }
-                    else if ( c == '\n' )
-                    {
-                        c = read( sb );
-                        if ( c != '\r' )
-                        {
-                            unread( sb );
-                        }
-                    }
-                }
-                catch ( EOFException e )
-                {
-                }
-
-                return new LdifToken( LdifToken.SEP, sb.toString(), pos - sb.length() + 1 );
-            }
-            else
+            // check for two-char-linebreak
+            int c2 = read();
+            if ( c2 != EOF && ( c == '\r' && c2 != '\n' || c == '\n' && c2 != '\r' ) )
             {
-                unread( sb );
+                unread();
             }
+
+            return token( LdifToken.SEP, start );
         }
-        catch ( EOFException e )
+        else if ( c != EOF )
         {
+            unread();
         }
 
         return null;
@@ -648,10 +511,11 @@ public class LdifScanner
     {
         this.flushBuffer();
 
+        int start = pos;
         String line = getFullLine( "#" ); //$NON-NLS-1$
         if ( line != null )
         {
-            return new LdifToken( LdifToken.COMMENT, line, pos - line.length() + 1 );
+            return new LdifToken( LdifToken.COMMENT, line, start + 1 );
         }
 
         return null;
@@ -660,54 +524,37 @@ public class LdifScanner
 
     public LdifToken matchVersionSpec()
     {
-        this.flushBuffer();
-
-        String line = getWordTillColon( "version" ); //$NON-NLS-1$
-        if ( line != null )
-        {
-            return new LdifToken( LdifToken.VERSION_SPEC, line, pos - line.length() + 1 );
-        }
-
-        return null;
+        return matchWordTillColon( LdifToken.VERSION_SPEC, "version" ); //$NON-NLS-1$
     }
 
 
     public LdifToken matchDnSpec()
     {
-        this.flushBuffer();
-
-        String line = getWordTillColon( "dn" ); //$NON-NLS-1$
-        if ( line != null )
-        {
-            return new LdifToken( LdifToken.DN_SPEC, line, pos - line.length() + 1 );
-        }
-
-        return null;
+        return matchWordTillColon( LdifToken.DN_SPEC, "dn" ); //$NON-NLS-1$
     }
 
 
     public LdifToken matchControlSpec()
     {
-        this.flushBuffer();
+        return matchWordTillColon( LdifToken.CONTROL_SPEC, "control" ); //$NON-NLS-1$
+    }
 
-        String line = getWordTillColon( "control" ); //$NON-NLS-1$
-        if ( line != null )
-        {
-            return new LdifToken( LdifToken.CONTROL_SPEC, line, pos - line.length() + 1 );
-        }
 
-        return null;
+    public LdifToken matchChangeTypeSpec()
+    {
+        return matchWordTillColon( LdifToken.CHANGETYPE_SPEC, "changetype" ); //$NON-NLS-1$
     }
 
 
-    public LdifToken matchChangeTypeSpec()
+    private LdifToken matchWordTillColon( int type, String word )
     {
         this.flushBuffer();
 
-        String line = getWordTillColon( "changetype" ); //$NON-NLS-1$
+        int start = pos;
+        String line = getWordTillColon( word );
         if ( line != null )
         {
-            return new LdifToken( LdifToken.CHANGETYPE_SPEC, line, pos - line.length() + 1 );
+            return new LdifToken( type, line, start + 1 );
         }
 
         return null;
@@ -718,30 +565,26 @@ public class LdifScanner
     {
         this.flushBuffer();
 
-        String line = getWord( "add" ); //$NON-NLS-1$
-        if ( line != null )
+        int start = pos;
+        if ( getWord( "add" ) != null ) //$NON-NLS-1$
         {
-            return new LdifToken( LdifToken.CHANGETYPE_ADD, line, pos - line.length() + 1 );
+            return token( LdifToken.CHANGETYPE_ADD, start );
         }
-        line = getWord( "modify" ); //$NON-NLS-1$
-        if ( line != null )
+        if ( getWord( "modify" ) != null ) //$NON-NLS-1$
         {
-            return new LdifToken( LdifToken.CHANGETYPE_MODIFY, line, pos - line.length() + 1 );
+            return token( LdifToken.CHANGETYPE_MODIFY, start );
         }
-        line = getWord( "delete" ); //$NON-NLS-1$
-        if ( line != null )
+        if ( getWord( "delete" ) != null ) //$NON-NLS-1$
         {
-            return new LdifToken( LdifToken.CHANGETYPE_DELETE, line, pos - line.length() + 1 );
+            return token( LdifToken.CHANGETYPE_DELETE, start );
         }
-        line = getWord( "moddn" ); //$NON-NLS-1$
-        if ( line != null )
+        if ( getWord( "moddn" ) != null ) //$NON-NLS-1$
         {
-            return new LdifToken( LdifToken.CHANGETYPE_MODDN, line, pos - line.length() + 1 );
+            return token( LdifToken.CHANGETYPE_MODDN, start );
         }
-        line = getWord( "modrdn" ); //$NON-NLS-1$
-        if ( line != null )
+        if ( getWord( "modrdn" ) != null ) //$NON-NLS-1$
         {
-            return new LdifToken( LdifToken.CHANGETYPE_MODDN, line, pos - line.length() + 1 );
+            return token( LdifToken.CHANGETYPE_MODDN, start );
         }
 
         return null;
@@ -752,36 +595,23 @@ public class LdifScanner
     {
         this.flushBuffer();
 
-        StringBuffer sb = new StringBuffer();
+        int start = pos;
 
-        String s = getWord( " " ); //$NON-NLS-1$
-        while ( s != null )
+        while ( getWord( " " ) != null ) //$NON-NLS-1$
         {
-            sb.append( s );
-            s = getWord( " " ); //$NON-NLS-1$
+            // skip spaces
         }
 
-        String t = getWord( "true" ); //$NON-NLS-1$
-        if ( t != null )
+        if ( getWord( "true" ) != null ) //$NON-NLS-1$
         {
-            sb.append( t );
-            return new LdifToken( LdifToken.CONTROL_CRITICALITY_TRUE, sb.toString(), pos - sb.length() + 1 );
+            return token( LdifToken.CONTROL_CRITICALITY_TRUE, start );
         }
-        String f = getWord( "false" ); //$NON-NLS-1$
-        if ( f != null )
+        if ( getWord( "false" ) != null ) //$NON-NLS-1$
         {
-            sb.append( f );
-            return new LdifToken( LdifToken.CONTROL_CRITICALITY_FALSE, sb.toString(), pos - sb.length() + 1 );
+            return token( LdifToken.CONTROL_CRITICALITY_FALSE, start );
         }
 
-        while ( sb.length() > 0 )
-        {
-            unread( sb );
-        }
-
-        // for(int i=0; i<sb.length(); i++) {
-        // unread(sb);
-        // }
+        pos = start;
 
         return null;
     }
@@ -791,34 +621,24 @@ public class LdifScanner
     {
         this.flushBuffer();
 
-        try
+        int start = pos;
+        int c = read();
+        if ( '0' <= c && c <= '9' )
         {
-            StringBuffer sb = new StringBuffer();
-            char c = read( sb );
-            if ( '0' <= c && c <= '9' )
+            while ( '0' <= c && c <= '9' )
             {
-
-                try
-                {
-                    while ( '0' <= c && c <= '9' )
-                    {
-                        c = read( sb );
-                    }
-                    unread( sb );
-                }
-                catch ( EOFException e )
-                {
-                }
-
-                return new LdifToken( LdifToken.NUMBER, sb.toString(), pos - sb.length() + 1 );
+                c = read();
             }
-            else
+            if ( c != EOF )
             {
-                unread( sb );
+                unread();
             }
+
+            return token( LdifToken.NUMBER, start );
         }
-        catch ( EOFException e )
+        else if ( c != EOF )
         {
+            unread();
         }
 
         return null;
@@ -829,34 +649,24 @@ public class LdifScanner
     {
         this.flushBuffer();
 
-        try
+        int start = pos;
+        int c = read();
+        if ( '0' <= c && c <= '9' )
         {
-            StringBuffer sb = new StringBuffer();
-            char c = read( sb );
-            if ( '0' <= c && c <= '9' )
+            while ( '0' <= c && c <= '9' || c == '.' )
             {
-
-                try
-                {
-                    while ( '0' <= c && c <= '9' || c == '.' )
-                    {
-                        c = read( sb );
-                    }
-                    unread( sb );
-                }
-                catch ( EOFException e )
-                {
-                }
-
-                return new LdifToken( LdifToken.OID, sb.toString(), pos - sb.length() + 1 );
+                c = read();
             }
-            else
+            if ( c != EOF )
             {
-                unread( sb );
+                unread();
             }
+
+            return token( LdifToken.OID, start );
         }
-        catch ( EOFException e )
+        else if ( c != EOF )
         {
+            unread();
         }
 
         return null;
@@ -867,55 +677,27 @@ public class LdifScanner
     {
         this.flushBuffer();
 
-        try
+        int start = pos;
+        int c = read();
+        if ( 'a' <= c && c <= 'z' || 'A' <= c && c <= 'Z' || '0' <= c && c <= '9' )
         {
-            StringBuffer sb = new StringBuffer();
-            char c = read( sb );
-            if ( 'a' <= c && c <= 'z' || 'A' <= c && c <= 'Z' || '0' <= c && c <= '9' )
+            while ( 'a' <= c && c <= 'z' || 'A' <= c && c <= 'Z' || '0' <= c && c <= '9' || c == '.'
+                || c == ';' || c == '-' || c == '_' )
             {
-
-                try
-                {
-                    while ( 'a' <= c && c <= 'z' || 'A' <= c && c <= 'Z' || '0' <= c && c <= '9' || c == '.'
-                        || c == ';' || c == '-' || c == '_' )
-                    {
-                        c = read( sb );
-                    }
-                    unread( sb );
-                }
-                catch ( EOFException e )
-                {
-                }
-
-                return new LdifToken( LdifToken.ATTRIBUTE, sb.toString(), pos - sb.length() + 1 );
+                c = read();
             }
-            else
+            if ( c != EOF )
             {
-                unread( sb );
+                unread();
             }
+
+            return token( LdifToken.ATTRIBUTE, start );
         }
-        catch ( EOFException e )
+        else if ( c != EOF )
         {
+            unread();
         }
 
-        // // a-z,A-Z,0-9,.,-,;
-        // StringBuffer sb = new StringBuffer();
-        // char c = nextChar(sb);
-        // if('a'<=c&&c<='z' || 'A'<=c&&c<='Z' || '0'<=c&&c<='9') {
-        // while('a'<=c&&c<='z' || 'A'<=c&&c<='Z' || '0'<=c&&c<='9' || c=='.' ||
-        // c==';' || c=='-') {
-        // sb.append(c);
-        // c = nextChar(sb);
-        // }
-        // unread(sb);
-        //
-        // return new LdifToken(LdifToken.ATTRIBUTE, sb.toString(),
-        // pos-sb.length()+1);
-        // }
-        // else {
-        // unread(sb);
-        // }
-
         return null;
     }
 
@@ -929,20 +711,18 @@ public class LdifScanner
     {
         this.flushBuffer();
 
-        String line = getWord( "add" ); //$NON-NLS-1$
-        if ( line != null )
+        int start = pos;
+        if ( getWord( "add" ) != null ) //$NON-NLS-1$
         {
-            return new LdifToken( LdifToken.MODTYPE_ADD_SPEC, line, pos - line.length() + 1 );
+            return token( LdifToken.MODTYPE_ADD_SPEC, start );
         }
-        line = getWord( "replace" ); //$NON-NLS-1$
-        if ( line != null )
+        if ( getWord( "replace" ) != null ) //$NON-NLS-1$
         {
-            return new LdifToken( LdifToken.MODTYPE_REPLACE_SPEC, line, pos - line.length() + 1 );
+            return token( LdifToken.MODTYPE_REPLACE_SPEC, start );
         }
-        line = getWord( "delete" ); //$NON-NLS-1$
-        if ( line != null )
+        if ( getWord( "delete" ) != null ) //$NON-NLS-1$
         {
-            return new LdifToken( LdifToken.MODTYPE_DELETE_SPEC, line, pos - line.length() + 1 );
+            return token( LdifToken.MODTYPE_DELETE_SPEC, start );
         }
 
         return null;
@@ -953,10 +733,10 @@ public class LdifScanner
     {
         this.flushBuffer();
 
-        String line = getWord( "-" ); //$NON-NLS-1$
-        if ( line != null )
+        int start = pos;
+        if ( getWord( "-" ) != null ) //$NON-NLS-1$
         {
-            return new LdifToken( LdifToken.MODTYPE_SEP, line, pos - line.length() + 1 );
+            return token( LdifToken.MODTYPE_SEP, start );
         }
 
         return null;
@@ -967,52 +747,44 @@ public class LdifScanner
     {
         this.flushBuffer();
 
-        try
+        int start = pos;
+        int c = read();
+        if ( c == ':' )
         {
-            StringBuffer sb = new StringBuffer();
-            char c = read( sb );
+            int tokenType = LdifToken.VALUE_TYPE_SAFE;
+
+            c = read();
             if ( c == ':' )
             {
+                tokenType = LdifToken.VALUE_TYPE_BASE64;
+            }
+            else if ( c == '<' )
+            {
+                tokenType = LdifToken.VALUE_TYPE_URL;
+            }
+            else if ( c != EOF )
+            {
+                unread();
+            }
 
-                int tokenType = LdifToken.VALUE_TYPE_SAFE;
-                try
+            if ( c != EOF )
+            {
+                c = read();
+                while ( c == ' ' )
                 {
-                    c = read( sb );
-                    if ( c == ':' )
-                    {
-                        tokenType = LdifToken.VALUE_TYPE_BASE64;
-                    }
-                    else if ( c == '<' )
-                    {
-                        tokenType = LdifToken.VALUE_TYPE_URL;
-                    }
-                    else
-                    {
-                        tokenType = LdifToken.VALUE_TYPE_SAFE;
-                        unread( sb );
-                    }
-
-                    c = read( sb );
-                    while ( c == ' ' )
-                    {
-                        c = read( sb );
-                    }
-                    unread( sb );
-
+                    c = read();
                 }
-                catch ( EOFException e )
+                if ( c != EOF )
                 {
+                    unread();
                 }
-
-                return new LdifToken( tokenType, sb.toString(), pos - sb.length() + 1 );
-            }
-            else
-            {
-                unread( sb );
             }
+
+            return token( tokenType, start );
         }
-        catch ( EOFException e )
+        else if ( c != EOF )
         {
+            unread();
         }
 
         return null;
@@ -1023,10 +795,11 @@ public class LdifScanner
     {
         this.flushBuffer();
 
+        int start = pos;
         String line = getContent( true );
         if ( line != null )
         {
-            return new LdifToken( LdifToken.VALUE, line, pos - line.length() + 1 );
+            return new LdifToken( LdifToken.VALUE, line, start + 1 );
         }
 
         return null;
@@ -1035,43 +808,19 @@ public class LdifScanner
 
     public LdifToken matchNewrdnSpec()
     {
-        this.flushBuffer();
-
-        String line = getWordTillColon( "newrdn" ); //$NON-NLS-1$
-        if ( line != null )
-        {
-            return new LdifToken( LdifToken.MODDN_NEWRDN_SPEC, line, pos - line.length() + 1 );
-        }
-
-        return null;
+        return matchWordTillColon( LdifToken.MODDN_NEWRDN_SPEC, "newrdn" ); //$NON-NLS-1$
     }
 
 
     public LdifToken matchDeleteoldrdnSpec()
     {
-        this.flushBuffer();
-
-        String line = getWordTillColon( "deleteoldrdn" ); //$NON-NLS-1$
-        if ( line != null )
-        {
-            return new LdifToken( LdifToken.MODDN_DELOLDRDN_SPEC, line, pos - line.length() + 1 );
-        }
-
-        return null;
+        return matchWordTillColon( LdifToken.MODDN_DELOLDRDN_SPEC, "deleteoldrdn" ); //$NON-NLS-1$
     }
 
 
     public LdifToken matchNewsuperiorSpec()
     {
-        this.flushBuffer();
-
-        String line = getWordTillColon( "newsuperior" ); //$NON-NLS-1$
-        if ( line != null )
-        {
-            return new LdifToken( LdifToken.MODDN_NEWSUPERIOR_SPEC, line, pos - line.length() + 1 );
-        }
-
-        return null;
+        return matchWordTillColon( LdifToken.MODDN_NEWSUPERIOR_SPEC, "newsuperior" ); //$NON-NLS-1$
     }
 
 }
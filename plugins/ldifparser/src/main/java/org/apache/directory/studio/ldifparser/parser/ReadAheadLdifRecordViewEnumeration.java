@@ -0,0 +1,217 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *  
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License. 
+ *  
+ */
+package org.apache.directory.studio.ldifparser.parser;
+
+
+import java.io.Reader;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+import org.apache.directory.api.ldap.model.exception.LdapException;
+import org.apache.directory.studio.ldifparser.model.LdifEnumeration;
+import org.apache.directory.studio.ldifparser.model.LdifRecordView;
+import org.apache.directory.studio.ldifparser.model.LdifRecordViewEnumeration;
+import org.apache.directory.studio.ldifparser.model.container.LdifContainer;
+import org.apache.directory.studio.ldifparser.model.container.LdifRecord;
+
+
+/**
+ * A LdifRecordViewEnumeration that parses ahead in a background thread. The
+ * records read ahead are kept in a queue whose estimated memory usage is bounded
+ * by a budget: the parser thread blocks while the budget is used up, until the
+ * consumer takes records from the queue. At least one record is always queued,
+ * so a single record larger than the budget doesn't stop the parser.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+class ReadAheadLdifRecordViewEnumeration implements LdifRecordViewEnumeration, Runnable
+{
+    private final Reader ldifReader;
+
+    private final long memoryBudget;
+
+    /** The records read ahead, guarded by this */
+    private final Deque<LdifRecordView> queue = new ArrayDeque<>();
+
+    /** The estimated size of the queued records, guarded by this */
+    private long queuedSize;
+
+    /** True when the parser reached the end of input or failed, guarded by this */
+    private boolean finished;
+
+    /** The exception of the parser thread, guarded by this */
+    private LdapException exception;
+
+    /** True when closed by the consumer, guarded by this */
+    private boolean closed;
+
+
+    ReadAheadLdifRecordViewEnumeration( Reader ldifReader, long memoryBudget )
+    {
+        this.ldifReader = ldifReader;
+        this.memoryBudget = memoryBudget;
+    }
+
+
+    /**
+     * Starts the parser thread.
+     */
+    void start()
+    {
+        Thread thread = new Thread( this, "LDIF Parser" ); //$NON-NLS-1$
+        thread.setDaemon( true );
+        thread.start();
+    }
+
+
+    /**
+     * Parses the LDIF, runs in the parser thread.
+     */
+    public void run()
+    {
+        LdapException failure = null;
+
+        try
+        {
+            LdifEnumeration enumeration = new LdifParser().parse( ldifReader );
+
+            while ( enumeration.hasNext() )
+            {
+                LdifContainer container = enumeration.next();
+
+                if ( container instanceof LdifRecord && !offer( LdifRecordView.create( ( LdifRecord ) container ) ) )
+                {
+                    return;
+                }
+            }
+        }
+        catch ( LdapException e )
+        {
+            failure = e;
+        }
+        catch ( RuntimeException e )
+        {
+            failure = new LdapException( e.getMessage(), e );
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+            failure = new LdapException( e.getMessage(), e );
+        }
+        finally
+        {
+            synchronized ( this )
+            {
+                exception = failure;
+                finished = true;
+                notifyAll();
+            }
+        }
+    }
+
+
+    /**
+     * Adds a record to the queue, waits while the memory budget is used up.
+     *
+     * @return false if the enumeration was closed
+     */
+    private synchronized boolean offer( LdifRecordView view ) throws InterruptedException
+    {
+        while ( !closed && !queue.isEmpty() && queuedSize + view.getEstimatedSize() > memoryBudget )
+        {
+            wait();
+        }
+
+        if ( closed )
+        {
+            return false;
+        }
+
+        queue.addLast( view );
+        queuedSize += view.getEstimatedSize();
+        notifyAll();
+
+        return true;
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    public synchronized boolean hasNext() throws LdapException
+    {
+        try
+        {
+            while ( queue.isEmpty() && !finished && !closed )
+            {
+                wait();
+            }
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+            throw new LdapException( e.getMessage(), e );
+        }
+
+        if ( !queue.isEmpty() )
+        {
+            return true;
+        }
+
+        if ( exception != null )
+        {
+            LdapException e = exception;
+            exception = null;
+            throw e;
+        }
+
+        return false;
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    public synchronized LdifRecordView next() throws LdapException
+    {
+        if ( !hasNext() )
+        {
+            return null;
+        }
+
+        LdifRecordView view = queue.removeFirst();
+        queuedSize -= view.getEstimatedSize();
+        notifyAll();
+
+        return view;
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    public synchronized void close()
+    {
+        closed = true;
+        queue.clear();
+        queuedSize = 0;
+        notifyAll();
+    }
+}
@@ -0,0 +1,174 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *  
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License. 
+ *  
+ */
+package org.apache.directory.studio.ldifparser.model;
+
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.directory.studio.ldifparser.model.container.LdifContainer;
+import org.apache.directory.studio.ldifparser.parser.LdifParser;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+
+/**
+ * Tests the container lookup and replacement of the {@link LdifFile}.
+ * <p>
+ * The benchmark only runs if the system property <code>benchmark</code> is set to <code>true</code>.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public class LdifFileTest
+{
+
+    @Test
+    public void testRandomEdits()
+    {
+        Random random = new Random( 42 );
+        LdifParser parser = new LdifParser();
+        String text = createLdif( 0, 200 );
+        LdifFile model = parser.parse( text );
+
+        for ( int edit = 0; edit < 500; edit++ )
+        {
+            // replace a random range of containers by a new random text
+            List<LdifContainer> containers = model.getContainers();
+            int from = random.nextInt( containers.size() );
+            int to = Math.min( containers.size(), from + 1 + random.nextInt( 3 ) );
+            LdifContainer[] oldContainers = containers.subList( from, to ).toArray( new LdifContainer[0] );
+
+            int offset = containers.get( from ).getOffset();
+            LdifContainer last = oldContainers[oldContainers.length - 1];
+            int end = last.getOffset() + last.getLength();
+            String newText = createLdif( edit * 10, containers.size() < 10 ? 3 : random.nextInt( 3 ) );
+
+            model.replace( oldContainers, parser.parse( newText ).getContainers() );
+            text = text.substring( 0, offset ) + newText + text.substring( end );
+
+            assertModel( text, model, random );
+        }
+    }
+
+
+    @Test
+    public void testGetContainers()
+    {
+        String text = createLdif( 0, 3 );
+        LdifFile model = new LdifParser().parse( text );
+        List<LdifContainer> containers = model.getContainers();
+        LdifContainer second = containers.get( 1 );
+
+        assertEquals( 0, model.getContainerIndex( 0 ) );
+        assertEquals( 1, model.getContainerIndex( second.getOffset() + 1 ) );
+        assertEquals( containers.size(), model.getContainerIndex( text.length() + 1 ) );
+        assertSame( second, LdifFile.getContainer( model, second.getOffset() ) );
+        assertEquals( Arrays.asList( containers.get( 0 ), second ), Arrays.asList( LdifFile.getContainers( model,
+            second.getOffset() - 1, 2 ) ) );
+    }
+
+
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    public void testPerformance()
+    {
+        LdifParser parser = new LdifParser();
+        for ( int count : new int[]
+            { 10000, 100000, 1000000 } )
+        {
+            LdifFile model = parser.parse( createLdif( 0, count ) );
+            Random random = new Random( 42 );
+
+            // edit records at random positions, like typing in the editor
+            int edits = 10000;
+            long start = System.nanoTime();
+            for ( int edit = 0; edit < edits; edit++ )
+            {
+                int offset = random.nextInt( model.getLastContainer().getOffset() );
+                LdifContainer container = LdifFile.getContainer( model, offset );
+                String text = container.toRawString();
+                String newText = random.nextBoolean() ? text.replace( "description: ", "description: x" )
+                    : text.replace( "description: x", "description: " );
+                model.replace( new LdifContainer[]
+                    { container }, parser.parse( newText ).getContainers() );
+            }
+            long time = System.nanoTime() - start;
+
+            System.out.println( "LDIF edits in " + count + " records: " + ( time / edits / 1000L ) + " us per edit" );
+        }
+    }
+
+
+    /**
+     * Checks that the containers are contiguous and match the text, and compares the lookup
+     * by offset with a scan of all containers.
+     */
+    private static void assertModel( String text, LdifFile model, Random random )
+    {
+        List<LdifContainer> containers = model.getContainers();
+        int offset = 0;
+        for ( LdifContainer container : containers )
+        {
+            assertEquals( offset, container.getOffset() );
+            offset += container.getLength();
+        }
+        assertEquals( text, model.toRawString() );
+
+        for ( int i = 0; i < 10; i++ )
+        {
+            int position = random.nextInt( text.length() + 1 );
+            LdifContainer expected = null;
+            for ( LdifContainer container : containers )
+            {
+                if ( container.getOffset() <= position && position < container.getOffset() + container.getLength() )
+                {
+                    expected = container;
+                    break;
+                }
+            }
+            assertSame( expected, LdifFile.getContainer( model, position ) );
+        }
+    }
+
+
+    private static String createLdif( int first, int count )
+    {
+        StringBuilder sb = new StringBuilder();
+        for ( int i = first; i < first + count; i++ )
+        {
+            if ( i % 7 == 3 )
+            {
+                sb.append( "# comment " ).append( i ).append( "\n" );
+            }
+            sb.append( "dn: cn=user" ).append( i ).append( ",ou=users,ou=system\n" );
+            sb.append( "objectClass: person\n" );
+            sb.append( "cn: user" ).append( i ).append( "\n" );
+            sb.append( "description: " ).append( i % 5 == 0 ? "x" : "" ).append( "user number " ).append( i )
+                .append( "\n" );
+            sb.append( "\n" );
+        }
+        return sb.toString();
+    }
+
+}
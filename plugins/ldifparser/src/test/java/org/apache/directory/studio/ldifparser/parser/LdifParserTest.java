@@ -21,10 +21,24 @@
 package org.apache.directory.studio.ldifparser.parser;
 
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.StringReader;
+import java.util.List;
 
 import org.apache.directory.studio.ldifparser.LdifFormatParameters;
+import org.apache.directory.studio.ldifparser.model.LdifEnumeration;
 import org.apache.directory.studio.ldifparser.model.LdifFile;
+import org.apache.directory.studio.ldifparser.model.LdifRecordView;
+import org.apache.directory.studio.ldifparser.model.LdifRecordView.ChangeType;
+import org.apache.directory.studio.ldifparser.model.LdifRecordView.ModType;
+import org.apache.directory.studio.ldifparser.model.LdifRecordViewEnumeration;
+import org.apache.directory.studio.ldifparser.model.container.LdifContainer;
+import org.apache.directory.studio.ldifparser.model.container.LdifContentRecord;
+import org.apache.directory.studio.ldifparser.model.container.LdifUnparsedContainer;
 
 import org.junit.jupiter.api.Test;
 
@@ -87,4 +101,207 @@ public class LdifParserTest
         assertEquals( ldif, formatted );
     }
 
+
+    @Test
+    public void testParseLargeLdifFromReader() throws Exception
+    {
+        // larger than the scanner buffer, with a value that doesn't fit into it
+        StringBuilder sb = new StringBuilder( "version: 1\n" );
+        for ( int i = 0; i < 5000; i++ )
+        {
+            sb.append( "dn: cn=user" + i + ",ou=users,ou=system\n" );
+            sb.append( "cn: user" + i + "\n" );
+            sb.append( "description: folded\n  value " + i + "\n\n" );
+        }
+        sb.append( "dn: cn=big,ou=users,ou=system\n" );
+        sb.append( "description: " );
+        for ( int i = 0; i < 200000; i++ )
+        {
+            sb.append( 'x' );
+        }
+        sb.append( "\n" );
+        String ldif = sb.toString();
+
+        LdifParser parser = new LdifParser();
+        LdifEnumeration enumeration = parser.parse( new StringReader( ldif ) );
+
+        StringBuilder raw = new StringBuilder();
+        int records = 0;
+        LdifContentRecord last = null;
+        while ( enumeration.hasNext() )
+        {
+            LdifContainer container = enumeration.next();
+            raw.append( container.toRawString() );
+            if ( container instanceof LdifContentRecord )
+            {
+                records++;
+                last = ( LdifContentRecord ) container;
+            }
+        }
+
+        assertEquals( 5001, records );
+        assertEquals( ldif, raw.toString() );
+        assertEquals( 200000, last.getAttrVals()[0].getValueAsString().length() );
+    }
+
+
+    @Test
+    public void testParseFoldedLinesWithOffsets()
+    {
+        String ldif = ""
+            + "dn: cn=foo,ou=\r\n"
+            + " users,ou=system\r\n"
+            + "cn: fo\n"
+            + " o\n";
+
+        LdifParser parser = new LdifParser();
+        LdifFile model = parser.parse( ldif );
+
+        assertEquals( 1, model.getRecords().length );
+        LdifContentRecord record = ( LdifContentRecord ) model.getRecords()[0];
+        assertEquals( "cn=foo,ou=users,ou=system", record.getDnLine().getValueAsString() );
+        assertEquals( "foo", record.getAttrVals()[0].getValueAsString() );
+        assertEquals( 0, record.getDnLine().getOffset() );
+        assertEquals( ldif.indexOf( "cn: fo" ), record.getAttrVals()[0].getOffset() );
+        assertEquals( ldif, model.toRawString() );
+    }
+
+
+    @Test
+    public void testParseRecordViews() throws Exception
+    {
+        String ldif = ""
+            + "version: 1\n"
+            + "# comment\n"
+            + "dn: cn=foo,ou=system\n"
+            + "changetype: add\n"
+            + "cn: foo\n"
+            + "userPassword:: AAEC\n"
+            + "\n"
+            + "dn: cn=foo,ou=system\n"
+            + "control: 1.2.3 true\n"
+            + "changetype: modify\n"
+            + "replace: description\n"
+            + "description: bar\n"
+            + "-\n"
+            + "\n"
+            + "dn: cn=foo,ou=system\n"
+            + "changetype: modrdn\n"
+            + "newrdn: cn=bar\n"
+            + "deleteoldrdn: 1\n"
+            + "\n";
+
+        LdifParser parser = new LdifParser();
+        LdifRecordViewEnumeration enumeration = parser.parseRecordViews( new StringReader( ldif ), 0 );
+
+        LdifRecordView add = enumeration.next();
+        assertEquals( ChangeType.ADD, add.getChangeType() );
+        assertEquals( "cn=foo,ou=system", add.getDn() );
+        assertEquals( 2, add.getValueCount() );
+        assertEquals( "foo", add.getValue( 0 ) );
+        assertArrayEquals( new byte[]
+            { 0, 1, 2 }, ( byte[] ) add.getValue( 1 ) );
+
+        LdifRecordView modify = enumeration.next();
+        assertEquals( ChangeType.MODIFY, modify.getChangeType() );
+        assertEquals( "1.2.3", modify.getControls()[0].getOid() );
+        assertEquals( ModType.REPLACE, modify.getModSpecs()[0].getModType() );
+        assertEquals( "bar", modify.getModSpecs()[0].getValues()[0] );
+
+        LdifRecordView modDn = enumeration.next();
+        assertEquals( ChangeType.MODDN, modDn.getChangeType() );
+        assertEquals( "cn=bar", modDn.getNewRdn() );
+        assertEquals( true, modDn.isDeleteOldRdn() );
+
+        assertFalse( enumeration.hasNext() );
+
+        // the records can be formatted and parsed again
+        String formatted = add.toRecord().toRawString() + modify.toRecord().toRawString()
+            + modDn.toRecord().toRawString();
+        enumeration = parser.parseRecordViews( new StringReader( formatted ), 0 );
+        assertArrayEquals( ( byte[] ) add.getValue( 1 ), ( byte[] ) enumeration.next().getValue( 1 ) );
+        LdifRecordView modify2 = enumeration.next();
+        assertEquals( "1.2.3", modify2.getControls()[0].getOid() );
+        assertEquals( true, modify2.getControls()[0].isCritical() );
+        assertEquals( "bar", modify2.getModSpecs()[0].getValues()[0] );
+        assertEquals( "cn=bar", enumeration.next().getNewRdn() );
+        assertFalse( enumeration.hasNext() );
+    }
+
+
+    @Test
+    public void testParseRecordViewsWithMemoryBudget() throws Exception
+    {
+        StringBuilder sb = new StringBuilder();
+        for ( int i = 0; i < 2000; i++ )
+        {
+            sb.append( "dn: cn=user" + i + ",ou=users,ou=system\n" );
+            sb.append( "cn: user" + i + "\n\n" );
+        }
+
+        LdifParser parser = new LdifParser();
+        LdifRecordViewEnumeration enumeration = parser.parseRecordViews( new StringReader( sb.toString() ), 1024 );
+
+        int records = 0;
+        while ( enumeration.hasNext() )
+        {
+            LdifRecordView view = enumeration.next();
+            assertEquals( "user" + records, view.getValue( 0 ) );
+            records++;
+        }
+        enumeration.close();
+
+        assertEquals( 2000, records );
+    }
+
+
+    @Test
+    public void testIndexAndParseUnparsedContainers()
+    {
+        String ldif = ""
+            + "version: 1\n"
+            + "# comment\n"
+            + "\n"
+            + "dn: cn=foo,ou=users,ou=system\n"
+            + "description: 12345678901234567890123456789012345678901234567890123456789012345\n"
+            + " 678901234567890\n"
+            + "\n"
+            + "\n"
+            + "dn: cn=bar,ou=users,ou=system\r\n"
+            + "changetype: modify\r\n"
+            + "replace: cn\r\n"
+            + "cn: bar\r\n"
+            + "-\r\n"
+            + "\r\n"
+            + "# comment\n"
+            + "dn: cn=baz,ou=users,ou=system\n"
+            + "cn: baz\n";
+        LdifParser parser = new LdifParser();
+        List<LdifContainer> expected = parser.parse( ldif ).getContainers();
+
+        for ( int chunkLength = 1; chunkLength <= ldif.length() + 1; chunkLength++ )
+        {
+            // parse all unparsed containers, the result must be the same as parsing the whole LDIF
+            LdifFile model = LdifParser.index( ldif, chunkLength );
+            assertEquals( ldif, model.toRawString() );
+
+            for ( LdifContainer container : model.getContainers() )
+            {
+                assertTrue( container instanceof LdifUnparsedContainer );
+                model.replace( new LdifContainer[]
+                    { container }, parser.parse( container.toRawString() ).getContainers() );
+            }
+
+            List<LdifContainer> containers = model.getContainers();
+            assertEquals( expected.size(), containers.size() );
+
+            for ( int i = 0; i < expected.size(); i++ )
+            {
+                assertEquals( expected.get( i ).getClass(), containers.get( i ).getClass() );
+                assertEquals( expected.get( i ).getOffset(), containers.get( i ).getOffset() );
+                assertEquals( expected.get( i ).toRawString(), containers.get( i ).toRawString() );
+            }
+        }
+    }
+
 }
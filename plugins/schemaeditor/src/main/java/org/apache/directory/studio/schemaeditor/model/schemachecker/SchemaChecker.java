@@ -21,7 +21,13 @@ package org.apache.directory.studio.schemaeditor.model.schemachecker;
 
 
 import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.commons.collections4.MultiValuedMap;
 import org.apache.commons.collections4.multimap.ArrayListValuedHashMap;
@@ -51,6 +57,12 @@ import org.eclipse.core.runtime.jobs.Job;
  * This class represents the SchemaChecker.
  * <p>
  * It is used to check the schema integrity.
+ * <p>
+ * Modifications are gathered during a short delay and checked incrementally: a
+ * {@link SchemaDependencyGraph} gives the modified schema objects and the ones depending
+ * on them, and only these schema objects (and the ones they reference) are loaded in a
+ * schema manager to update their errors. The whole schema is checked when schemas are added
+ * or removed, and as long as there are errors that are not attached to a schema object.
  *
  * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
  */
@@ -59,8 +71,14 @@ public class SchemaChecker
     /** The SchemaChecker instance */
     private static SchemaChecker instance;
 
-    /** The schema manager */
-    private SchemaManager schemaManager;
+    /** The delay (in milliseconds) used to gather bursts of modifications in a single check */
+    private static final long CHECK_DELAY = 250;
+
+    /** The errors list */
+    private List<Throwable> errorsList = new ArrayList<Throwable>();
+
+    /** The schema objects the errors are attached to */
+    private Map<Throwable, SchemaObject> errorsSources = new IdentityHashMap<Throwable, SchemaObject>();
 
     /** The errors map */
     private MultiValuedMap<Object, Object> errorsMap = new ArrayListValuedHashMap<>();
@@ -80,78 +98,91 @@ public class SchemaChecker
     /** The listeners List */
     private List<SchemaCheckerListener> listeners = new ArrayList<SchemaCheckerListener>();
 
+    /** The dependency graph of the checked schema objects */
+    private SchemaDependencyGraph dependencyGraph = new SchemaDependencyGraph();
+
+    /** The schema objects modified since the last check, mapped to true if they have been removed */
+    private Map<SchemaObject, Boolean> pendingModifications = new IdentityHashMap<SchemaObject, Boolean>();
+
+    /** The flag indicating whether the next check must check the whole schema */
+    private boolean wholeSchemaCheckRequired = true;
+
+    /** The flag indicating whether a check has been requested since the last check */
+    private boolean checkPending = false;
+
+    /** The time (as given by System.nanoTime()) of the first request since the last check */
+    private long checkRequestTime;
+
+    /** The duration of the last check, in milliseconds */
+    private volatile long lastCheckDuration;
+
+    /** The latency of the last check, in milliseconds */
+    private volatile long lastCheckLatency;
+
+    /** The number of schema objects validated by the last check */
+    private volatile int lastCheckSize;
+
+    /** The job checking the schema */
+    private Job checkJob = new Job( "Checking Schema" )
+    {
+        protected IStatus run( IProgressMonitor monitor )
+        {
+            check();
+
+            monitor.done();
+
+            return Status.OK_STATUS;
+        }
+    };
+
     /** The SchemaHandlerListener */
     private SchemaHandlerListener schemaHandlerListener = new SchemaHandlerAdapter()
     {
         public void attributeTypeAdded( AttributeType at )
         {
-            synchronized ( this )
-            {
-                recheckWholeSchema();
-            }
+            recheckSchemaObject( at, false );
         }
 
 
         public void attributeTypeModified( AttributeType at )
         {
-            synchronized ( this )
-            {
-                recheckWholeSchema();
-            }
+            recheckSchemaObject( at, false );
         }
 
 
         public void attributeTypeRemoved( AttributeType at )
         {
-            synchronized ( this )
-            {
-                recheckWholeSchema();
-            }
+            recheckSchemaObject( at, true );
         }
 
 
         public void objectClassAdded( ObjectClass oc )
         {
-            synchronized ( this )
-            {
-                recheckWholeSchema();
-            }
+            recheckSchemaObject( oc, false );
         }
 
 
         public void objectClassModified( ObjectClass oc )
         {
-            synchronized ( this )
-            {
-                recheckWholeSchema();
-            }
+            recheckSchemaObject( oc, false );
         }
 
 
         public void objectClassRemoved( ObjectClass oc )
         {
-            synchronized ( this )
-            {
-                recheckWholeSchema();
-            }
+            recheckSchemaObject( oc, true );
         }
 
 
         public void schemaAdded( Schema schema )
         {
-            synchronized ( this )
-            {
-                recheckWholeSchema();
-            }
+            recheckWholeSchema();
         }
 
 
         public void schemaRemoved( Schema schema )
         {
-            synchronized ( this )
-            {
-                recheckWholeSchema();
-            }
+            recheckWholeSchema();
         }
 
 
@@ -180,6 +211,12 @@ public class SchemaChecker
                 {
                     newProject.getSchemaHandler().addListener( schemaHandlerListener );
                 }
+
+                synchronized ( pendingModifications )
+                {
+                    // The dependency graph belongs to the previous project
+                    wholeSchemaCheckRequired = true;
+                }
             }
         } );
     }
@@ -262,96 +299,367 @@ public class SchemaChecker
 
 
     /**
-     * Checks the whole schema.
+     * Schedules a check of the whole schema.
      */
     private void recheckWholeSchema()
     {
-        Job job = new Job( "Checking Schema" )
+        synchronized ( pendingModifications )
+        {
+            wholeSchemaCheckRequired = true;
+            requestCheck();
+        }
+    }
+
+
+    /**
+     * Schedules a check of the given modified schema object and of the schema objects
+     * depending on it.
+     *
+     * @param schemaObject
+     *      the schema object
+     * @param removed
+     *      true if the schema object has been removed
+     */
+    private void recheckSchemaObject( SchemaObject schemaObject, boolean removed )
+    {
+        synchronized ( pendingModifications )
+        {
+            pendingModifications.put( schemaObject, removed );
+            requestCheck();
+        }
+    }
+
+
+    /**
+     * (Re)schedules the check job, so that a burst of modifications is checked at once.
+     */
+    private void requestCheck()
+    {
+        if ( !checkPending )
+        {
+            checkPending = true;
+            checkRequestTime = System.nanoTime();
+        }
+
+        checkJob.schedule( CHECK_DELAY );
+    }
+
+
+    /**
+     * Checks the pending modifications, and notifies the listeners.
+     */
+    private void check()
+    {
+        Map<SchemaObject, Boolean> modifications;
+        boolean wholeSchema;
+        long requestTime;
+
+        synchronized ( pendingModifications )
+        {
+            modifications = new IdentityHashMap<SchemaObject, Boolean>( pendingModifications );
+            pendingModifications.clear();
+            wholeSchema = wholeSchemaCheckRequired;
+            wholeSchemaCheckRequired = false;
+            requestTime = checkRequestTime;
+            checkPending = false;
+        }
+
+        long start = System.nanoTime();
+
+        if ( wholeSchema || hasUnattachedErrors() )
+        {
+            lastCheckSize = checkWholeSchema();
+        }
+        else
+        {
+            lastCheckSize = checkSchemaObjects( modifications );
+        }
+
+        long end = System.nanoTime();
+        lastCheckDuration = TimeUnit.NANOSECONDS.toMillis( end - start );
+        lastCheckLatency = TimeUnit.NANOSECONDS.toMillis( end - requestTime );
+
+        // Notify listeners
+        notifyListeners();
+    }
+
+
+    /**
+     * Checks the whole schema and rebuilds the dependency graph.
+     *
+     * @return
+     *      the number of checked schema objects
+     */
+    private int checkWholeSchema()
+    {
+        dependencyGraph.clear();
+
+        SchemaHandler schemaHandler = Activator.getDefault().getSchemaHandler();
+
+        if ( schemaHandler != null )
+        {
+            for ( AttributeType attributeType : schemaHandler.getAttributeTypes() )
+            {
+                dependencyGraph.add( attributeType );
+            }
+
+            for ( ObjectClass objectClass : schemaHandler.getObjectClasses() )
+            {
+                dependencyGraph.add( objectClass );
+            }
+
+            for ( MatchingRule matchingRule : schemaHandler.getMatchingRules() )
+            {
+                dependencyGraph.add( matchingRule );
+            }
+
+            for ( LdapSyntax syntax : schemaHandler.getSyntaxes() )
+            {
+                dependencyGraph.add( syntax );
+            }
+        }
+
+        // Checks the whole schema via the schema manager
+        List<Throwable> errors = loadSchema( new SchemaEditorSchemaLoader() );
+
+        synchronized ( lock )
+        {
+            // Errors
+            errorsList.clear();
+            errorsSources.clear();
+            addErrors( errors, null );
+
+            // Warnings
+            createWarnings();
+
+            updateErrorsAndWarnings();
+        }
+
+        return dependencyGraph.size();
+    }
+
+
+    /**
+     * Checks the given modified schema objects and the schema objects depending on them.
+     *
+     * @param modifications
+     *      the modified schema objects, mapped to true if they have been removed
+     * @return
+     *      the number of checked schema objects
+     */
+    private int checkSchemaObjects( Map<SchemaObject, Boolean> modifications )
+    {
+        Set<String> changedIdentifiers = new HashSet<String>();
+        List<SchemaObject> changedSchemaObjects = new ArrayList<SchemaObject>();
+
+        for ( Map.Entry<SchemaObject, Boolean> modification : modifications.entrySet() )
+        {
+            // The identifiers the schema object had at the previous check
+            changedIdentifiers.addAll( dependencyGraph.remove( modification.getKey() ) );
+
+            if ( !modification.getValue() )
+            {
+                dependencyGraph.add( modification.getKey() );
+                changedSchemaObjects.add( modification.getKey() );
+            }
+        }
+
+        Set<SchemaObject> affectedSchemaObjects = dependencyGraph.getAffected( changedSchemaObjects,
+            changedIdentifiers );
+
+        // Checks the affected schema objects via a schema manager only loading them and their references
+        List<Throwable> errors = loadSchema(
+            new SchemaEditorSchemaLoader( dependencyGraph.getReferenced( affectedSchemaObjects ) ) );
+
+        for ( Throwable error : errors )
+        {
+            if ( getSource( error ) == null )
+            {
+                // Errors which are not attached to a schema object can't be updated incrementally
+                return checkWholeSchema();
+            }
+        }
+
+        synchronized ( lock )
         {
-            protected IStatus run( IProgressMonitor monitor )
+            // Errors
+            Iterator<Throwable> iterator = errorsList.iterator();
+
+            while ( iterator.hasNext() )
             {
-                // Checks the whole schema via the schema manager
-                try
+                Throwable error = iterator.next();
+                SchemaObject source = errorsSources.get( error );
+
+                if ( affectedSchemaObjects.contains( source ) || modifications.containsKey( source ) )
                 {
-                    schemaManager = new DefaultSchemaManager( new SchemaEditorSchemaLoader() );
-                    schemaManager.loadAllEnabled();
+                    iterator.remove();
+                    errorsSources.remove( error );
                 }
-                catch ( Exception e )
+            }
+
+            addErrors( errors, affectedSchemaObjects );
+
+            // Warnings
+            Iterator<SchemaWarning> warningsIterator = warningsList.iterator();
+
+            while ( warningsIterator.hasNext() )
+            {
+                if ( modifications.containsKey( warningsIterator.next().getSource() ) )
                 {
-                    // TODO Auto-generated catch block
-                    e.printStackTrace();
+                    warningsIterator.remove();
                 }
+            }
 
-                // Updates errors and warnings
-                updateErrorsAndWarnings();
+            for ( SchemaObject schemaObject : changedSchemaObjects )
+            {
+                if ( ( schemaObject instanceof AttributeType ) || ( schemaObject instanceof ObjectClass ) )
+                {
+                    checkSchemaObjectNames( schemaObject );
+                }
+            }
+
+            updateErrorsAndWarnings();
+        }
+
+        return affectedSchemaObjects.size();
+    }
 
-                // Notify listeners
-                notifyListeners();
 
-                monitor.done();
+    /**
+     * Loads the schema with the given loader, and returns the errors.
+     *
+     * @param schemaLoader
+     *      the schema loader
+     * @return
+     *      the errors
+     */
+    private List<Throwable> loadSchema( SchemaEditorSchemaLoader schemaLoader )
+    {
+        SchemaManager schemaManager = new DefaultSchemaManager( schemaLoader );
 
-                return Status.OK_STATUS;
+        try
+        {
+            schemaManager.loadAllEnabled();
+        }
+        catch ( Exception e )
+        {
+            // TODO Auto-generated catch block
+            e.printStackTrace();
+        }
+
+        return schemaManager.getErrors();
+    }
+
+
+    /**
+     * Adds the given errors.
+     *
+     * @param errors
+     *      the errors
+     * @param schemaObjects
+     *      the schema objects whose errors are added, or null to add all the errors
+     */
+    private void addErrors( List<Throwable> errors, Set<SchemaObject> schemaObjects )
+    {
+        for ( Throwable error : errors )
+        {
+            SchemaObject source = getSource( error );
+
+            if ( schemaObjects == null || schemaObjects.contains( source ) )
+            {
+                errorsList.add( error );
+
+                if ( source != null )
+                {
+                    errorsSources.put( error, source );
+                }
             }
-        };
-        job.schedule();
+        }
     }
 
 
     /**
-     * Updates the errors and warnings. 
+     * Returns whether some errors are not attached to a schema object.
+     *
+     * @return
+     *      true if some errors are not attached to a schema object
      */
-    private synchronized void updateErrorsAndWarnings()
+    private boolean hasUnattachedErrors()
     {
         synchronized ( lock )
         {
-            // Errors
-            errorsMap.clear();
-            indexErrors();
-
-            // Warnings
-            createWarnings();
-            warningsMap.clear();
-            indexWarnings();
+            return errorsList.size() > errorsSources.size();
         }
     }
 
 
+    /**
+     * Updates the errors and warnings maps.
+     */
+    private void updateErrorsAndWarnings()
+    {
+        // Errors
+        errorsMap.clear();
+        indexErrors();
+
+        // Warnings
+        warningsMap.clear();
+        indexWarnings();
+    }
+
+
     /**
      * Indexes the errors.
      */
     private void indexErrors()
     {
-        for ( Throwable error : schemaManager.getErrors() )
+        for ( Map.Entry<Throwable, SchemaObject> errorSource : errorsSources.entrySet() )
+        {
+            errorsMap.put( errorSource.getValue(), errorSource.getKey() );
+        }
+    }
+
+
+    /**
+     * Gets the schema object of the schema handler the given error is attached to.
+     *
+     * @param error
+     *      the error
+     * @return
+     *      the schema object, or null if the error is not attached to a schema object
+     */
+    private SchemaObject getSource( Throwable error )
+    {
+        if ( error instanceof LdapSchemaException )
         {
-            if ( error instanceof LdapSchemaException )
+            LdapSchemaException ldapSchemaException = ( LdapSchemaException ) error;
+            SchemaObject source = ldapSchemaException.getSourceObject();
+            if ( source != null )
             {
-                LdapSchemaException ldapSchemaException = ( LdapSchemaException ) error;
-                SchemaObject source = ldapSchemaException.getSourceObject();
-                if ( source != null )
+                SchemaHandler schemaHandler = Activator.getDefault().getSchemaHandler();
+
+                if ( source instanceof AttributeType )
+                {
+                    source = schemaHandler.getAttributeType( source.getOid() );
+                }
+                else if ( source instanceof LdapSyntax )
+                {
+                    source = schemaHandler.getSyntax( source.getOid() );
+                }
+                else if ( source instanceof MatchingRule )
                 {
-                    SchemaHandler schemaHandler = Activator.getDefault().getSchemaHandler();
-
-                    if ( source instanceof AttributeType )
-                    {
-                        source = schemaHandler.getAttributeType( source.getOid() );
-                    }
-                    else if ( source instanceof LdapSyntax )
-                    {
-                        source = schemaHandler.getSyntax( source.getOid() );
-                    }
-                    else if ( source instanceof MatchingRule )
-                    {
-                        source = schemaHandler.getMatchingRule( source.getOid() );
-                    }
-                    else if ( source instanceof ObjectClass )
-                    {
-                        source = schemaHandler.getObjectClass( source.getOid() );
-                    }
-
-                    errorsMap.put( source, ldapSchemaException );
+                    source = schemaHandler.getMatchingRule( source.getOid() );
                 }
+                else if ( source instanceof ObjectClass )
+                {
+                    source = schemaHandler.getObjectClass( source.getOid() );
+                }
+
+                return source;
             }
         }
+
+        return null;
     }
 
 
@@ -417,13 +725,9 @@ public class SchemaChecker
      */
     public List<Throwable> getErrors()
     {
-        if ( schemaManager != null )
-        {
-            return schemaManager.getErrors();
-        }
-        else
+        synchronized ( lock )
         {
-            return new ArrayList<Throwable>();
+            return new ArrayList<Throwable>( errorsList );
         }
     }
 
@@ -443,6 +747,44 @@ public class SchemaChecker
     }
 
 
+    /**
+     * Gets the duration of the last check.
+     *
+     * @return
+     *      the duration of the last check, in milliseconds
+     */
+    public long getLastCheckDuration()
+    {
+        return lastCheckDuration;
+    }
+
+
+    /**
+     * Gets the latency of the last check, that is the time elapsed between the first
+     * modification it includes and its end, including the delay used to gather
+     * bursts of modifications.
+     *
+     * @return
+     *      the latency of the last check, in milliseconds
+     */
+    public long getLastCheckLatency()
+    {
+        return lastCheckLatency;
+    }
+
+
+    /**
+     * Gets the number of schema objects validated by the last check.
+     *
+     * @return
+     *      the number of schema objects validated by the last check
+     */
+    public int getLastCheckSize()
+    {
+        return lastCheckSize;
+    }
+
+
     /**
      * Adds a SchemaCheckerListener.
      *
@@ -0,0 +1,397 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *  
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License. 
+ *  
+ */
+package org.apache.directory.studio.schemaeditor.model.schemachecker;
+
+
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.directory.api.ldap.model.schema.AttributeType;
+import org.apache.directory.api.ldap.model.schema.MatchingRule;
+import org.apache.directory.api.ldap.model.schema.ObjectClass;
+import org.apache.directory.api.ldap.model.schema.SchemaObject;
+import org.apache.directory.api.util.Strings;
+
+
+/**
+ * This class represents the dependency graph of the schema objects checked by the {@link SchemaChecker}.
+ * <p>
+ * Schema objects reference each other by name or OID (superiors, syntaxes, matching rules, must
+ * and may attribute types), so the graph indexes the lower-cased identifiers declared and
+ * referenced by each object. Objects are tracked by identity, and the identifiers are recorded
+ * when the object is added, which allows finding the objects depending on the old names or OID
+ * of an object that has been modified in place.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+class SchemaDependencyGraph
+{
+    /** The declared and referenced identifiers of each schema object */
+    private Map<SchemaObject, Node> nodes = new IdentityHashMap<SchemaObject, Node>();
+
+    /** The schema objects declaring each identifier */
+    private Map<String, Set<SchemaObject>> declarations = new HashMap<String, Set<SchemaObject>>();
+
+    /** The schema objects referencing each identifier */
+    private Map<String, Set<SchemaObject>> usages = new HashMap<String, Set<SchemaObject>>();
+
+
+    /**
+     * Adds the given schema object to the graph, or updates its identifiers if it is already
+     * part of the graph.
+     *
+     * @param schemaObject
+     *      the schema object
+     */
+    void add( SchemaObject schemaObject )
+    {
+        remove( schemaObject );
+
+        Node node = new Node( getDeclaredIdentifiers( schemaObject ), getReferencedIdentifiers( schemaObject ) );
+        nodes.put( schemaObject, node );
+
+        for ( String identifier : node.identifiers )
+        {
+            put( declarations, identifier, schemaObject );
+        }
+
+        for ( String reference : node.references )
+        {
+            put( usages, reference, schemaObject );
+        }
+    }
+
+
+    /**
+     * Removes the given schema object from the graph.
+     *
+     * @param schemaObject
+     *      the schema object
+     * @return
+     *      the identifiers the schema object was declaring when it was added,
+     *      or an empty set if it was not part of the graph
+     */
+    Set<String> remove( SchemaObject schemaObject )
+    {
+        Node node = nodes.remove( schemaObject );
+
+        if ( node == null )
+        {
+            return Collections.emptySet();
+        }
+
+        for ( String identifier : node.identifiers )
+        {
+            delete( declarations, identifier, schemaObject );
+        }
+
+        for ( String reference : node.references )
+        {
+            delete( usages, reference, schemaObject );
+        }
+
+        return node.identifiers;
+    }
+
+
+    /**
+     * Removes all the schema objects from the graph.
+     */
+    void clear()
+    {
+        nodes.clear();
+        declarations.clear();
+        usages.clear();
+    }
+
+
+    /**
+     * Returns whether the given schema object is part of the graph.
+     *
+     * @param schemaObject
+     *      the schema object
+     * @return
+     *      true if the schema object is part of the graph
+     */
+    boolean contains( SchemaObject schemaObject )
+    {
+        return nodes.containsKey( schemaObject );
+    }
+
+
+    /**
+     * Gets the number of schema objects in the graph.
+     *
+     * @return
+     *      the number of schema objects
+     */
+    int size()
+    {
+        return nodes.size();
+    }
+
+
+    /**
+     * Gets the schema objects whose check result may change when the given schema objects
+     * or identifiers change: the given schema objects, the objects referencing them or
+     * declaring one of their identifiers, and so on transitively.
+     *
+     * @param schemaObjects
+     *      the changed schema objects
+     * @param identifiers
+     *      additional lower-cased identifiers that changed, like the old names of a modified
+     *      or removed schema object
+     * @return
+     *      the affected schema objects
+     */
+    Set<SchemaObject> getAffected( Collection<? extends SchemaObject> schemaObjects, Collection<String> identifiers )
+    {
+        Set<SchemaObject> affected = newIdentitySet();
+        Set<String> visited = new HashSet<String>();
+        Deque<String> queue = new ArrayDeque<String>( identifiers );
+
+        for ( SchemaObject schemaObject : schemaObjects )
+        {
+            Node node = nodes.get( schemaObject );
+
+            if ( node != null && affected.add( schemaObject ) )
+            {
+                queue.addAll( node.identifiers );
+            }
+        }
+
+        while ( !queue.isEmpty() )
+        {
+            String identifier = queue.poll();
+
+            if ( visited.add( identifier ) )
+            {
+                visit( get( declarations, identifier ), affected, queue );
+                visit( get( usages, identifier ), affected, queue );
+            }
+        }
+
+        return affected;
+    }
+
+
+    /**
+     * Gets the given schema objects and all the schema objects they reference, transitively.
+     * This is the smallest set of schema objects that must be loaded to check the given ones.
+     *
+     * @param schemaObjects
+     *      the schema objects
+     * @return
+     *      the given schema objects and their references
+     */
+    Set<SchemaObject> getReferenced( Collection<? extends SchemaObject> schemaObjects )
+    {
+        Set<SchemaObject> referenced = newIdentitySet();
+        Set<String> visited = new HashSet<String>();
+        Deque<SchemaObject> queue = new ArrayDeque<SchemaObject>( schemaObjects );
+
+        while ( !queue.isEmpty() )
+        {
+            SchemaObject schemaObject = queue.poll();
+            Node node = nodes.get( schemaObject );
+
+            if ( node != null && referenced.add( schemaObject ) )
+            {
+                for ( String reference : node.references )
+                {
+                    if ( visited.add( reference ) )
+                    {
+                        queue.addAll( get( declarations, reference ) );
+                    }
+                }
+            }
+        }
+
+        return referenced;
+    }
+
+
+    /**
+     * Adds the given schema objects to the affected ones, and queues the identifiers
+     * of the newly affected schema objects.
+     */
+    private void visit( Set<SchemaObject> schemaObjects, Set<SchemaObject> affected, Deque<String> queue )
+    {
+        for ( SchemaObject schemaObject : schemaObjects )
+        {
+            if ( affected.add( schemaObject ) )
+            {
+                queue.addAll( nodes.get( schemaObject ).identifiers );
+            }
+        }
+    }
+
+
+    /**
+     * Creates a new set comparing schema objects by identity.
+     *
+     * @return
+     *      a new identity set
+     */
+    static Set<SchemaObject> newIdentitySet()
+    {
+        return Collections.newSetFromMap( new IdentityHashMap<SchemaObject, Boolean>() );
+    }
+
+
+    /**
+     * Gets the lower-cased OID and names of the given schema object.
+     */
+    private static Set<String> getDeclaredIdentifiers( SchemaObject schemaObject )
+    {
+        Set<String> identifiers = new HashSet<String>();
+
+        addIdentifier( identifiers, schemaObject.getOid() );
+
+        if ( schemaObject.getNames() != null )
+        {
+            for ( String name : schemaObject.getNames() )
+            {
+                addIdentifier( identifiers, name );
+            }
+        }
+
+        return identifiers;
+    }
+
+
+    /**
+     * Gets the lower-cased names or OIDs referenced by the given schema object.
+     */
+    private static Set<String> getReferencedIdentifiers( SchemaObject schemaObject )
+    {
+        Set<String> references = new HashSet<String>();
+
+        if ( schemaObject instanceof AttributeType )
+        {
+            AttributeType attributeType = ( AttributeType ) schemaObject;
+            addIdentifier( references, attributeType.getSuperiorOid() );
+            addIdentifier( references, attributeType.getSyntaxOid() );
+            addIdentifier( references, attributeType.getEqualityOid() );
+            addIdentifier( references, attributeType.getOrderingOid() );
+            addIdentifier( references, attributeType.getSubstringOid() );
+        }
+        else if ( schemaObject instanceof ObjectClass )
+        {
+            ObjectClass objectClass = ( ObjectClass ) schemaObject;
+            addIdentifiers( references, objectClass.getSuperiorOids() );
+            addIdentifiers( references, objectClass.getMustAttributeTypeOids() );
+            addIdentifiers( references, objectClass.getMayAttributeTypeOids() );
+        }
+        else if ( schemaObject instanceof MatchingRule )
+        {
+            addIdentifier( references, ( ( MatchingRule ) schemaObject ).getSyntaxOid() );
+        }
+
+        return references;
+    }
+
+
+    private static void addIdentifiers( Set<String> identifiers, Collection<String> values )
+    {
+        if ( values != null )
+        {
+            for ( String value : values )
+            {
+                addIdentifier( identifiers, value );
+            }
+        }
+    }
+
+
+    private static void addIdentifier( Set<String> identifiers, String value )
+    {
+        if ( !Strings.isEmpty( value ) )
+        {
+            identifiers.add( Strings.toLowerCase( Strings.trim( value ) ) );
+        }
+    }
+
+
+    private static void put( Map<String, Set<SchemaObject>> index, String key, SchemaObject schemaObject )
+    {
+        Set<SchemaObject> schemaObjects = index.get( key );
+
+        if ( schemaObjects == null )
+        {
+            schemaObjects = newIdentitySet();
+            index.put( key, schemaObjects );
+        }
+
+        schemaObjects.add( schemaObject );
+    }
+
+
+    private static void delete( Map<String, Set<SchemaObject>> index, String key, SchemaObject schemaObject )
+    {
+        Set<SchemaObject> schemaObjects = index.get( key );
+
+        if ( schemaObjects != null )
+        {
+            schemaObjects.remove( schemaObject );
+
+            if ( schemaObjects.isEmpty() )
+            {
+                index.remove( key );
+            }
+        }
+    }
+
+
+    private static Set<SchemaObject> get( Map<String, Set<SchemaObject>> index, String key )
+    {
+        Set<SchemaObject> schemaObjects = index.get( key );
+
+        return schemaObjects != null ? schemaObjects : Collections.<SchemaObject> emptySet();
+    }
+
+
+    /**
+     * The identifiers declared and referenced by a schema object, as they were when
+     * the schema object was added to the graph.
+     */
+    private static class Node
+    {
+        /** The lower-cased OID and names */
+        private final Set<String> identifiers;
+
+        /** The lower-cased referenced names or OIDs */
+        private final Set<String> references;
+
+
+        private Node( Set<String> identifiers, Set<String> references )
+        {
+            this.identifiers = identifiers;
+            this.references = references;
+        }
+    }
+}
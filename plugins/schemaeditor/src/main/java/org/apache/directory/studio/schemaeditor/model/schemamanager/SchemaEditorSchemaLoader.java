@@ -23,6 +23,7 @@ package org.apache.directory.studio.schemaeditor.model.schemamanager;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
 
 import org.apache.directory.api.ldap.model.entry.Entry;
 import org.apache.directory.api.ldap.model.exception.LdapException;
@@ -30,7 +31,9 @@ import org.apache.directory.api.ldap.model.schema.AttributeType;
 import org.apache.directory.api.ldap.model.schema.LdapSyntax;
 import org.apache.directory.api.ldap.model.schema.MatchingRule;
 import org.apache.directory.api.ldap.model.schema.ObjectClass;
+import org.apache.directory.api.ldap.model.schema.SchemaObject;
 import org.apache.directory.api.ldap.model.schema.registries.AbstractSchemaLoader;
+import org.apache.directory.api.ldap.model.schema.registries.DefaultSchema;
 import org.apache.directory.api.ldap.model.schema.registries.Schema;
 import org.apache.directory.studio.schemaeditor.Activator;
 import org.apache.directory.studio.schemaeditor.model.Project;
@@ -46,6 +49,9 @@ public class SchemaEditorSchemaLoader extends AbstractSchemaLoader
     /** The currently open project */
     private Project project;
 
+    /** The schema objects to load, or null to load all the schema objects */
+    private Set<SchemaObject> schemaObjects;
+
 
     /**
      * Creates a new instance of SchemaEditorSchemaLoader.
@@ -58,6 +64,20 @@ public class SchemaEditorSchemaLoader extends AbstractSchemaLoader
     }
 
 
+    /**
+     * Creates a new instance of SchemaEditorSchemaLoader only loading the given
+     * schema objects of the schemas of the open project.
+     *
+     * @param schemaObjects
+     *      the schema objects to load
+     */
+    public SchemaEditorSchemaLoader( Set<SchemaObject> schemaObjects )
+    {
+        this.schemaObjects = schemaObjects;
+        initializeSchemas();
+    }
+
+
     /**
      * Initialize schemas.
      */
@@ -70,7 +90,10 @@ public class SchemaEditorSchemaLoader extends AbstractSchemaLoader
                 .getSchemas();
             for ( org.apache.directory.studio.schemaeditor.model.Schema schemaObject : schemaObjects )
             {
-                schemaMap.put( schemaObject.getSchemaName(), schemaObject );
+                // The schema manager loads the schema objects through the loader of each schema,
+                // so the schemas of the project are registered as schemas bound to this loader
+                schemaMap.put( schemaObject.getSchemaName(), new DefaultSchema( this, schemaObject.getSchemaName(),
+                    schemaObject.getOwner(), schemaObject.getDependencies(), schemaObject.isDisabled() ) );
             }
         }
     }
@@ -123,7 +146,10 @@ public class SchemaEditorSchemaLoader extends AbstractSchemaLoader
 
                     for ( MatchingRule matchingRule : matchingRules )
                     {
-                        matchingRuleList.add( SchemaEditorSchemaLoaderUtils.toEntry( matchingRule ) );
+                        if ( accept( matchingRule ) )
+                        {
+                            matchingRuleList.add( SchemaEditorSchemaLoaderUtils.toEntry( matchingRule ) );
+                        }
                     }
                 }
             }
@@ -153,7 +179,10 @@ public class SchemaEditorSchemaLoader extends AbstractSchemaLoader
 
                     for ( LdapSyntax syntax : syntaxes )
                     {
-                        syntaxList.add( SchemaEditorSchemaLoaderUtils.toEntry( syntax ) );
+                        if ( accept( syntax ) )
+                        {
+                            syntaxList.add( SchemaEditorSchemaLoaderUtils.toEntry( syntax ) );
+                        }
                     }
                 }
             }
@@ -183,7 +212,10 @@ public class SchemaEditorSchemaLoader extends AbstractSchemaLoader
 
                     for ( AttributeType attributeType : attributeTypes )
                     {
-                        attributeTypeList.add( SchemaEditorSchemaLoaderUtils.toEntry( attributeType ) );
+                        if ( accept( attributeType ) )
+                        {
+                            attributeTypeList.add( SchemaEditorSchemaLoaderUtils.toEntry( attributeType ) );
+                        }
                     }
                 }
             }
@@ -249,7 +281,10 @@ public class SchemaEditorSchemaLoader extends AbstractSchemaLoader
 
                     for ( ObjectClass objectClass : objectClasses )
                     {
-                        objectClassList.add( SchemaEditorSchemaLoaderUtils.toEntry( objectClass ) );
+                        if ( accept( objectClass ) )
+                        {
+                            objectClassList.add( SchemaEditorSchemaLoaderUtils.toEntry( objectClass ) );
+                        }
                     }
                 }
             }
@@ -257,4 +292,18 @@ public class SchemaEditorSchemaLoader extends AbstractSchemaLoader
 
         return objectClassList;
     }
+
+
+    /**
+     * Returns whether the given schema object must be loaded.
+     *
+     * @param schemaObject
+     *      the schema object
+     * @return
+     *      true if the schema object must be loaded
+     */
+    private boolean accept( SchemaObject schemaObject )
+    {
+        return ( schemaObjects == null ) || schemaObjects.contains( schemaObject );
+    }
 }
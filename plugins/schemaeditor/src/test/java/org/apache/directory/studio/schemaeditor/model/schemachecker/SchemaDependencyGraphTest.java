@@ -0,0 +1,188 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *  
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License. 
+ *  
+ */
+package org.apache.directory.studio.schemaeditor.model.schemachecker;
+
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Set;
+
+import org.apache.directory.api.ldap.model.schema.AttributeType;
+import org.apache.directory.api.ldap.model.schema.LdapSyntax;
+import org.apache.directory.api.ldap.model.schema.ObjectClass;
+import org.apache.directory.api.ldap.model.schema.SchemaObject;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+
+/**
+ * This class tests the {@link SchemaDependencyGraph} class.
+ *
+ * @author <a href="mailto:dev@directory.apache.org">Apache Directory Project</a>
+ */
+public class SchemaDependencyGraphTest
+{
+    private SchemaDependencyGraph graph;
+
+    private LdapSyntax directoryString;
+
+    private AttributeType name;
+
+    private AttributeType cn;
+
+    private AttributeType description;
+
+    private ObjectClass top;
+
+    private ObjectClass person;
+
+
+    @BeforeEach
+    public void setUp()
+    {
+        directoryString = new LdapSyntax( "1.3.6.1.4.1.1466.115.121.1.15" ); //$NON-NLS-1$
+
+        name = new AttributeType( "2.5.4.41" ); //$NON-NLS-1$
+        name.setNames( "name" ); //$NON-NLS-1$
+        name.setSyntaxOid( "1.3.6.1.4.1.1466.115.121.1.15" ); //$NON-NLS-1$
+
+        cn = new AttributeType( "2.5.4.3" ); //$NON-NLS-1$
+        cn.setNames( "cn", "commonName" ); //$NON-NLS-1$ //$NON-NLS-2$
+        cn.setSuperiorOid( "Name" ); //$NON-NLS-1$
+
+        description = new AttributeType( "2.5.4.13" ); //$NON-NLS-1$
+        description.setNames( "description" ); //$NON-NLS-1$
+        description.setSyntaxOid( "1.3.6.1.4.1.1466.115.121.1.15" ); //$NON-NLS-1$
+
+        top = new ObjectClass( "2.5.6.0" ); //$NON-NLS-1$
+        top.setNames( "top" ); //$NON-NLS-1$
+
+        person = new ObjectClass( "2.5.6.6" ); //$NON-NLS-1$
+        person.setNames( "person" ); //$NON-NLS-1$
+        person.setSuperiorOids( Arrays.asList( "top" ) ); //$NON-NLS-1$
+        person.setMustAttributeTypeOids( Arrays.asList( "commonName" ) ); //$NON-NLS-1$
+        person.setMayAttributeTypeOids( Arrays.asList( "description" ) ); //$NON-NLS-1$
+
+        graph = new SchemaDependencyGraph();
+
+        for ( SchemaObject schemaObject : new SchemaObject[]
+            { directoryString, name, cn, description, top, person } )
+        {
+            graph.add( schemaObject );
+        }
+    }
+
+
+    @Test
+    public void testAffectedByModification()
+    {
+        Set<SchemaObject> affected = graph.getAffected( Arrays.asList( name ), Collections.<String> emptySet() );
+
+        assertEquals( 3, affected.size() );
+        assertTrue( affected.contains( name ) );
+        assertTrue( affected.contains( cn ) );
+        assertTrue( affected.contains( person ) );
+    }
+
+
+    @Test
+    public void testAffectedByLeafModification()
+    {
+        Set<SchemaObject> affected = graph.getAffected( Arrays.asList( person ), Collections.<String> emptySet() );
+
+        assertEquals( 1, affected.size() );
+        assertTrue( affected.contains( person ) );
+    }
+
+
+    @Test
+    public void testAffectedByRenaming()
+    {
+        // The old names of a modified schema object are given by the graph when updating it
+        Set<String> oldIdentifiers = graph.remove( cn );
+        cn.setNames( "cn2" ); //$NON-NLS-1$
+        graph.add( cn );
+
+        Set<SchemaObject> affected = graph.getAffected( Arrays.asList( cn ), oldIdentifiers );
+
+        assertTrue( oldIdentifiers.contains( "commonname" ) ); //$NON-NLS-1$
+        assertEquals( 2, affected.size() );
+        assertTrue( affected.contains( cn ) );
+        assertTrue( affected.contains( person ) );
+    }
+
+
+    @Test
+    public void testAffectedByRemoval()
+    {
+        Set<String> oldIdentifiers = graph.remove( description );
+        Set<SchemaObject> affected = graph.getAffected( Collections.<SchemaObject> emptyList(), oldIdentifiers );
+
+        assertFalse( graph.contains( description ) );
+        assertEquals( 1, affected.size() );
+        assertTrue( affected.contains( person ) );
+    }
+
+
+    @Test
+    public void testAffectedByDuplicateOid()
+    {
+        AttributeType duplicate = new AttributeType( "2.5.4.13" ); //$NON-NLS-1$
+        duplicate.setNames( "duplicate" ); //$NON-NLS-1$
+        graph.add( duplicate );
+
+        Set<SchemaObject> affected = graph.getAffected( Arrays.asList( duplicate ), Collections.<String> emptySet() );
+
+        assertTrue( affected.contains( duplicate ) );
+        assertTrue( affected.contains( description ) );
+        assertTrue( affected.contains( person ) );
+    }
+
+
+    @Test
+    public void testReferenced()
+    {
+        Set<SchemaObject> referenced = graph.getReferenced( Arrays.asList( person ) );
+
+        assertEquals( 6, referenced.size() );
+
+        referenced = graph.getReferenced( Arrays.asList( top ) );
+
+        assertEquals( 1, referenced.size() );
+        assertTrue( referenced.contains( top ) );
+    }
+
+
+    @Test
+    public void testIdentity()
+    {
+        AttributeType copy = new AttributeType( "2.5.4.41" ); //$NON-NLS-1$
+        copy.setNames( "name" ); //$NON-NLS-1$
+        copy.setSyntaxOid( "1.3.6.1.4.1.1466.115.121.1.15" ); //$NON-NLS-1$
+
+        assertTrue( graph.contains( name ) );
+        assertFalse( graph.contains( copy ) );
+        assertEquals( 6, graph.size() );
+    }
+}